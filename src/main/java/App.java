@@ -6,13 +6,16 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Queue;
 import java.util.TimeZone;
 
 import org.mitre.synthea.engine.Generator;
 import org.mitre.synthea.engine.Module;
+import org.mitre.synthea.engine.ShardLauncher;
 import org.mitre.synthea.export.Exporter;
 import org.mitre.synthea.export.flexporter.Mapping;
 import org.mitre.synthea.helpers.Config;
@@ -41,6 +44,9 @@ public class App {
     System.out.println("         [-t updateTimePeriodInDays]");
     System.out.println("         [-f fixedRecordPath]");
     System.out.println("         [-k keepMatchingPatientsPath]");
+    System.out.println("         [-w workerProcesses]");
+    System.out.println("         [-shard shardIndex/shardCount]");
+    System.out.println("         [-resume]");
     System.out.println("         [--config*=value]");
     System.out.println("          * any setting from src/main/resources/synthea.properties");
     System.out.println("Examples:");
@@ -52,6 +58,9 @@ public class App {
     System.out.println("run_synthea -s 21 -p 100 Utah \"Salt Lake City\"");
     System.out.println("run_synthea -g M -a 60-65");
     System.out.println("run_synthea -p 10 --exporter.fhir.export=true");
+    System.out.println("run_synthea -p 100000 -w 4");
+    System.out.println("run_synthea -p 100000 --generate.checkpoint.interval=1000");
+    System.out.println("run_synthea -resume --generate.checkpoint.interval=1000");
     System.out.println("run_synthea --exporter.baseDirectory=\"./output_tx/\" Texas");
   }
 
@@ -67,6 +76,7 @@ public class App {
     boolean validArgs = true;
     boolean overrideFutureDateError = false;
     boolean reloadConfig = false;
+    int workers = 1;
     if (args != null && args.length > 0) {
       try {
         Queue<String> argsQ = new LinkedList<String>(Arrays.asList(args));
@@ -102,6 +112,30 @@ public class App {
             SimpleDateFormat format = new SimpleDateFormat("yyyyMMdd");
             format.setTimeZone(TimeZone.getTimeZone("UTC"));
             options.endTime = format.parse(value).getTime();
+          } else if (currArg.equalsIgnoreCase("-w")) {
+            String value = argsQ.poll();
+            workers = Integer.parseInt(value);
+            if (workers < 1) {
+              throw new IllegalArgumentException("Worker count must be a positive integer.");
+            }
+          } else if (currArg.equalsIgnoreCase("-shard")) {
+            // shardIndex/shardCount, optionally followed by /referenceTime/endTime in
+            // milliseconds so that every worker of a sharded run uses the same times
+            String value = argsQ.poll();
+            String[] values = value.split("/");
+            if (values.length != 2 && values.length != 4) {
+              throw new Exception("Shard format: shardIndex/shardCount. E.g. 0/4.");
+            }
+            options.shardIndex = Integer.parseInt(values[0]);
+            options.shardCount = Integer.parseInt(values[1]);
+            if (values.length == 4) {
+              options.referenceTime = Long.parseLong(values[2]);
+              options.endTime = Long.parseLong(values[3]);
+              overrideFutureDateError = true;
+            }
+          } else if (currArg.equalsIgnoreCase("-resume")) {
+            // continue the run checkpointed in the output directory
+            options.resume = true;
           } else if (currArg.equalsIgnoreCase("-p")) {
             String value = argsQ.poll();
             options.population = Integer.parseInt(value);
@@ -271,8 +305,27 @@ public class App {
     }
 
     if (validArgs && validateConfig(options, overrideFutureDateError)) {
-      Generator generator = new Generator(options, exportOptions);
-      generator.run();
+      if (workers > 1) {
+        if (options.singlePersonSeed != null || options.initialPopulationSnapshotPath != null
+            || options.updatedPopulationSnapshotPath != null || options.shardCount > 1) {
+          System.out.println("Error: the -w switch cannot be combined with -ps, -i, -u or "
+              + "-shard.");
+          return;
+        }
+        // Every other argument is passed through to the workers
+        List<String> workerArgs = new ArrayList<String>();
+        for (int i = 0; i < args.length; i++) {
+          if (args[i].equalsIgnoreCase("-w")) {
+            i++;
+          } else {
+            workerArgs.add(args[i]);
+          }
+        }
+        new ShardLauncher(workerArgs, options, workers).run();
+      } else {
+        Generator generator = new Generator(options, exportOptions);
+        generator.run();
+      }
     }
   }
 
@@ -285,6 +338,9 @@ public class App {
     // file during options initialization need to be reset here.
     options.population = Config.getAsInteger("generate.default_population", 1);
     options.threadPoolSize = Config.getAsInteger("generate.thread_pool_size", -1);
+    options.checkpointInterval = Config.getAsInteger("generate.checkpoint.interval", 0);
+    options.exportThreadPoolSize = Config.getAsInteger("generate.export.thread_pool_size", 0);
+    options.exportQueueSize = Config.getAsInteger("generate.export.queue_size", 100);
 
     exportOptions.yearsOfHistory = Config.getAsInteger("exporter.years_of_history", 10);
     exportOptions.terminologyService = !Config.get("generate.terminology_service_url", "")
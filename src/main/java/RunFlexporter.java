@@ -25,7 +25,6 @@ import org.hl7.fhir.r4.model.Resource;
 import org.hl7.fhir.r4.model.ValueSet;
 import org.mitre.synthea.export.FhirR4;
 import org.mitre.synthea.export.flexporter.Actions;
-import org.mitre.synthea.export.flexporter.FhirPathUtils;
 import org.mitre.synthea.export.flexporter.FlexporterJavascriptContext;
 import org.mitre.synthea.export.flexporter.Mapping;
 import org.mitre.synthea.helpers.RandomCodeGenerator;
@@ -114,7 +113,7 @@ public class RunFlexporter {
 
 
   private static Bundle convertFhir(Bundle bundle, Mapping mapping) {
-    if (FhirPathUtils.appliesToBundle(bundle, mapping.applicability, mapping.variables)) {
+    if (mapping.appliesTo(bundle)) {
       bundle = Actions.applyMapping(bundle, mapping, null, new FlexporterJavascriptContext());
     }
 
@@ -0,0 +1,513 @@
+package org.mitre.synthea.engine;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.mitre.synthea.export.CSVExporter;
+import org.mitre.synthea.export.Exporter;
+import org.mitre.synthea.export.FhirGroupExporterR4;
+import org.mitre.synthea.export.OutputCodec;
+import org.mitre.synthea.helpers.Config;
+import org.mitre.synthea.world.agents.Payer;
+import org.mitre.synthea.world.agents.PayerManager;
+import org.mitre.synthea.world.agents.Provider;
+
+/**
+ * Crash-safe progress tracking for long generation runs. Every <code>interval</code> completed
+ * people, all append-mode output files are flushed and synced to disk and a block is appended
+ * to a journal in the <code>checkpoint</code> directory of the output folder. Each block holds
+ * the indices of the people completed since the previous block, the length of every
+ * append-mode output file, and a reference to a snapshot of the aggregate statistics
+ * (provider and payer utilization, the FHIR group members and the alive/dead counts) that the
+ * post-completion exports are computed from, and of the next CSV claim transaction CHARGEID.
+ *
+ * <p>When a run is resumed, the last complete block is used to truncate every output file back
+ * to its checkpointed length, discarding the rows of anyone who was still being exported when
+ * the run stopped, and to restore the aggregate statistics. Completed indices are then skipped,
+ * and because every index is given the same seed as before, the people that are regenerated
+ * are identical to the ones that were lost.</p>
+ *
+ * <p>A person is only counted as complete once their export has finished. Generation of a
+ * person holds a read lock and taking a checkpoint holds the write lock, so a checkpoint is
+ * always taken between people and never sees a half written record.</p>
+ */
+public class Checkpoint {
+  /** Name of the checkpoint directory within the output directory. */
+  public static final String DIRECTORY = "checkpoint";
+  private static final String JOURNAL = "journal";
+  private static final String AGGREGATES = "aggregates.%d.ser";
+  /**
+   * Output folders whose files are all written by exporters that journal their offsets: the
+   * CSV exporter and the FHIR bulk data exporters. A file in one of these folders that the
+   * journal does not record was only started after the last checkpoint. Other exporters, such
+   * as BFD, CDW and the symptom exporters, are not checkpointed, so their files are never
+   * deleted.
+   */
+  private static final String[] JOURNALED_FOLDERS = {"csv", "fhir", "fhir_stu3", "fhir_dstu2"};
+
+  private final Generator generator;
+  private final Path outputDirectory;
+  private final Path directory;
+  private final int interval;
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock(true);
+  private final AtomicInteger completedCount = new AtomicInteger();
+  private final BitSet pending = new BitSet();
+  private Journal journal;
+
+  /**
+   * Create a new checkpoint for the given generator.
+   * @param generator the generator whose progress is tracked.
+   * @param outputDirectory the output directory of the run.
+   * @param interval the number of people to generate between checkpoints, or 0 to never take
+   *     a checkpoint.
+   */
+  public Checkpoint(Generator generator, Path outputDirectory, int interval) {
+    this.generator = generator;
+    this.outputDirectory = outputDirectory.toAbsolutePath().normalize();
+    this.directory = this.outputDirectory.resolve(DIRECTORY);
+    this.interval = interval;
+    this.journal = new Journal();
+  }
+
+  /**
+   * Load the journal of a previous run, if there is one, and replace the seeds, times and
+   * population size in the options with the ones that run used.
+   * @param options the options to update.
+   * @throws IOException if the journal cannot be read.
+   */
+  public void load(Generator.GeneratorOptions options) throws IOException {
+    journal = Journal.read(directory.resolve(JOURNAL));
+    if (journal.sequence == 0) {
+      System.out.println("No checkpoint found in " + directory + ", starting a new run.");
+      return;
+    }
+    options.seed = journal.seed;
+    options.clinicianSeed = journal.clinicianSeed;
+    options.referenceTime = journal.referenceTime;
+    options.endTime = journal.endTime;
+    options.population = journal.population;
+    // Rows are appended after the checkpointed contents of the CSV files
+    Config.set("exporter.csv.append_mode", "true");
+    System.out.println(String.format("Resuming from checkpoint %d with %d people complete.",
+        journal.sequence, journal.completed.cardinality()));
+  }
+
+  /**
+   * Prepare the output directory and the generator to continue the run recorded by the
+   * journal loaded with {@link #load(Generator.GeneratorOptions)}. Every checkpointed output
+   * file is truncated to its checkpointed length and any other append-mode output file of a
+   * checkpointed exporter is deleted, since it only holds rows from people who will be
+   * generated again. The aggregate statistics are then restored. If no journal was found, the
+   * run starts fresh and the output directory is left as it is. This must be called after
+   * providers and payers are loaded and before anyone is generated.
+   * @throws IOException if the output files or aggregates cannot be restored.
+   */
+  public void restore() throws IOException {
+    if (journal.sequence == 0) {
+      return;
+    }
+    truncateFiles(journal.files);
+    deleteUnknownFiles(outputDirectory, journal.files.keySet());
+    Path path = directory.resolve(String.format(AGGREGATES, journal.sequence));
+    try (InputStream in = Files.newInputStream(path);
+        ObjectInputStream ois = new ObjectInputStream(in)) {
+      ((Aggregates) ois.readObject()).restore(generator);
+    } catch (ClassNotFoundException e) {
+      throw new IOException("Unable to read checkpoint aggregates " + path, e);
+    }
+  }
+
+  /**
+   * Whether the person with the given index was completed before the last checkpoint.
+   * @param index the index of the person.
+   * @return true if the person does not need to be generated again.
+   */
+  public boolean isComplete(int index) {
+    return journal.completed.get(index);
+  }
+
+  /**
+   * Generate a person, taking a checkpoint afterwards if one is due.
+   * @param index the index of the person.
+   * @param task generates and exports the person.
+   */
+  public void run(int index, Runnable task) {
+    lock.readLock().lock();
+    try {
+      task.run();
+      synchronized (pending) {
+        pending.set(index);
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    if (interval > 0 && completedCount.incrementAndGet() % interval == 0) {
+      try {
+        write();
+      } catch (IOException e) {
+        throw new RuntimeException("Unable to write checkpoint", e);
+      }
+    }
+  }
+
+  /**
+   * Take a checkpoint of everyone completed so far. Waits for anyone currently being generated
+   * to finish, and blocks anyone else from starting until the checkpoint has been written.
+   * @throws IOException if the checkpoint cannot be written.
+   */
+  public void write() throws IOException {
+    lock.writeLock().lock();
+    try {
+      if (pending.isEmpty()) {
+        return;
+      }
+      Files.createDirectories(directory);
+      Map<Path, Long> files = new TreeMap<>();
+      for (Path file : Exporter.flushOpenFiles()) {
+        Path path = file.toAbsolutePath().normalize();
+        if (Files.exists(path)) {
+          try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.force(true);
+            files.put(path, channel.size());
+          }
+        }
+      }
+
+      int sequence = journal.sequence + 1;
+      Path aggregates = directory.resolve(String.format(AGGREGATES, sequence));
+      Path temporary = directory.resolve(aggregates.getFileName() + ".tmp");
+      try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+          StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        OutputStream out = Channels.newOutputStream(channel);
+        ObjectOutputStream oos = new ObjectOutputStream(out);
+        oos.writeObject(new Aggregates(generator));
+        oos.flush();
+        channel.force(true);
+      }
+      Files.move(temporary, aggregates, StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+
+      journal.append(directory.resolve(JOURNAL), sequence, generator.options, files, pending);
+      pending.clear();
+      Files.deleteIfExists(directory.resolve(String.format(AGGREGATES, sequence - 1)));
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Remove the checkpoint directory once the run has finished.
+   * @throws IOException if the directory cannot be removed.
+   */
+  public void delete() throws IOException {
+    if (Files.exists(directory)) {
+      try (Stream<Path> walk = Files.walk(directory)) {
+        for (Path path : walk.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+          Files.delete(path);
+        }
+      }
+    }
+  }
+
+  /**
+   * Truncate each file to the given length. Files that are already no longer than their
+   * checkpointed length are left as they are.
+   * @param files the files and their checkpointed lengths.
+   * @throws IOException if a file cannot be truncated.
+   */
+  static void truncateFiles(Map<Path, Long> files) throws IOException {
+    for (Map.Entry<Path, Long> entry : files.entrySet()) {
+      Path path = entry.getKey();
+      if (!Files.exists(path)) {
+        continue;
+      }
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+        if (channel.size() < entry.getValue()) {
+          System.err.println(String.format("Warning: %s is shorter than its checkpointed "
+              + "length (%d < %d)", path, channel.size(), entry.getValue()));
+        } else if (channel.size() > entry.getValue()) {
+          channel.truncate(entry.getValue());
+          channel.force(true);
+        }
+      }
+    }
+  }
+
+  /**
+   * Delete any append-mode output file (CSV or NDJSON, compressed or not) of a checkpointed
+   * exporter that was not part of the checkpoint. Only the folders in
+   * {@link #JOURNALED_FOLDERS} are searched.
+   * @param outputDirectory the output directory.
+   * @param known the checkpointed files.
+   * @throws IOException if the output directory cannot be read.
+   */
+  static void deleteUnknownFiles(Path outputDirectory, Set<Path> known)
+      throws IOException {
+    List<Path> unknown = new ArrayList<>();
+    for (String folder : JOURNALED_FOLDERS) {
+      Path journaled = outputDirectory.resolve(folder);
+      if (!Files.isDirectory(journaled)) {
+        continue;
+      }
+      try (Stream<Path> walk = Files.walk(journaled)) {
+        walk.filter(Files::isRegularFile)
+            .map(path -> path.toAbsolutePath().normalize())
+            .filter(path -> !known.contains(path))
+            .filter(path -> {
+              String name = path.getFileName().toString();
+              name = OutputCodec.forFile(path).strip(name);
+              return name.endsWith(".csv") || name.endsWith(".ndjson");
+            })
+            .forEach(unknown::add);
+      }
+    }
+    for (Path path : unknown) {
+      Files.delete(path);
+    }
+  }
+
+  /**
+   * Contents of the journal, up to and including the last complete block. A block is only
+   * complete once its closing <code>end</code> line has been written, so a block that was
+   * being written when the run stopped is ignored.
+   */
+  static class Journal {
+    int sequence;
+    long seed;
+    long clinicianSeed;
+    long referenceTime;
+    long endTime;
+    int population;
+    final BitSet completed = new BitSet();
+    final Map<Path, Long> files = new TreeMap<>();
+
+    /**
+     * Read a journal.
+     * @param path the journal file.
+     * @return the journal, which is empty if the file does not exist.
+     * @throws IOException if the file cannot be read.
+     */
+    static Journal read(Path path) throws IOException {
+      Journal journal = new Journal();
+      if (!Files.exists(path)) {
+        return journal;
+      }
+      long[] run = null;
+      BitSet done = new BitSet();
+      Map<Path, Long> files = new HashMap<>();
+      try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          String[] fields = line.split(" ", 3);
+          switch (fields[0]) {
+            case "checkpoint":
+              run = null;
+              done.clear();
+              files.clear();
+              break;
+            case "run":
+              run = new long[5];
+              String[] values = line.split(" ");
+              for (int i = 0; i < run.length; i++) {
+                run[i] = Long.parseLong(values[i + 1]);
+              }
+              break;
+            case "done":
+              parseRanges(fields.length > 1 ? fields[1] : "", done);
+              break;
+            case "file":
+              files.put(Paths.get(fields[2]), Long.parseLong(fields[1]));
+              break;
+            case "end":
+              if (run == null) {
+                break;
+              }
+              journal.sequence = Integer.parseInt(fields[1]);
+              journal.seed = run[0];
+              journal.clinicianSeed = run[1];
+              journal.referenceTime = run[2];
+              journal.endTime = run[3];
+              journal.population = (int) run[4];
+              journal.completed.or(done);
+              journal.files.clear();
+              journal.files.putAll(files);
+              break;
+            default:
+              // a partially written line at the end of the journal
+              break;
+          }
+        }
+      }
+      return journal;
+    }
+
+    /**
+     * Append a complete block to the journal and sync it to disk, then add it to this journal.
+     * @param path the journal file.
+     * @param sequence the sequence number of the block.
+     * @param options the options of the run.
+     * @param files the checkpointed files and their lengths.
+     * @param done the indices of the people completed since the previous block.
+     * @throws IOException if the journal cannot be written.
+     */
+    void append(Path path, int sequence, Generator.GeneratorOptions options,
+        Map<Path, Long> files, BitSet done) throws IOException {
+      StringBuilder block = new StringBuilder();
+      block.append("checkpoint ").append(sequence).append('\n');
+      block.append(String.format("run %d %d %d %d %d\n", options.seed, options.clinicianSeed,
+          options.referenceTime, options.endTime, options.population));
+      block.append("done ").append(formatRanges(done)).append('\n');
+      for (Map.Entry<Path, Long> entry : files.entrySet()) {
+        block.append("file ").append(entry.getValue()).append(' ').append(entry.getKey())
+            .append('\n');
+      }
+      block.append("end ").append(sequence).append('\n');
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+          StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+        ByteBuffer buffer = ByteBuffer.wrap(block.toString().getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+        channel.force(true);
+      }
+      this.sequence = sequence;
+      this.seed = options.seed;
+      this.clinicianSeed = options.clinicianSeed;
+      this.referenceTime = options.referenceTime;
+      this.endTime = options.endTime;
+      this.population = options.population;
+      this.completed.or(done);
+      this.files.clear();
+      this.files.putAll(files);
+    }
+
+    /**
+     * Format a set of indices as comma separated ranges, e.g. <code>0-99,150</code>.
+     */
+    static String formatRanges(BitSet indices) {
+      StringBuilder sb = new StringBuilder();
+      int start = indices.nextSetBit(0);
+      while (start >= 0) {
+        int end = indices.nextClearBit(start) - 1;
+        if (sb.length() > 0) {
+          sb.append(',');
+        }
+        sb.append(start);
+        if (end > start) {
+          sb.append('-').append(end);
+        }
+        start = indices.nextSetBit(end + 1);
+      }
+      return sb.toString();
+    }
+
+    /**
+     * Parse ranges written by {@link #formatRanges(BitSet)} into the given set.
+     */
+    static void parseRanges(String ranges, BitSet indices) {
+      if (ranges.isEmpty()) {
+        return;
+      }
+      for (String range : ranges.split(",")) {
+        int dash = range.indexOf('-');
+        if (dash < 0) {
+          indices.set(Integer.parseInt(range));
+        } else {
+          indices.set(Integer.parseInt(range.substring(0, dash)),
+              Integer.parseInt(range.substring(dash + 1)) + 1);
+        }
+      }
+    }
+  }
+
+  /**
+   * Snapshot of the statistics that the post-completion exports are computed from.
+   */
+  private static class Aggregates implements Serializable {
+    private static final long serialVersionUID = 2771398459460342181L;
+
+    private final List<Provider> providers;
+    private final List<Payer> payers;
+    private final List<String> groupPatients;
+    private final int alive;
+    private final int dead;
+    private final int total;
+    private final long nextChargeId;
+
+    private Aggregates(Generator generator) {
+      this.providers = new ArrayList<>(Provider.getProviderList());
+      this.payers = new ArrayList<>(PayerManager.getAllPayers());
+      this.groupPatients = FhirGroupExporterR4.getPatientList();
+      this.alive = generator.stats.get("alive").get();
+      this.dead = generator.stats.get("dead").get();
+      this.total = generator.totalGeneratedPopulation.get();
+      this.nextChargeId = exportsClaimTransactions()
+          ? CSVExporter.getInstance().getNextChargeId() : 0L;
+    }
+
+    private static boolean exportsClaimTransactions() {
+      return Config.getAsBoolean("exporter.csv.export")
+          || Config.getAsBoolean("exporter.parquet.export", false);
+    }
+
+    private void restore(Generator generator) {
+      Map<String, Provider> savedProviders = new HashMap<>();
+      for (Provider provider : providers) {
+        savedProviders.put(provider.uuid, provider);
+      }
+      for (Provider provider : Provider.getProviderList()) {
+        Provider saved = savedProviders.get(provider.uuid);
+        if (saved != null) {
+          provider.restoreStatistics(saved);
+        }
+      }
+      Map<String, Payer> savedPayers = new HashMap<>();
+      for (Payer payer : payers) {
+        savedPayers.put(payer.uuid, payer);
+      }
+      for (Payer payer : PayerManager.getAllPayers()) {
+        Payer saved = savedPayers.get(payer.uuid);
+        if (saved != null) {
+          payer.restoreStatistics(saved);
+        }
+      }
+      FhirGroupExporterR4.resetPatientList();
+      for (String patient : groupPatients) {
+        FhirGroupExporterR4.addPatient(patient);
+      }
+      generator.stats.get("alive").set(alive);
+      generator.stats.get("dead").set(dead);
+      generator.totalGeneratedPopulation.set(total);
+      if (exportsClaimTransactions()) {
+        // claims_transactions.csv rows after the checkpoint must not reuse a CHARGEID
+        CSVExporter.getInstance().setNextChargeId(nextChargeId);
+      }
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package org.mitre.synthea.engine;
+
+import java.io.Serializable;
+
+import org.mitre.synthea.helpers.Utilities;
+import org.mitre.synthea.world.concepts.HealthRecord.Code;
+
+/**
+ * A comparison of a person's value, such as an attribute or the value of an observation,
+ * against a value given in a module. The operator and the type of the module's value are
+ * resolved when the module is loaded, so a test only checks the type of the person's value.
+ * The results are the same as those of {@link Utilities#compare(Object, Object, String)}.
+ */
+final class Comparison implements Serializable {
+  private static final int NUMBER = 0;
+  private static final int STRING = 1;
+  private static final int BOOLEAN = 2;
+  private static final int CODE = 3;
+  private static final int OTHER = 4;
+
+  private final Operator operator;
+  private final String symbol;
+  private final Object value;
+  private final int type;
+  private final double number;
+  private final boolean bool;
+
+  /**
+   * Create a comparison.
+   * @param operator the operator, as written in the module.
+   * @param value the value to compare to, as read from the module.
+   */
+  Comparison(String operator, Object value) {
+    this.operator = Operator.of(operator);
+    this.symbol = operator;
+    this.value = value;
+    if (value instanceof Number) {
+      type = NUMBER;
+    } else if (value instanceof String) {
+      type = STRING;
+    } else if (value instanceof Boolean) {
+      type = BOOLEAN;
+    } else if (value instanceof Code) {
+      type = CODE;
+    } else {
+      type = OTHER;
+    }
+    this.number = type == NUMBER ? ((Number) value).doubleValue() : 0;
+    this.bool = type == BOOLEAN && (Boolean) value;
+  }
+
+  /**
+   * Compare a value to the module's value.
+   * @param lhs the person's value, may be null.
+   * @return the result of the comparison.
+   * @throws RuntimeException if the values are of types that cannot be compared.
+   */
+  boolean test(Object lhs) {
+    if (operator.isNilCheck()) {
+      return operator.nil(lhs);
+    } else if (lhs == null) {
+      return false;
+    }
+    switch (type) {
+      case NUMBER:
+        if (lhs instanceof Number) {
+          return operator.compare(((Number) lhs).doubleValue(), number);
+        }
+        break;
+      case STRING:
+        if (lhs instanceof String) {
+          return operator.compare(((String) lhs).compareTo((String) value));
+        }
+        break;
+      case BOOLEAN:
+        if (lhs instanceof Boolean) {
+          return operator.compare(((Boolean) lhs).booleanValue(), bool);
+        }
+        break;
+      case CODE:
+        if (lhs instanceof Code) {
+          return operator.compare((Code) lhs, (Code) value);
+        }
+        break;
+      default:
+        break;
+    }
+    // report the mismatched types
+    return Utilities.compare(lhs, value, symbol);
+  }
+}
@@ -135,11 +135,11 @@ public abstract class Components {
       for (String attr : attributes) {
         TimeSeriesData data = (TimeSeriesData) person.attributes.get(attr);
         if (dataLen == 0) {
-          dataLen = data.getValues().size();
+          dataLen = data.size();
           dataPeriod = data.getPeriod();
         } else {
           // Verify that each series is consistent in length
-          if (data.getValues().size() != dataLen) {
+          if (data.size() != dataLen) {
             throw new IllegalArgumentException("Provided series ["
                 + StringUtils.join(attributes, ", ")
                 + "] have inconsistent lengths!");
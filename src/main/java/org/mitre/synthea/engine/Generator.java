@@ -7,6 +7,7 @@ import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -17,8 +18,8 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
@@ -28,10 +29,14 @@ import org.apache.commons.io.IOCase;
 import org.apache.commons.io.filefilter.WildcardFileFilter;
 import org.mitre.synthea.editors.GrowthDataErrorsEditor;
 import org.mitre.synthea.export.CDWExporter;
+import org.mitre.synthea.export.ExportPipeline;
 import org.mitre.synthea.export.Exporter;
+import org.mitre.synthea.export.FhirR4;
 import org.mitre.synthea.helpers.Config;
 import org.mitre.synthea.helpers.DefaultRandomNumberGenerator;
+import org.mitre.synthea.helpers.Instrumentation;
 import org.mitre.synthea.helpers.RandomNumberGenerator;
+import org.mitre.synthea.helpers.TaskGraph;
 import org.mitre.synthea.helpers.Utilities;
 import org.mitre.synthea.identity.Entity;
 import org.mitre.synthea.identity.EntityManager;
@@ -75,6 +80,10 @@ public class Generator {
   private boolean onlyDeadPatients;
   private boolean onlyVeterans;
   private Module keepPatientsModule;
+  // holds the demographics being tested by mayMeetCriteria, one per generator thread
+  private final ThreadLocal<Person> criteriaProbe = ThreadLocal.withInitial(() -> new Person(0L));
+  private Checkpoint checkpoint;
+  private ExportPipeline exportPipeline;
   private Long maxAttemptsToKeepPatient;
   public static String DEFAULT_STATE = "Massachusetts";
   private Exporter.ExporterRuntimeOptions exporterRuntimeOptions;
@@ -95,6 +104,12 @@ public class Generator {
   Predicate<String> modulePredicate;
 
   private static final String TARGET_AGE = "target_age";
+  private static final Instrumentation.Phase DEMOGRAPHICS_PHASE =
+      Instrumentation.phase("demographics");
+  private static final Instrumentation.Phase HEALTH_INSURANCE_PHASE =
+      Instrumentation.phase("module.Health Insurance");
+  private static final Instrumentation.Phase ENCOUNTER_PHASE =
+      Instrumentation.phase("module." + EncounterModule.NAME);
 
   /**
    * Helper class following the "Parameter Object" pattern.
@@ -140,6 +155,21 @@ public class Generator {
     public int daysToTravelForward = -1;
     /** Path to a module defining which patients should be kept and exported. */
     public Path keepPatientsModulePath;
+    /** Index of the shard of the population to generate, from 0 to shardCount - 1. */
+    public int shardIndex = 0;
+    /** Number of shards the population is split into, each generated by its own process. */
+    public int shardCount = 1;
+    /** Number of people to generate between checkpoints of the run, or 0 for none. */
+    public int checkpointInterval = Config.getAsInteger("generate.checkpoint.interval", 0);
+    /** Resume the run recorded by the checkpoint in the output directory, if there is one. */
+    public boolean resume = false;
+    /**
+     * Number of threads exporting people while others simulate them, -1 to match the number
+     * of available processors, or 0 to export each person on the thread that simulated them.
+     */
+    public int exportThreadPoolSize = Config.getAsInteger("generate.export.thread_pool_size", 0);
+    /** Number of simulated people that may wait to be exported before simulation blocks. */
+    public int exportQueueSize = Config.getAsInteger("generate.export.queue_size", 100);
   }
 
   /**
@@ -206,6 +236,29 @@ public class Generator {
       throw new IllegalArgumentException(String.format(
               "Illegal thread pool size (%d)", options.threadPoolSize));
     }
+    if (options.shardCount < 1 || options.shardIndex < 0
+        || options.shardIndex >= options.shardCount) {
+      throw new IllegalArgumentException(String.format(
+              "Illegal shard (%d of %d)", options.shardIndex, options.shardCount));
+    }
+    if (options.checkpointInterval < 0) {
+      throw new IllegalArgumentException(String.format(
+              "Illegal checkpoint interval (%d)", options.checkpointInterval));
+    }
+    if (options.checkpointInterval > 0 || options.resume) {
+      checkpoint = new Checkpoint(this,
+          Paths.get(Config.get("exporter.baseDirectory", "./output/")),
+          options.checkpointInterval);
+      try {
+        if (options.resume) {
+          checkpoint.load(options);
+        } else {
+          checkpoint.delete();
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
     init();
   }
 
@@ -217,9 +270,6 @@ public class Generator {
     if (Config.getAsBoolean("exporter.cdw.export")) {
       CDWExporter.getInstance().setKeyStart((stateIndex * 1_000_000) + 1);
     }
-    Exporter.loadCustomExporters();
-    Exporter.loadCodeMappers();
-
     this.populationRandom = new DefaultRandomNumberGenerator(options.seed);
     this.clinicianRandom = new DefaultRandomNumberGenerator(options.clinicianSeed);
     this.timestep = Long.parseLong(Config.get("generate.timestep"));
@@ -260,27 +310,44 @@ public class Generator {
     stats.put("alive", new AtomicInteger(0));
     stats.put("dead", new AtomicInteger(0));
 
-    // initialize hospitals
-    Provider.loadProviders(location, this.clinicianRandom);
-    // Initialize Payers
-    PayerManager.loadPayers(location);
-    // ensure modules load early
+    // scan for modules on this thread, since the Module class initializer creates the core
+    // Java modules, and local modules must be added to the list before anything is loaded
+    Module.getModuleNames();
     if (options.localModuleDir != null) {
       Module.addModules(options.localModuleDir);
     }
-    List<String> coreModuleNames = getModuleNames(Module.getModules(path -> false));
-    List<String> moduleNames = getModuleNames(Module.getModules(modulePredicate));
 
+    // these are independent of each other, so they are loaded concurrently
+    TaskGraph startup = new TaskGraph(threadPoolSize);
+    startup.add("Exporters", Exporter::loadCustomExporters);
+    startup.add("Code mappers", Exporter::loadCodeMappers);
+    // initialize hospitals
+    startup.add("Providers", () -> Provider.loadProviders(location, this.clinicianRandom));
+    // Initialize Payers
+    startup.add("Payers", () -> PayerManager.loadPayers(location));
+    // ensure modules load early
+    startup.add("Modules", () -> Module.preloadModules(modulePredicate));
     if (options.keepPatientsModulePath != null) {
-      try {
-        this.keepPatientsModule =
-            Module.loadFile(options.keepPatientsModulePath, false, null, true);
-      } catch (Exception e) {
-        throw new ExceptionInInitializerError(e);
-      }
+      startup.add("Keep module", () -> {
+        try {
+          this.keepPatientsModule =
+              Module.loadFile(options.keepPatientsModulePath, false, null, true);
+        } catch (Exception e) {
+          throw new ExceptionInInitializerError(e);
+        }
+      });
+    }
+    startup.add("Costs", Costs::loadCostData); // ensure cost data loads early
+    if (Config.getAsBoolean("exporter.fhir.export")) {
+      startup.add("FHIR R4", FhirR4::getContext);
     }
+    long startupStart = System.nanoTime();
+    startup.run();
+    System.out.println(String.format("Initialized in %d ms: %s",
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startupStart), startup.timings()));
 
-    Costs.loadCostData(); // ensure cost data loads early
+    List<String> coreModuleNames = getModuleNames(Module.getModules(path -> false));
+    List<String> moduleNames = getModuleNames(Module.getModules(modulePredicate));
 
     String locationName;
     if (options.city == null) {
@@ -297,6 +364,10 @@ public class Generator {
     if (options.gender != null) {
       System.out.println(String.format("Gender: %s", options.gender));
     }
+    if (options.shardCount > 1) {
+      System.out.println(String.format("Shard: %d of %d", options.shardIndex + 1,
+          options.shardCount));
+    }
     if (options.enabledModules != null) {
       moduleNames.removeAll(coreModuleNames);
       moduleNames.sort(String::compareToIgnoreCase);
@@ -345,7 +416,18 @@ public class Generator {
 
     }
 
-    ExecutorService threadPool = Executors.newFixedThreadPool(threadPoolSize);
+    if (checkpoint != null && options.resume) {
+      try {
+        checkpoint.restore();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    ThreadPoolExecutor threadPool = (ThreadPoolExecutor) Executors.newFixedThreadPool(
+        threadPoolSize);
+    exportPipeline = createExportPipeline();
+    startInstrumentation(threadPool, exportPipeline);
 
     if (options.initialPopulationSnapshotPath != null) {
       FileInputStream fis = null;
@@ -371,11 +453,23 @@ public class Generator {
         }
       }
     } else if (this.options.singlePersonSeed == null) {
-      // Generate patients up to the specified population size.
+      // Generate patients up to the specified population size. When sharded, only this shard's
+      // contiguous range of indices is generated, but a seed is still drawn for every index so
+      // each person gets the same seed that they would in an unsharded run.
+      long shardStart = (long) this.options.population * options.shardIndex
+          / options.shardCount;
+      long shardEnd = (long) this.options.population * (options.shardIndex + 1)
+          / options.shardCount;
       for (int i = 0; i < this.options.population; i++) {
         final int index = i;
         final long seed = this.populationRandom.randLong();
-        threadPool.submit(() -> generatePerson(index, seed));
+        if (index >= shardStart && index < shardEnd) {
+          if (checkpoint == null) {
+            threadPool.submit(() -> generatePerson(index, seed));
+          } else if (!checkpoint.isComplete(index)) {
+            threadPool.submit(() -> checkpoint.run(index, () -> generatePerson(index, seed)));
+          }
+        }
       }
     } else {
       // we have a single fixed seed to generate, don't bother with threadpool
@@ -391,6 +485,10 @@ public class Generator {
       System.out.println("Generator interrupted. Attempting to shut down associated thread pool.");
       threadPool.shutdownNow();
     }
+    if (exportPipeline != null) {
+      exportPipeline.close();
+      exportPipeline = null;
+    }
 
     // Save a snapshot of the generated population using Java Serialization
     if (options.updatedPopulationSnapshotPath != null) {
@@ -405,7 +503,23 @@ public class Generator {
         System.out.printf("Unable to save population snapshot, error: %s", ex.getMessage());
       }
     }
+    if (checkpoint != null) {
+      // Post-completion exports are recomputed from the final checkpoint if they are interrupted
+      try {
+        checkpoint.write();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
     Exporter.runPostCompletionExports(this, exporterRuntimeOptions);
+    Instrumentation.stop();
+    if (checkpoint != null) {
+      try {
+        checkpoint.delete();
+      } catch (IOException e) {
+        System.out.printf("Unable to remove checkpoint, error: %s\n", e.getMessage());
+      }
+    }
 
     System.out.printf("Records: total=%d, alive=%d, dead=%d\n", totalGeneratedPopulation.get(),
             stats.get("alive").get(), stats.get("dead").get());
@@ -413,6 +527,24 @@ public class Generator {
     System.out.printf("Clinician RNG=%d\n", this.clinicianRandom.getCount());
   }
 
+  /**
+   * Start the instrumentation of this run, if it is enabled, reporting the number of people
+   * generated and the number waiting to be simulated and exported.
+   * @param threadPool the pool of threads simulating people.
+   * @param pipeline the export pipeline, or null if people are exported as they are simulated.
+   */
+  private void startInstrumentation(ThreadPoolExecutor threadPool, ExportPipeline pipeline) {
+    Instrumentation.start();
+    Instrumentation.counter("people.generated", totalGeneratedPopulation::get);
+    Instrumentation.counter("people.alive", () -> stats.get("alive").get());
+    Instrumentation.counter("people.dead", () -> stats.get("dead").get());
+    Instrumentation.gauge("generator.queue", () -> threadPool.getQueue().size());
+    Instrumentation.gauge("generator.active_threads", threadPool::getActiveCount);
+    if (pipeline != null) {
+      Instrumentation.gauge("export.backlog", pipeline::backlog);
+    }
+  }
+
   /**
    * Generate a completely random Person. The returned person will be alive at the end of the
    * simulation. This means that if in the course of the simulation the person dies, a new person
@@ -466,6 +598,15 @@ public class Generator {
 
       do {
         tryNumber++;
+        if (entityManager == null && !mayMeetCriteria(demoAttributes)) {
+          // The demographics alone rule this person out, and every retry would reuse them,
+          // so pick new demographics rather than simulating lives that would be thrown away.
+          checkAttempts(tryNumber);
+          patientMeetsCriteria = false;
+          personSeed = person.randLong();
+          demoAttributes = randomDemographics(person);
+          continue;
+        }
         person = createPerson(personSeed, demoAttributes);
         long finishTime = person.lastUpdated + timestep;
 
@@ -475,24 +616,7 @@ public class Generator {
         patientMeetsCriteria = check.meetsCriteria();
 
         if (!patientMeetsCriteria) {
-          if (this.maxAttemptsToKeepPatient != null
-              && tryNumber >= this.maxAttemptsToKeepPatient) {
-            // we've tried and failed to produce a patient that meets the criteria
-            // throw an exception to halt processing in this slot
-            String msg = "Failed to produce a matching patient after "
-                + tryNumber + " attempts. "
-                + "Ensure that it is possible for all "
-                + "requested demographics to meet the criteria. "
-                + "(e.g., make sure there is no age restriction "
-                + "that conflicts with a requested condition, "
-                + "such as limiting age to 0-18 and requiring "
-                + "all patients have a condition that only onsets after 55.) "
-                + "If you are confident that the constraints"
-                + " are possible to satisfy but rare, "
-                + "consider increasing the value in config setting "
-                + "`generate.max_attempts_to_keep_patient`";
-            throw new RuntimeException(msg);
-          }
+          checkAttempts(tryNumber);
 
           // this should be false for any clauses in checkCriteria below
           // when we want to export this patient, but keep trying to produce one meeting criteria
@@ -529,7 +653,8 @@ public class Generator {
 
         // TODO - export is DESTRUCTIVE when it filters out data
         // this means export must be the LAST THING done with the person
-        wasExported = Exporter.export(person, finishTime, exporterRuntimeOptions);
+        // (when exports are pipelined, the person is handed to another thread here)
+        wasExported = export(person, finishTime);
         if (!wasExported) {
           personSeed = person.randLong();
           demoAttributes = randomDemographics(person);
@@ -551,6 +676,57 @@ public class Generator {
     return person;
   }
 
+  /**
+   * Halt processing in this slot if we've tried and failed too many times to produce a patient
+   * that meets the criteria.
+   * @param tryNumber the number of attempts so far.
+   */
+  private void checkAttempts(int tryNumber) {
+    if (this.maxAttemptsToKeepPatient != null
+        && tryNumber >= this.maxAttemptsToKeepPatient) {
+      // we've tried and failed to produce a patient that meets the criteria
+      // throw an exception to halt processing in this slot
+      String msg = "Failed to produce a matching patient after "
+          + tryNumber + " attempts. "
+          + "Ensure that it is possible for all "
+          + "requested demographics to meet the criteria. "
+          + "(e.g., make sure there is no age restriction "
+          + "that conflicts with a requested condition, "
+          + "such as limiting age to 0-18 and requiring "
+          + "all patients have a condition that only onsets after 55.) "
+          + "If you are confident that the constraints"
+          + " are possible to satisfy but rare, "
+          + "consider increasing the value in config setting "
+          + "`generate.max_attempts_to_keep_patient`";
+      throw new RuntimeException(msg);
+    }
+  }
+
+  /**
+   * Determines, before simulating them, whether a patient with the given demographics could
+   * possibly meet the requested criteria. Only the keep patients module can be decided this
+   * early, and only where it depends on attributes fixed by the demographics, such as gender,
+   * race, or an age the patient would be too young to reach by the end of the simulation.
+   * The demographics are tested on a probe that is reused by every attempt on this thread, so
+   * an attempt that is rejected here does not create a Person.
+   *
+   * <p>TODO - this only rejects people before their life is simulated. Aborting a life as soon
+   * as it can no longer reach the Keep state, and forking retries from a shared snapshot rather
+   * than simulating each one from birth, are not done yet.</p>
+   * @param demoAttributes Demographic attributes for the new person
+   * @return false if the patient would certainly be rejected
+   */
+  boolean mayMeetCriteria(Map<String, Object> demoAttributes) {
+    if (this.keepPatientsModule == null) {
+      return true;
+    }
+    Person probe = criteriaProbe.get();
+    probe.attributes.clear();
+    probe.attributes.putAll(demoAttributes);
+    // the keep module is processed at the last time step, which may finish just after stop
+    return this.keepPatientsModule.mayReach("Keep", probe, stop + timestep);
+  }
+
   /**
    * Helper class to keep track of patient criteria.
    * Caches results in booleans so different combinations are quick to check
@@ -630,10 +806,47 @@ public class Generator {
     updatePerson(person);
     recordPerson(person, index);
     long finishTime = person.lastUpdated + timestep;
-    Exporter.export(person, finishTime, exporterRuntimeOptions);
+    export(person, finishTime);
     return person;
   }
 
+  /**
+   * Create the pipeline that exports people on their own threads, if it is enabled and the
+   * result of each export is not needed before the next person is simulated.
+   * @return the pipeline, or null if people are exported by the thread that simulated them.
+   */
+  private ExportPipeline createExportPipeline() {
+    int threads = options.exportThreadPoolSize;
+    if (threads == -1) {
+      threads = Runtime.getRuntime().availableProcessors();
+    } else if (threads < 0) {
+      throw new IllegalArgumentException(String.format(
+          "Illegal export thread pool size (%d)", threads));
+    }
+    if (threads == 0 || this.options.singlePersonSeed != null
+        || exporterRuntimeOptions.deferExports
+        // a checkpoint must only count people whose export has finished
+        || checkpoint != null
+        // the BFD exporter may reject a person, who is then regenerated
+        || Config.getAsBoolean("exporter.bfd.export")) {
+      return null;
+    }
+    return new ExportPipeline(threads, options.exportQueueSize, exporterRuntimeOptions);
+  }
+
+  /**
+   * Export a person, or queue them to be exported if exports are pipelined. The person must not
+   * be used after this.
+   * @return false if the person was rejected by an exporter and should be generated again.
+   */
+  private boolean export(Person person, long finishTime) {
+    if (exportPipeline != null) {
+      exportPipeline.submit(person, finishTime);
+      return true;
+    }
+    return Exporter.export(person, finishTime, exporterRuntimeOptions);
+  }
+
   /**
    * Create a new person and update them until Generator.stop or
    * they die, whichever comes sooner.
@@ -692,19 +905,28 @@ public class Generator {
       }
 
       // Process Health Insurance.
+      Instrumentation.Phase phase = HEALTH_INSURANCE_PHASE.begin();
       healthInsuranceModule.process(person, time);
+      phase.end();
       // Process encounters.
+      phase = ENCOUNTER_PHASE.begin();
       encounterModule.process(person, time);
+      phase.end();
 
       Iterator<Module> iter = person.currentModules.iterator();
       while (iter.hasNext()) {
         Module module = iter.next();
 
-        if (module.process(person, time)) {
+        phase = module.getPhase().begin();
+        boolean completed = module.process(person, time);
+        phase.end();
+        if (completed) {
           iter.remove(); // this module has completed/terminated.
         }
       }
+      phase = ENCOUNTER_PHASE.begin();
       encounterModule.endEncounterModuleEncounters(person, time);
+      phase.end();
       person.lastUpdated = time;
       HealthRecordEditors.getInstance().executeAll(person, person.record, time, timestep);
       time += timestep;
@@ -752,8 +974,10 @@ public class Generator {
    * @param random The random number generator to use.
    */
   public Map<String, Object> randomDemographics(RandomNumberGenerator random) {
+    Instrumentation.Phase phase = DEMOGRAPHICS_PHASE.begin();
     Demographics city = location.randomCity(random);
     Map<String, Object> demoAttributes = this.pickDemographics(random, city);
+    phase.end();
     return demoAttributes;
   }
 
@@ -875,6 +1099,7 @@ public class Generator {
    * @param random Random object.
    */
   public Map<String, Object> pickFixedDemographics(Entity entity, RandomNumberGenerator random) {
+    Instrumentation.Phase phase = DEMOGRAPHICS_PHASE.begin();
     Seed firstSeed = entity.getSeeds().get(0);
     String state = firstSeed.getState();
     if (state.length() == 2) {
@@ -893,6 +1118,7 @@ public class Generator {
     demoAttributes.put(Person.ENTITY, entity);
     demoAttributes.put(Person.BIRTH_CITY, city.city);
     demoAttributes.put(Person.BIRTHDATE, firstSeed.birthdateTimestamp());
+    phase.end();
 
     return demoAttributes;
   }
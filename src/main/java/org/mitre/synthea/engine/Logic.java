@@ -10,6 +10,7 @@ import org.mitre.synthea.engine.Components.DateInput;
 import org.mitre.synthea.engine.Components.ExactWithUnit;
 import org.mitre.synthea.helpers.Config;
 import org.mitre.synthea.helpers.Utilities;
+import org.mitre.synthea.world.agents.AttributeMap;
 import org.mitre.synthea.world.agents.Person;
 import org.mitre.synthea.world.concepts.HealthRecord;
 import org.mitre.synthea.world.concepts.HealthRecord.CarePlan;
@@ -22,6 +23,10 @@ import org.mitre.synthea.world.concepts.HealthRecord.Medication;
  * expression. This class is stateless, and calling 'test' on an instance
  * must not modify state as instances of Logic within Modules are shared
  * across the population.
+ *
+ * <p>Logic is compiled when it is loaded: operators, values and sub-conditions are resolved
+ * into transient fields once, so that testing logic on every time step does not parse
+ * strings, use streams or box values.</p>
  */
 public abstract class Logic implements Serializable {
   public List<String> remarks;
@@ -35,6 +40,40 @@ public abstract class Logic implements Serializable {
    */
   public abstract boolean test(Person person, long time);
 
+  /**
+   * Resolve everything about this logic that does not depend on the person it is tested
+   * against. Called once all of the fields of the logic have been read, either from JSON by the
+   * Gson returned from {@link Utilities#getGson()}, or from a module bundle. Sub-conditions are
+   * always compiled before the logic that contains them.
+   */
+  public void compile() {
+    // nothing to resolve by default
+  }
+
+  /**
+   * Compile logic that was read with Java Serialization, since the compiled fields are
+   * transient.
+   */
+  Object readResolve() {
+    compile();
+    return this;
+  }
+
+  /**
+   * Test whether the logic is already decided for a person before their life is simulated,
+   * using only the attributes that are fixed when their demographics are picked, such as their
+   * gender, race and birthdate. Logic that depends on anything that happens during the
+   * simulation is undecided.
+   *
+   * @param person Person holding only their demographic attributes
+   * @param latestTime The latest time that the logic could be tested at
+   * @return TRUE or FALSE if the result is the same however the simulation turns out,
+   *     or null if it is not
+   */
+  Boolean testBeforeSimulation(Person person, long latestTime) {
+    return null;
+  }
+
   /**
    * Find the most recent entry, of a specific type of HealthRecord.Entry
    * within the patient history. May return null.
@@ -75,6 +114,11 @@ public abstract class Logic implements Serializable {
     public boolean test(Person person, long time) {
       return gender.equals(person.attributes.get(Person.GENDER));
     }
+
+    @Override
+    Boolean testBeforeSimulation(Person person, long latestTime) {
+      return person.attributes.containsKey(Person.GENDER) ? test(person, latestTime) : null;
+    }
   }
 
   /**
@@ -82,19 +126,37 @@ public abstract class Logic implements Serializable {
    * (Ex, years for adults or months for young children)
    */
   public static class Age extends Logic {
+    private static final int YEARS = 1;
+    private static final int MONTHS = 2;
+
     private Double quantity;
     private String unit;
     private String operator;
 
+    private transient Operator op;
+    private transient double limit;
+    private transient int units;
+
+    @Override
+    public void compile() {
+      op = Operator.of(operator);
+      limit = quantity == null ? Double.NaN : quantity;
+      if ("years".equals(unit)) {
+        units = YEARS;
+      } else if ("months".equals(unit)) {
+        units = MONTHS;
+      }
+    }
+
     @Override
     public boolean test(Person person, long time) {
       double age;
 
-      switch (unit) {
-        case "years":
+      switch (units) {
+        case YEARS:
           age = person.ageInYears(time);
           break;
-        case "months":
+        case MONTHS:
           age = person.ageInMonths(time);
           break;
         default:
@@ -103,7 +165,27 @@ public abstract class Logic implements Serializable {
             + "' not currently supported in Age logic.");
       }
 
-      return Utilities.compare(age, quantity, operator);
+      return op.compare(age, limit);
+    }
+
+    @Override
+    Boolean testBeforeSimulation(Person person, long latestTime) {
+      if (!person.attributes.containsKey(Person.BIRTHDATE)) {
+        return null;
+      }
+      // a person may die at any age, so only their age at the latest time is known to be the
+      // oldest they can be when tested
+      boolean oldest = test(person, latestTime);
+      switch (op) {
+        case LESS_THAN:
+        case LESS_THAN_OR_EQUAL:
+          return oldest ? Boolean.TRUE : null;
+        case GREATER_THAN:
+        case GREATER_THAN_OR_EQUAL:
+          return oldest ? null : Boolean.FALSE;
+        default:
+          return null;
+      }
     }
   }
 
@@ -119,20 +201,30 @@ public abstract class Logic implements Serializable {
     private DateInput date;
     private String operator;
 
+    private transient Operator op;
+    private transient long testTime;
+
+    @Override
+    public void compile() {
+      op = Operator.of(operator);
+      if (date != null) {
+        Calendar testDate = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        testDate.set(date.year, date.month - 1, date.day, date.hour, date.minute, date.second);
+        testDate.set(Calendar.MILLISECOND,date.millisecond);
+        testTime = testDate.getTimeInMillis();
+      }
+    }
+
     @Override
     public boolean test(Person person, long time) {
       if (year != null) {
         int currentyear = Utilities.getYear(time);
-        return Utilities.compare(currentyear, year, operator);
+        return op.compare(currentyear, year.intValue());
       } else if (month != null) {
         int currentmonth = Utilities.getMonth(time);
-        return Utilities.compare(currentmonth, month, operator);
+        return op.compare(currentmonth, month.intValue());
       } else if (date != null) {
-        Calendar testDate = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
-        testDate.set(date.year, date.month - 1, date.day, date.hour, date.minute, date.second);
-        testDate.set(Calendar.MILLISECOND,date.millisecond);
-        long testTime = testDate.getTimeInMillis();
-        return Utilities.compare(time, testTime, operator);
+        return op.compare(time, testTime);
       } else {
         throw new UnsupportedOperationException("Date type "
             + "not currently supported in Date logic.");
@@ -152,6 +244,12 @@ public abstract class Logic implements Serializable {
     public boolean test(Person person, long time) {
       return category.equals(person.attributes.get(Person.SOCIOECONOMIC_CATEGORY));
     }
+
+    @Override
+    Boolean testBeforeSimulation(Person person, long latestTime) {
+      return person.attributes.containsKey(Person.SOCIOECONOMIC_CATEGORY)
+          ? test(person, latestTime) : null;
+    }
   }
 
   /**
@@ -165,6 +263,11 @@ public abstract class Logic implements Serializable {
     public boolean test(Person person, long time) {
       return race.equalsIgnoreCase((String) person.attributes.get(Person.RACE));
     }
+
+    @Override
+    Boolean testBeforeSimulation(Person person, long latestTime) {
+      return person.attributes.containsKey(Person.RACE) ? test(person, latestTime) : null;
+    }
   }
 
   /**
@@ -177,9 +280,16 @@ public abstract class Logic implements Serializable {
     private String operator;
     private double value;
 
+    private transient Operator op;
+
+    @Override
+    public void compile() {
+      op = Operator.of(operator);
+    }
+
     @Override
     public boolean test(Person person, long time) {
-      return Utilities.compare((double) person.getSymptom(symptom), value, operator);
+      return op.compare(person.getSymptom(symptom), value);
     }
   }
 
@@ -200,6 +310,15 @@ public abstract class Logic implements Serializable {
     private Object value;
     private Code valueCode;
 
+    private transient Operator op;
+    private transient Comparison comparison;
+
+    @Override
+    public void compile() {
+      op = Operator.of(operator);
+      comparison = new Comparison(operator, valueCode != null ? valueCode : value);
+    }
+
     @Override
     public boolean test(Person person, long time) {
       HealthRecord.Observation observation = null;
@@ -241,12 +360,9 @@ public abstract class Logic implements Serializable {
           return false;
         }
       }
-      if (valueCode != null) {
-        value = valueCode;
-      }
-      if (operator.equals("is nil")) {
+      if (op == Operator.IS_NIL) {
         return observation == null;
-      } else if (operator.equals("is not nil")) {
+      } else if (op == Operator.IS_NOT_NIL) {
         return observation != null;
       } else if (observation == null) {
         if (this.codes != null) {
@@ -266,7 +382,7 @@ public abstract class Logic implements Serializable {
           throw new NullPointerException("Required observation is null.");
         }
       } else {
-        return Utilities.compare(observation.value, this.value, operator);
+        return comparison.test(observation.value);
       }
     }
   }
@@ -279,11 +395,19 @@ public abstract class Logic implements Serializable {
     private String operator;
 
     private Object value;
+    private transient AttributeMap.Slot slot;
+    private transient Comparison comparison;
+
+    @Override
+    public void compile() {
+      slot = AttributeMap.slot(attribute);
+      comparison = new Comparison(operator, value);
+    }
 
     @Override
     public boolean test(Person person, long time) {
       try {
-        return Utilities.compare(person.attributes.get(attribute), value, operator);
+        return comparison.test(person.attributes.get(slot));
       } catch (Exception e) {
         String message = "Attribute Logic error: " + attribute + " " + operator + " " + value;
         message += ": " + e.getMessage();
@@ -298,6 +422,30 @@ public abstract class Logic implements Serializable {
    */
   private abstract static class GroupedCondition extends Logic {
     protected Collection<Logic> conditions;
+    /** The sub-conditions, in order. */
+    protected transient Logic[] children;
+
+    @Override
+    public void compile() {
+      children = conditions == null ? null : conditions.toArray(new Logic[0]);
+    }
+
+    /**
+     * Count the sub-conditions that are decided before the simulation.
+     * @return the number of sub-conditions known to be true, then the number that are undecided.
+     */
+    protected int[] countBeforeSimulation(Person person, long latestTime) {
+      int[] counts = new int[2];
+      for (Logic condition : conditions) {
+        Boolean result = condition.testBeforeSimulation(person, latestTime);
+        if (result == null) {
+          counts[1]++;
+        } else if (result) {
+          counts[0]++;
+        }
+      }
+      return counts;
+    }
   }
 
   /**
@@ -308,7 +456,21 @@ public abstract class Logic implements Serializable {
   public static class And extends GroupedCondition {
     @Override
     public boolean test(Person person, long time) {
-      return conditions.stream().allMatch(c -> c.test(person, time));
+      for (Logic child : children) {
+        if (!child.test(person, time)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    Boolean testBeforeSimulation(Person person, long latestTime) {
+      int[] counts = countBeforeSimulation(person, latestTime);
+      if (counts[0] == conditions.size()) {
+        return true;
+      }
+      return counts[0] + counts[1] < conditions.size() ? Boolean.FALSE : null;
     }
   }
 
@@ -320,7 +482,21 @@ public abstract class Logic implements Serializable {
   public static class Or extends GroupedCondition {
     @Override
     public boolean test(Person person, long time) {
-      return conditions.stream().anyMatch(c -> c.test(person, time));
+      for (Logic child : children) {
+        if (child.test(person, time)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    Boolean testBeforeSimulation(Person person, long latestTime) {
+      int[] counts = countBeforeSimulation(person, latestTime);
+      if (counts[0] > 0) {
+        return true;
+      }
+      return counts[1] == 0 ? Boolean.FALSE : null;
     }
   }
 
@@ -336,6 +512,12 @@ public abstract class Logic implements Serializable {
     public boolean test(Person person, long time) {
       return !condition.test(person, time);
     }
+
+    @Override
+    Boolean testBeforeSimulation(Person person, long latestTime) {
+      Boolean result = condition.testBeforeSimulation(person, latestTime);
+      return result == null ? null : !result;
+    }
   }
 
   /**
@@ -352,7 +534,28 @@ public abstract class Logic implements Serializable {
 
     @Override
     public boolean test(Person person, long time) {
-      return conditions.stream().filter(c -> c.test(person, time)).count() >= minimum;
+      int needed = minimum;
+      int remaining = children.length;
+      for (Logic child : children) {
+        if (needed <= 0 || remaining < needed) {
+          // decided without testing the rest
+          break;
+        }
+        if (child.test(person, time)) {
+          needed--;
+        }
+        remaining--;
+      }
+      return needed <= 0;
+    }
+
+    @Override
+    Boolean testBeforeSimulation(Person person, long latestTime) {
+      int[] counts = countBeforeSimulation(person, latestTime);
+      if (counts[0] >= minimum) {
+        return true;
+      }
+      return counts[0] + counts[1] < minimum ? Boolean.FALSE : null;
     }
   }
 
@@ -366,7 +569,25 @@ public abstract class Logic implements Serializable {
 
     @Override
     public boolean test(Person person, long time) {
-      return conditions.stream().filter(c -> c.test(person, time)).count() <= maximum;
+      int allowed = maximum;
+      if (allowed < 0) {
+        return false;
+      }
+      for (Logic child : children) {
+        if (child.test(person, time) && --allowed < 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    Boolean testBeforeSimulation(Person person, long latestTime) {
+      int[] counts = countBeforeSimulation(person, latestTime);
+      if (counts[0] > maximum) {
+        return false;
+      }
+      return counts[0] + counts[1] <= maximum ? Boolean.TRUE : null;
     }
   }
 
@@ -381,6 +602,11 @@ public abstract class Logic implements Serializable {
     public boolean test(Person person, long time) {
       return true;
     }
+
+    @Override
+    Boolean testBeforeSimulation(Person person, long latestTime) {
+      return true;
+    }
   }
 
   /**
@@ -393,6 +619,11 @@ public abstract class Logic implements Serializable {
     public boolean test(Person person, long time) {
       return false;
     }
+
+    @Override
+    Boolean testBeforeSimulation(Person person, long latestTime) {
+      return false;
+    }
   }
 
   /**
@@ -407,15 +638,18 @@ public abstract class Logic implements Serializable {
     private ExactWithUnit<Double> within;
     private Long window;
 
+    @Override
+    public void compile() {
+      if (within != null) {
+        window = Utilities.convertTime(within.unit, within.quantity);
+      }
+    }
+
     @Override
     public boolean test(Person person, long time) {
       Long sinceTime = null;
 
       if (within != null) {
-        if (window == null) {
-          // cache the value since it doesn't depend on person or time
-          window = Utilities.convertTime(within.unit, within.quantity);
-        }
         sinceTime = time - window;
       }
 
@@ -586,9 +820,20 @@ public abstract class Logic implements Serializable {
     private String operator;
     private double value;
 
+    private transient Operator op;
+
+    @Override
+    public void compile() {
+      op = Operator.of(operator);
+    }
+
     @Override
     public boolean test(Person person, long time) {
-      return Utilities.compare(person.getVitalSign(vitalSign, time), value, operator);
+      Double vital = person.getVitalSign(vitalSign, time);
+      if (op.isNilCheck()) {
+        return op.nil(vital);
+      }
+      return op.compare(vital.doubleValue(), value);
     }
   }
 }
\ No newline at end of file
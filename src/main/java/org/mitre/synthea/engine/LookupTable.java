@@ -0,0 +1,269 @@
+package org.mitre.synthea.engine;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.apache.commons.lang3.Range;
+import org.mitre.synthea.engine.Transition.DistributedTransitionOption;
+import org.mitre.synthea.engine.Transition.LookupTableKey;
+import org.mitre.synthea.world.agents.AttributeMap;
+import org.mitre.synthea.world.agents.Person;
+
+/**
+ * The rows of a lookup table CSV, indexed for {@link Transition.LookupTableTransition}.
+ *
+ * <p>Rows are first grouped by the values of their attribute columns, with one nested hash map
+ * per column, so a person's attribute values are looked up as they are rather than combined into
+ * a key. Each group is then indexed by age and by time as sorted arrays of the bounds of the
+ * ranges in the table, which are binary searched. Where the ranges of several rows with the same
+ * attribute values overlap, the row that comes first in the table wins. A row with the same
+ * attribute values and ranges as an earlier row replaces it.</p>
+ */
+final class LookupTable implements Serializable {
+  private static final long serialVersionUID = -2361486402866151930L;
+
+  private final String name;
+  /** The attribute columns, other than age and time, in table order. */
+  private final String[] attributes;
+  private final boolean hasAge;
+  /** Nested maps, one level per attribute, down to an index of the age ranges. */
+  private Object root;
+  /** The rows, by attribute values, until the table is indexed. */
+  private transient Map<List<String>, List<Row>> rows = new LinkedHashMap<>();
+  private transient AttributeMap.Slot[] slots;
+
+  /** A row of the table. */
+  private static final class Row {
+    private final Range<Integer> ageRange;
+    private final Range<Long> timeRange;
+    private List<DistributedTransitionOption> options;
+
+    private Row(Range<Integer> ageRange, Range<Long> timeRange,
+        List<DistributedTransitionOption> options) {
+      this.ageRange = ageRange;
+      this.timeRange = timeRange;
+      this.options = options;
+    }
+  }
+
+  /**
+   * Sorted, non-overlapping intervals of a long value, and the value that each maps to.
+   */
+  static final class IntervalIndex implements Serializable {
+    private static final long serialVersionUID = 6009415738234208342L;
+
+    /** The lower bound of each interval, which ends at the lower bound of the next one. */
+    private final long[] bounds;
+    private final Object[] values;
+
+    private IntervalIndex(long[] bounds, Object[] values) {
+      this.bounds = bounds;
+      this.values = values;
+    }
+
+    /**
+     * Get the value of the interval that contains a key.
+     * @param key the key.
+     * @return the value, or null if no range contains the key.
+     */
+    Object get(long key) {
+      int index = Arrays.binarySearch(bounds, key);
+      if (index < 0) {
+        index = -index - 2;
+        if (index < 0) {
+          return null;
+        }
+      }
+      return values[index];
+    }
+
+    /**
+     * Index a list of inclusive ranges. Where ranges overlap, the first one in the list wins.
+     * @param low the lower bound of each range.
+     * @param high the upper bound of each range.
+     * @param values the value of each range.
+     * @return the index.
+     */
+    static IntervalIndex of(long[] low, long[] high, Object[] values) {
+      TreeSet<Long> edges = new TreeSet<Long>();
+      for (int i = 0; i < low.length; i++) {
+        edges.add(low[i]);
+        if (high[i] < Long.MAX_VALUE) {
+          edges.add(high[i] + 1);
+        }
+      }
+      long[] bounds = new long[edges.size()];
+      Object[] segments = new Object[edges.size()];
+      int count = 0;
+      for (long bound : edges) {
+        bounds[count] = bound;
+        for (int i = 0; i < low.length && segments[count] == null; i++) {
+          if (low[i] <= bound && bound <= high[i]) {
+            segments[count] = values[i];
+          }
+        }
+        count++;
+      }
+      return new IntervalIndex(bounds, segments);
+    }
+  }
+
+  /**
+   * Create an empty lookup table.
+   * @param name the name of the table file.
+   * @param columns the attribute columns of the table, including age and time if present.
+   */
+  LookupTable(String name, List<String> columns) {
+    this.name = name;
+    this.hasAge = columns.contains("age");
+    List<String> names = new ArrayList<String>(columns);
+    names.remove("age");
+    names.remove("time");
+    this.attributes = names.toArray(new String[0]);
+    resolveSlots();
+  }
+
+  private void resolveSlots() {
+    slots = new AttributeMap.Slot[attributes.length];
+    for (int i = 0; i < attributes.length; i++) {
+      slots[i] = AttributeMap.slot(attributes[i]);
+    }
+  }
+
+  /**
+   * Add a row to the table. Must not be called once the table has been indexed.
+   * @param key the attribute values and age and time ranges of the row.
+   * @param options the transition probabilities of the row.
+   */
+  void add(LookupTableKey key, List<DistributedTransitionOption> options) {
+    List<Row> group = rows.computeIfAbsent(key.getAttributes(), k -> new ArrayList<Row>());
+    for (Row row : group) {
+      if (row.ageRange == null ? key.getAgeRange() == null
+          : row.ageRange.equals(key.getAgeRange())) {
+        if (row.timeRange == null ? key.getTimeRange() == null
+            : row.timeRange.equals(key.getTimeRange())) {
+          row.options = options;
+          return;
+        }
+      }
+    }
+    group.add(new Row(key.getAgeRange(), key.getTimeRange(), options));
+  }
+
+  /**
+   * Build the index of the rows added so far.
+   */
+  void index() {
+    Map<String, Object> top = new HashMap<String, Object>();
+    for (Map.Entry<List<String>, List<Row>> entry : rows.entrySet()) {
+      List<String> values = entry.getKey();
+      Object leaf = indexByAge(entry.getValue());
+      if (attributes.length == 0) {
+        root = leaf;
+        break;
+      }
+      Map<String, Object> level = top;
+      for (int i = 0; i < values.size() - 1; i++) {
+        @SuppressWarnings("unchecked")
+        Map<String, Object> next = (Map<String, Object>)
+            level.computeIfAbsent(values.get(i), k -> new HashMap<String, Object>());
+        level = next;
+      }
+      level.put(values.get(values.size() - 1), leaf);
+    }
+    if (attributes.length > 0) {
+      root = top;
+    }
+    rows = null;
+  }
+
+  private IntervalIndex indexByAge(List<Row> group) {
+    long[] low = new long[group.size()];
+    long[] high = new long[group.size()];
+    for (int i = 0; i < group.size(); i++) {
+      Range<Integer> range = group.get(i).ageRange;
+      low[i] = range == null ? Long.MIN_VALUE : range.getMinimum();
+      high[i] = range == null ? Long.MAX_VALUE : range.getMaximum();
+    }
+    // index the time ranges of the rows that cover each age interval
+    IntervalIndex ages = IntervalIndex.of(low, high, group.toArray());
+    Object[] byTime = new Object[ages.bounds.length];
+    for (int a = 0; a < ages.bounds.length; a++) {
+      if (ages.values[a] == null) {
+        continue;
+      }
+      long age = ages.bounds[a];
+      List<Row> covering = new ArrayList<Row>();
+      for (int i = 0; i < group.size(); i++) {
+        if (low[i] <= age && age <= high[i]) {
+          covering.add(group.get(i));
+        }
+      }
+      byTime[a] = indexByTime(covering);
+    }
+    return new IntervalIndex(ages.bounds, byTime);
+  }
+
+  private static IntervalIndex indexByTime(List<Row> group) {
+    long[] low = new long[group.size()];
+    long[] high = new long[group.size()];
+    Object[] options = new Object[group.size()];
+    for (int i = 0; i < group.size(); i++) {
+      Range<Long> range = group.get(i).timeRange;
+      low[i] = range == null ? Long.MIN_VALUE : range.getMinimum();
+      high[i] = range == null ? Long.MAX_VALUE : range.getMaximum();
+      options[i] = group.get(i).options;
+    }
+    return IntervalIndex.of(low, high, options);
+  }
+
+  /**
+   * Find the row of the table that matches a person.
+   * @param person the person.
+   * @param time the current time.
+   * @return the transition probabilities of the row, or null if no row matches.
+   * @throws RuntimeException if the person does not have one of the attributes of the table.
+   */
+  @SuppressWarnings("unchecked")
+  List<DistributedTransitionOption> get(Person person, long time) {
+    Object node = root;
+    for (int i = 0; i < slots.length; i++) {
+      Object value = person.attributes.get(slots[i]);
+      if (value == null) {
+        throw new RuntimeException("LOOKUP TABLE ERROR: Attribute '"
+            + attributes[i] + "' in CSV table '" + name
+            + "' does not exist as one of this person's attributes.");
+      }
+      if (node != null) {
+        node = ((Map<String, Object>) node).get(
+            value instanceof String ? (String) value : value.toString());
+      }
+    }
+    if (node == null) {
+      return null;
+    }
+    if (hasAge) {
+      node = ((IntervalIndex) node).get(person.ageInYears(time));
+    } else {
+      node = ((IntervalIndex) node).get(0L);
+    }
+    if (node == null) {
+      return null;
+    }
+    return (List<DistributedTransitionOption>) ((IntervalIndex) node).get(time);
+  }
+
+  /**
+   * Resolve the attribute slots of a table read from a {@link ModuleBundle}.
+   */
+  Object readResolve() {
+    resolveSlots();
+    return this;
+  }
+}
@@ -20,16 +20,20 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.Enumeration;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Properties;
+import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
@@ -38,6 +42,7 @@ import java.util.function.Predicate;
 import java.util.function.Supplier;
 
 import org.mitre.synthea.helpers.Config;
+import org.mitre.synthea.helpers.Instrumentation;
 import org.mitre.synthea.helpers.TransitionMetrics;
 import org.mitre.synthea.helpers.Utilities;
 import org.mitre.synthea.modules.CardiovascularDiseaseModule;
@@ -46,14 +51,17 @@ import org.mitre.synthea.modules.LifecycleModule;
 import org.mitre.synthea.modules.QualityOfLifeModule;
 import org.mitre.synthea.modules.WeightLossModule;
 import org.mitre.synthea.modules.covid.C19ImmunizationModule;
+import org.mitre.synthea.world.agents.AttributeMap;
 import org.mitre.synthea.world.agents.Person;
 
 /**
  * Module represents the entry point of a generic module.
  *
  * <p>The `modules` map is the static list of generic modules. It is loaded once per process,
- * and the list of modules is shared between the generated population. Because we share modules
- * across the population, it is important that States are cloned before they are executed.
+ * and the module instances are shared, unmodified, between the generated population and across
+ * threads. A person's progress through a module is kept in that person's history of the module,
+ * which holds a clone of each State as it is entered. Because we share modules across the
+ * population, it is important that States are cloned before they are executed.
  * This keeps the "master" copy of the module clean.
  */
 public class Module implements Cloneable, Serializable {
@@ -85,6 +93,11 @@ public class Module implements Cloneable, Serializable {
       for (Path path : modulePaths) {
         submoduleCount += walkModuleTree(path, retVal, moduleOverrides, false);
       }
+      String bundle = Config.get("generate.module_bundle", "");
+      if (!bundle.trim().isEmpty()) {
+        ModuleBundle.load(Paths.get(bundle.trim()), modulePaths, Config.get("module_override"),
+            retVal);
+      }
     } catch (Exception e) {
       e.printStackTrace();
     }
@@ -255,6 +268,17 @@ public class Module implements Cloneable, Serializable {
     return list;
   }
 
+  /**
+   * Load the core modules, the modules allowed by the supplied predicate, and all submodules,
+   * in parallel. Modules are otherwise loaded one at a time when first requested. When called
+   * from a task running in a {@link java.util.concurrent.ForkJoinPool}, that pool is used.
+   * @param pathPredicate a predicate to filter the non-core modules to load.
+   */
+  public static void preloadModules(Predicate<String> pathPredicate) {
+    getModuleSuppliers(v -> v.submodule || v.core || pathPredicate.test(v.path))
+        .parallelStream().forEach(ModuleSupplier::get);
+  }
+
   /**
    * Get the list of ModuleSuppliers.
    * @return a list of ModuleSuppliers. Submodules are included.
@@ -300,6 +324,12 @@ public class Module implements Cloneable, Serializable {
   public Double gmfVersion;
   public List<String> remarks;
   private Map<String, State> states;
+  /** Views of this submodule, by the name of the module that called it. */
+  private final Map<String, Module> callers = new ConcurrentHashMap<String, Module>();
+  /** The attribute slots of this module's per-person state, for its current name. */
+  private transient Slots slots;
+  /** Measures the time spent processing this module, when instrumentation is enabled. */
+  private transient Instrumentation.Phase phase;
 
   protected Module() {
     // no-args constructor only allowed to be used by subclasses
@@ -328,6 +358,10 @@ public class Module implements Cloneable, Serializable {
     }
 
     this.submodule = submodule;
+    if (submodule) {
+      // Only if this is a submodule, it wants to remember its own name.
+      submoduleName = name;
+    }
     remarks = new ArrayList<String>();
     if (definition.has("remarks")) {
       JsonElement jsonRemarks = definition.get("remarks");
@@ -345,7 +379,34 @@ public class Module implements Cloneable, Serializable {
   }
 
   /**
-   * Clone this module. Never provide the original.
+   * Get a view of this submodule that acts on behalf of the given calling module. The view
+   * shares this module's states but takes the name of the caller, so that the submodule is
+   * empowered (and vice versa) to act on encounters created using the same name. Views are
+   * cached, so calling a submodule does not allocate.
+   * @param callerName the name of the calling module.
+   * @return a view of this submodule with the caller's name.
+   */
+  public Module calledBy(String callerName) {
+    if (states == null || callerName.equals(this.name)) {
+      // non-GMF modules do not act on behalf of a caller
+      return this;
+    }
+    return callers.computeIfAbsent(callerName, n -> {
+      Module view = new Module();
+      view.name = n;
+      view.specialty = this.specialty;
+      view.submodule = this.submodule;
+      view.submoduleName = this.submoduleName;
+      view.gmfVersion = this.gmfVersion;
+      view.remarks = this.remarks;
+      view.states = this.states;
+      return view;
+    });
+  }
+
+  /**
+   * Clone this module, including a copy of every State. Modules are no longer cloned before
+   * they are given to a person, since the shared instances are never modified.
    */
   public Module clone() {
     Module clone = new Module();
@@ -399,28 +460,25 @@ public class Module implements Cloneable, Serializable {
     if (terminateOnDeath && !person.alive(time)) {
       return true;
     }
+    Slots slots = getSlots();
     // Possibly reset wellness encounters for this module.
-    String activeKey = EncounterModule.ACTIVE_WELLNESS_ENCOUNTER + " " + this.name;
-    if (!person.attributes.containsKey(activeKey)) {
+    if (!person.attributes.containsKey(slots.activeWellness)) {
       // "false" means the person has not entered (or is still within) a wellness encounter
-      person.attributes.put(activeKey, false);
+      person.attributes.put(slots.activeWellness, false);
     }
     person.history = null;
     // what current state is this person in?
-    String historyKey = this.name;
-    if (this.submodule) {
-      historyKey = this.submoduleName;
-    }
-    if (!person.attributes.containsKey(historyKey)) {
+    String historyKey = slots.history.getKey();
+    if (!person.attributes.containsKey(slots.history)) {
       person.history = new LinkedList<State>();
       State initial = initialState();
       person.history.add(initial);
-      person.attributes.put(historyKey, person.history);
+      person.attributes.put(slots.history, person.history);
       /* TODO - determining whether or not this the first time a person has
          entered a submodule is currently not easily computed, so we use `true` below. */
       TransitionMetrics.enter(historyKey, initial.name, true);
     }
-    person.history = (List<State>) person.attributes.get(historyKey);
+    person.history = (List<State>) person.attributes.get(slots.history);
     State current = person.history.get(0);
     // System.out.println(" Resuming at " + current.name);
     // process the current state,
@@ -435,6 +493,7 @@ public class Module implements Cloneable, Serializable {
       boolean firstTime = !person.hadPriorState(nextStateName);
       TransitionMetrics.exit(historyKey, current.name, nextStateName, duration);
       current = states.get(nextStateName).clone(); // clone the state so we don't dirty the original
+      current.module = this;
       person.history.add(0, current);
       TransitionMetrics.enter(historyKey, nextStateName, firstTime);
       if (exited != null && exited < time) {
@@ -455,8 +514,61 @@ public class Module implements Cloneable, Serializable {
     return (current instanceof State.Terminal);
   }
 
+  /**
+   * Get the attribute slot that records whether a person has used the current wellness
+   * encounter for this module (or the module that called it).
+   * @return the slot of the active wellness encounter attribute.
+   */
+  AttributeMap.Slot getActiveWellnessSlot() {
+    return getSlots().activeWellness;
+  }
+
+  /**
+   * Get the instrumentation phase that measures the time spent processing this module.
+   * @return the phase named after this module.
+   */
+  Instrumentation.Phase getPhase() {
+    Instrumentation.Phase current = phase;
+    if (current == null) {
+      current = Instrumentation.phase("module." + name);
+      phase = current;
+    }
+    return current;
+  }
+
+  private Slots getSlots() {
+    Slots current = slots;
+    // names are compared by identity, since they are only ever replaced, never modified
+    if (current == null || current.name != name || current.submoduleName != submoduleName) {
+      current = new Slots(name, submodule ? submoduleName : name, submoduleName);
+      slots = current;
+    }
+    return current;
+  }
+
+  /**
+   * The attribute slots where a person's state in a module is kept: their history in the module
+   * and whether they have used the current wellness encounter.
+   */
+  private static final class Slots {
+    private final String name;
+    private final String submoduleName;
+    private final AttributeMap.Slot history;
+    private final AttributeMap.Slot activeWellness;
+
+    private Slots(String name, String historyKey, String submoduleName) {
+      this.name = name;
+      this.submoduleName = submoduleName;
+      this.history = AttributeMap.slot(historyKey);
+      this.activeWellness =
+          AttributeMap.slot(EncounterModule.ACTIVE_WELLNESS_ENCOUNTER + " " + name);
+    }
+  }
+
   private State initialState() {
-    return states.get("Initial").clone(); // all Initial states have name Initial
+    State initial = states.get("Initial").clone(); // all Initial states have name Initial
+    initial.module = this;
+    return initial;
   }
 
   /**
@@ -468,6 +580,38 @@ public class Module implements Cloneable, Serializable {
     return states.get(name);
   }
 
+  /**
+   * Whether a person could reach the given state of this module, judging only by the demographic
+   * attributes picked for them before their life is simulated. Used to skip people who could
+   * never be kept by the keep patients module. A GMF module is assumed to be able to reach any
+   * state unless every path to it is ruled out by those attributes.
+   * @param stateName the name of the state.
+   * @param person person holding only their demographic attributes.
+   * @param latestTime the latest time the module could be processed at.
+   * @return false if the person can never reach the state.
+   */
+  public boolean mayReach(String stateName, Person person, long latestTime) {
+    if (states == null) {
+      return true;
+    } else if (!states.containsKey(stateName)) {
+      return false;
+    }
+    Set<String> visited = new HashSet<String>();
+    Deque<String> pending = new ArrayDeque<String>();
+    pending.add("Initial");
+    while (!pending.isEmpty()) {
+      String name = pending.pop();
+      if (name.equals(stateName)) {
+        return true;
+      }
+      State state = states.get(name);
+      if (state != null && visited.add(name)) {
+        pending.addAll(state.possibleTransitions(person, latestTime));
+      }
+    }
+    return false;
+  }
+
   /**
    * Get a collection of the names of all the states this Module contains.
    *
@@ -490,7 +634,7 @@ public class Module implements Cloneable, Serializable {
     public final boolean submodule;
     public final String path;
 
-    private boolean loaded;
+    private volatile boolean loaded;
     private Callable<Module> loader;
     private Module module;
     private Throwable fault;
@@ -523,23 +667,31 @@ public class Module implements Cloneable, Serializable {
       loader = null;
     }
 
+    /**
+     * Get the module, loading it on first use. The same instance is returned to every caller,
+     * so it must not be modified.
+     */
     @Override
-    public synchronized Module get() {
+    public Module get() {
       if (!loaded) {
-        try {
-          module = loader.call();
-        } catch (Throwable e) {
-          e.printStackTrace();
-          fault = e;
-        } finally {
-          loaded = true;
-          loader = null;
+        synchronized (this) {
+          if (!loaded) {
+            try {
+              module = loader.call();
+            } catch (Throwable e) {
+              e.printStackTrace();
+              fault = e;
+            } finally {
+              loader = null;
+              loaded = true;
+            }
+          }
         }
       }
       if (fault != null) {
         throw new RuntimeException(fault);
       }
-      return module.clone();
+      return module;
     }
   }
 }
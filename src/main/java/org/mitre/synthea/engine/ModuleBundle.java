@@ -0,0 +1,287 @@
+package org.mitre.synthea.engine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.codec.binary.Hex;
+import org.mitre.synthea.engine.Transition.LookupTableTransition;
+import org.mitre.synthea.helpers.Config;
+import org.mitre.synthea.helpers.Utilities;
+import org.mitre.synthea.world.concepts.TelemedicineConfig;
+
+/**
+ * Precompiled bundle of the generic modules on the classpath and the lookup tables they use.
+ * Loading a module from JSON means reading the file, applying any module overrides, parsing it
+ * and building every State, Transition and Logic object by reflection. A bundle holds the
+ * already built modules, written with Java Serialization, so that they can be loaded in one
+ * pass on startup.
+ *
+ * <p>A bundle is keyed by a checksum of everything it was compiled from: the module and lookup
+ * table files, the module override file, the configuration that modules are built with (whether
+ * physiology states are enabled, and the telemedicine configuration of type of care
+ * transitions), and the version of Synthea and of the bundle format.
+ * A bundle whose checksum does not match, or whose contents fail their own integrity check, is
+ * ignored and the modules are loaded from JSON instead. When <code>generate.module_bundle</code>
+ * names a bundle that does not exist or is out of date, every module is loaded (which also
+ * validates them) and a new bundle is written, so only the first run pays for parsing.</p>
+ *
+ * <p>Local modules added with {@link Module#addModules(java.io.File)} and the core Java modules
+ * are never bundled.</p>
+ */
+public final class ModuleBundle {
+  /** Incremented whenever the layout of the bundle changes. */
+  private static final int FORMAT_VERSION = 2;
+  private static final String MAGIC = "SYNTHEA-MODULE-BUNDLE";
+  private static final String DIGEST = "SHA-256";
+
+  private ModuleBundle() {
+    // utility class
+  }
+
+  /**
+   * Compile all modules into a bundle. The bundle is written to the path given as the first
+   * argument, or to the path in <code>generate.module_bundle</code> if no argument is given.
+   * @param args the path of the bundle to write.
+   * @throws Exception if any module cannot be loaded or the bundle cannot be written.
+   */
+  public static void main(String[] args) throws Exception {
+    if (args.length > 0) {
+      Config.set("generate.module_bundle", args[0]);
+    }
+    String bundle = Config.get("generate.module_bundle", "");
+    if (bundle.isEmpty()) {
+      System.out.println("Usage: ModuleBundle bundleFile");
+      System.exit(1);
+    }
+    // Loading the module list loads (or compiles) the bundle.
+    Module.getModuleNames();
+    if (!Files.exists(Paths.get(bundle))) {
+      throw new IllegalStateException("Module bundle " + bundle + " was not written");
+    }
+  }
+
+  /**
+   * Replace the loaders of the classpath modules with ones that return the modules from the
+   * bundle, compiling and writing the bundle first if it is missing or out of date.
+   * @param bundle the bundle file.
+   * @param modulePaths the module directories on the classpath.
+   * @param overrideFile the module override file, or null.
+   * @param suppliers the suppliers of the modules found in those directories, by path.
+   */
+  static void load(Path bundle, List<Path> modulePaths, String overrideFile,
+      Map<String, Module.ModuleSupplier> suppliers) {
+    String checksum;
+    try {
+      checksum = checksum(modulePaths, overrideFile);
+    } catch (IOException e) {
+      System.err.println("Unable to checksum modules, the module bundle is not used: " + e);
+      return;
+    }
+
+    Contents contents = read(bundle, checksum);
+    if (contents == null) {
+      contents = compile(suppliers);
+      if (contents == null) {
+        return;
+      }
+      try {
+        write(bundle, checksum, contents);
+        System.out.format("Wrote module bundle %s.\n", bundle);
+      } catch (IOException e) {
+        System.err.println("Unable to write module bundle " + bundle + ": " + e);
+      }
+      return;
+    }
+
+    LookupTableTransition.addLookupTables(contents.lookupTables);
+    for (Map.Entry<String, Module> entry : contents.modules.entrySet()) {
+      Module.ModuleSupplier supplier = suppliers.get(entry.getKey());
+      if (supplier != null && !supplier.core) {
+        Module module = entry.getValue();
+        suppliers.put(entry.getKey(),
+            new Module.ModuleSupplier(supplier.submodule, supplier.path, () -> module));
+      }
+    }
+    System.out.format("Loaded %d modules from bundle %s.\n", contents.modules.size(), bundle);
+  }
+
+  /**
+   * Load every non-core module.
+   * @return the modules and lookup tables, or null if any module could not be loaded.
+   */
+  private static Contents compile(Map<String, Module.ModuleSupplier> suppliers) {
+    Contents contents = new Contents();
+    boolean valid = true;
+    for (Map.Entry<String, Module.ModuleSupplier> entry : suppliers.entrySet()) {
+      if (entry.getValue().core) {
+        continue;
+      }
+      try {
+        contents.modules.put(entry.getKey(), entry.getValue().get());
+      } catch (RuntimeException e) {
+        System.err.println("Module " + entry.getKey() + " is invalid: " + e.getCause());
+        valid = false;
+      }
+    }
+    if (!valid) {
+      System.err.println("Modules failed to load, the module bundle was not written.");
+      return null;
+    }
+    contents.lookupTables = LookupTableTransition.getLookupTables();
+    return contents;
+  }
+
+  /**
+   * Compute the checksum of everything a bundle is compiled from.
+   * @param modulePaths the module directories.
+   * @param overrideFile the module override file, or null.
+   * @return the checksum, as a hexadecimal string.
+   * @throws IOException if any of the files cannot be read.
+   */
+  static String checksum(List<Path> modulePaths, String overrideFile) throws IOException {
+    MessageDigest digest = newDigest();
+    update(digest, MAGIC + FORMAT_VERSION);
+    update(digest, Utilities.SYNTHEA_VERSION);
+    update(digest, String.valueOf(Module.GMF_VERSION));
+    List<Path> directories = new ArrayList<Path>(modulePaths);
+    String lookupTables = Config.get("generate.lookup_tables", "");
+    if (!lookupTables.isEmpty() && Files.isDirectory(Paths.get(lookupTables))) {
+      directories.add(Paths.get(lookupTables));
+    }
+    for (Path directory : directories) {
+      // Sort by relative path so that the checksum does not depend on the walk order
+      Map<String, Path> files = new TreeMap<String, Path>();
+      try (Stream<Path> walk = Files.walk(directory)) {
+        for (Path file : walk.filter(Files::isRegularFile).collect(Collectors.toList())) {
+          files.put(directory.relativize(file).toString().replace("\\", "/"), file);
+        }
+      }
+      for (Map.Entry<String, Path> file : files.entrySet()) {
+        update(digest, file.getKey());
+        digest.update(Files.readAllBytes(file.getValue()));
+      }
+    }
+    if (overrideFile != null && !overrideFile.trim().isEmpty()) {
+      update(digest, overrideFile);
+      digest.update(Files.readAllBytes(Paths.get(overrideFile)));
+    }
+    update(digest, "physiology.state.enabled=" + State.ENABLE_PHYSIOLOGY_STATE);
+    update(digest, Utilities.readResource(TelemedicineConfig.CONFIG_FILE));
+    return Hex.encodeHexString(digest.digest());
+  }
+
+  /**
+   * Write a bundle. The bundle is written to a temporary file that is then moved into place,
+   * so a bundle that is being written is never read.
+   * @param bundle the bundle file.
+   * @param checksum the checksum of the inputs.
+   * @param contents the modules and lookup tables.
+   * @throws IOException if the bundle cannot be written.
+   */
+  static void write(Path bundle, String checksum, Contents contents) throws IOException {
+    ByteArrayOutputStream payload = new ByteArrayOutputStream(1 << 20);
+    try (ObjectOutputStream oos = new ObjectOutputStream(payload)) {
+      oos.writeObject(contents);
+    }
+    byte[] bytes = payload.toByteArray();
+
+    Path parent = bundle.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    Path temporary = bundle.resolveSibling(bundle.getFileName() + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+      out.writeUTF(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      out.writeUTF(checksum);
+      out.write(newDigest().digest(bytes));
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+    Files.move(temporary, bundle, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Read a bundle.
+   * @param bundle the bundle file.
+   * @param checksum the checksum of the current inputs.
+   * @return the modules and lookup tables, or null if the bundle does not exist, was compiled
+   *     from different inputs, or is damaged.
+   */
+  static Contents read(Path bundle, String checksum) {
+    if (!Files.exists(bundle)) {
+      return null;
+    }
+    try (DataInputStream in = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(bundle)))) {
+      if (!MAGIC.equals(in.readUTF()) || in.readInt() != FORMAT_VERSION
+          || !checksum.equals(in.readUTF())) {
+        System.out.format("Module bundle %s is out of date.\n", bundle);
+        return null;
+      }
+      byte[] expected = new byte[newDigest().getDigestLength()];
+      in.readFully(expected);
+      byte[] bytes = new byte[in.readInt()];
+      in.readFully(bytes);
+      if (!Arrays.equals(expected, newDigest().digest(bytes))) {
+        System.err.format("Module bundle %s is damaged.\n", bundle);
+        return null;
+      }
+      try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+        return (Contents) ois.readObject();
+      }
+    } catch (IOException | ClassNotFoundException | ClassCastException e) {
+      // includes bundles written by an incompatible build of the classes they contain
+      System.err.format("Unable to read module bundle %s: %s\n", bundle, e);
+      return null;
+    }
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance(DIGEST);
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static void update(MessageDigest digest, String value) {
+    digest.update(value.getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+  }
+
+  /**
+   * The contents of a bundle.
+   */
+  static class Contents implements Serializable {
+    private static final long serialVersionUID = 4519802283742650217L;
+
+    final Map<String, Module> modules = new TreeMap<String, Module>();
+    HashMap<String, LookupTable> lookupTables = new HashMap<String, LookupTable>();
+  }
+}
@@ -0,0 +1,147 @@
+package org.mitre.synthea.engine;
+
+import org.mitre.synthea.world.concepts.HealthRecord.Code;
+
+/**
+ * A comparison operator of the generic module framework, resolved from its name once when a
+ * module is loaded so that testing {@link Logic} does not compare strings. The results are the
+ * same as those of the <code>Utilities.compare</code> methods.
+ * Supported operators are: &lt;, &lt;=, ==, &gt;=, &gt;, !=, is nil, is not nil.
+ */
+enum Operator {
+  LESS_THAN("<"),
+  LESS_THAN_OR_EQUAL("<="),
+  EQUAL("=="),
+  GREATER_THAN_OR_EQUAL(">="),
+  GREATER_THAN(">"),
+  NOT_EQUAL("!="),
+  IS_NIL("is nil"),
+  IS_NOT_NIL("is not nil"),
+  /** Any other operator, which is never true. */
+  UNSUPPORTED(null);
+
+  private final String symbol;
+
+  Operator(String symbol) {
+    this.symbol = symbol;
+  }
+
+  /**
+   * Get the operator with the given name.
+   * @param symbol the operator as written in a module, e.g. "&lt;=".
+   * @return the operator, UNSUPPORTED if it is not known, or null if symbol is null.
+   */
+  static Operator of(String symbol) {
+    if (symbol == null) {
+      return null;
+    }
+    for (Operator operator : values()) {
+      if (symbol.equals(operator.symbol)) {
+        return operator;
+      }
+    }
+    System.err.format("Unsupported operator: %s\n", symbol);
+    return UNSUPPORTED;
+  }
+
+  /**
+   * Whether this operator only tests whether a value is present.
+   */
+  boolean isNilCheck() {
+    return this == IS_NIL || this == IS_NOT_NIL;
+  }
+
+  /**
+   * Test whether a value is present. Only valid if {@link #isNilCheck()}.
+   */
+  boolean nil(Object lhs) {
+    return (lhs == null) == (this == IS_NIL);
+  }
+
+  boolean compare(double lhs, double rhs) {
+    switch (this) {
+      case LESS_THAN:
+        return lhs < rhs;
+      case LESS_THAN_OR_EQUAL:
+        return lhs <= rhs;
+      case EQUAL:
+        return lhs == rhs;
+      case GREATER_THAN_OR_EQUAL:
+        return lhs >= rhs;
+      case GREATER_THAN:
+        return lhs > rhs;
+      case NOT_EQUAL:
+        return lhs != rhs;
+      case IS_NOT_NIL:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Test the result of <code>lhs.compareTo(rhs)</code>.
+   */
+  boolean compare(int comparison) {
+    switch (this) {
+      case LESS_THAN:
+        return comparison < 0;
+      case LESS_THAN_OR_EQUAL:
+        return comparison <= 0;
+      case EQUAL:
+        return comparison == 0;
+      case GREATER_THAN_OR_EQUAL:
+        return comparison >= 0;
+      case GREATER_THAN:
+        return comparison > 0;
+      case NOT_EQUAL:
+        return comparison != 0;
+      case IS_NOT_NIL:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Compare two booleans. Every operator other than == tests whether they differ.
+   */
+  boolean compare(boolean lhs, boolean rhs) {
+    switch (this) {
+      case EQUAL:
+        return lhs == rhs;
+      case IS_NIL:
+      case UNSUPPORTED:
+        return false;
+      case IS_NOT_NIL:
+        return true;
+      default:
+        return lhs != rhs;
+    }
+  }
+
+  /**
+   * Compare two codes, which only supports == and !=.
+   */
+  boolean compare(Code lhs, Code rhs) {
+    switch (this) {
+      case EQUAL:
+        return lhs.equals(rhs);
+      case NOT_EQUAL:
+        return !lhs.equals(rhs);
+      case IS_NOT_NIL:
+        return true;
+      case IS_NIL:
+      case UNSUPPORTED:
+        return false;
+      default:
+        System.err.format("Unsupported operator: %s\n", symbol);
+        return false;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return symbol;
+  }
+}
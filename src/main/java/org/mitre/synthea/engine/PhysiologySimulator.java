@@ -7,15 +7,20 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
 import java.lang.reflect.InvocationTargetException;
+import java.math.BigDecimal;
+import java.math.MathContext;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.xml.stream.XMLStreamException;
 
 import org.apache.commons.lang3.ArrayUtils;
@@ -23,6 +28,7 @@ import org.apache.commons.math.ode.DerivativeException;
 import org.mitre.synthea.helpers.ChartRenderer;
 import org.mitre.synthea.helpers.ChartRenderer.MultiTableChartConfig;
 import org.mitre.synthea.helpers.ChartRenderer.MultiTableSeriesConfig;
+import org.mitre.synthea.helpers.Config;
 import org.mitre.synthea.helpers.Utilities;
 import org.sbml.jsbml.Model;
 import org.sbml.jsbml.SBMLDocument;
@@ -54,6 +60,25 @@ public class PhysiologySimulator {
   private static Map<String, Model> MODEL_CACHE;
   private static Path OUTPUT_PATH = Paths.get("output", "physiology");
 
+  /** Simulators are not thread safe, so each thread keeps its own pool of them. */
+  private static final ThreadLocal<Map<SimulatorKey, PhysiologySimulator>> SIMULATOR_POOL =
+      ThreadLocal.withInitial(HashMap::new);
+
+  /**
+   * Maximum number of simulation results to keep, shared across all threads. A size of zero
+   * disables the cache.
+   */
+  private static final int RESULT_CACHE_SIZE = Config.getAsInteger("physiology.cache.size", 0);
+  /**
+   * Number of significant digits that simulation inputs are rounded to when the result cache is
+   * enabled. Inputs are rounded before the simulation runs, so a cached result is identical to
+   * the one that would have been computed.
+   */
+  private static final MathContext RESULT_CACHE_PRECISION =
+      new MathContext(Config.getAsInteger("physiology.cache.significant_digits", 4));
+  private static volatile Map<ResultKey, MultiTable> RESULT_CACHE;
+
+  private final SimulatorKey key;
   private final Model model;
   private final SBMLinterpreter interpreter;
   private final AbstractDESSolver solver;
@@ -148,7 +173,109 @@ public class PhysiologySimulator {
     SOLVER_CLASSES = Collections.unmodifiableMap(initSolvers);
 
     // Initialize our model cache
-    MODEL_CACHE = new HashMap<String, Model>();
+    MODEL_CACHE = new ConcurrentHashMap<String, Model>();
+
+    setResultCacheSize(RESULT_CACHE_SIZE);
+  }
+
+  /**
+   * Replaces the shared result cache with an empty one of the given size. A size of zero
+   * disables the cache.
+   * @param maxSize maximum number of simulation results to keep
+   */
+  static synchronized void setResultCacheSize(int maxSize) {
+    if (maxSize > 0) {
+      RESULT_CACHE = Collections.synchronizedMap(
+          new LinkedHashMap<ResultKey, MultiTable>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ResultKey, MultiTable> eldest) {
+              return size() > maxSize;
+            }
+          });
+    } else {
+      RESULT_CACHE = null;
+    }
+  }
+
+  /** Key for a simulator configuration: the model, solver, step size and duration. */
+  private static final class SimulatorKey {
+    private final String modelPath;
+    private final String solverName;
+    private final double stepSize;
+    private final double simDuration;
+    private final int hash;
+
+    private SimulatorKey(String modelPath, String solverName, double stepSize,
+        double simDuration) {
+      this.modelPath = modelPath;
+      this.solverName = solverName;
+      this.stepSize = stepSize;
+      this.simDuration = simDuration;
+      this.hash = Objects.hash(modelPath, solverName, stepSize, simDuration);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof SimulatorKey)) {
+        return false;
+      }
+      SimulatorKey other = (SimulatorKey) obj;
+      return hash == other.hash && modelPath.equals(other.modelPath)
+          && solverName.equals(other.solverName)
+          && Double.compare(stepSize, other.stepSize) == 0
+          && Double.compare(simDuration, other.simDuration) == 0;
+    }
+  }
+
+  /** Key for a cached simulation result: the simulator configuration and its parameters. */
+  private static final class ResultKey {
+    private final SimulatorKey simulator;
+    private final double[] params;
+    private final int hash;
+
+    private ResultKey(SimulatorKey simulator, double[] params) {
+      this.simulator = simulator;
+      this.params = params;
+      this.hash = 31 * simulator.hashCode() + Arrays.hashCode(params);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof ResultKey)) {
+        return false;
+      }
+      ResultKey other = (ResultKey) obj;
+      return hash == other.hash && simulator.equals(other.simulator)
+          && Arrays.equals(params, other.params);
+    }
+  }
+
+  /**
+   * Returns a simulator for the given configuration that is owned by the current thread,
+   * creating one the first time it is requested. The SBML interpreter is reset at the start of
+   * every run, so a pooled simulator can be reused for any number of people, but it must not be
+   * shared with other threads.
+   * @param modelPath Path to the SBML file to load relative to resources/physiology
+   * @param solverName Name of the solver to use
+   * @param stepSize Time step for the simulation
+   * @param simDuration Amount of time to simulate
+   * @return a simulator for exclusive use by the current thread
+   */
+  public static PhysiologySimulator getPooledSimulator(String modelPath, String solverName,
+      double stepSize, double simDuration) {
+    return SIMULATOR_POOL.get().computeIfAbsent(
+        new SimulatorKey(modelPath, solverName, stepSize, simDuration),
+        k -> new PhysiologySimulator(modelPath, solverName, stepSize, simDuration));
   }
 
   /**
@@ -187,6 +314,7 @@ public class PhysiologySimulator {
       // Add the loaded model to the cache so we don't need to load it again
       MODEL_CACHE.put(modelPath, model);
     }
+    key = new SimulatorKey(modelPath, solverName, stepSize, simDuration);
     interpreter = getInterpreter(model);
     solver = getSolver(solverName);
     solver.setStepSize(stepSize);
@@ -211,6 +339,10 @@ public class PhysiologySimulator {
    *
    * <p>Note that this method will throw a DerivativeException if the model encounters an error
    * while attempting to solve the system.
+   *
+   * <p>If the result cache is enabled with <code>physiology.cache.size</code>, inputs are first
+   * rounded to <code>physiology.cache.significant_digits</code> and the results may be shared
+   * with other callers, so they must not be modified.
    * @param inputs Map of model parameter inputs. For any parameters which are not provided
    *               the default value from the model will be used. If null, all default
    *               parameter values will be used.
@@ -219,34 +351,60 @@ public class PhysiologySimulator {
    *        solution to differential equations
    */
   public MultiTable run(Map<String, Double> inputs) throws DerivativeException {
-    try {
-      // Reinitialize the interpreter to prevent old values from affecting the new simulation
-      interpreter.init(true);
-    } catch (ModelOverdeterminedException | SBMLException ex) {
-      // This shouldn't ever happen here since the interpreter has already been instantiated
-      // at least once
-      throw new RuntimeException(ex);
-    }
-
     // Create a copy of the default parameters to use
     double[] params = Arrays.copyOf(modelDefaults, modelDefaults.length);
+    Map<ResultKey, MultiTable> cache = RESULT_CACHE;
 
     // Overwrite model defaults with the provided input parameters, if present
     if (inputs != null) {
       for (int i = 0; i < modelFields.length; i++) {
         String field = modelFields[i];
-        if (inputs.containsKey(field)) {
-          params[i] = inputs.get(field);
+        Double value = inputs.get(field);
+        if (value != null) {
+          params[i] = cache == null ? value : quantize(value);
         }
       }
     }
 
+    ResultKey resultKey = null;
+    if (cache != null) {
+      resultKey = new ResultKey(key, params);
+      MultiTable cached = cache.get(resultKey);
+      if (cached != null) {
+        return cached;
+      }
+    }
+
+    try {
+      // Reinitialize the interpreter to prevent old values from affecting the new simulation
+      interpreter.init(true);
+    } catch (ModelOverdeterminedException | SBMLException ex) {
+      // This shouldn't ever happen here since the interpreter has already been instantiated
+      // at least once
+      throw new RuntimeException(ex);
+    }
+
     // Solve the ODE for the specified duration and return the results
     MultiTable results = solver.solve(interpreter, params, 0, simDuration);
 
+    if (resultKey != null) {
+      cache.put(resultKey, results);
+    }
     return results;
   }
 
+  /**
+   * Round a simulation input to the configured number of significant digits.
+   * @param value input value
+   * @return the rounded value
+   */
+  private static double quantize(double value) {
+    if (value == 0.0 || Double.isNaN(value) || Double.isInfinite(value)) {
+      return value;
+    }
+    return new BigDecimal(value).round(RESULT_CACHE_PRECISION).doubleValue();
+  }
+
   /**
    * Checks whether a string is a valid solver name.
    * @param solverName solver name string to check
@@ -0,0 +1,179 @@
+package org.mitre.synthea.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.mitre.synthea.export.ShardMerger;
+import org.mitre.synthea.export.rif.identifiers.HICN;
+import org.mitre.synthea.export.rif.identifiers.MBI;
+import org.mitre.synthea.helpers.Config;
+
+/**
+ * Generates a population using several local worker processes, each running its own JVM, and
+ * merges their output. Each worker generates a contiguous range of person indices from the same
+ * population seed (see {@link Generator.GeneratorOptions#shardIndex}) and writes to its own
+ * directory under <code>shards</code> in the output directory. Once every worker has finished,
+ * the shards are merged into the output directory with {@link ShardMerger}.
+ *
+ * <p>Each worker is given its own range of CSV claim transaction CHARGEIDs and, when BB2 RIF
+ * export is enabled, of beneficiary, claim and event IDs, MBIs and HICNs, so that the merged
+ * files never use an ID twice.</p>
+ *
+ * <p>Every person is generated from the same seed as in a single-process run, so the merged
+ * output holds the same patients. It is not byte-identical to a single-process run: rows are in
+ * shard order, IDs come from each worker's range, and aggregates are summed across shards.</p>
+ */
+public class ShardLauncher {
+  private static final String SHARD_DIRECTORY = "shards";
+  /** JVM options that are passed on to the workers. Agents and debuggers are not. */
+  private static final String[] FORWARDED_JVM_OPTIONS = {"-Xmx", "-Xms", "-Xss", "-D"};
+  /** BB2 numeric IDs, which count down from their configured start. */
+  private static final String[] BFD_NUMERIC_IDS = {"bene_id", "clm_id", "clm_grp_id", "pde_id",
+    "fi_doc_cntl_num", "carr_clm_cntl_num"};
+  /** The most IDs of each kind given to a single worker. */
+  private static final long MAX_IDS_PER_SHARD = 1_000_000_000_000L;
+
+  private final List<String> args;
+  private final Generator.GeneratorOptions options;
+  private final int workers;
+
+  /**
+   * Create a new launcher.
+   * @param args the command line arguments, excluding the worker count, which are passed to
+   *     every worker.
+   * @param options the options parsed from those arguments.
+   * @param workers the number of worker processes to run.
+   */
+  public ShardLauncher(List<String> args, Generator.GeneratorOptions options, int workers) {
+    if (workers < 1) {
+      throw new IllegalArgumentException(String.format("Illegal worker count (%d)", workers));
+    }
+    this.args = args;
+    this.options = options;
+    this.workers = workers;
+  }
+
+  /**
+   * Run all workers to completion, then merge their output.
+   * @throws IOException if a worker cannot be started or the output cannot be merged.
+   * @throws InterruptedException if interrupted while waiting for the workers.
+   */
+  public void run() throws IOException, InterruptedException {
+    Path baseDirectory = Paths.get(Config.get("exporter.baseDirectory", "./output/"));
+    Path shardDirectory = baseDirectory.resolve(SHARD_DIRECTORY);
+
+    List<Path> shards = new ArrayList<>(workers);
+    List<Process> processes = new ArrayList<>(workers);
+    try {
+      for (int i = 0; i < workers; i++) {
+        Path shard = shardDirectory.resolve(Integer.toString(i));
+        shards.add(shard);
+        processes.add(new ProcessBuilder(workerCommand(i, shard)).inheritIO().start());
+      }
+      for (int i = 0; i < workers; i++) {
+        int exitCode = processes.get(i).waitFor();
+        if (exitCode != 0) {
+          throw new IllegalStateException(String.format(
+              "Worker %d exited with code %d, shard output was not merged", i, exitCode));
+        }
+      }
+    } finally {
+      for (Process process : processes) {
+        process.destroy();
+      }
+    }
+
+    System.out.println("Merging output from " + workers + " workers...");
+    ShardMerger.merge(shards, baseDirectory);
+    try (Stream<Path> walk = Files.walk(shardDirectory)) {
+      // Only empty directories remain after merging
+      walk.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  /**
+   * Build the command line for a worker. Every worker is given the same seeds and times,
+   * which otherwise default to the current time and would differ between processes.
+   */
+  List<String> workerCommand(int shardIndex, Path shard) {
+    List<String> command = new ArrayList<>();
+    command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+    for (String option : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+      for (String prefix : FORWARDED_JVM_OPTIONS) {
+        if (option.startsWith(prefix)) {
+          command.add(option);
+          break;
+        }
+      }
+    }
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add("App");
+    command.addAll(args);
+    command.add("-s");
+    command.add(Long.toString(options.seed));
+    command.add("-cs");
+    command.add(Long.toString(options.clinicianSeed));
+    command.add("-shard");
+    command.add(String.format("%d/%d/%d/%d", shardIndex, workers, options.referenceTime,
+        options.endTime));
+    command.add("--exporter.baseDirectory=" + shard.toString() + File.separator);
+    command.add("--exporter.csv.charge_id_start=" + chargeIdStart(shardIndex));
+    if (Config.getAsBoolean("exporter.bfd.export", false)) {
+      command.addAll(bfdIdRanges(shardIndex));
+    }
+    return command;
+  }
+
+  /**
+   * Get the first CSV claim transaction CHARGEID of a worker. The CHARGEIDs after the configured
+   * start are split evenly between the workers.
+   */
+  long chargeIdStart(int shardIndex) {
+    long start = Config.getAsLong("exporter.csv.charge_id_start", 0L);
+    return start + shardIndex * ((Long.MAX_VALUE - Math.max(start, 0L)) / workers);
+  }
+
+  /**
+   * Build the configuration overrides that start a worker's BB2 IDs at the beginning of its own
+   * range. The IDs left after each configured start are split evenly between the workers, up to
+   * {@link #MAX_IDS_PER_SHARD} each.
+   * @throws IllegalArgumentException if there are not enough IDs left for every person.
+   */
+  List<String> bfdIdRanges(int shardIndex) {
+    List<String> overrides = new ArrayList<>();
+    for (String id : BFD_NUMERIC_IDS) {
+      String key = "exporter.bfd." + id + "_start";
+      long start = Config.getAsLong(key, -1);
+      // IDs count down, so a non-negative start leaves only the IDs down to zero
+      long remaining = start >= 0 ? start : start - Long.MIN_VALUE;
+      overrides.add(String.format("--%s=%d", key,
+          start - shardIndex * idsPerShard(key, remaining)));
+    }
+    MBI mbi = MBI.parse(Config.get("exporter.bfd.mbi_start", "1S00-A00-AA00"));
+    overrides.add("--exporter.bfd.mbi_start="
+        + mbi.plus(shardIndex * idsPerShard("exporter.bfd.mbi_start", mbi.remaining())));
+    HICN hicn = HICN.parse(Config.get("exporter.bfd.hicn_start", "T00000000A"));
+    overrides.add("--exporter.bfd.hicn_start="
+        + hicn.plus(shardIndex * idsPerShard("exporter.bfd.hicn_start", hicn.remaining())));
+    return overrides;
+  }
+
+  private long idsPerShard(String key, long remaining) {
+    long ids = Math.min(remaining / workers, MAX_IDS_PER_SHARD);
+    long people = ((long) options.population + workers - 1) / workers;
+    if (ids < people) {
+      throw new IllegalArgumentException(String.format(
+          "Not enough IDs after %s to give each of %d workers %d people", key, workers, people));
+    }
+    return ids;
+  }
+}
@@ -8,6 +8,8 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -45,6 +47,7 @@ import org.mitre.synthea.helpers.TimeSeriesData;
 import org.mitre.synthea.helpers.Utilities;
 import org.mitre.synthea.helpers.physiology.IoMapper;
 import org.mitre.synthea.modules.EncounterModule;
+import org.mitre.synthea.world.agents.AttributeMap;
 import org.mitre.synthea.world.agents.Person;
 import org.mitre.synthea.world.agents.Provider;
 import org.mitre.synthea.world.concepts.ClinicianSpecialty;
@@ -155,6 +158,20 @@ public abstract class State implements Cloneable, Serializable {
     return transition;
   }
 
+  /**
+   * Get the names of the states that could follow this one, for a person whose life has not been
+   * simulated yet. See {@link Transition#possibleTransitions(Person, long)}.
+   * @param person person holding only their demographic attributes
+   * @param latestTime the latest time this state could be processed at
+   * @return the names of the states that may follow
+   */
+  Collection<String> possibleTransitions(Person person, long latestTime) {
+    if (transition == null) {
+      return Collections.emptyList();
+    }
+    return transition.possibleTransitions(person, latestTime);
+  }
+
   /**
    * Process this State with the given Person at the specified time within the simulation.
    * If this State generates a HealthRecord.Entry during processing, then the resulting data
@@ -263,10 +280,10 @@ public abstract class State implements Cloneable, Serializable {
       if (submod == null) {
         throw new RuntimeException("Unknown submodule: " + submodule);
       }
-      // set the submodule name to have the same name as this parent
+      // use a view of the submodule with the same name as this parent
       // module, that way the submodule is empowered (and vice versa)
       // to act on encounters created using the same name.
-      submod.name = module.name;
+      submod = submod.calledBy(module.name);
       boolean completed = submod.process(person, time);
 
       if (completed) {
@@ -322,7 +339,6 @@ public abstract class State implements Cloneable, Serializable {
     private List<IoMapper> inputs;
     private List<IoMapper> outputs;
     private Transition altTransition;
-    private transient PhysiologySimulator simulator;
     private transient Map<String,String> paramTypes;
 
     @Override
@@ -347,15 +363,17 @@ public abstract class State implements Cloneable, Serializable {
     }
 
     private void setup() {
-      simulator = new PhysiologySimulator(model, solver, stepSize, simDuration);
-      paramTypes = new HashMap<String, String>();
-
-      for (String param : simulator.getParameters()) {
-        // Assume all physiology model inputs are lists of Decimal objects which is typically
-        // the case
-        // TODO: Look into whether SBML supports other parameter types, and if so, how we might map
-        // those types to CQL types
-        paramTypes.put(param, "List<Decimal>");
+      // Clones share the parameter types of the state they were cloned from
+      if (paramTypes == null) {
+        paramTypes = new HashMap<String, String>();
+
+        for (String param : getSimulator().getParameters()) {
+          // Assume all physiology model inputs are lists of Decimal objects which is typically
+          // the case
+          // TODO: Look into whether SBML supports other parameter types, and if so, how we might
+          // map those types to CQL types
+          paramTypes.put(param, "List<Decimal>");
+        }
       }
 
       for (IoMapper mapper : inputs) {
@@ -366,6 +384,14 @@ public abstract class State implements Cloneable, Serializable {
       }
     }
 
+    /**
+     * Simulators are expensive to create and hold mutable solver state, so each thread
+     * reuses its own simulator for this model rather than each clone of the state creating one.
+     */
+    private PhysiologySimulator getSimulator() {
+      return PhysiologySimulator.getPooledSimulator(model, solver, stepSize, simDuration);
+    }
+
     @Override
     public Physiology clone() {
       Physiology clone = (Physiology) super.clone();
@@ -398,7 +424,7 @@ public abstract class State implements Cloneable, Serializable {
         mapper.toModelInputs(person, time, modelInputs);
       }
       try {
-        MultiTable results = simulator.run(modelInputs);
+        MultiTable results = getSimulator().run(modelInputs);
         for (IoMapper mapper : outputs) {
           switch (mapper.getType()) {
             default:
@@ -635,6 +661,15 @@ public abstract class State implements Cloneable, Serializable {
       }
       return exit;
     }
+
+    @Override
+    Collection<String> possibleTransitions(Person person, long latestTime) {
+      if (Boolean.FALSE.equals(allow.testBeforeSimulation(person, latestTime))) {
+        // the person can never pass this guard
+        return Collections.emptyList();
+      }
+      return super.possibleTransitions(person, latestTime);
+    }
   }
 
   /**
@@ -657,7 +692,7 @@ public abstract class State implements Cloneable, Serializable {
     private double period;
     // For GMF 2.0 Support
     private Distribution distribution;
-
+    private transient AttributeMap.Slot slot;
 
     private ThreadLocal<ExpressionProcessor> getExpProcessor() {
       // If the ThreadLocal instance hasn't been created yet, create it now
@@ -695,6 +730,7 @@ public abstract class State implements Cloneable, Serializable {
         throw new IllegalStateException(
             String.format("State %s contains an invalid distribution", this.name));
       }
+      slot = AttributeMap.slot(attribute);
     }
 
     @Override
@@ -735,11 +771,14 @@ public abstract class State implements Cloneable, Serializable {
         }
       }
 
+      if (slot == null) {
+        slot = AttributeMap.slot(attribute);
+      }
       if (value != null) {
-        person.attributes.put(attribute, value);
-      } else if (person.attributes.containsKey(attribute)) {
+        person.attributes.put(slot, value);
+      } else {
         // intentionally clear out the variable
-        person.attributes.remove(attribute);
+        person.attributes.remove(slot);
       }
 
       return true;
@@ -757,6 +796,7 @@ public abstract class State implements Cloneable, Serializable {
     private String action;
     private boolean increment;
     private int amount;
+    private transient AttributeMap.Slot slot;
 
     @Override
     protected void initialize(Module module, String name, JsonObject definition) {
@@ -766,6 +806,7 @@ public abstract class State implements Cloneable, Serializable {
         // default to 1 for legacy compatibility
         amount = 1;
       }
+      slot = AttributeMap.slot(attribute);
     }
 
     @Override
@@ -776,11 +817,15 @@ public abstract class State implements Cloneable, Serializable {
 
     @Override
     public boolean process(Person person, long time) {
+      if (slot == null) {
+        slot = AttributeMap.slot(attribute);
+      }
       double counter = 0.0;
-      if (person.attributes.containsKey(attribute)) {
+      Object current = person.attributes.get(slot);
+      if (current != null) {
         // this cast as int from double is to handle cases where the attribute
         // is either a java.lang.Double or java.lang.Integer
-        counter = Double.parseDouble(person.attributes.get(attribute).toString());
+        counter = Double.parseDouble(current.toString());
       }
 
       if (increment) {
@@ -788,7 +833,7 @@ public abstract class State implements Cloneable, Serializable {
       } else {
         counter = counter - amount;
       }
-      person.attributes.put(attribute, counter);
+      person.attributes.put(slot, counter);
       return true;
     }
   }
@@ -849,7 +894,7 @@ public abstract class State implements Cloneable, Serializable {
             && person.getCurrentEncounterModule().equals(EncounterModule.NAME)) {
           HealthRecord.Encounter encounter = person.record.currentEncounter(time);
           entry = encounter;
-          String activeKey = EncounterModule.ACTIVE_WELLNESS_ENCOUNTER + " " + module.name;
+          AttributeMap.Slot activeKey = module.getActiveWellnessSlot();
           if (person.attributes.containsKey(activeKey)) {
             // check-in with the activeKey...
             boolean status = (Boolean) person.attributes.get(activeKey);
@@ -1060,7 +1105,7 @@ public abstract class State implements Cloneable, Serializable {
 
     @Override
     public boolean process(Person person, long time) {
-      String activeKey = EncounterModule.ACTIVE_WELLNESS_ENCOUNTER + " " + module.name;
+      AttributeMap.Slot activeKey = module.getActiveWellnessSlot();
       if (person.hasCurrentEncounter()
           && person.getCurrentEncounterModule().equals(module.name)) {
         HealthRecord.Encounter encounter = person.record.currentEncounter(time);
@@ -1492,6 +1537,42 @@ public abstract class State implements Cloneable, Serializable {
     private transient List<JsonObject> goals; // TODO: make this a Component
     private String reason;
 
+    /**
+     * Java Serialization support method to serialize the JsonObject goals which aren't
+     * natively serializable.
+     * @param oos the stream to write to
+     */
+    private void writeObject(ObjectOutputStream oos) throws IOException {
+      oos.defaultWriteObject();
+      if (goals != null) {
+        ArrayList<String> goalsJson = new ArrayList<String>(goals.size());
+        for (JsonObject goal : goals) {
+          goalsJson.add(goal.toString());
+        }
+        oos.writeObject(goalsJson);
+      } else {
+        oos.writeObject(null);
+      }
+    }
+
+    /**
+     * Java Serialization support method to deserialize the JsonObject goals which aren't
+     * natively serializable.
+     * @param ois the stream to read from
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream ois) throws ClassNotFoundException, IOException {
+      ois.defaultReadObject();
+      List<String> goalsJson = (List<String>) ois.readObject();
+      if (goalsJson != null) {
+        Gson gson = Utilities.getGson();
+        goals = new ArrayList<JsonObject>(goalsJson.size());
+        for (String goal : goalsJson) {
+          goals.add(gson.fromJson(goal, JsonObject.class));
+        }
+      }
+    }
+
     @Override
     public CarePlanStart clone() {
       CarePlanStart clone = (CarePlanStart) super.clone();
@@ -5,9 +5,15 @@ import com.google.gson.JsonObject;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang3.Range;
 import org.apache.commons.math3.distribution.EnumeratedDistribution;
@@ -38,6 +44,18 @@ public abstract class Transition implements Serializable {
    */
   public abstract String follow(Person person, long time);
 
+  /**
+   * Get the names of the states that could follow, for a person whose life has not been
+   * simulated yet. Options whose conditions are decided by the person's demographic attributes
+   * alone (see {@link Logic#testBeforeSimulation(Person, long)}) are resolved; any other option
+   * is possible.
+   *
+   * @param person person holding only their demographic attributes
+   * @param latestTime the latest time the transition could be followed at
+   * @return the names of the states that may follow
+   */
+  abstract Collection<String> possibleTransitions(Person person, long latestTime);
+
   /**
    * Direct transitions are the simplest of transitions. They transition directly
    * to the indicated state. The value of a direct_transition is simply the name
@@ -54,6 +72,11 @@ public abstract class Transition implements Serializable {
     public String follow(Person person, long time) {
       return transition;
     }
+
+    @Override
+    Collection<String> possibleTransitions(Person person, long latestTime) {
+      return Collections.singletonList(transition);
+    }
   }
 
   /**
@@ -109,6 +132,11 @@ public abstract class Transition implements Serializable {
     public String follow(Person person, long time) {
       return pickDistributedTransition(transitions, person);
     }
+
+    @Override
+    Collection<String> possibleTransitions(Person person, long latestTime) {
+      return namesOf(transitions);
+    }
   }
 
   /**
@@ -187,6 +215,11 @@ public abstract class Transition implements Serializable {
                   + "telemedicine.");
       }
     }
+
+    @Override
+    Collection<String> possibleTransitions(Person person, long latestTime) {
+      return Arrays.asList(ambulatory, emergency, telemedicine);
+    }
   }
 
   public static final class TypeOfCareTransitionOptions implements Serializable {
@@ -216,13 +249,12 @@ public abstract class Transition implements Serializable {
   public static class LookupTableTransition extends Transition {
 
     // Map of lookupTables
-    private static HashMap<String, HashMap<LookupTableKey, List<DistributedTransitionOption>>>
-        lookupTables = new HashMap<String, HashMap<LookupTableKey,
-        List<DistributedTransitionOption>>>();
+    private static Map<String, LookupTable> lookupTables =
+        new ConcurrentHashMap<String, LookupTable>();
     private final List<LookupTableTransitionOption> transitions;
-    private List<String> attributes;
     private List<DistributedTransitionOption> defaultTransitions;
     private String lookupTableName;
+    private LookupTable lookupTable;
 
     /**
      * Constructor for LookupTableTransition.
@@ -237,11 +269,32 @@ public abstract class Transition implements Serializable {
         throw new RuntimeException(
           "LOOKUP TABLE JSON ERROR: Table name cannot be null.");
       }
-      if (!lookupTables.containsKey(lookupTableName)) {
-        loadLookupTable();
+      // modules may be loaded in parallel, so only one of them loads each table
+      synchronized (lookupTables) {
+        if (!lookupTables.containsKey(lookupTableName)) {
+          loadLookupTable();
+        }
+        this.lookupTable = lookupTables.get(lookupTableName);
       }
     }
 
+    /**
+     * Get a copy of the lookup tables loaded so far, so that they can be saved in a
+     * {@link ModuleBundle} alongside the modules that use them.
+     * @return the lookup tables, by file name.
+     */
+    static HashMap<String, LookupTable> getLookupTables() {
+      return new HashMap<String, LookupTable>(lookupTables);
+    }
+
+    /**
+     * Add lookup tables that were loaded from a {@link ModuleBundle}.
+     * @param tables the lookup tables, by file name.
+     */
+    static void addLookupTables(Map<String, LookupTable> tables) {
+      lookupTables.putAll(tables);
+    }
+
     /**
      * Loads the default transitions for this transition.
      */
@@ -263,9 +316,6 @@ public abstract class Transition implements Serializable {
     private void loadLookupTable() {
 
       System.out.println("Loading Lookup Table: " + lookupTableName);
-      // Hashmap for the new lookup table.
-      HashMap<LookupTableKey, List<DistributedTransitionOption>> newTable
-          = new HashMap<LookupTableKey, List<DistributedTransitionOption>>();
 
       // Load in this transitions's CSV file.
       String fileName = Config.get("generate.lookup_tables") + lookupTableName;
@@ -280,8 +330,9 @@ public abstract class Transition implements Serializable {
       // Retrieve CSV column headers.
       List<String> columnHeaders = new ArrayList<String>(lookupTable.get(0).keySet());
       // Parse the list of attributes.
-      this.attributes = new ArrayList<String>(columnHeaders.subList(0,
+      List<String> attributes = new ArrayList<String>(columnHeaders.subList(0,
           columnHeaders.size() - this.transitions.size()));
+      LookupTable newTable = new LookupTable(lookupTableName, attributes);
       // Parse the list of states to transition to.
       List<String> transitionStates = columnHeaders.subList((columnHeaders.size()
           - this.transitions.size()), columnHeaders.size());
@@ -289,13 +340,13 @@ public abstract class Transition implements Serializable {
       // Create keys and insert each row of CSV into lookup table map.
       for (Map<String, String> currentRow : lookupTable) {
         // Extract attributes from current CSV row.
-        List<String> rowAttributes = new ArrayList<String>(currentRow.values());
-        rowAttributes = rowAttributes.subList(0, this.attributes.size());
+        List<String> rowAttributes = new ArrayList<String>(
+            new ArrayList<String>(currentRow.values()).subList(0, attributes.size()));
         // Create age range for lookup table key if age is an attribute.
         Range<Integer> ageRange = null;
         Range<Long> timeRange = null;
-        if (this.attributes.contains("age")) {
-          Integer ageIndex = this.attributes.indexOf("age");
+        if (attributes.contains("age")) {
+          Integer ageIndex = attributes.indexOf("age");
           // Remove and parse the age range.
           String value = rowAttributes.remove(ageIndex.intValue());
           if (!value.contains("-")
@@ -310,8 +361,8 @@ public abstract class Transition implements Serializable {
               Integer.parseInt(value.substring(0, value.indexOf("-"))),
               Integer.parseInt(value.substring(value.indexOf("-") + 1)));
         }
-        if (this.attributes.contains("time")) {
-          Integer timeIndex = this.attributes.indexOf("time");
+        if (attributes.contains("time")) {
+          Integer timeIndex = attributes.indexOf("time");
           // Remove and parse the age range.
           String value = rowAttributes.remove(timeIndex.intValue());
           timeRange = Utilities.parseDateRange(value);
@@ -323,10 +374,11 @@ public abstract class Transition implements Serializable {
         List<DistributedTransitionOption> transitionProbabilities
             = createDistributedTransitionOptions(currentRow, transitionStates);
         // Insert the parsed attributes and transition probabilities into lookup table.
-        newTable.put(attributesLookupKey, transitionProbabilities);
+        newTable.add(attributesLookupKey, transitionProbabilities);
       }
 
       // Put new table into Hash map of all lookup tables.
+      newTable.index();
       lookupTables.put(lookupTableName, newTable);
     }
 
@@ -357,36 +409,20 @@ public abstract class Transition implements Serializable {
 
     @Override
     public String follow(Person person, long time) {
-      Integer age = null;
-      // Extract Person's list of relevant attributes.
-      ArrayList<String> personsAttributes = new ArrayList<String>();
-      for (String currentAttribute : this.attributes) {
-        if (currentAttribute.equalsIgnoreCase("age")) {
-          age = person.ageInYears(time);
-        } else if (currentAttribute.equalsIgnoreCase("time")) {
-          // do nothing, we already have it
-        } else {
-          if (!person.attributes.containsKey(currentAttribute)) {
-            throw new RuntimeException("LOOKUP TABLE ERROR: Attribute '"
-                + currentAttribute + "' in CSV table '" + this.lookupTableName
-                + "' does not exist as one of this person's attributes.");
-          }
-          String personsAttribute
-              = person.attributes.get(currentAttribute).toString();
-          personsAttributes.add(personsAttribute);
-        }
-      }
-      // Create key from person's attributes to get distributions
-      LookupTableKey personsAttributesLookupKey = new LookupTableKey(personsAttributes, age, time);
-      if (lookupTables.get(lookupTableName).containsKey(personsAttributesLookupKey)) {
+      List<DistributedTransitionOption> options = lookupTable.get(person, time);
+      if (options != null) {
         // Person matches, use their attribute's list of distributedtransitionoptions
-        return pickDistributedTransition(
-          lookupTables.get(lookupTableName).get(personsAttributesLookupKey), person);
+        return pickDistributedTransition(options, person);
       } else {
         // No attribute match, use default transition.
         return pickDistributedTransition(this.defaultTransitions, person);
       }
     }
+
+    @Override
+    Collection<String> possibleTransitions(Person person, long latestTime) {
+      return namesOf(transitions);
+    }
   }
 
   public final class LookupTableKey implements Serializable {
@@ -426,6 +462,18 @@ public abstract class Transition implements Serializable {
       this.timeRange = timeRange;
     }
 
+    List<String> getAttributes() {
+      return attributes;
+    }
+
+    Range<Integer> getAgeRange() {
+      return ageRange;
+    }
+
+    Range<Long> getTimeRange() {
+      return timeRange;
+    }
+
     /**
      * Overrides the hashcode method. Returns the hash of the List of attributes,
      * forcing age range to be a hash collision.
@@ -564,6 +612,23 @@ public abstract class Transition implements Serializable {
       TransitionOption last = transitions.get(transitions.size() - 1);
       return last.transition;
     }
+
+    @Override
+    Collection<String> possibleTransitions(Person person, long latestTime) {
+      Set<String> possible = new LinkedHashSet<String>();
+      for (ConditionalTransitionOption option : transitions) {
+        Boolean result = option.condition == null
+            ? Boolean.TRUE : option.condition.testBeforeSimulation(person, latestTime);
+        if (result == null || result) {
+          possible.add(option.transition);
+          if (result != null) {
+            return possible;
+          }
+        }
+      }
+      possible.add(transitions.get(transitions.size() - 1).transition);
+      return possible;
+    }
   }
 
   /**
@@ -620,6 +685,40 @@ public abstract class Transition implements Serializable {
       throw new IllegalArgumentException(
           "Complex Transition must have either transition or distributions");
     }
+
+    @Override
+    Collection<String> possibleTransitions(Person person, long latestTime) {
+      Set<String> possible = new LinkedHashSet<String>();
+      for (ComplexTransitionOption option : transitions) {
+        Boolean result = option.condition == null
+            ? Boolean.TRUE : option.condition.testBeforeSimulation(person, latestTime);
+        if (result == null || result) {
+          possible.addAll(possibleTransitions(option));
+          if (result != null) {
+            return possible;
+          }
+        }
+      }
+      possible.addAll(possibleTransitions(transitions.get(transitions.size() - 1)));
+      return possible;
+    }
+
+    private Collection<String> possibleTransitions(ComplexTransitionOption option) {
+      if (option.transition != null) {
+        return Collections.singletonList(option.transition);
+      } else if (option.distributions != null) {
+        return namesOf(option.distributions);
+      }
+      return Collections.emptyList();
+    }
+  }
+
+  private static List<String> namesOf(List<? extends TransitionOption> options) {
+    List<String> names = new ArrayList<String>(options.size());
+    for (TransitionOption option : options) {
+      names.add(option.transition);
+    }
+    return names;
   }
 
   private static String pickDistributedTransition(
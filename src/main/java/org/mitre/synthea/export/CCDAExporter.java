@@ -1,13 +1,27 @@
 package org.mitre.synthea.export;
 
+import freemarker.cache.StrongCacheStorage;
 import freemarker.template.Configuration;
+import freemarker.template.ObjectWrapper;
 import freemarker.template.Template;
 import freemarker.template.TemplateException;
+import freemarker.template.TemplateHashModel;
+import freemarker.template.TemplateModel;
+import freemarker.template.TemplateModelException;
 
+import java.io.FilterWriter;
+import java.io.IOException;
 import java.io.Serializable;
 import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 import org.mitre.synthea.helpers.Config;
 import org.mitre.synthea.helpers.RandomNumberGenerator;
@@ -23,6 +37,7 @@ import org.mitre.synthea.world.concepts.RaceAndEthnicity;
 public class CCDAExporter {
 
   private static final Configuration TEMPLATES = templateConfiguration();
+  private static final Template CCDA_TEMPLATE = loadTemplate();
 
   /**
    * This is a dummy class and object for FreeMarker templates that create IDs.
@@ -54,120 +69,280 @@ public class CCDAExporter {
     configuration.setAPIBuiltinEnabled(true);
     configuration.setClassLoaderForTemplateLoading(ClassLoader.getSystemClassLoader(),
         "templates/ccda");
+    // the templates are resources that never change, so keep every one of them once it is
+    // parsed rather than checking whether it has been modified
+    configuration.setCacheStorage(new StrongCacheStorage());
+    configuration.setTemplateUpdateDelayMilliseconds(Long.MAX_VALUE);
     return configuration;
   }
 
-  /**
-   * Export a CCDA R2.1 document for a Person at a given time.
-   *
-   * @param person
-   *          Person to export.
-   * @param time
-   *          Time the record should be generated. Any content in the record AFTER this time will
-   *          not be included.
-   * @return String of CCDA R2.1 XML.
-   */
-  public static String export(Person person, long time) {
+  private static Template loadTemplate() {
     try {
-      person.coverage.getPlanRecordAtTime(time);
-    } catch (RuntimeException e) {
-      // If requesting the current plan at export time
-      // causes an exception, then we fake an insurance
-      // plan for the purposes of creating the super encounter.
-      person.coverage.setPlanToNoInsurance(time);
-      person.coverage.setPlanToNoInsurance(Long.MAX_VALUE);
-    }
-    // create a super encounter... this makes it easier to access
-    // all the Allergies (for example) in the export templates,
-    // instead of having to iterate through all the encounters.
-    Encounter superEncounter = person.record.new Encounter(time, "super");
-    for (Encounter encounter : person.record.encounters) {
-      if (encounter.start <= time) {
-        superEncounter.observations.addAll(encounter.observations);
-        superEncounter.reports.addAll(encounter.reports);
-        superEncounter.conditions.addAll(encounter.conditions);
-        superEncounter.allergies.addAll(encounter.allergies);
-        superEncounter.procedures.addAll(encounter.procedures);
-        superEncounter.immunizations.addAll(encounter.immunizations);
-        superEncounter.medications.addAll(encounter.medications);
-        superEncounter.careplans.addAll(encounter.careplans);
-        superEncounter.imagingStudies.addAll(encounter.imagingStudies);
-      } else {
-        break;
-      }
+      return TEMPLATES.getTemplate("ccda.ftl");
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
     }
+  }
 
-    // The export templates fill in the record by accessing the attributes
-    // of the Person, so we add a few attributes just for the purposes of export.
-    person.attributes.put("UUID", new UUIDGenerator(person));
-    person.attributes.put("ehr_encounters", person.record.encounters);
-    person.attributes.put("ehr_conditions", superEncounter.conditions);
-    person.attributes.put("ehr_allergies", superEncounter.allergies);
-    person.attributes.put("ehr_procedures", superEncounter.procedures);
-    person.attributes.put("ehr_immunizations", superEncounter.immunizations);
-    person.attributes.put("ehr_medications", superEncounter.medications);
-    person.attributes.put("ehr_careplans", superEncounter.careplans);
-
-    List<Observation> vitalSigns = superEncounter.observations
-            .stream()
-            .filter(vs -> vs.category != null && vs.category.equals("vital-signs"))
-            .filter(vs -> vs.value != null)
-            .collect(Collectors.toList());
-
-    person.attributes.put("ehr_vital_signs", vitalSigns);
+  /**
+   * A read-only list of the entries of one kind, such as conditions, of every encounter up to
+   * the export time, read from the encounters' own lists rather than copied.
+   */
+  private static class EncounterEntries<T> extends AbstractList<T> {
+    private final List<List<? extends T>> lists;
+    /** The index of the first entry of each list. */
+    private final int[] offsets;
+    private final int size;
 
-    List<Observation> surveyResults = superEncounter.observations
-            .stream()
-            .filter(vs -> vs.category != null && vs.category.equals("survey"))
-            .filter(vs -> vs.value != null && vs.value instanceof Double)
-            .collect(Collectors.toList());
+    private EncounterEntries(List<Encounter> encounters,
+        Function<Encounter, List<? extends T>> entries) {
+      lists = new ArrayList<List<? extends T>>(encounters.size());
+      offsets = new int[encounters.size()];
+      int total = 0;
+      for (Encounter encounter : encounters) {
+        List<? extends T> list = entries.apply(encounter);
+        offsets[lists.size()] = total;
+        lists.add(list);
+        total += list.size();
+      }
+      size = total;
+    }
 
-    // sadly, the correct plural of status is statuses and not stati
-    person.attributes.put("ehr_functional_statuses", surveyResults);
+    @Override
+    public T get(int index) {
+      if (index < 0 || index >= size) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+      }
+      int low = 0;
+      int high = lists.size() - 1;
+      // find the last list that starts at or before the index, skipping empty lists
+      while (low < high) {
+        int middle = (low + high + 1) >>> 1;
+        if (offsets[middle] <= index) {
+          low = middle;
+        } else {
+          high = middle - 1;
+        }
+      }
+      return lists.get(low).get(index - offsets[low]);
+    }
 
-    person.attributes.put("ehr_results", superEncounter.reports);
+    @Override
+    public int size() {
+      return size;
+    }
+  }
 
-    Observation smokingHistory = person.record.getLatestObservation("72166-2");
+  /**
+   * The data model of the C-CDA template: the attributes of the Person, and the parts of their
+   * record that the template reads. The parts of the record are only gathered when the template
+   * first reads them, and the Person is never modified.
+   */
+  private static class CCDAModel implements TemplateHashModel {
+    private final Person person;
+    private final long time;
+    private final List<Encounter> encounters;
+    private final Object preferredProvider;
+    private final ObjectWrapper wrapper;
+    private final Map<String, TemplateModel> cache = new HashMap<String, TemplateModel>();
 
-    if (smokingHistory != null) {
-      person.attributes.put("ehr_smoking_history", smokingHistory);
+    private CCDAModel(Person person, long time, ObjectWrapper wrapper) {
+      this.person = person;
+      this.time = time;
+      this.wrapper = wrapper;
+      int count = 0;
+      for (Encounter encounter : person.record.encounters) {
+        if (encounter.start > time) {
+          break;
+        }
+        count++;
+      }
+      this.encounters = person.record.encounters.subList(0, count);
+      this.preferredProvider = preferredProvider(person);
     }
-    person.attributes.put("time", time);
-    person.attributes.put("race_lookup", RaceAndEthnicity.LOOK_UP_CDC_RACE);
-    person.attributes.put("ethnicity_lookup", RaceAndEthnicity.LOOK_UP_CDC_ETHNICITY_CODE);
-    person.attributes.put("ethnicity_display_lookup",
-        RaceAndEthnicity.LOOK_UP_CDC_ETHNICITY_DISPLAY);
 
-    if (person.attributes.get(Person.PREFERREDYPROVIDER + "wellness") == null) {
-      // This person does not have a preferred provider. This happens for veterans at age 20 due to
-      // the provider reset and they don't have a provider until their next wellness visit. There
-      // may be other cases. This ensures the preferred provider is there for the CCDA template
+    /**
+     * Get the preferred wellness provider of the Person. A Person may not have one, which
+     * happens for veterans at age 20 due to the provider reset, and they don't have a provider
+     * until their next wellness visit. There may be other cases. This ensures the preferred
+     * provider is there for the CCDA template.
+     */
+    private static Object preferredProvider(Person person) {
+      Object provider = person.attributes.get(Person.PREFERREDYPROVIDER + "wellness");
+      if (provider != null) {
+        return provider;
+      }
       Encounter encounter = person.record.lastWellnessEncounter();
-      if (encounter == null) {
+      if (encounter == null && !person.record.encounters.isEmpty()) {
         // If there are absolutely no wellness encounters, then use the last encounter.
         encounter = person.record.encounters.get(person.record.encounters.size() - 1);
       }
-      if (encounter != null) {
-        person.attributes.put(Person.PREFERREDYPROVIDER + "wellness", encounter.provider);
-      } else {
+      if (encounter == null) {
         throw new IllegalStateException(String.format("Unable to export to CCDA because "
             + "person %s %s has no preferred provider.",
             person.attributes.get(Person.FIRST_NAME),
             person.attributes.get(Person.LAST_NAME)));
       }
+      return encounter.provider;
+    }
+
+    @Override
+    public TemplateModel get(String key) throws TemplateModelException {
+      TemplateModel model = cache.get(key);
+      if (model == null) {
+        model = wrapper.wrap(value(key));
+        cache.put(key, model);
+      }
+      return model;
+    }
+
+    private Object value(String key) {
+      switch (key) {
+        case "UUID":
+          return new UUIDGenerator(person.exportRandom());
+        case "time":
+          return time;
+        case "race_lookup":
+          return RaceAndEthnicity.LOOK_UP_CDC_RACE;
+        case "ethnicity_lookup":
+          return RaceAndEthnicity.LOOK_UP_CDC_ETHNICITY_CODE;
+        case "ethnicity_display_lookup":
+          return RaceAndEthnicity.LOOK_UP_CDC_ETHNICITY_DISPLAY;
+        case Person.PREFERREDYPROVIDER + "wellness":
+          return preferredProvider;
+        case "ehr_encounters":
+          return person.record.encounters;
+        case "ehr_conditions":
+          return new EncounterEntries<>(encounters, e -> e.conditions);
+        case "ehr_allergies":
+          return new EncounterEntries<>(encounters, e -> e.allergies);
+        case "ehr_procedures":
+          return new EncounterEntries<>(encounters, e -> e.procedures);
+        case "ehr_immunizations":
+          return new EncounterEntries<>(encounters, e -> e.immunizations);
+        case "ehr_medications":
+          return new EncounterEntries<>(encounters, e -> e.medications);
+        case "ehr_careplans":
+          return new EncounterEntries<>(encounters, e -> e.careplans);
+        case "ehr_results":
+          return new EncounterEntries<>(encounters, e -> e.reports);
+        case "ehr_vital_signs":
+          return observations(o -> "vital-signs".equals(o.category) && o.value != null);
+        case "ehr_functional_statuses":
+          // sadly, the correct plural of status is statuses and not stati
+          return observations(o -> "survey".equals(o.category) && o.value instanceof Double);
+        case "ehr_smoking_history":
+          return person.record.getLatestObservation("72166-2");
+        default:
+          return person.attributes.get(key);
+      }
     }
 
+    private List<Observation> observations(Predicate<Observation> filter) {
+      List<Observation> observations = new ArrayList<Observation>();
+      for (Encounter encounter : encounters) {
+        for (Observation observation : encounter.observations) {
+          if (filter.test(observation)) {
+            observations.add(observation);
+          }
+        }
+      }
+      return observations;
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return false;
+    }
+  }
+
+  /**
+   * Removes the line breaks from everything written to it, when pretty printing is disabled.
+   */
+  private static class LineBreakFilter extends FilterWriter {
+    private LineBreakFilter(Writer out) {
+      super(out);
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+      if (c != '\n') {
+        out.write(c);
+      }
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+      int start = off;
+      int end = off + len;
+      for (int i = off; i < end; i++) {
+        if (cbuf[i] == '\n') {
+          out.write(cbuf, start, i - start);
+          start = i + 1;
+        }
+      }
+      out.write(cbuf, start, end - start);
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+      int start = off;
+      int end = off + len;
+      for (int i = off; i < end; i++) {
+        if (str.charAt(i) == '\n') {
+          out.write(str, start, i - start);
+          start = i + 1;
+        }
+      }
+      out.write(str, start, end - start);
+    }
+  }
+
+  /**
+   * Export a CCDA R2.1 document for a Person at a given time.
+   *
+   * @param person
+   *          Person to export.
+   * @param time
+   *          Time the record should be generated. Any content in the record AFTER this time will
+   *          not be included.
+   * @return String of CCDA R2.1 XML.
+   */
+  public static String export(Person person, long time) {
     StringWriter writer = new StringWriter();
     try {
-      Template template = TEMPLATES.getTemplate("ccda.ftl");
-      template.process(person.attributes, writer);
-    } catch (Exception e) {
-      throw new RuntimeException(e);
+      export(person, time, writer);
+    } catch (IOException e) {
+      // a StringWriter does not throw
+      throw new UncheckedIOException(e);
     }
-    String ccdaXml = writer.toString();
+    return writer.toString();
+  }
+
+  /**
+   * Export a CCDA R2.1 document for a Person at a given time, rendering it straight to a
+   * writer.
+   *
+   * @param person
+   *          Person to export.
+   * @param time
+   *          Time the record should be generated. Any content in the record AFTER this time will
+   *          not be included.
+   * @param writer
+   *          Writer for the CCDA R2.1 XML. It is flushed, but not closed.
+   * @throws IOException if the XML cannot be written.
+   */
+  public static void export(Person person, long time, Writer writer) throws IOException {
+    CCDAModel model = new CCDAModel(person, time, TEMPLATES.getObjectWrapper());
+    Writer out = writer;
     if (!Config.getAsBoolean("exporter.pretty_print", true)) {
-      ccdaXml = ccdaXml.replace("\n", "");
+      out = new LineBreakFilter(writer);
+    }
+    try {
+      CCDA_TEMPLATE.process(model, out);
+    } catch (TemplateException e) {
+      throw new RuntimeException(e);
     }
-    return ccdaXml;
+    out.flush();
   }
-}
\ No newline at end of file
+}
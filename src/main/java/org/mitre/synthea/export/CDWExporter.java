@@ -726,7 +726,7 @@ public class CDWExporter {
     s.append(NEWLINE);
     write(s.toString(), spatientphone);
 
-    if (person.randBoolean()) {
+    if (person.exportRandom().randBoolean()) {
       // Add an email address
       s.setLength(0);
       s.append(getNextKey(spatientphone)).append(',');
@@ -806,7 +806,7 @@ public class CDWExporter {
 
     // visit.write("VisitSID,VisitDateTime,CreatedByStaffSID,LocationSID,PatientSID");
     int visitSid = getNextKey(visit);
-    int staffSid = person.randInt(CLINICIANS) + (sidStart / 10_000);
+    int staffSid = person.exportRandom().randInt(CLINICIANS) + (sidStart / 10_000);
     if (encounter.provider != null) {
       encounter.provider.attributes.put(CLINICIAN_SID, staffSid);
     }
@@ -851,8 +851,9 @@ public class CDWExporter {
       s.append(primarySta3n).append(",");
     }
     s.append("3,"); // 3:SCHEDULED VISIT
-    s.append(person.rand(new String[] {"N", "C", "P", "W", "M", "A", "O"})).append(',');
-    s.append(person.randInt(1)).append(',');
+    s.append(person.exportRandom().rand(new String[] {"N", "C", "P", "W", "M", "A", "O"}))
+        .append(',');
+    s.append(person.exportRandom().randInt(1)).append(',');
     s.append((encounter.stop - encounter.start) / (60 * 1000)).append(',');
     s.append(consultSid).append(',');
     s.append(iso8601Timestamp(encounter.start)).append(',');
@@ -1000,7 +1001,7 @@ public class CDWExporter {
     s.append(','); // DrugIngredientSID
     s.append(iso8601Timestamp(allergyEntry.start)).append(',');
     s.append(providerSID).append(','); // OriginatingStaffSID
-    s.append(person.rand(new String[] {"o", "h"})).append(',');
+    s.append(person.exportRandom().rand(new String[] {"o", "h"})).append(',');
     s.append("A,");
     s.append("1,"); // Verified
     s.append(iso8601Timestamp(allergyEntry.start)).append(',');
@@ -1009,7 +1010,7 @@ public class CDWExporter {
     write(s.toString(), allergy);
 
     // allergyreaction.write("AllergicReactionSID,AllergySID,AllergyIEN,Sta3n,ReactionSID");
-    String reactionDisplay = person.rand(
+    String reactionDisplay = person.exportRandom().rand(
         new String[] {"Sneezing and Coughing", "Inflammation of Skin",
             "Itchy Watery Eyes", "Difficulty Breathing"});
     s.setLength(0);
@@ -1599,7 +1600,7 @@ public class CDWExporter {
     } else {
       s.append(",B,");
     }
-    s.append(person.randInt(12)).append(','); // Reaction
+    s.append(person.exportRandom().randInt(12)).append(','); // Reaction
     s.append(iso8601Timestamp(immunizationEntry.start)).append(',');
     s.append(iso8601Timestamp(immunizationEntry.start)).append(',');
     s.append(providerSID).append(","); // OrderingStaffSID
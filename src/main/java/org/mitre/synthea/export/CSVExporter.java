@@ -11,8 +11,6 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.nio.charset.Charset;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -32,6 +30,7 @@ import java.util.stream.Collectors;
 
 import org.apache.commons.io.output.NullOutputStream;
 import org.apache.commons.lang3.StringUtils;
+import org.mitre.synthea.export.parquet.ParquetExporter;
 import org.mitre.synthea.helpers.Config;
 import org.mitre.synthea.helpers.RandomCodeGenerator;
 import org.mitre.synthea.helpers.Utilities;
@@ -41,6 +40,7 @@ import org.mitre.synthea.world.agents.Payer;
 import org.mitre.synthea.world.agents.PayerManager;
 import org.mitre.synthea.world.agents.Person;
 import org.mitre.synthea.world.agents.Provider;
+import org.mitre.synthea.world.concepts.Cents;
 import org.mitre.synthea.world.concepts.Claim;
 import org.mitre.synthea.world.concepts.HealthRecord;
 import org.mitre.synthea.world.concepts.HealthRecord.CarePlan;
@@ -160,10 +160,17 @@ public class CSVExporter {
    * Thread-safe monotonically increasing transactionId.
    * NOTE: This is intentionally unique per-run rather than per-patient,
    * which means that the claim_transactions.chargeid column will not be consistent
-   * when recreating a population using multiple threads.
+   * when recreating a population using multiple threads. A resumed run continues from the
+   * value saved at its last checkpoint.
    */
   private AtomicLong transactionId;
 
+  /**
+   * Whether the rows of each {@link CSVTable} keep their typed values, to be written by the
+   * columnar exporter as well.
+   */
+  private boolean typed;
+
   /**
    * Constructor for the CSVExporter - initialize the specified files and store
    * the writers in fields.
@@ -209,6 +216,7 @@ public class CSVExporter {
         }
       }
 
+      typed = Config.getAsBoolean("exporter.parquet.export", false);
       boolean append = Config.getAsBoolean("exporter.csv.append_mode");
       patients = getWriter(outputDirectory, "patients.csv", append, includedFiles, excludedFiles);
 
@@ -269,7 +277,23 @@ public class CSVExporter {
       throw new RuntimeException(e);
     }
 
-    this.transactionId = new AtomicLong();
+    this.transactionId = new AtomicLong(Config.getAsLong("exporter.csv.charge_id_start", 0L));
+  }
+
+  /**
+   * Get the CHARGEID of the next claim transaction, so that it can be saved in a checkpoint.
+   * @return the next CHARGEID.
+   */
+  public long getNextChargeId() {
+    return transactionId.get();
+  }
+
+  /**
+   * Set the CHARGEID of the next claim transaction, when resuming from a checkpoint.
+   * @param chargeId the next CHARGEID.
+   */
+  public void setNextChargeId(long chargeId) {
+    transactionId.set(chargeId);
   }
 
   /**
@@ -296,10 +320,7 @@ public class CSVExporter {
    * @throws IOException if any IO error occurs
    */
   private void writeCSVHeaders() throws IOException {
-    patients.write("Id,BIRTHDATE,DEATHDATE,SSN,DRIVERS,PASSPORT,"
-        + "PREFIX,FIRST,MIDDLE,LAST,SUFFIX,MAIDEN,MARITAL,RACE,ETHNICITY,GENDER,BIRTHPLACE,"
-        + "ADDRESS,CITY,STATE,COUNTY,FIPS,ZIP,LAT,LON,"
-        + "HEALTHCARE_EXPENSES,HEALTHCARE_COVERAGE,INCOME");
+    patients.write(CSVTable.PATIENTS.header());
     patients.write(NEWLINE);
     allergies.write("START,STOP,PATIENT,ENCOUNTER,CODE,SYSTEM,DESCRIPTION,TYPE,CATEGORY,"
         + "REACTION1,DESCRIPTION1,SEVERITY1,REACTION2,DESCRIPTION2,SEVERITY2");
@@ -313,16 +334,14 @@ public class CSVExporter {
     careplans.write(
         "Id,START,STOP,PATIENT,ENCOUNTER,CODE,DESCRIPTION,REASONCODE,REASONDESCRIPTION");
     careplans.write(NEWLINE);
-    observations.write("DATE,PATIENT,ENCOUNTER,CATEGORY,CODE,DESCRIPTION,VALUE,UNITS,TYPE");
+    observations.write(CSVTable.OBSERVATIONS.header());
     observations.write(NEWLINE);
     procedures.write("START,STOP,PATIENT,ENCOUNTER,SYSTEM,CODE,DESCRIPTION,BASE_COST,"
         + "REASONCODE,REASONDESCRIPTION");
     procedures.write(NEWLINE);
     immunizations.write("DATE,PATIENT,ENCOUNTER,CODE,DESCRIPTION,BASE_COST");
     immunizations.write(NEWLINE);
-    encounters.write(
-        "Id,START,STOP,PATIENT,ORGANIZATION,PROVIDER,PAYER,ENCOUNTERCLASS,CODE,DESCRIPTION,"
-        + "BASE_ENCOUNTER_COST,TOTAL_CLAIM_COST,PAYER_COVERAGE,REASONCODE,REASONDESCRIPTION");
+    encounters.write(CSVTable.ENCOUNTERS.header());
     encounters.write(NEWLINE);
     imagingStudies.write("Id,DATE,PATIENT,ENCOUNTER,SERIES_UID,BODYSITE_CODE,BODYSITE_DESCRIPTION,"
         + "MODALITY_CODE,MODALITY_DESCRIPTION,INSTANCE_UID,SOP_CODE,SOP_DESCRIPTION,"
@@ -347,18 +366,9 @@ public class CSVExporter {
     payerTransitions.write("PATIENT,MEMBERID,START_DATE,END_DATE,PAYER,SECONDARY_PAYER,"
         + "PLAN_OWNERSHIP,OWNER_NAME");
     payerTransitions.write(NEWLINE);
-    claims.write("Id,PATIENTID,PROVIDERID,PRIMARYPATIENTINSURANCEID,SECONDARYPATIENTINSURANCEID,"
-        + "DEPARTMENTID,PATIENTDEPARTMENTID,DIAGNOSIS1,DIAGNOSIS2,DIAGNOSIS3,DIAGNOSIS4,"
-        + "DIAGNOSIS5,DIAGNOSIS6,DIAGNOSIS7,DIAGNOSIS8,REFERRINGPROVIDERID,APPOINTMENTID,"
-        + "CURRENTILLNESSDATE,SERVICEDATE,SUPERVISINGPROVIDERID,STATUS1,STATUS2,STATUSP,"
-        + "OUTSTANDING1,OUTSTANDING2,OUTSTANDINGP,LASTBILLEDDATE1,LASTBILLEDDATE2,LASTBILLEDDATEP,"
-        + "HEALTHCARECLAIMTYPEID1,HEALTHCARECLAIMTYPEID2");
+    claims.write(CSVTable.CLAIMS.header());
     claims.write(NEWLINE);
-    claimsTransactions.write("ID,CLAIMID,CHARGEID,PATIENTID,TYPE,AMOUNT,METHOD,FROMDATE,TODATE,"
-        + "PLACEOFSERVICE,PROCEDURECODE,MODIFIER1,MODIFIER2,DIAGNOSISREF1,DIAGNOSISREF2,"
-        + "DIAGNOSISREF3,DIAGNOSISREF4,UNITS,DEPARTMENTID,NOTES,UNITAMOUNT,TRANSFEROUTID,"
-        + "TRANSFERTYPE,PAYMENTS,ADJUSTMENTS,TRANSFERS,OUTSTANDING,APPOINTMENTID,LINENOTE,"
-        + "PATIENTINSURANCEID,FEESCHEDULEID,PROVIDERID,SUPERVISINGPROVIDERID");
+    claimsTransactions.write(CSVTable.CLAIMS_TRANSACTIONS.header());
     claimsTransactions.write(NEWLINE);
     patientExpenses.write("PATIENT_ID,YEAR,PAYER_ID,"
         + "HEALTHCARE_EXPENSES,INSURANCE_COSTS,COVERED_COSTS");
@@ -612,11 +622,13 @@ public class CSVExporter {
       person.attributes.put("exported_to_csv", personID);
     }
 
-    StringBuilder s = new StringBuilder();
-    s.append(personID).append(',');
-    s.append(dateFromTimestamp((long) person.attributes.get(Person.BIRTHDATE))).append(',');
+    CSVRow row = new CSVRow(CSVTable.PATIENTS, typed);
+    row.text(personID);
+    row.date((long) person.attributes.get(Person.BIRTHDATE));
     if (!person.alive(time)) {
-      s.append(dateFromTimestamp((Long) person.attributes.get(Person.DEATHDATE)));
+      row.date((Long) person.attributes.get(Person.DEATHDATE));
+    } else {
+      row.blank();
     }
 
     for (String attribute : new String[] {
@@ -642,23 +654,22 @@ public class CSVExporter {
         Person.ZIP,
     }) {
       String value = (String) person.attributes.getOrDefault(attribute, "");
-      s.append(',').append(clean(value));
+      row.text(clean(value));
     }
     // LAT,LON
-    s.append(',').append(person.getY()).append(',').append(person.getX()).append(',');
+    row.number(person.getY()).number(person.getX());
     // HEALTHCARE_EXPENSES
-    s.append(person.coverage.getTotalOutOfPocketExpenses()).append(',');
+    row.value(person.coverage.getTotalOutOfPocketExpenses());
     // HEALTHCARE_COVERAGE
-    s.append(person.coverage.getTotalCoverage()).append(',');
+    row.value(person.coverage.getTotalCoverage());
     // INCOME
-    s.append(person.attributes.get(Person.INCOME));
+    row.value(person.attributes.get(Person.INCOME));
     // QALYS
     // s.append(person.attributes.get("most-recent-qaly")).append(',');
     // DALYS
     // s.append(person.attributes.get("most-recent-daly"));
 
-    s.append(NEWLINE);
-    write(s.toString(), patients);
+    write(row, patients);
 
     return personID;
   }
@@ -675,70 +686,69 @@ public class CSVExporter {
           Encounter encounter) throws IOException {
     // Id,START,STOP,PATIENT,ORGANIZATION,PROVIDER,PAYER,ENCOUNTERCLASS,CODE,DESCRIPTION,
     // BASE_ENCOUNTER_COST,TOTAL_CLAIM_COST,PAYER_COVERAGE,REASONCODE,REASONDESCRIPTION
-    StringBuilder s = new StringBuilder();
+    CSVRow row = new CSVRow(CSVTable.ENCOUNTERS, typed);
 
     String encounterID = encounter.uuid.toString();
     // ID
-    s.append(encounterID).append(',');
+    row.text(encounterID);
     // START
-    s.append(iso8601Timestamp(encounter.start)).append(',');
+    row.timestamp(encounter.start);
     // STOP
     if (encounter.stop != 0L) {
-      s.append(iso8601Timestamp(encounter.stop)).append(',');
+      row.timestamp(encounter.stop);
     } else {
-      s.append(',');
+      row.blank();
     }
     // PATIENT
-    s.append(personID).append(',');
+    row.text(personID);
     // ORGANIZATION
     if (encounter.provider != null) {
-      s.append(encounter.provider.getResourceID()).append(',');
+      row.text(encounter.provider.getResourceID());
     } else {
-      s.append(',');
+      row.blank();
     }
     // PROVIDER
     if (encounter.clinician != null) {
-      s.append(encounter.clinician.getResourceID()).append(',');
+      row.text(encounter.clinician.getResourceID());
     } else {
-      s.append(',');
+      row.blank();
     }
     // PAYER
     if (encounter.claim.getPayer() != null) {
-      s.append(encounter.claim.getPayer().getResourceID()).append(',');
+      row.text(encounter.claim.getPayer().getResourceID());
     } else {
-      s.append(',');
+      row.blank();
     }
     // ENCOUNTERCLASS
     if (encounter.type != null) {
-      s.append(encounter.type.toLowerCase()).append(',');
+      row.text(encounter.type.toLowerCase());
     } else {
-      s.append(',');
+      row.blank();
     }
     // CODE
     Code coding = null;
 
     coding = encounter.codes.get(0);
     // CODE
-    s.append(coding.code).append(',');
+    row.text(coding.code);
     // DESCRIPTION
-    s.append(clean(coding.display)).append(',');
+    row.text(clean(coding.display));
 
     // BASE_ENCOUNTER_COST
-    s.append(String.format(Locale.US, "%.2f", encounter.getCost())).append(',');
+    row.cents(encounter.getCostInCents());
     // TOTAL_COST
-    s.append(String.format(Locale.US, "%.2f", encounter.claim.getTotalClaimCost())).append(',');
+    row.cents(encounter.claim.totals.cost);
     // PAYER_COVERAGE
-    s.append(String.format(Locale.US, "%.2f", encounter.claim.getTotalCoveredCost())).append(',');
+    row.cents(encounter.claim.totals.getCoveredCostInCents());
     // REASONCODE & REASONDESCRIPTION
     if (encounter.reason == null) {
-      s.append(",");
+      row.blank().blank();
     } else {
-      s.append(encounter.reason.code).append(',');
-      s.append(clean(encounter.reason.display));
+      row.text(encounter.reason.code);
+      row.text(clean(encounter.reason.display));
     }
 
-    s.append(NEWLINE);
-    write(s.toString(), encounters);
+    write(row, encounters);
 
     return encounterID;
   }
@@ -868,30 +878,30 @@ public class CSVExporter {
       return;
     }
 
-    // DATE,PATIENT,ENCOUNTER,CATEGORY,CODE,DESCRIPTION,VALUE,UNITS
-    StringBuilder s = new StringBuilder();
+    // DATE,PATIENT,ENCOUNTER,CATEGORY,CODE,DESCRIPTION,VALUE,UNITS,TYPE
+    CSVRow row = new CSVRow(CSVTable.OBSERVATIONS, typed);
 
-    s.append(iso8601Timestamp(observation.start)).append(',');
-    s.append(personID).append(',');
-    s.append(encounterID).append(',');
+    row.timestamp(observation.start);
+    row.text(personID);
+    row.text(encounterID);
     if (observation.category != null) {
-      s.append(observation.category);
+      row.text(observation.category);
+    } else {
+      row.blank();
     }
-    s.append(',');
 
     Code coding = observation.codes.get(0);
 
-    s.append(coding.code).append(',');
-    s.append(clean(coding.display)).append(',');
+    row.text(coding.code);
+    row.text(clean(coding.display));
 
     String value = ExportHelper.getObservationValue(observation);
     String type = ExportHelper.getObservationType(observation);
-    s.append(clean(value)).append(',');
-    s.append(clean(observation.unit)).append(',');
-    s.append(type);
+    row.text(clean(value));
+    row.text(clean(observation.unit));
+    row.text(type);
 
-    s.append(NEWLINE);
-    write(s.toString(), observations);
+    write(row, observations);
   }
 
   /**
@@ -921,7 +931,7 @@ public class CSVExporter {
     // DESCRIPTION
     s.append(clean(coding.display)).append(',');
     // BASE_COST
-    s.append(String.format(Locale.US, "%.2f", procedure.getCost())).append(',');
+    Cents.append(s, procedure.getCostInCents()).append(',');
     // REASONCODE & REASONDESCRIPTION
     if (procedure.reasons.isEmpty()) {
       s.append(','); // reason code & desc
@@ -966,10 +976,10 @@ public class CSVExporter {
     // DESCRIPTION
     s.append(clean(coding.display)).append(',');
     // BASE_COST
-    BigDecimal cost = medication.getCost();
-    s.append(String.format(Locale.US, "%.2f", cost)).append(',');
+    long cost = medication.getCostInCents();
+    Cents.append(s, cost).append(',');
     // PAYER_COVERAGE
-    s.append(String.format(Locale.US, "%.2f", medication.claim.getTotalCoveredCost())).append(',');
+    Cents.append(s, medication.claim.totals.getCoveredCostInCents()).append(',');
     long dispenses = 1; // dispenses = refills + original
     // makes the math cleaner and more explicit. dispenses * unit cost = total cost
 
@@ -1003,9 +1013,8 @@ public class CSVExporter {
     }
 
     s.append(dispenses).append(',');
-    BigDecimal totalCost = cost.multiply(
-        BigDecimal.valueOf(dispenses)).setScale(2, RoundingMode.DOWN); //Truncate 2 decimal places
-    s.append(String.format(Locale.US, "%.2f", totalCost)).append(',');
+    long totalCost = cost * dispenses;
+    Cents.append(s, totalCost).append(',');
 
     if (medication.reasons.isEmpty()) {
       s.append(','); // reason code & desc
@@ -1041,7 +1050,7 @@ public class CSVExporter {
     // DESCRIPTION
     s.append(clean(coding.display)).append(',');
     // BASE_COST
-    s.append(String.format(Locale.US, "%.2f", immunization.getCost()));
+    Cents.append(s, immunization.getCostInCents());
 
     s.append(NEWLINE);
     write(s.toString(), immunizations);
@@ -1283,9 +1292,9 @@ public class CSVExporter {
       s.append(clean(value)).append(',');
     }
     // AMOUNT_COVERED
-    s.append(String.format(Locale.US, "%.2f", payer.getAmountCovered())).append(',');
+    Cents.append(s, payer.getAmountCoveredInCents()).append(',');
     // AMOUNT_UNCOVERED
-    s.append(String.format(Locale.US, "%.2f", payer.getAmountUncovered())).append(',');
+    Cents.append(s, payer.getAmountUncoveredInCents()).append(',');
     // REVENUE
     s.append(String.format(Locale.US, "%.2f", payer.getRevenue())).append(',');
     // Covered/Uncovered Encounters/Medications/Procedures/Immunizations
@@ -1420,36 +1429,36 @@ public class CSVExporter {
       institutional = encounter.provider.institutional;
     }
 
-    StringBuilder s = new StringBuilder();
+    CSVRow row = new CSVRow(CSVTable.CLAIMS, typed);
     // Claim Id. Should be a number.
     String claimId = claim.uuid.toString();
-    s.append(claimId).append(',');
+    row.text(claimId);
     // PATIENTID
-    s.append(claim.person.attributes.get(Person.ID)).append(',');
+    row.value(claim.person.attributes.get(Person.ID));
     // Provider, should not be null.
     if (encounter.clinician != null) {
-      s.append(encounter.clinician.getResourceID()).append(',');
+      row.text(encounter.clinician.getResourceID());
     } else {
-      s.append(',');
+      row.blank();
     }
     // PRIMARYPATIENTINSURANCEID
     if (encounter.claim.getPayer() == null
         || encounter.claim.getPayer().isNoInsurance()) {
-      s.append(","); // Empty for no insurance
+      row.blank(); // Empty for no insurance
     } else {
-      s.append(claim.getPayer().getResourceID()).append(',');
+      row.text(claim.getPayer().getResourceID());
     }
     // SECONDARYPATIENTINSURANCEID (0 default if none)
     if (encounter.claim.getSecondaryPayer() == null
         || encounter.claim.getSecondaryPayer().isNoInsurance()) {
-      s.append(",");
+      row.blank();
     } else {
-      s.append(claim.getSecondaryPayer().getResourceID()).append(',');
+      row.text(claim.getSecondaryPayer().getResourceID());
     }
     // DEPARTMENTID
     String departmentId = claimDepartmentCode(encounter, claim.person);
-    s.append(departmentId).append(',');
-    s.append(departmentId).append(',');
+    row.text(departmentId);
+    row.text(departmentId);
     // Diagnosis codes and illness onset
     int dxCode = 0;
     Long[] onset = new Long[8];
@@ -1474,9 +1483,9 @@ public class CSVExporter {
     }
     for (String diagnosisCode : diagnosisCodes) {
       if (diagnosisCode != null && !diagnosisCode.isEmpty()) {
-        s.append(diagnosisCode).append(',');
+        row.text(diagnosisCode);
       } else {
-        s.append(',');
+        row.blank();
       }
     }
     Long onsetIllness = encounter.start;
@@ -1486,114 +1495,106 @@ public class CSVExporter {
       }
     }
     // TODO REFERRINGPROVIDERID
-    s.append(',');
+    row.blank();
     // APPOINTMENTID
-    s.append(encounterID).append(',');
+    row.text(encounterID);
     // CURRENTILLNESSDATE
-    s.append(iso8601Timestamp(onsetIllness)).append(',');
+    row.timestamp(onsetIllness);
     // SERVICEDATE
-    s.append(iso8601Timestamp(encounter.start)).append(',');
+    row.timestamp(encounter.start);
     // SUPERVISINGPROVIDERID
     if (encounter.clinician != null) {
-      s.append(encounter.clinician.getResourceID()).append(',');
+      row.text(encounter.clinician.getResourceID());
     } else {
-      s.append(',');
+      row.blank();
     }
+    boolean secondary = claim.getSecondaryPayer() != null
+        && claim.getSecondaryPayer().isNoInsurance();
     if (time > encounter.stop) {
       // STATUS1 for Payer1
-      s.append("CLOSED,");
+      row.text("CLOSED");
       // STATUS2 for Payer2
-      if (claim.getSecondaryPayer() != null
-          && claim.getSecondaryPayer().isNoInsurance()) {
-        s.append("CLOSED,");
+      if (secondary) {
+        row.text("CLOSED");
       } else {
-        s.append(',');
+        row.blank();
       }
       // STATUSP for Patient as Payer
-      s.append("CLOSED,");
+      row.text("CLOSED");
       // OUTSTANDING1
-      s.append("0,");
+      row.value("0");
       // OUTSTANDING2
-      if (claim.getSecondaryPayer() != null
-          && claim.getSecondaryPayer().isNoInsurance()) {
-        s.append("0,");
+      if (secondary) {
+        row.value("0");
       } else {
-        s.append(',');
+        row.blank();
       }
       // OUTSTANDINGP
-      s.append("0,");
+      row.value("0");
       // LASTBILLEDDATE1
-      s.append(iso8601Timestamp(encounter.stop)).append(',');
+      row.timestamp(encounter.stop);
       // LASTBILLEDDATE2
-      if (claim.getSecondaryPayer() != null
-          && claim.getSecondaryPayer().isNoInsurance()) {
-        s.append(iso8601Timestamp(encounter.stop)).append(',');
+      if (secondary) {
+        row.timestamp(encounter.stop);
       } else {
-        s.append(',');
+        row.blank();
       }
       // LASTBILLEDDATEP
-      s.append(iso8601Timestamp(encounter.stop)).append(',');
+      row.timestamp(encounter.stop);
 
     } else {
       // TODO this may not get triggered
       // STATUS1 for Payer1
-      s.append("BILLED,");
+      row.text("BILLED");
       // STATUS2 for Payer2
-      if (claim.getSecondaryPayer() != null
-          && claim.getSecondaryPayer().isNoInsurance()) {
-        s.append("BILLED,");
+      if (secondary) {
+        row.text("BILLED");
       } else {
-        s.append(',');
+        row.blank();
       }
       // STATUSP for Patient as Payer
-      s.append("BILLED,");
+      row.text("BILLED");
       // OUTSTANDING1 (TODO this should be the outstanding payer balance)
-      s.append(String.format(Locale.US, "%.2f", encounter.claim.getTotalCoveredCost()))
-              .append(',');
+      row.cents(encounter.claim.totals.getCoveredCostInCents());
       // OUTSTANDING2
-      if (claim.getSecondaryPayer() != null
-          && claim.getSecondaryPayer().isNoInsurance()) {
+      if (secondary) {
         // TODO this is not correct
-        s.append(String.format(Locale.US, "%.2f", encounter.claim.getTotalCoveredCost()))
-                .append(',');
+        row.cents(encounter.claim.totals.getCoveredCostInCents());
       } else {
-        s.append(',');
+        row.blank();
       }
       // OUTSTANDINGP (TODO this should be the outstanding patient balance)
-      BigDecimal patientCost = claim.getTotalClaimCost().subtract(claim.getTotalCoveredCost());
-      s.append(String.format(Locale.US, "%.2f", patientCost)).append(',');
+      long patientCost = claim.totals.cost - claim.totals.getCoveredCostInCents();
+      row.cents(patientCost);
       // LASTBILLEDDATE1
-      s.append(iso8601Timestamp(encounter.start)).append(',');
+      row.timestamp(encounter.start);
       // LASTBILLEDDATE2
-      if (claim.getSecondaryPayer() != null
-          && claim.getSecondaryPayer().isNoInsurance()) {
-        s.append(iso8601Timestamp(encounter.start)).append(',');
+      if (secondary) {
+        row.timestamp(encounter.start);
       } else {
-        s.append(',');
+        row.blank();
       }
       // LASTBILLEDDATEP
-      s.append(iso8601Timestamp(encounter.start)).append(',');
+      row.timestamp(encounter.start);
     }
 
     // HEALTHCARECLAIMTYPEID1
     if (institutional) {
-      s.append("2,");
+      row.integer(2);
     } else {
-      s.append("1,");
+      row.integer(1);
     }
     // HEALTHCARECLAIMTYPEID2
-    if (claim.getSecondaryPayer() != null
-        && claim.getSecondaryPayer().isNoInsurance()) {
+    if (secondary) {
       if (institutional) {
-        s.append('2');
+        row.integer(2);
       } else {
-        s.append('1');
+        row.integer(1);
       }
     } else {
-      s.append('0');
+      row.integer(0);
     }
-    s.append(NEWLINE);
-    write(s.toString(), claims);
+    write(row, claims);
 
     // Main Claim
     simulateClaimProcess(person, claim, claimId, encounter, encounterID, claim.mainEntry,
@@ -1628,17 +1629,17 @@ public class CSVExporter {
     } else {
       t.transferType = "1";
     }
-    write(t.toString(), claimsTransactions);
+    write(t.toRow(typed), claimsTransactions);
     chargeId = transactionId.getAndIncrement();
 
-    BigDecimal remainder = claimEntry.cost;
+    long remainder = claimEntry.cost;
     if (mainEntry) {
-      if (claimEntry.copayPaidByPatient.compareTo(Claim.ZERO_CENTS) > 0) {
+      if (claimEntry.copayPaidByPatient > 0) {
         // COPAY
-        remainder = remainder.subtract(claimEntry.copayPaidByPatient);
-        if (remainder.compareTo(Claim.ZERO_CENTS) < 0) {
+        remainder -= claimEntry.copayPaidByPatient;
+        if (remainder < 0) {
           // If the cost of the copay is greater than the medication cost.
-          remainder = Claim.ZERO_CENTS;
+          remainder = 0L;
         }
         t = new ClaimTransaction(encounter, encounterId,
             claim, claimId, chargeId, claimEntry, person);
@@ -1648,16 +1649,16 @@ public class CSVExporter {
         t.unpaid = remainder;
         t.departmentId = departmentId;
         t.diagnosisCodes = diagnosisCodes;
-        write(t.toString(), claimsTransactions);
+        write(t.toRow(typed), claimsTransactions);
         chargeId = transactionId.getAndIncrement();
       }
     }
 
     // ADJUSTMENTS
-    if (claimEntry.adjustment.compareTo(Claim.ZERO_CENTS) > 0) {
-      remainder = remainder.subtract(claimEntry.adjustment);
-      if (remainder.compareTo(Claim.ZERO_CENTS) < 0) {
-        remainder = Claim.ZERO_CENTS;
+    if (claimEntry.adjustment > 0) {
+      remainder -= claimEntry.adjustment;
+      if (remainder < 0) {
+        remainder = 0L;
       }
       t = new ClaimTransaction(encounter, encounterId,
           claim, claimId, chargeId, claimEntry, person);
@@ -1667,14 +1668,14 @@ public class CSVExporter {
       t.unpaid = remainder;
       t.departmentId = departmentId;
       t.diagnosisCodes = diagnosisCodes;
-      write(t.toString(), claimsTransactions);
+      write(t.toRow(typed), claimsTransactions);
       chargeId = transactionId.getAndIncrement();
     }
 
-    BigDecimal payerAmount = claimEntry.paidByPayer.add(claimEntry.coinsurancePaidByPayer);
-    if (payerAmount.compareTo(Claim.ZERO_CENTS) > 0) {
+    long payerAmount = claimEntry.paidByPayer + claimEntry.coinsurancePaidByPayer;
+    if (payerAmount > 0) {
       // PAYMENT FROM INSURANCE
-      remainder = remainder.subtract(payerAmount);
+      remainder -= payerAmount;
       t = new ClaimTransaction(encounter, encounterId,
           claim, claimId, chargeId, claimEntry, person);
       t.type = ClaimTransactionType.PAYMENT;
@@ -1683,12 +1684,12 @@ public class CSVExporter {
       t.unpaid = remainder;
       t.departmentId = departmentId;
       t.diagnosisCodes = diagnosisCodes;
-      write(t.toString(), claimsTransactions);
+      write(t.toRow(typed), claimsTransactions);
       chargeId = transactionId.getAndIncrement();
     }
 
-    BigDecimal secondaryPayerAmount = claimEntry.paidBySecondaryPayer;
-    if (secondaryPayerAmount.compareTo(Claim.ZERO_CENTS) > 0) {
+    long secondaryPayerAmount = claimEntry.paidBySecondaryPayer;
+    if (secondaryPayerAmount > 0) {
       // TRANSFEROUT
       t = new ClaimTransaction(encounter, encounterId,
           claim, claimId, chargeId, claimEntry, person);
@@ -1697,7 +1698,7 @@ public class CSVExporter {
       t.unpaid = remainder;
       t.departmentId = departmentId;
       t.diagnosisCodes = diagnosisCodes;
-      write(t.toString(), claimsTransactions);
+      write(t.toRow(typed), claimsTransactions);
       long transferOut = chargeId;
       chargeId = transactionId.getAndIncrement();
 
@@ -1711,11 +1712,11 @@ public class CSVExporter {
       t.unpaid = remainder;
       t.departmentId = departmentId;
       t.diagnosisCodes = diagnosisCodes;
-      write(t.toString(), claimsTransactions);
+      write(t.toRow(typed), claimsTransactions);
       chargeId = transactionId.getAndIncrement();
 
       // PAYMENT FROM SECONDARY INSURANCE
-      remainder = remainder.subtract(secondaryPayerAmount);
+      remainder -= secondaryPayerAmount;
 
       // PAYMENT
       t = new ClaimTransaction(encounter, encounterId,
@@ -1726,11 +1727,11 @@ public class CSVExporter {
       t.unpaid = remainder;
       t.departmentId = departmentId;
       t.diagnosisCodes = diagnosisCodes;
-      write(t.toString(), claimsTransactions);
+      write(t.toRow(typed), claimsTransactions);
       chargeId = transactionId.getAndIncrement();
     }
 
-    if (remainder.compareTo(Claim.ZERO_CENTS) > 0) {
+    if (remainder > 0) {
       if (!claim.getPayer().isNoInsurance()) {
         // TRANSFEROUT
         t = new ClaimTransaction(encounter, encounterId,
@@ -1740,7 +1741,7 @@ public class CSVExporter {
         t.unpaid = remainder;
         t.departmentId = departmentId;
         t.diagnosisCodes = diagnosisCodes;
-        write(t.toString(), claimsTransactions);
+        write(t.toRow(typed), claimsTransactions);
         long transferOut = chargeId;
         chargeId = transactionId.getAndIncrement();
 
@@ -1754,7 +1755,7 @@ public class CSVExporter {
         t.unpaid = remainder;
         t.departmentId = departmentId;
         t.diagnosisCodes = diagnosisCodes;
-        write(t.toString(), claimsTransactions);
+        write(t.toRow(typed), claimsTransactions);
         chargeId = transactionId.getAndIncrement();
       }
       // PAYMENT
@@ -1767,10 +1768,10 @@ public class CSVExporter {
       // a choice that "looks random" but is consistent when chargeID is consistent
       t.method = opts[(int)(chargeId % opts.length)];
       t.payment = remainder;
-      t.unpaid = Claim.ZERO_CENTS;
+      t.unpaid = 0L;
       t.departmentId = departmentId;
       t.diagnosisCodes = diagnosisCodes;
-      write(t.toString(), claimsTransactions);
+      write(t.toRow(typed), claimsTransactions);
       chargeId = transactionId.getAndIncrement();
     }
   }
@@ -1793,12 +1794,13 @@ public class CSVExporter {
     String patientId;
     String memberId;
     ClaimTransactionType type;
-    BigDecimal amount = Claim.ZERO_CENTS;
+    // amounts are in cents
+    long amount;
     Integer units;
-    BigDecimal unitAmount = Claim.ZERO_CENTS;
-    BigDecimal payment = Claim.ZERO_CENTS;
-    BigDecimal adjustment = Claim.ZERO_CENTS;
-    BigDecimal unpaid = Claim.ZERO_CENTS;
+    long unitAmount;
+    long payment;
+    long adjustment;
+    long unpaid;
     PaymentMethod method;
     long start;
     long stop;
@@ -1844,7 +1846,7 @@ public class CSVExporter {
       this.procedureDisplay = clean(claimEntry.entry.codes.get(0).display);
     }
 
-    public void setAmount(BigDecimal amount) {
+    public void setAmount(long amount) {
       this.amount = amount;
       this.unitAmount = amount;
     }
@@ -1853,115 +1855,117 @@ public class CSVExporter {
      * Convert this ClaimTransaction into a CSV row.
      */
     public String toString() {
+      return toRow(false).toString();
+    }
+
+    /**
+     * Convert this ClaimTransaction into a row of the claims_transactions table.
+     * @param typed whether to keep the typed values of the row.
+     */
+    CSVRow toRow(boolean typed) {
       // ID,CLAIMID,CHARGEID,PATIENTID,TYPE,AMOUNT,METHOD,FROMDATE,TODATE,
       // PLACEOFSERVICE,PROCEDURECODE,MODIFIER1,MODIFIER2,DIAGNOSISREF1,DIAGNOSISREF2,
       // DIAGNOSISREF3,DIAGNOSISREF4,UNITS,DEPARTMENTID,NOTES,UNITAMOUNT,TRANSFEROUTID,
       // TRANSFERTYPE,PAYMENTS,ADJUSTMENTS,TRANSFERS,OUTSTANDING,APPOINTMENTID,LINENOTE,
       // PATIENTINSURANCEID,FEESCHEDULEID,PROVIDERID,SUPERVISINGPROVIDERID
-      StringBuilder s = new StringBuilder();
+      CSVRow row = new CSVRow(CSVTable.CLAIMS_TRANSACTIONS, typed);
       // ID
-      s.append(id).append(',');
+      row.text(id);
       // CLAIMID
-      s.append(claimId).append(',');
+      row.text(claimId);
       // CHARGEID
-      s.append(chargeId).append(',');
+      row.integer(chargeId);
       // PATIENTID
-      s.append(patientId).append(',');
+      row.text(patientId);
       // TYPE: CHARGE, PAYMENT, ADJUSTMENT, TRANSFERIN, TRANSFEROUT
-      s.append(type.toString()).append(',');
+      row.text(type.toString());
       // AMOUNT
       if (type == ClaimTransactionType.CHARGE || type == ClaimTransactionType.TRANSFERIN) {
-        s.append(String.format(Locale.US, "%.2f", amount));
+        row.cents(amount);
+      } else {
+        row.blank();
       }
-      s.append(',');
       // METHOD
       if (type == ClaimTransactionType.PAYMENT || type == ClaimTransactionType.ADJUSTMENT) {
-        s.append(method);
+        row.value(method);
+      } else {
+        row.blank();
       }
-      s.append(',');
       // FROMDATE
-      s.append(iso8601Timestamp(start)).append(',');
+      row.timestamp(start);
       // TODATE
-      s.append(iso8601Timestamp(stop)).append(',');
+      row.timestamp(stop);
       // PLACEOFSERVICE
-      s.append(organizationId).append(',');
+      row.text(organizationId);
       // PROCEDURECODE
-      s.append(procedureCode).append(',');
+      row.text(procedureCode);
       // MODIFIER1
-      s.append(',');
+      row.blank();
       // MODIFIER2
-      s.append(',');
+      row.blank();
       // DIAGNOSISREF1, DIAGNOSISREF2, DIAGNOSISREF3, DIAGNOSISREF4
       // Diagnosis codes
       for (int i = 0; i < 4; i++) {
         String diagnosisCode = diagnosisCodes[i];
         if (diagnosisCode != null && !diagnosisCode.isEmpty()) {
-          s.append(i + 1).append(','); // don't write the code, write the reference number
+          row.integer(i + 1); // don't write the code, write the reference number
         } else {
-          s.append(',');
+          row.blank();
         }
       }
       // UNITS
       if (units != null) {
-        s.append(units);
+        row.integer(units);
+      } else {
+        row.blank();
       }
-      s.append(',');
       // DEPARTMENTID
-      s.append(departmentId).append(',');
+      row.text(departmentId);
       // NOTES
-      s.append(clean(procedureDisplay)).append(',');
+      row.text(clean(procedureDisplay));
       // UNITAMOUNT
-      if (unitAmount != null) {
-        s.append(String.format(Locale.US, "%.2f", unitAmount));
-      }
-      s.append(',');
+      row.cents(unitAmount);
       // TRANSFEROUTID
       if (type == ClaimTransactionType.TRANSFERIN) {
-        s.append(transferId);
+        row.integer(transferId);
+      } else {
+        row.blank();
       }
-      s.append(',');
       // TRANSFERTYPE. 1=primary insurance, 2=secondary, p==patient
       if (type == ClaimTransactionType.CHARGE || type == ClaimTransactionType.TRANSFERIN) {
-        s.append(transferType);
+        row.text(transferType);
+      } else {
+        row.blank();
       }
-      s.append(',');
       // PAYMENTS
-      if (payment != null) {
-        s.append(String.format(Locale.US, "%.2f", payment));
-      }
-      s.append(',');
+      row.cents(payment);
       // ADJUSTMENTS
-      if (adjustment != null) {
-        s.append(String.format(Locale.US, "%.2f", adjustment));
-      }
-      s.append(',');
+      row.cents(adjustment);
       // TRANSFERS
       if (type == ClaimTransactionType.TRANSFERIN || type == ClaimTransactionType.TRANSFEROUT) {
-        s.append(String.format(Locale.US, "%.2f", amount));
+        row.cents(amount);
+      } else {
+        row.blank();
       }
-      s.append(',');
       // OUTSTANDING
-      if (unpaid != null) {
-        s.append(String.format(Locale.US, "%.2f", unpaid));
-      }
-      s.append(',');
+      row.cents(unpaid);
       // APPOINTMENTID
-      s.append(encounterId).append(',');
+      row.text(encounterId);
       // LINENOTE
-      s.append(',');
+      row.blank();
       // PATIENTINSURANCEID
       if (memberId != null) {
-        s.append(patientId);
+        row.text(patientId);
+      } else {
+        row.blank();
       }
-      s.append(',');
       // TODO FEESCHEDULEID
-      s.append("1").append(',');
+      row.integer(1);
       // PROVIDERID
-      s.append(clinicianId).append(',');
+      row.text(clinicianId);
       // SUPERVISINGPROVIDERID
-      s.append(clinicianId);
-      s.append(NEWLINE);
-      return s.toString();
+      row.text(clinicianId);
+      return row;
     }
   }
 
@@ -1991,6 +1995,26 @@ public class CSVExporter {
     }
   }
 
+  /**
+   * Write a row of one of the {@link CSVTable}s, and pass it to the columnar exporter if its
+   * typed values were kept.
+   *
+   * @param row    The row to write
+   * @param writer The place to write its CSV text
+   * @throws IOException if an I/O error occurs
+   */
+  private static void write(CSVRow row, OutputStreamWriter writer) throws IOException {
+    write(row.toString(), writer);
+    if (row.isTyped()) {
+      ParquetExporter.getInstance().add(row);
+    }
+  }
+
+  /**
+   * Paths of the files opened by {@link #getWriter}, so they can be checkpointed.
+   */
+  private static final List<Path> openFiles = Collections.synchronizedList(new ArrayList<Path>());
+
   /**
    * "No-op" writer to use to prevent writing to excluded files.
    * Note that this uses an Apache "NullOutputStream", but JDK11 provides its own.
@@ -2000,7 +2024,7 @@ public class CSVExporter {
 
   /**
    * Helper method to get the writer for the given output file.
-   * Returns a "no-op" writer for any excluded files.
+   * Returns a "no-op" writer for any excluded files, or for every file if CSV export is off.
    *
    * @param outputDirectory Parent directory for output csv files
    * @param filename Filename for the current file
@@ -2015,13 +2039,29 @@ public class CSVExporter {
 
     boolean excluded = (!includedFiles.isEmpty() && !includedFiles.contains(filename))
         || excludedFiles.contains(filename);
-    if (excluded) {
+    // the tables may only be built for the columnar exporter
+    if (excluded || !Config.getAsBoolean("exporter.csv.export", false)) {
       return NO_OP;
     }
 
-    File file = outputDirectory.resolve(filename).toFile();
+    OutputCodec codec = OutputCodec.fromConfig();
+    File file = codec.resolve(outputDirectory.resolve(filename)).toFile();
     // file writing may fail if we tell it to append to a file that doesn't already exist
     append = append && file.exists();
-    return new OutputStreamWriter(new FileOutputStream(file, append), charset);
+    OutputStreamWriter writer = new OutputStreamWriter(
+        codec.wrap(new FileOutputStream(file, append)), charset);
+    openFiles.add(file.toPath());
+    return writer;
+  }
+
+  /**
+   * Get the paths of the CSV files that have been opened for writing. Every file is flushed
+   * after each person is exported.
+   * @return the paths of the open files.
+   */
+  static List<Path> getOpenFiles() {
+    synchronized (openFiles) {
+      return new ArrayList<Path>(openFiles);
+    }
   }
 }
@@ -0,0 +1,149 @@
+package org.mitre.synthea.export;
+
+import java.math.BigDecimal;
+
+import org.mitre.synthea.world.concepts.Cents;
+
+/**
+ * A row of a {@link CSVTable}, built one column at a time. Each value is appended to the CSV
+ * text of the row and, if the row is typed, also kept as a value for the columnar exporter:
+ * a String, a Long (milliseconds for dates and timestamps, cents for amounts), a Double, or
+ * null for a blank cell.
+ */
+public final class CSVRow {
+  private static final String NEWLINE = System.lineSeparator();
+
+  private final CSVTable table;
+  private final StringBuilder text = new StringBuilder(256);
+  private final Object[] values;
+  private int column = 0;
+
+  /**
+   * Start a new row.
+   * @param table the table the row belongs to.
+   * @param typed whether to keep the typed values of the row as well as its text.
+   */
+  public CSVRow(CSVTable table, boolean typed) {
+    this.table = table;
+    this.values = typed ? new Object[table.getColumns().length] : null;
+  }
+
+  private StringBuilder next(Object value) {
+    if (column > 0) {
+      text.append(',');
+    }
+    if (values != null) {
+      values[column] = value;
+    }
+    column++;
+    return text;
+  }
+
+  private Long box(long value) {
+    return values == null ? null : Long.valueOf(value);
+  }
+
+  /**
+   * Add a text value, which is written as-is.
+   */
+  public CSVRow text(String value) {
+    next(value).append(value);
+    return this;
+  }
+
+  /**
+   * Add a value of any type, which is written using its string representation.
+   */
+  public CSVRow value(Object value) {
+    next(value).append(value);
+    return this;
+  }
+
+  /**
+   * Add an empty value.
+   */
+  public CSVRow blank() {
+    next(null);
+    return this;
+  }
+
+  /**
+   * Add a whole number.
+   */
+  public CSVRow integer(long value) {
+    next(box(value)).append(value);
+    return this;
+  }
+
+  /**
+   * Add a floating point number.
+   */
+  public CSVRow number(double value) {
+    next(values == null ? null : Double.valueOf(value)).append(value);
+    return this;
+  }
+
+  /**
+   * Add an amount in cents, written with two decimal places.
+   */
+  public CSVRow cents(long cents) {
+    Cents.append(next(box(cents)), cents);
+    return this;
+  }
+
+  /**
+   * Add an amount in dollars, written with two decimal places. The amount is kept as cents.
+   */
+  public CSVRow money(BigDecimal amount) {
+    return cents(Cents.valueOf(amount));
+  }
+
+  /**
+   * Add the date of the given time, written as yyyy-MM-dd.
+   */
+  public CSVRow date(long time) {
+    next(box(time)).append(ExportHelper.dateFromTimestamp(time));
+    return this;
+  }
+
+  /**
+   * Add a time, written in ISO 8601 format.
+   */
+  public CSVRow timestamp(long time) {
+    next(box(time)).append(ExportHelper.iso8601Timestamp(time));
+    return this;
+  }
+
+  public CSVTable getTable() {
+    return table;
+  }
+
+  /**
+   * Whether the typed values of this row were kept.
+   */
+  public boolean isTyped() {
+    return values != null;
+  }
+
+  /**
+   * Get the typed value of a column.
+   * @param index the index of the column.
+   * @return the value, or null if the column is blank.
+   */
+  public Object get(int index) {
+    return values[index];
+  }
+
+  /**
+   * Get the CSV text of this row, including the line separator.
+   * @throws IllegalStateException if a value has not been added for every column.
+   */
+  @Override
+  public String toString() {
+    if (column != table.getColumns().length) {
+      throw new IllegalStateException("Row of " + table.getName() + " has " + column
+          + " values, expected " + table.getColumns().length);
+    }
+    return text.toString() + NEWLINE;
+  }
+}
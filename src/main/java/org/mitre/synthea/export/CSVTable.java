@@ -0,0 +1,146 @@
+package org.mitre.synthea.export;
+
+/**
+ * The tables of the CSV export that are also available in columnar form, with the type of
+ * each of their columns. Rows of these tables are built as {@link CSVRow}s, which are written
+ * as CSV text and, when <code>exporter.parquet.export</code> is enabled, as typed values.
+ */
+public enum CSVTable {
+  PATIENTS("patients",
+      text("Id"), date("BIRTHDATE"), date("DEATHDATE"), text("SSN"), text("DRIVERS"),
+      text("PASSPORT"), code("PREFIX"), text("FIRST"), text("MIDDLE"), text("LAST"),
+      code("SUFFIX"), text("MAIDEN"), code("MARITAL"), code("RACE"), code("ETHNICITY"),
+      code("GENDER"), code("BIRTHPLACE"), text("ADDRESS"), code("CITY"), code("STATE"),
+      code("COUNTY"), code("FIPS"), code("ZIP"), number("LAT"), number("LON"),
+      money("HEALTHCARE_EXPENSES"), money("HEALTHCARE_COVERAGE"), integer("INCOME")),
+  ENCOUNTERS("encounters",
+      text("Id"), timestamp("START"), timestamp("STOP"), code("PATIENT"),
+      code("ORGANIZATION"), code("PROVIDER"), code("PAYER"), code("ENCOUNTERCLASS"),
+      code("CODE"), code("DESCRIPTION"), money("BASE_ENCOUNTER_COST"),
+      money("TOTAL_CLAIM_COST"), money("PAYER_COVERAGE"), code("REASONCODE"),
+      code("REASONDESCRIPTION")),
+  OBSERVATIONS("observations",
+      timestamp("DATE"), code("PATIENT"), code("ENCOUNTER"), code("CATEGORY"), code("CODE"),
+      code("DESCRIPTION"), text("VALUE"), code("UNITS"), code("TYPE")),
+  CLAIMS("claims",
+      text("Id"), code("PATIENTID"), code("PROVIDERID"), code("PRIMARYPATIENTINSURANCEID"),
+      code("SECONDARYPATIENTINSURANCEID"), code("DEPARTMENTID"), code("PATIENTDEPARTMENTID"),
+      code("DIAGNOSIS1"), code("DIAGNOSIS2"), code("DIAGNOSIS3"), code("DIAGNOSIS4"),
+      code("DIAGNOSIS5"), code("DIAGNOSIS6"), code("DIAGNOSIS7"), code("DIAGNOSIS8"),
+      code("REFERRINGPROVIDERID"), text("APPOINTMENTID"), timestamp("CURRENTILLNESSDATE"),
+      timestamp("SERVICEDATE"), code("SUPERVISINGPROVIDERID"), code("STATUS1"),
+      code("STATUS2"), code("STATUSP"), money("OUTSTANDING1"), money("OUTSTANDING2"),
+      money("OUTSTANDINGP"), timestamp("LASTBILLEDDATE1"), timestamp("LASTBILLEDDATE2"),
+      timestamp("LASTBILLEDDATEP"), integer("HEALTHCARECLAIMTYPEID1"),
+      integer("HEALTHCARECLAIMTYPEID2")),
+  CLAIMS_TRANSACTIONS("claims_transactions",
+      text("ID"), code("CLAIMID"), integer("CHARGEID"), code("PATIENTID"), code("TYPE"),
+      money("AMOUNT"), code("METHOD"), timestamp("FROMDATE"), timestamp("TODATE"),
+      code("PLACEOFSERVICE"), code("PROCEDURECODE"), code("MODIFIER1"), code("MODIFIER2"),
+      integer("DIAGNOSISREF1"), integer("DIAGNOSISREF2"), integer("DIAGNOSISREF3"),
+      integer("DIAGNOSISREF4"), integer("UNITS"), code("DEPARTMENTID"), code("NOTES"),
+      money("UNITAMOUNT"), integer("TRANSFEROUTID"), code("TRANSFERTYPE"), money("PAYMENTS"),
+      money("ADJUSTMENTS"), money("TRANSFERS"), money("OUTSTANDING"), code("APPOINTMENTID"),
+      code("LINENOTE"), code("PATIENTINSURANCEID"), integer("FEESCHEDULEID"),
+      code("PROVIDERID"), code("SUPERVISINGPROVIDERID"));
+
+  /**
+   * The type of the values of a column.
+   */
+  public enum ColumnType {
+    /** Free text. */
+    TEXT,
+    /** Text from a small set of values, such as codes and IDs, stored with a dictionary. */
+    CODE,
+    /** A whole number. */
+    INTEGER,
+    /** A floating point number. */
+    NUMBER,
+    /** An amount of money, with two decimal places. */
+    MONEY,
+    /** A calendar date, in the local time zone. */
+    DATE,
+    /** A point in time, in UTC. */
+    TIMESTAMP
+  }
+
+  /**
+   * A column of a table.
+   */
+  public static final class Column {
+    public final String name;
+    public final ColumnType type;
+
+    private Column(String name, ColumnType type) {
+      this.name = name;
+      this.type = type;
+    }
+  }
+
+  private final String name;
+  private final Column[] columns;
+
+  CSVTable(String name, Column... columns) {
+    this.name = name;
+    this.columns = columns;
+  }
+
+  private static Column text(String name) {
+    return new Column(name, ColumnType.TEXT);
+  }
+
+  private static Column code(String name) {
+    return new Column(name, ColumnType.CODE);
+  }
+
+  private static Column integer(String name) {
+    return new Column(name, ColumnType.INTEGER);
+  }
+
+  private static Column number(String name) {
+    return new Column(name, ColumnType.NUMBER);
+  }
+
+  private static Column money(String name) {
+    return new Column(name, ColumnType.MONEY);
+  }
+
+  private static Column date(String name) {
+    return new Column(name, ColumnType.DATE);
+  }
+
+  private static Column timestamp(String name) {
+    return new Column(name, ColumnType.TIMESTAMP);
+  }
+
+  /**
+   * Get the name of this table, which is also the name of its file without an extension.
+   * @return the table name, e.g. "patients".
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Get the columns of this table, in order.
+   * @return the columns. The array must not be modified.
+   */
+  public Column[] getColumns() {
+    return columns;
+  }
+
+  /**
+   * Get the header line of the CSV file for this table, without a line separator.
+   * @return the column names separated by commas.
+   */
+  public String header() {
+    StringBuilder sb = new StringBuilder();
+    for (Column column : columns) {
+      if (sb.length() > 0) {
+        sb.append(',');
+      }
+      sb.append(column.name);
+    }
+    return sb.toString();
+  }
+}
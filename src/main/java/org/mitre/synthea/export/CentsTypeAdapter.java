@@ -0,0 +1,36 @@
+package org.mitre.synthea.export;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+import org.mitre.synthea.world.concepts.Cents;
+
+/**
+ * Gson adapter for monetary fields that are held as a <code>long</code> number of cents.
+ * The JSON export writes these as decimal dollar amounts, exactly as it did when the fields
+ * were <code>BigDecimal</code>s. Values equal to {@link Long#MIN_VALUE} are treated as unset.
+ */
+public class CentsTypeAdapter extends TypeAdapter<Long> {
+  @Override
+  public void write(JsonWriter out, Long value) throws IOException {
+    if (value == null || value == Long.MIN_VALUE) {
+      out.nullValue();
+    } else {
+      out.jsonValue(Cents.toString(value));
+    }
+  }
+
+  @Override
+  public Long read(JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return Long.MIN_VALUE;
+    }
+    return Cents.valueOf(new BigDecimal(in.nextString()));
+  }
+}
@@ -0,0 +1,170 @@
+package org.mitre.synthea.export;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.mitre.synthea.helpers.Config;
+
+/**
+ * An output stream that compresses its output in blocks, each written as an independent gzip
+ * member or LZ4 frame. Blocks are compressed by a shared pool of worker threads, so that a
+ * thread writing a large file does not have to wait for each block to be compressed, and are
+ * written to the underlying stream in order as they complete.
+ *
+ * <p>Since writers such as the CSV exporter flush after every person, {@link #flush()} only
+ * writes the blocks that have already been compressed rather than ending the current block.
+ * {@link #sync()} compresses and writes everything written so far, so the file is complete
+ * up to that point.</p>
+ */
+final class CompressingOutputStream extends OutputStream {
+  /** The number of uncompressed bytes in each member or frame. */
+  static final int BLOCK_SIZE = 1024 * 1024;
+  /** The number of blocks of each stream that may be waiting to be written. */
+  private static final int MAX_PENDING = 4;
+
+  /** Every stream that has not been closed, so they can all be synced. */
+  private static final Set<CompressingOutputStream> open = ConcurrentHashMap.newKeySet();
+  private static ExecutorService workers;
+
+  private final OutputStream out;
+  private final OutputCodec codec;
+  private final ArrayDeque<Future<byte[]>> pending = new ArrayDeque<Future<byte[]>>();
+  private byte[] buffer = new byte[BLOCK_SIZE];
+  private int count = 0;
+  private boolean closed = false;
+
+  CompressingOutputStream(OutputStream out, OutputCodec codec) {
+    this.out = out;
+    this.codec = codec;
+    open.add(this);
+  }
+
+  @Override
+  public synchronized void write(int b) throws IOException {
+    if (count == buffer.length) {
+      endBlock();
+    }
+    buffer[count++] = (byte) b;
+  }
+
+  @Override
+  public synchronized void write(byte[] b, int off, int len) throws IOException {
+    while (len > 0) {
+      if (count == buffer.length) {
+        endBlock();
+      }
+      int n = Math.min(len, buffer.length - count);
+      System.arraycopy(b, off, buffer, count, n);
+      count += n;
+      off += n;
+      len -= n;
+    }
+  }
+
+  /**
+   * Write any blocks that have finished compressing, without waiting for the others.
+   */
+  @Override
+  public synchronized void flush() throws IOException {
+    writeCompleted();
+    out.flush();
+  }
+
+  /**
+   * End the current block, and wait for every block to be compressed and written, so that
+   * the underlying stream holds everything written so far.
+   * @throws IOException if a block cannot be compressed or written.
+   */
+  public synchronized void sync() throws IOException {
+    endBlock();
+    while (!pending.isEmpty()) {
+      writeNext();
+    }
+    out.flush();
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    try {
+      sync();
+    } finally {
+      closed = true;
+      open.remove(this);
+      out.close();
+    }
+  }
+
+  /**
+   * Hand the current block to the workers to compress, and start a new one.
+   */
+  private void endBlock() throws IOException {
+    if (count == 0) {
+      return;
+    }
+    final byte[] block = buffer;
+    final int length = count;
+    buffer = new byte[BLOCK_SIZE];
+    count = 0;
+    pending.add(workers().submit(() -> codec.compress(block, length)));
+    writeCompleted();
+    // bound the memory held by a writer that is faster than the workers
+    while (pending.size() > MAX_PENDING) {
+      writeNext();
+    }
+  }
+
+  private void writeCompleted() throws IOException {
+    while (!pending.isEmpty() && pending.peek().isDone()) {
+      writeNext();
+    }
+  }
+
+  private void writeNext() throws IOException {
+    Future<byte[]> next = pending.poll();
+    try {
+      out.write(next.get());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while compressing output");
+    } catch (ExecutionException e) {
+      throw new IOException("Unable to compress output", e.getCause());
+    }
+  }
+
+  /**
+   * Sync every open stream. Used when a run is checkpointed or finished, when nothing else
+   * is being written.
+   * @throws IOException if any stream cannot be synced.
+   */
+  static void syncAll() throws IOException {
+    for (CompressingOutputStream stream : open) {
+      stream.sync();
+    }
+  }
+
+  private static synchronized ExecutorService workers() {
+    if (workers == null) {
+      int threads = Config.getAsInteger("exporter.compression.threads", 0);
+      if (threads <= 0) {
+        threads = Runtime.getRuntime().availableProcessors();
+      }
+      workers = Executors.newFixedThreadPool(threads, runnable -> {
+        Thread thread = new Thread(runnable, "compression");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    return workers;
+  }
+}
@@ -95,7 +95,7 @@ public abstract class ExportHelper {
    * @return stringified sampled data values
    */
   public static String sampledDataToValueString(SampledData sampledData) {
-    int numSamples = sampledData.series.get(0).getValues().size();
+    int numSamples = sampledData.series.get(0).size();
     DecimalFormat df;
 
     if (sampledData.decimalFormat != null) {
@@ -108,7 +108,7 @@ public abstract class ExportHelper {
     StringBuilder sb = new StringBuilder();
     for (int i = 0; i < numSamples; i++) {
       for (TimeSeriesData series : sampledData.series) {
-        double num = series.getValues().get(i);
+        double num = series.getValue(i);
         sb.append(df.format(num));
         sb.append(" ");
       }
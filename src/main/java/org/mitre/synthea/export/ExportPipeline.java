@@ -0,0 +1,132 @@
+package org.mitre.synthea.export;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.mitre.synthea.world.agents.Person;
+
+/**
+ * Exports people on a separate pool of threads, so that the threads simulating people do not
+ * wait on encoding and disk I/O. Simulation threads hand each finished person to
+ * {@link #submit(Person, long)}, which returns as soon as the person is queued. The queue is
+ * bounded: once it is full, <code>submit</code> blocks until an export thread takes the next
+ * person, so a slow disk slows the simulation down instead of filling the heap with people
+ * waiting to be written.
+ *
+ * <p>Export is destructive (records are filtered in place), so a person must not be used by
+ * the caller once they have been submitted. Since the export of a person is not finished when
+ * <code>submit</code> returns, its result is not available to the caller, so the pipeline
+ * cannot be used when the result decides whether a person is regenerated (as it is for the BFD
+ * exporter).</p>
+ *
+ * <p>Each person is exported by a single thread into every enabled format, as with
+ * {@link Exporter#export(Person, long, Exporter.ExporterRuntimeOptions)}, since several of the
+ * formats modify the person while they export them.</p>
+ */
+public class ExportPipeline implements AutoCloseable {
+  private final ExecutorService pool;
+  private final Semaphore capacity;
+  private final Exporter.ExporterRuntimeOptions options;
+  private final int threads;
+  private final long started = System.nanoTime();
+  private final AtomicInteger submitted = new AtomicInteger();
+  private final AtomicInteger exported = new AtomicInteger();
+  private final AtomicInteger failed = new AtomicInteger();
+  private final AtomicLong exportTime = new AtomicLong();
+  private final AtomicLong blockedTime = new AtomicLong();
+
+  /**
+   * Start the export threads.
+   * @param threads the number of people to export at once.
+   * @param queueSize the number of people that may wait to be exported before
+   *     {@link #submit(Person, long)} blocks.
+   * @param options the runtime options to export with.
+   */
+  public ExportPipeline(int threads, int queueSize, Exporter.ExporterRuntimeOptions options) {
+    if (threads < 1) {
+      throw new IllegalArgumentException(
+          String.format("Illegal export thread pool size (%d)", threads));
+    }
+    if (queueSize < 1) {
+      throw new IllegalArgumentException(
+          String.format("Illegal export queue size (%d)", queueSize));
+    }
+    this.pool = Executors.newFixedThreadPool(threads);
+    this.capacity = new Semaphore(threads + queueSize);
+    this.options = options;
+    this.threads = threads;
+  }
+
+  /**
+   * Queue a person to be exported, blocking while the queue is full.
+   * @param person the person to export. They must not be used again by the caller.
+   * @param stopTime time at which the simulation of the person stopped.
+   */
+  public void submit(Person person, long stopTime) {
+    if (!capacity.tryAcquire()) {
+      long start = System.nanoTime();
+      capacity.acquireUninterruptibly();
+      blockedTime.addAndGet(System.nanoTime() - start);
+    }
+    submitted.incrementAndGet();
+    pool.execute(() -> {
+      long start = System.nanoTime();
+      try {
+        Exporter.export(person, stopTime, options);
+        exported.incrementAndGet();
+      } catch (Throwable e) {
+        // lots of fhir things throw errors for some reason
+        failed.incrementAndGet();
+        e.printStackTrace();
+      } finally {
+        exportTime.addAndGet(System.nanoTime() - start);
+        capacity.release();
+      }
+    });
+  }
+
+  /**
+   * Number of people waiting to be exported or being exported.
+   * @return the number of people submitted but not yet exported.
+   */
+  public int backlog() {
+    return submitted.get() - exported.get() - failed.get();
+  }
+
+  /**
+   * Wait for every queued person to be exported, stop the export threads and report the
+   * throughput of each stage.
+   */
+  @Override
+  public void close() {
+    pool.shutdown();
+    try {
+      while (!pool.awaitTermination(30, TimeUnit.SECONDS)) {
+        System.out.println("Waiting for exports to finish... " + backlog() + " remaining");
+      }
+    } catch (InterruptedException e) {
+      System.out.println("Export interrupted. Attempting to shut down export thread pool.");
+      pool.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+    System.out.println(report());
+  }
+
+  /**
+   * Summarize the throughput of the pipeline so far.
+   * @return a one line summary.
+   */
+  public String report() {
+    double elapsed = (System.nanoTime() - started) / 1e9;
+    double busy = exportTime.get() / 1e9;
+    return String.format("Export pipeline: %d submitted (%.1f/s), %d exported, %d failed, "
+        + "export threads %.0f%% busy, simulation blocked %.1f s on a full queue",
+        submitted.get(), submitted.get() / Math.max(elapsed, 1e-9), exported.get(),
+        failed.get(), 100.0 * busy / Math.max(elapsed * threads, 1e-9),
+        blockedTime.get() / 1e9);
+  }
+}
@@ -5,9 +5,14 @@ import com.google.common.base.Strings;
 
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -33,12 +38,14 @@ import org.hl7.fhir.r4.model.Parameters;
 import org.hl7.fhir.r4.model.StringType;
 import org.mitre.synthea.engine.Generator;
 import org.mitre.synthea.export.flexporter.Actions;
-import org.mitre.synthea.export.flexporter.FhirPathUtils;
 import org.mitre.synthea.export.flexporter.FlexporterJavascriptContext;
 import org.mitre.synthea.export.flexporter.Mapping;
+import org.mitre.synthea.export.parquet.ParquetExporter;
 import org.mitre.synthea.export.rif.BB2RIFExporter;
 import org.mitre.synthea.export.rif.CodeMapper;
 import org.mitre.synthea.helpers.Config;
+import org.mitre.synthea.helpers.Instrumentation;
+import org.mitre.synthea.helpers.TaskGraph;
 import org.mitre.synthea.helpers.TransitionMetrics;
 import org.mitre.synthea.helpers.Utilities;
 import org.mitre.synthea.identity.Entity;
@@ -70,6 +77,8 @@ public abstract class Exporter {
           new ConcurrentHashMap<Path, PrintWriter>();
 
   private static final int FILE_BUFFER_SIZE = 4 * 1024 * 1024;
+  /** Measures the whole export of each person, including each format below. */
+  private static final Instrumentation.Phase EXPORT_PHASE = Instrumentation.phase("export");
 
   private static List<PatientExporter> patientExporters;
   private static List<PostCompletionExporter> postCompletionExporters;
@@ -232,6 +241,7 @@ public abstract class Exporter {
       wasExported = true;
       deferredExports.add(new ImmutablePair<Person, Long>(person, stopTime));
     } else {
+      Instrumentation.Phase phase = EXPORT_PHASE.begin();
       if (options.yearsOfHistory > 0) {
         person = filterForExport(person, options.yearsOfHistory, stopTime);
       }
@@ -255,6 +265,7 @@ public abstract class Exporter {
       } else {
         wasExported = exportRecord(person, "", stopTime, options);
       }
+      phase.end();
     }
     return wasExported;
   }
@@ -289,6 +300,7 @@ public abstract class Exporter {
     }
 
     if (Config.getAsBoolean("exporter.fhir_stu3.export")) {
+      Instrumentation.Phase phase = Instrumentation.begin("export.fhir_stu3");
       File outDirectory = getOutputFolder("fhir_stu3", person);
       if (Config.getAsBoolean("exporter.fhir.bulk_data")) {
         org.hl7.fhir.dstu3.model.Bundle bundle = FhirStu3.convertToFHIR(person, stopTime);
@@ -304,8 +316,10 @@ public abstract class Exporter {
         Path outFilePath = outDirectory.toPath().resolve(filename(person, fileTag, "json"));
         writeNewFile(outFilePath, bundleJson);
       }
+      phase.end();
     }
     if (Config.getAsBoolean("exporter.fhir_dstu2.export")) {
+      Instrumentation.Phase phase = Instrumentation.begin("export.fhir_dstu2");
       File outDirectory = getOutputFolder("fhir_dstu2", person);
       if (Config.getAsBoolean("exporter.fhir.bulk_data")) {
         ca.uhn.fhir.model.dstu2.resource.Bundle bundle = FhirDstu2.convertToFHIR(person, stopTime);
@@ -321,8 +335,10 @@ public abstract class Exporter {
         Path outFilePath = outDirectory.toPath().resolve(filename(person, fileTag, "json"));
         writeNewFile(outFilePath, bundleJson);
       }
+      phase.end();
     }
     if (Config.getAsBoolean("exporter.fhir.export")) {
+      Instrumentation.Phase phase = Instrumentation.begin("export.fhir_r4");
       File outDirectory = getOutputFolder("fhir", person);
       org.hl7.fhir.r4.model.Bundle bundle = FhirR4.convertToFHIR(person, stopTime);
 
@@ -330,7 +346,7 @@ public abstract class Exporter {
         FlexporterJavascriptContext fjContext = null;
 
         for (Mapping mapping : options.flexporterMappings) {
-          if (FhirPathUtils.appliesToBundle(bundle, mapping.applicability, mapping.variables)) {
+          if (mapping.appliesTo(bundle)) {
             if (fjContext == null) {
               // only set this the first time it is actually used
               // TODO: figure out how to silence the truffle warnings
@@ -357,88 +373,123 @@ public abstract class Exporter {
         writeNewFile(outFilePath, bundleJson);
       }
       FhirGroupExporterR4.addPatient((String) person.attributes.get(Person.ID));
+      phase.end();
     }
     if (Config.getAsBoolean("exporter.ccda.export")) {
-      String ccdaXml = CCDAExporter.export(person, stopTime);
+      Instrumentation.Phase phase = Instrumentation.begin("export.ccda");
       File outDirectory = getOutputFolder("ccda", person);
       Path outFilePath = outDirectory.toPath().resolve(filename(person, fileTag, "xml"));
-      writeNewFile(outFilePath, ccdaXml);
+      try (Writer writer = newFileWriter(outFilePath)) {
+        CCDAExporter.export(person, stopTime, writer);
+        writer.write(System.lineSeparator());
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+      phase.end();
     }
     if (Config.getAsBoolean("exporter.json.export")) {
-      String json = JSONExporter.export(person);
+      Instrumentation.Phase phase = Instrumentation.begin("export.json");
       File outDirectory = getOutputFolder("json", person);
       Path outFilePath = outDirectory.toPath().resolve(filename(person, fileTag, "json"));
-      writeNewFile(outFilePath, json);
+      try (Writer writer = newFileWriter(outFilePath)) {
+        JSONExporter.export(person, writer);
+        writer.write(System.lineSeparator());
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+      phase.end();
     }
-    if (Config.getAsBoolean("exporter.csv.export")) {
+    // the CSV exporter also builds the rows of the Parquet tables
+    if (Config.getAsBoolean("exporter.csv.export")
+        || Config.getAsBoolean("exporter.parquet.export", false)) {
+      Instrumentation.Phase phase = Instrumentation.begin("export.csv");
       try {
         CSVExporter.getInstance().export(person, stopTime);
       } catch (IOException e) {
         e.printStackTrace();
       }
+      phase.end();
     }
     if (Config.getAsBoolean("exporter.bfd.export")) {
+      Instrumentation.Phase phase = Instrumentation.begin("export.bfd");
       try {
         BB2RIFExporter exporter = BB2RIFExporter.getInstance();
         wasExported = exporter.export(person, stopTime, options.yearsOfHistory);
       } catch (IOException e) {
         e.printStackTrace();
       }
+      phase.end();
     }
     if (Config.getAsBoolean("exporter.cpcds.export")) {
+      Instrumentation.Phase phase = Instrumentation.begin("export.cpcds");
       try {
         CPCDSExporter.getInstance().export(person, stopTime);
       } catch (IOException e) {
         e.printStackTrace();
       }
+      phase.end();
     }
     if (Config.getAsBoolean("exporter.text.export")) {
+      Instrumentation.Phase phase = Instrumentation.begin("export.text");
       try {
         TextExporter.exportAll(person, fileTag, stopTime);
       } catch (IOException e) {
         e.printStackTrace();
       }
+      phase.end();
     }
     if (Config.getAsBoolean("exporter.text.per_encounter_export")) {
+      Instrumentation.Phase phase = Instrumentation.begin("export.text_encounters");
       try {
         TextExporter.exportEncounter(person, stopTime);
       } catch (IOException e) {
         e.printStackTrace();
       }
+      phase.end();
     }
     if (Config.getAsBoolean("exporter.symptoms.csv.export")) {
+      Instrumentation.Phase phase = Instrumentation.begin("export.symptoms_csv");
       try {
         SymptomCSVExporter.getInstance().export(person, stopTime);
       } catch (IOException e) {
         e.printStackTrace();
       }
+      phase.end();
     }
     if (Config.getAsBoolean("exporter.symptoms.text.export")) {
+      Instrumentation.Phase phase = Instrumentation.begin("export.symptoms_text");
       try {
         SymptomTextExporter.exportAll(person, fileTag, stopTime);
       } catch (IOException e) {
         e.printStackTrace();
       }
+      phase.end();
     }
     if (Config.getAsBoolean("exporter.cdw.export")) {
+      Instrumentation.Phase phase = Instrumentation.begin("export.cdw");
       try {
         CDWExporter.getInstance().export(person, stopTime);
       } catch (IOException e) {
         e.printStackTrace();
       }
+      phase.end();
     }
     if (Config.getAsBoolean("exporter.clinical_note.export")) {
+      Instrumentation.Phase phase = Instrumentation.begin("export.clinical_note");
       File outDirectory = getOutputFolder("notes", person);
       Path outFilePath = outDirectory.toPath().resolve(filename(person, fileTag, "txt"));
       String consolidatedNotes = ClinicalNoteExporter.export(person);
       writeNewFile(outFilePath, consolidatedNotes);
+      phase.end();
     }
 
     if (Config.getAsBoolean("exporter.custom.export", true)
             && patientExporters != null && !patientExporters.isEmpty()) {
+      Instrumentation.Phase phase = Instrumentation.begin("export.custom");
       for (PatientExporter patientExporter : patientExporters) {
         patientExporter.export(person, stopTime, options);
       }
+      phase.end();
     }
 
     if (options.isQueueEnabled()) {
@@ -470,12 +521,33 @@ public abstract class Exporter {
    */
   private static void writeNewFile(Path file, String contents) {
     try {
-      Files.write(file, Collections.singleton(contents), StandardOpenOption.CREATE_NEW);
+      OutputCodec codec = OutputCodec.fromConfig();
+      if (codec == OutputCodec.NONE) {
+        Files.write(file, Collections.singleton(contents), StandardOpenOption.CREATE_NEW);
+      } else {
+        byte[] bytes = (contents + System.lineSeparator()).getBytes(StandardCharsets.UTF_8);
+        Files.write(codec.resolve(file), codec.compress(bytes, bytes.length),
+            StandardOpenOption.CREATE_NEW);
+      }
     } catch (IOException e) {
       e.printStackTrace();
     }
   }
 
+  /**
+   * Open a new file to stream contents to, compressed if <code>exporter.compression</code> is
+   * enabled. Fails if the file already exists.
+   * @param file Path to the new file.
+   * @return a buffered writer, which the caller must close.
+   * @throws IOException if the file cannot be created.
+   */
+  private static Writer newFileWriter(Path file) throws IOException {
+    OutputCodec codec = OutputCodec.fromConfig();
+    OutputStream out = codec.wrap(
+        Files.newOutputStream(codec.resolve(file), StandardOpenOption.CREATE_NEW));
+    return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+  }
+
   /**
    * Overwrite a file with the given contents. If the file doesn't exist it will be created.
    * @param file Path to the new file.
@@ -491,7 +563,8 @@ public abstract class Exporter {
   }
 
   /**
-   * Append contents to the end of a file.
+   * Append contents to the end of a file. If <code>exporter.compression</code> is enabled, the
+   * contents are compressed and appended to the file with the codec's extension instead.
    * @param file Path to the new file.
    * @param contents The contents of the file.
    */
@@ -503,9 +576,15 @@ public abstract class Exporter {
         writer = fileWriters.get(file);
         if (writer == null) {
           try {
-            writer = new PrintWriter(
-              new BufferedWriter(new FileWriter(file.toFile(), true), FILE_BUFFER_SIZE)
-            );
+            OutputCodec codec = OutputCodec.fromConfig();
+            Writer out;
+            if (codec == OutputCodec.NONE) {
+              out = new FileWriter(file.toFile(), true);
+            } else {
+              out = new OutputStreamWriter(
+                  codec.wrap(new FileOutputStream(codec.resolve(file).toFile(), true)));
+            }
+            writer = new PrintWriter(new BufferedWriter(out, FILE_BUFFER_SIZE));
           } catch (IOException e) {
             e.printStackTrace();
           }
@@ -519,6 +598,30 @@ public abstract class Exporter {
     }
   }
 
+  /**
+   * Flush every file that is being appended to, so that its contents are complete up to the
+   * last record written. Used when checkpointing a run, at which point nothing else is being
+   * written.
+   * @return the paths of all files that records are appended to, including the CSV files.
+   */
+  public static List<Path> flushOpenFiles() {
+    OutputCodec codec = OutputCodec.fromConfig();
+    List<Path> paths = new ArrayList<Path>();
+    for (Map.Entry<Path, PrintWriter> entry : fileWriters.entrySet()) {
+      synchronized (entry.getValue()) {
+        entry.getValue().flush();
+      }
+      paths.add(codec.resolve(entry.getKey()));
+    }
+    paths.addAll(CSVExporter.getOpenFiles());
+    try {
+      CompressingOutputStream.syncAll();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+    return paths;
+  }
+
   /**
    * Flushes the data and closes all open files.
    */
@@ -528,6 +631,12 @@ public abstract class Exporter {
       itr.next().close();
     }
     fileWriters.clear();
+    // the CSV files are left open, but must end on a complete block
+    try {
+      CompressingOutputStream.syncAll();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
   }
 
   /**
@@ -547,59 +656,78 @@ public abstract class Exporter {
    * @param generator Generator that generated the patients
    */
   public static void runPostCompletionExports(Generator generator, ExporterRuntimeOptions options) {
-
-    if (options.deferExports) {
-      ExporterRuntimeOptions nonDeferredOptions = new ExporterRuntimeOptions(options);
-      nonDeferredOptions.deferExports = false;
-      for (Pair<Person, Long> entry: deferredExports) {
-        export(entry.getLeft(), entry.getRight(), nonDeferredOptions);
+    // exporters that only read the providers, payers and exported people run concurrently
+    // once the deferred people have been exported. The FHIR R4 exporters share the generator's
+    // random number generator, so they run in their original order to keep output repeatable.
+    // each exporter is measured as a "post_completion" instrumentation phase
+    TaskGraph tasks = new TaskGraph(generator.threadPoolSize, (name, task) -> () -> {
+      Instrumentation.Phase phase = Instrumentation.begin("post_completion." + name);
+      try {
+        task.run();
+      } finally {
+        phase.end();
       }
-      deferredExports.clear();
-    }
+    });
 
-    try {
-      FhirGroupExporterR4.exportAndSave(generator.getRandomizer(), generator.stop);
-    } catch (Exception e) {
-      e.printStackTrace();
-    }
+    tasks.add("deferred", options.deferExports, () -> exportDeferred(options));
 
-    try {
-      HospitalExporterR4.export(generator.getRandomizer(), generator.stop);
-    } catch (Exception e) {
-      e.printStackTrace();
-    }
+    tasks.add("fhir_group_r4", true, () -> {
+      try {
+        FhirGroupExporterR4.exportAndSave(generator.getRandomizer(), generator.stop);
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+    }, "deferred");
 
-    try {
-      FhirPractitionerExporterR4.export(generator.getRandomizer(), generator.stop);
-    } catch (Exception e) {
-      e.printStackTrace();
-    }
+    tasks.add("hospitals_r4", true, () -> {
+      try {
+        HospitalExporterR4.export(generator.getRandomizer(), generator.stop);
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+    }, "fhir_group_r4");
 
-    try {
-      HospitalExporterStu3.export(generator.stop);
-    } catch (Exception e) {
-      e.printStackTrace();
-    }
+    tasks.add("practitioners_r4", true, () -> {
+      try {
+        FhirPractitionerExporterR4.export(generator.getRandomizer(), generator.stop);
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+    }, "hospitals_r4");
 
-    try {
-      FhirPractitionerExporterStu3.export(generator.stop);
-    } catch (Exception e) {
-      e.printStackTrace();
-    }
+    tasks.add("hospitals_stu3", true, () -> {
+      try {
+        HospitalExporterStu3.export(generator.stop);
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+    }, "deferred");
 
-    try {
-      HospitalExporterDstu2.export(generator.stop);
-    } catch (Exception e) {
-      e.printStackTrace();
-    }
+    tasks.add("practitioners_stu3", true, () -> {
+      try {
+        FhirPractitionerExporterStu3.export(generator.stop);
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+    }, "deferred");
 
-    try {
-      FhirPractitionerExporterDstu2.export(generator.stop);
-    } catch (Exception e) {
-      e.printStackTrace();
-    }
+    tasks.add("hospitals_dstu2", true, () -> {
+      try {
+        HospitalExporterDstu2.export(generator.stop);
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+    }, "deferred");
 
-    if (Config.getAsBoolean("exporter.bfd.export")) {
+    tasks.add("practitioners_dstu2", true, () -> {
+      try {
+        FhirPractitionerExporterDstu2.export(generator.stop);
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+    }, "deferred");
+
+    tasks.add("bfd", Config.getAsBoolean("exporter.bfd.export"), () -> {
       try {
         BB2RIFExporter exporter = BB2RIFExporter.getInstance();
         exporter.exportNPIs();
@@ -609,70 +737,112 @@ public abstract class Exporter {
       } catch (IOException e) {
         e.printStackTrace();
       }
-    }
+    }, "deferred");
 
-    if (Config.getAsBoolean("exporter.cdw.export")) {
-      CDWExporter.getInstance().writeFactTables();
-    }
+    tasks.add("cdw", Config.getAsBoolean("exporter.cdw.export"),
+        () -> CDWExporter.getInstance().writeFactTables(), "deferred");
 
-    if (Config.getAsBoolean("exporter.csv.export")) {
+    tasks.add("csv", Config.getAsBoolean("exporter.csv.export"), () -> {
       try {
         CSVExporter.getInstance().exportOrganizationsAndProviders();
         CSVExporter.getInstance().exportPayers();
       } catch (IOException e) {
         e.printStackTrace();
       }
-    }
+    }, "deferred");
 
-    if (Config.getAsBoolean("exporter.metadata.export", false)) {
+    // the CSV exporter hands its rows to the Parquet exporter
+    tasks.add("parquet", Config.getAsBoolean("exporter.parquet.export", false), () -> {
       try {
-        MetadataExporter.exportMetadata(generator);
+        ParquetExporter.getInstance().export();
       } catch (IOException e) {
         e.printStackTrace();
       }
-    }
-
-    if (Config.getAsBoolean("generate.track_detailed_transition_metrics", false)) {
-      TransitionMetrics.exportMetrics();
-    }
-
-    if (Config.getAsBoolean("exporter.fhir.bulk_data")) {
-      IParser parser = FhirR4.getContext().newJsonParser();
-      parser.setPrettyPrint(false);
-      Parameters parameters = new Parameters()
-              .addParameter("inputFormat","application/fhir+ndjson");
-      File outDirectory = getOutputFolder("fhir", null);
+    }, "csv");
 
-      File[] files = outDirectory.listFiles(pathname -> pathname.getName().endsWith("ndjson"));
+    tasks.add("metadata", Config.getAsBoolean("exporter.metadata.export", false), () -> {
+      try {
+        MetadataExporter.exportMetadata(generator);
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    }, "deferred");
 
-      String configHostname = Config.get("exporter.fhir.bulk_data.parameter_hostname");
-      String hostname = Strings.isNullOrEmpty(configHostname)
-              ? "http://localhost:8000/" : configHostname;
+    tasks.add("transition_metrics",
+        Config.getAsBoolean("generate.track_detailed_transition_metrics", false),
+        TransitionMetrics::exportMetrics, "deferred");
 
-      for (File file : files) {
-        parameters.addParameter(
-                new Parameters.ParametersParameterComponent().setName("input")
-                        .addPart(new Parameters.ParametersParameterComponent()
-                                .setName("type")
-                                .setValue(new StringType(file.getName().split("\\.")[0])))
-                        .addPart(new Parameters.ParametersParameterComponent()
-                                .setName("url")
-                                .setValue(new StringType(hostname + file.getName()))));
-      }
-      overwriteFile(outDirectory.toPath().resolve("parameters.json"),
-              parser.encodeResourceToString(parameters));
-    }
+    // the bulk data parameters list every R4 NDJSON file
+    tasks.add("fhir_bulk_data", Config.getAsBoolean("exporter.fhir.bulk_data"),
+        Exporter::exportBulkDataParameters, "practitioners_r4");
 
-    if (Config.getAsBoolean("exporter.custom.export", true)
-            && postCompletionExporters != null && !postCompletionExporters.isEmpty()) {
+    // custom exporters may read the output of any of the others, so they run last, in order
+    boolean customExport = Config.getAsBoolean("exporter.custom.export", true)
+        && postCompletionExporters != null && !postCompletionExporters.isEmpty();
+    tasks.add("custom", customExport, () -> {
       for (PostCompletionExporter postCompletionExporter : postCompletionExporters) {
         postCompletionExporter.export(generator, options);
       }
-    }
+    }, "fhir_group_r4", "hospitals_r4", "practitioners_r4", "hospitals_stu3",
+        "practitioners_stu3", "hospitals_dstu2", "practitioners_dstu2", "bfd", "cdw", "csv",
+        "parquet", "metadata", "transition_metrics", "fhir_bulk_data");
+
+    tasks.run();
 
     closeOpenFiles();
   }
 
+  /**
+   * Export the people whose export was deferred until the end of the run. People are exported
+   * one at a time in the order they were deferred, so the rows of each output file, and the
+   * members of the FHIR Group, are in the same order on every run.
+   *
+   * @param options Runtime exporter options
+   */
+  private static void exportDeferred(ExporterRuntimeOptions options) {
+    ExporterRuntimeOptions nonDeferredOptions = new ExporterRuntimeOptions(options);
+    nonDeferredOptions.deferExports = false;
+    List<Pair<Person, Long>> entries;
+    synchronized (deferredExports) {
+      entries = new ArrayList<>(deferredExports);
+      deferredExports.clear();
+    }
+    for (Pair<Person, Long> entry : entries) {
+      export(entry.getLeft(), entry.getRight(), nonDeferredOptions);
+    }
+  }
+
+  /**
+   * Write the FHIR bulk data import parameters, listing every FHIR R4 NDJSON file.
+   */
+  private static void exportBulkDataParameters() {
+    IParser parser = FhirR4.getContext().newJsonParser();
+    parser.setPrettyPrint(false);
+    Parameters parameters = new Parameters()
+            .addParameter("inputFormat","application/fhir+ndjson");
+    File outDirectory = getOutputFolder("fhir", null);
+
+    String extension = "ndjson" + OutputCodec.fromConfig().getExtension();
+    File[] files = outDirectory.listFiles(pathname -> pathname.getName().endsWith(extension));
+
+    String configHostname = Config.get("exporter.fhir.bulk_data.parameter_hostname");
+    String hostname = Strings.isNullOrEmpty(configHostname)
+            ? "http://localhost:8000/" : configHostname;
+
+    for (File file : files) {
+      parameters.addParameter(
+              new Parameters.ParametersParameterComponent().setName("input")
+                      .addPart(new Parameters.ParametersParameterComponent()
+                              .setName("type")
+                              .setValue(new StringType(file.getName().split("\\.")[0])))
+                      .addPart(new Parameters.ParametersParameterComponent()
+                              .setName("url")
+                              .setValue(new StringType(hostname + file.getName()))));
+    }
+    overwriteFile(outDirectory.toPath().resolve("parameters.json"),
+            parser.encodeResourceToString(parameters));
+  }
+
   /**
    * Filter the patient's history to only the last __ years
    * but also include relevant history from before that. Exclude
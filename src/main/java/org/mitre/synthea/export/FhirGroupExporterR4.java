@@ -37,6 +37,14 @@ public abstract class FhirGroupExporterR4 {
     patientList.add(resourceId);
   }
 
+  /**
+   * Get a copy of the patient list.
+   * @return The resource IDs of the patients added so far.
+   */
+  public static synchronized List<String> getPatientList() {
+    return new ArrayList<String>(patientList);
+  }
+
   /**
    * Export the patient list as a FHIR Group resource.
    * @param stop The stop time.
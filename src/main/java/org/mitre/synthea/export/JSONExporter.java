@@ -9,12 +9,23 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
 import com.google.gson.JsonSerializationContext;
 import com.google.gson.JsonSerializer;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.mitre.synthea.engine.State;
 import org.mitre.synthea.helpers.Config;
@@ -28,26 +39,63 @@ import org.mitre.synthea.world.agents.Person;
  */
 public class JSONExporter {
 
+  /** Serializers by configuration. GSON instances are thread safe once created. */
+  private static final Map<String, Gson> serializers = new ConcurrentHashMap<String, Gson>();
+
   /**
    * Export the given Person object into a String full of JSON.
    * @param person to export
    * @return a lot of JSON in a String
    */
   public static String export(Person person) {
-    GsonBuilder builder = new GsonBuilder()
-        .excludeFieldsWithModifiers(Modifier.STATIC, Modifier.TRANSIENT, Modifier.VOLATILE)
-        .addSerializationExclusionStrategy(new SyntheaExclusionStrategy())
-        .registerTypeHierarchyAdapter(State.class, new StateSerializer())
-        .registerTypeHierarchyAdapter(Person.class,
-            new PersonSerializer(!Config.getAsBoolean("exporter.json.include_module_history")))
-        .registerTypeHierarchyAdapter(Payer.class, new ShortPayerSerializer())
-        .registerTypeHierarchyAdapter(Random.class, new RandomSerializer())
-        .registerTypeHierarchyAdapter(LocalDate.class, new LocalDateSerializer());
-    if (Config.getAsBoolean("exporter.pretty_print", true)) {
-      builder.setPrettyPrinting();
+    StringWriter writer = new StringWriter();
+    try {
+      export(person, writer);
+    } catch (IOException e) {
+      // a StringWriter does not throw
+      throw new UncheckedIOException(e);
     }
-    Gson gson = builder.create();
-    return gson.toJson(person);
+    return writer.toString();
+  }
+
+  /**
+   * Export the given Person object as JSON, streaming it to a writer as it is serialized rather
+   * than building the whole document in memory first.
+   * @param person to export
+   * @param writer to write the JSON to. It is flushed, but not closed.
+   * @throws IOException if the JSON cannot be written.
+   */
+  public static void export(Person person, Writer writer) throws IOException {
+    Gson gson = getGson();
+    JsonWriter out = gson.newJsonWriter(writer);
+    gson.getAdapter(Person.class).write(out, person);
+    out.flush();
+  }
+
+  /**
+   * Get the serializer for the current configuration, creating it the first time it is used.
+   */
+  private static Gson getGson() {
+    boolean excludeModuleHistory =
+        !Config.getAsBoolean("exporter.json.include_module_history");
+    int moduleHistoryLimit = Config.getAsInteger("exporter.json.module_history_limit", 0);
+    boolean prettyPrint = Config.getAsBoolean("exporter.pretty_print", true);
+    String key = excludeModuleHistory + ":" + moduleHistoryLimit + ":" + prettyPrint;
+    return serializers.computeIfAbsent(key, k -> {
+      GsonBuilder builder = new GsonBuilder()
+          .excludeFieldsWithModifiers(Modifier.STATIC, Modifier.TRANSIENT, Modifier.VOLATILE)
+          .addSerializationExclusionStrategy(new SyntheaExclusionStrategy())
+          .registerTypeHierarchyAdapter(State.class, new StateSerializer())
+          .registerTypeAdapterFactory(
+              new PersonSerializer(excludeModuleHistory, moduleHistoryLimit))
+          .registerTypeHierarchyAdapter(Payer.class, new ShortPayerSerializer())
+          .registerTypeHierarchyAdapter(Random.class, new RandomSerializer())
+          .registerTypeHierarchyAdapter(LocalDate.class, new LocalDateSerializer());
+      if (prettyPrint) {
+        builder.setPrettyPrinting();
+      }
+      return builder.create();
+    });
   }
 
   /**
@@ -81,44 +129,101 @@ public class JSONExporter {
     }
   }
 
-  public static class PersonSerializer implements JsonSerializer<Person> {
-    private boolean includeModuleHistory;
+  /**
+   * Writes a Person field by field, so that their record is streamed to the output rather than
+   * first built as a tree of JSON elements.
+   */
+  public static class PersonSerializer implements TypeAdapterFactory {
+    private boolean excludeModuleHistory;
+    private int moduleHistoryLimit;
 
-    public PersonSerializer(boolean includeModuleHistory) {
-      this.includeModuleHistory = includeModuleHistory;
+    /**
+     * Create a serializer for Person objects.
+     * @param excludeModuleHistory whether to leave module histories out of the attributes.
+     * @param moduleHistoryLimit the number of most recent states to write of each module
+     *     history, or 0 to write all of them.
+     */
+    public PersonSerializer(boolean excludeModuleHistory, int moduleHistoryLimit) {
+      this.excludeModuleHistory = excludeModuleHistory;
+      this.moduleHistoryLimit = moduleHistoryLimit;
     }
 
+    @SuppressWarnings("unchecked")
     @Override
-    public JsonElement serialize(Person src, Type typeOfSrc, JsonSerializationContext context) {
-      JsonObject personOut = new JsonObject();
-      personOut.add("seed", new JsonPrimitive(src.getSeed()));
-      personOut.add("lastUpdated", new JsonPrimitive(src.lastUpdated));
-      personOut.add("coverage", context.serialize(src.coverage));
-      personOut.add("symptoms", context.serialize(src.getExpressedSymptoms()));
-      JsonObject attributes = new JsonObject();
-      src.attributes.forEach((key, value) -> {
-        boolean keepEntry = true;
-        if (key.startsWith("ehr_") || key.contains("lookup") || key.contains("UUID")) {
-          keepEntry = false;
-        } else if (this.includeModuleHistory && isModuleHistory(value)) {
-          keepEntry = false;
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+      if (!Person.class.isAssignableFrom(type.getRawType())) {
+        return null;
+      }
+      return (TypeAdapter<T>) new TypeAdapter<Person>() {
+        @Override
+        public void write(JsonWriter out, Person src) throws IOException {
+          serialize(gson, out, src);
+        }
+
+        @Override
+        public Person read(JsonReader in) {
+          throw new UnsupportedOperationException("Person JSON is export only");
         }
+      };
+    }
 
-        if (keepEntry) {
-          attributes.add(key, context.serialize(value));
+    private void serialize(Gson gson, JsonWriter out, Person src) throws IOException {
+      if (src == null) {
+        out.nullValue();
+        return;
+      }
+      out.beginObject();
+      out.name("seed").value(src.getSeed());
+      out.name("lastUpdated").value(src.lastUpdated);
+      out.name("coverage");
+      write(gson, out, src.coverage);
+      out.name("symptoms");
+      write(gson, out, src.getExpressedSymptoms());
+      out.name("attributes").beginObject();
+      for (Map.Entry<String, Object> entry : src.attributes.entrySet()) {
+        String key = entry.getKey();
+        Object value = entry.getValue();
+        if (key.startsWith("ehr_") || key.contains("lookup") || key.contains("UUID")) {
+          continue;
+        }
+        if (isModuleHistory(value)) {
+          if (this.excludeModuleHistory) {
+            continue;
+          }
+          List<?> history = (List<?>) value;
+          if (moduleHistoryLimit > 0 && history.size() > moduleHistoryLimit) {
+            value = history.subList(history.size() - moduleHistoryLimit, history.size());
+          }
         }
-      });
-      personOut.add("attributes", attributes);
+        out.name(key);
+        write(gson, out, value);
+      }
+      out.endObject();
       if (src.hasMultipleRecords) {
-        personOut.add("records", context.serialize(src.records));
+        out.name("records");
+        write(gson, out, src.records);
       } else {
-        personOut.add("record", context.serialize(src.record));
+        out.name("record");
+        write(gson, out, src.record);
+      }
+      out.endObject();
+    }
+
+    /**
+     * Write a value with the adapter for its runtime type.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static void write(Gson gson, JsonWriter out, Object value) throws IOException {
+      if (value == null) {
+        out.nullValue();
+        return;
       }
-      return personOut;
+      TypeAdapter adapter = gson.getAdapter(value.getClass());
+      adapter.write(out, value);
     }
 
     private boolean isModuleHistory(Object obj) {
-      if (List.class.isAssignableFrom(obj.getClass())) {
+      if (obj != null && List.class.isAssignableFrom(obj.getClass())) {
         List things = (List) obj;
         return things.stream().allMatch(t -> State.class.isAssignableFrom(t.getClass()));
       }
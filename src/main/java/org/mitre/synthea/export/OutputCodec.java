@@ -0,0 +1,150 @@
+package org.mitre.synthea.export;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import net.jpountz.lz4.LZ4FrameInputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+
+import org.mitre.synthea.helpers.Config;
+
+/**
+ * The compression applied to output files, selected by <code>exporter.compression</code>.
+ *
+ * <p>Compressed files are written as a series of independent gzip members or LZ4 frames, one
+ * per block of output. Both formats allow members or frames to be concatenated, so a compressed
+ * file can be appended to, truncated back to a block boundary when a run is resumed, and
+ * concatenated with the same file from another shard, and still be read by standard tools
+ * such as <code>zcat</code> and <code>lz4 -dc</code>.</p>
+ */
+public enum OutputCodec {
+  NONE(""),
+  GZIP(".gz"),
+  LZ4(".lz4");
+
+  private final String extension;
+
+  OutputCodec(String extension) {
+    this.extension = extension;
+  }
+
+  /**
+   * Get the codec selected by <code>exporter.compression</code>.
+   * @return the configured codec, NONE if compression is not enabled.
+   */
+  public static OutputCodec fromConfig() {
+    String name = Config.get("exporter.compression", "none").trim();
+    if (name.isEmpty()) {
+      return NONE;
+    }
+    try {
+      return valueOf(name.toUpperCase());
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException(String.format(
+          "Unknown exporter.compression: %s, must be one of none, gzip or lz4", name), e);
+    }
+  }
+
+  /**
+   * Get the codec that a file was written with, from its extension.
+   * @param file the file.
+   * @return the codec, NONE if the file is not compressed.
+   */
+  public static OutputCodec forFile(Path file) {
+    String name = file.getFileName().toString();
+    for (OutputCodec codec : values()) {
+      if (codec != NONE && name.endsWith(codec.extension)) {
+        return codec;
+      }
+    }
+    return NONE;
+  }
+
+  /**
+   * Get the file extension of this codec, including the leading '.'.
+   * @return the extension, or an empty string for NONE.
+   */
+  public String getExtension() {
+    return extension;
+  }
+
+  /**
+   * Get the path that the output for the given file is written to with this codec.
+   * @param file the uncompressed file name.
+   * @return the file name with this codec's extension.
+   */
+  public Path resolve(Path file) {
+    return this == NONE ? file : file.resolveSibling(file.getFileName() + extension);
+  }
+
+  /**
+   * Remove this codec's extension from a file name.
+   * @param name the file name.
+   * @return the name of the uncompressed file.
+   */
+  public String strip(String name) {
+    return name.substring(0, name.length() - extension.length());
+  }
+
+  /**
+   * Compress everything written to the returned stream into the given stream. Blocks are
+   * compressed by a pool of background threads. Closing the returned stream closes the
+   * given one.
+   * @param out the stream to write compressed output to.
+   * @return a stream to write uncompressed output to.
+   */
+  public OutputStream wrap(OutputStream out) {
+    return this == NONE ? out : new CompressingOutputStream(out, this);
+  }
+
+  /**
+   * Decompress everything read from the given stream, including every concatenated member
+   * or frame.
+   * @param in the stream to read compressed input from.
+   * @return a stream to read uncompressed input from.
+   * @throws IOException if the stream does not start with a valid header.
+   */
+  public InputStream unwrap(InputStream in) throws IOException {
+    switch (this) {
+      case GZIP:
+        return new GZIPInputStream(in, 64 * 1024);
+      case LZ4:
+        return new LZ4FrameInputStream(in);
+      default:
+        return in;
+    }
+  }
+
+  /**
+   * Compress a block of output as a single gzip member or LZ4 frame.
+   * @param data the uncompressed data.
+   * @param length the number of bytes of data to compress.
+   * @return the compressed member or frame.
+   * @throws IOException if the data cannot be compressed.
+   */
+  byte[] compress(byte[] data, int length) throws IOException {
+    if (this == NONE) {
+      return Arrays.copyOf(data, length);
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(length / 4 + 64);
+    OutputStream out;
+    if (this == GZIP) {
+      out = new GZIPOutputStream(bytes, 64 * 1024);
+    } else {
+      out = new LZ4FrameOutputStream(bytes, LZ4FrameOutputStream.BLOCKSIZE.SIZE_1MB,
+          LZ4FrameOutputStream.FLG.Bits.BLOCK_INDEPENDENCE);
+    }
+    try {
+      out.write(data, 0, length);
+    } finally {
+      out.close();
+    }
+    return bytes.toByteArray();
+  }
+}
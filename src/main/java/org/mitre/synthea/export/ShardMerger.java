@@ -0,0 +1,507 @@
+package org.mitre.synthea.export;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.mitre.synthea.helpers.Config;
+import org.mitre.synthea.helpers.SimpleCSV;
+
+/**
+ * Merges the output directories written by the worker processes of a sharded run into a single
+ * output directory. Shards are always combined in shard order, so the merged output of a given
+ * set of shards is deterministic.
+ *
+ * <ul>
+ * <li>Files that only one shard wrote (e.g. per-patient records) are moved as-is.</li>
+ * <li>Line oriented files (CSV, TSV and NDJSON) are concatenated, keeping a single header.</li>
+ * <li>Aggregate files written after generation (organizations, providers and payers CSVs,
+ * FHIR hospital, practitioner and group resources, and the BB2 NPI and manifest files) are
+ * combined so that utilization counts and amounts cover every shard.</li>
+ * </ul>
+ *
+ * <p>The merged output holds the same patients as a single-process run, but it is not
+ * byte-identical to one, since rows are kept in shard order and summed aggregates are
+ * recomputed.</p>
+ */
+public final class ShardMerger {
+  private static final String UTILIZATION_EXTENSION = "utilization";
+
+  /** CSV files keyed by Id, whose numeric columns are summed across shards. */
+  private static final Map<String, Set<String>> SUMMED_CSV_COLUMNS = new LinkedHashMap<>();
+  /** Files whose rows are identical between shards when present in more than one. */
+  private static final Set<String> DISTINCT_ROW_FILES = new HashSet<>(
+      Arrays.asList("npi.tsv", "missing_codes.csv"));
+
+  private static final Pattern FHIR_BUNDLE = Pattern.compile(
+      "(hospitalInformation|practitionerInformation)\\d+\\.json");
+  private static final Pattern FHIR_AGGREGATE_NDJSON = Pattern.compile(
+      "(Organization|Location|Practitioner|PractitionerRole)\\.\\d+\\.ndjson");
+  private static final Pattern FHIR_GROUP = Pattern.compile(
+      "groupInformation\\d+\\.json|Group\\.ndjson");
+
+  static {
+    SUMMED_CSV_COLUMNS.put("organizations.csv",
+        new HashSet<>(Arrays.asList("REVENUE", "UTILIZATION")));
+    SUMMED_CSV_COLUMNS.put("providers.csv",
+        new HashSet<>(Arrays.asList("ENCOUNTERS", "PROCEDURES")));
+    SUMMED_CSV_COLUMNS.put("payers.csv",
+        new HashSet<>(Arrays.asList("AMOUNT_COVERED", "AMOUNT_UNCOVERED", "REVENUE",
+            "COVERED_ENCOUNTERS", "UNCOVERED_ENCOUNTERS", "COVERED_MEDICATIONS",
+            "UNCOVERED_MEDICATIONS", "COVERED_PROCEDURES", "UNCOVERED_PROCEDURES",
+            "COVERED_IMMUNIZATIONS", "UNCOVERED_IMMUNIZATIONS", "UNIQUE_CUSTOMERS",
+            "MEMBER_MONTHS")));
+  }
+
+  private ShardMerger() {
+    // utility class
+  }
+
+  /**
+   * Merge the given shard output directories into the target directory. Files are moved out of
+   * the shard directories, which are left empty.
+   * @param shards the shard output directories, in shard order.
+   * @param target the directory to write the merged output to.
+   * @throws IOException if any file cannot be read or written.
+   */
+  public static void merge(List<Path> shards, Path target) throws IOException {
+    // relative path -> files from each shard that wrote it, in shard order
+    Map<Path, List<Path>> files = new TreeMap<>();
+    for (Path shard : shards) {
+      if (!Files.isDirectory(shard)) {
+        continue;
+      }
+      try (Stream<Path> walk = Files.walk(shard)) {
+        for (Path file : walk.filter(Files::isRegularFile).collect(Collectors.toList())) {
+          files.computeIfAbsent(shard.relativize(file), k -> new ArrayList<>()).add(file);
+        }
+      }
+    }
+
+    for (Map.Entry<Path, List<Path>> entry : files.entrySet()) {
+      Path destination = target.resolve(entry.getKey().toString());
+      Files.createDirectories(destination.getParent());
+      List<Path> sources = entry.getValue();
+      if (sources.size() == 1) {
+        Files.move(sources.get(0), destination, StandardCopyOption.REPLACE_EXISTING);
+        continue;
+      }
+      // compressed files are merged by the name of the file they hold
+      String name = entry.getKey().getFileName().toString();
+      name = OutputCodec.forFile(entry.getKey()).strip(name);
+      if (SUMMED_CSV_COLUMNS.containsKey(name)) {
+        sumCsv(sources, destination, SUMMED_CSV_COLUMNS.get(name));
+      } else if (DISTINCT_ROW_FILES.contains(name)) {
+        distinctRows(sources, destination);
+      } else if (name.equals("manifest.xml")) {
+        mergeManifest(sources, destination);
+      } else if (FHIR_GROUP.matcher(name).matches()) {
+        mergeGroups(sources, destination, name.endsWith(".ndjson"));
+      } else if (FHIR_BUNDLE.matcher(name).matches()) {
+        mergeBundles(sources, destination);
+      } else if (FHIR_AGGREGATE_NDJSON.matcher(name).matches()) {
+        mergeResources(sources, destination);
+      } else if (name.endsWith(".csv") || name.endsWith(".tsv")) {
+        concatenate(sources, destination, true);
+      } else if (name.endsWith(".ndjson")) {
+        concatenate(sources, destination, false);
+      } else {
+        keepFirst(sources, destination);
+      }
+      for (Path source : sources) {
+        Files.deleteIfExists(source);
+      }
+    }
+  }
+
+  /**
+   * Concatenate files in order, optionally keeping only the first file's header line.
+   */
+  private static void concatenate(List<Path> sources, Path destination, boolean hasHeader)
+      throws IOException {
+    byte[] header = null;
+    try (OutputStream out = create(destination)) {
+      for (Path source : sources) {
+        try (InputStream in = open(source)) {
+          if (hasHeader) {
+            byte[] line = readLine(in);
+            if (header == null) {
+              header = line;
+              out.write(line);
+            } else if (!Arrays.equals(header, line)) {
+              throw new IOException("Header of " + source + " does not match other shards");
+            }
+          }
+          byte[] buffer = new byte[64 * 1024];
+          int read;
+          while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Read a line, including its terminator, one byte at a time so that the stream is left
+   * positioned at the start of the next line.
+   */
+  private static byte[] readLine(InputStream in) throws IOException {
+    ByteArrayOutputStream line = new ByteArrayOutputStream();
+    int b;
+    while ((b = in.read()) != -1) {
+      line.write(b);
+      if (b == '\n') {
+        break;
+      }
+    }
+    return line.toByteArray();
+  }
+
+  /**
+   * Merge CSV files keyed by their first column, summing the given columns. Rows are written
+   * in the order they first appear. A QOLS_AVG column is recombined as an average weighted by
+   * MEMBER_MONTHS. Values are parsed with {@link SimpleCSV}, so quoted values may hold commas.
+   */
+  private static void sumCsv(List<Path> sources, Path destination, Set<String> summed)
+      throws IOException {
+    String header = null;
+    List<String> columns = null;
+    Map<String, Map<String, String>> rows = new LinkedHashMap<>();
+    Map<String, Double> totalQols = new LinkedHashMap<>();
+    for (Path source : sources) {
+      List<String> lines = readAllLines(source);
+      if (lines.isEmpty()) {
+        continue;
+      }
+      if (header == null) {
+        header = lines.get(0);
+      }
+      for (Map<String, String> values : SimpleCSV.parse(String.join("\n", lines))) {
+        if (columns == null) {
+          columns = new ArrayList<>(values.keySet());
+        }
+        String id = values.get(columns.get(0));
+        if (values.containsKey("QOLS_AVG") && values.containsKey("MEMBER_MONTHS")) {
+          double years = Double.parseDouble(values.get("MEMBER_MONTHS")) / 12.0;
+          if (years > 0) {
+            totalQols.merge(id, Double.parseDouble(values.get("QOLS_AVG")) * years, Double::sum);
+          }
+        }
+        Map<String, String> existing = rows.putIfAbsent(id, values);
+        if (existing != null) {
+          for (String column : summed) {
+            if (existing.containsKey(column) && values.containsKey(column)) {
+              existing.put(column, add(existing.get(column), values.get(column)));
+            }
+          }
+        }
+      }
+    }
+    if (header == null) {
+      create(destination).close();
+      return;
+    }
+    try (BufferedWriter writer = newWriter(destination)) {
+      writer.write(header);
+      writer.write(System.lineSeparator());
+      for (Map<String, String> row : rows.values()) {
+        if (row.containsKey("QOLS_AVG") && row.containsKey("MEMBER_MONTHS")) {
+          double years = Double.parseDouble(row.get("MEMBER_MONTHS")) / 12.0;
+          row.put("QOLS_AVG",
+              Double.toString(totalQols.getOrDefault(row.get(columns.get(0)), 0.0) / years));
+        }
+        List<String> values = new ArrayList<>(columns.size());
+        for (String column : columns) {
+          values.add(row.getOrDefault(column, ""));
+        }
+        writeCsvLine(writer, values);
+      }
+    }
+  }
+
+  /**
+   * Write a CSV line, quoting only the values that need it so that rows read back the same as
+   * the unmerged files.
+   */
+  private static void writeCsvLine(BufferedWriter writer, List<String> values)
+      throws IOException {
+    for (int i = 0; i < values.size(); i++) {
+      if (i > 0) {
+        writer.write(',');
+      }
+      String value = values.get(i);
+      if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0
+          || value.indexOf('\r') >= 0) {
+        writer.write('"' + value.replace("\"", "\"\"") + '"');
+      } else {
+        writer.write(value);
+      }
+    }
+    writer.write(System.lineSeparator());
+  }
+
+  private static String add(String left, String right) {
+    if (left.isEmpty()) {
+      return right;
+    } else if (right.isEmpty()) {
+      return left;
+    } else if (left.contains(".") || right.contains(".")) {
+      return new BigDecimal(left).add(new BigDecimal(right)).toPlainString();
+    }
+    return Long.toString(Long.parseLong(left) + Long.parseLong(right));
+  }
+
+  /**
+   * Write the distinct lines of the given files, in the order they first appear.
+   */
+  private static void distinctRows(List<Path> sources, Path destination) throws IOException {
+    Set<String> lines = new LinkedHashSet<>();
+    for (Path source : sources) {
+      lines.addAll(readAllLines(source));
+    }
+    try (BufferedWriter writer = newWriter(destination)) {
+      for (String line : lines) {
+        writer.write(line);
+        writer.write(System.lineSeparator());
+      }
+    }
+  }
+
+  /**
+   * Merge BB2 manifests, listing every distinct entry once.
+   */
+  private static void mergeManifest(List<Path> sources, Path destination) throws IOException {
+    List<String> first = Files.readAllLines(sources.get(0), StandardCharsets.UTF_8);
+    Set<String> entries = new LinkedHashSet<>();
+    for (Path source : sources) {
+      for (String line : Files.readAllLines(source, StandardCharsets.UTF_8)) {
+        if (line.trim().startsWith("<entry ")) {
+          entries.add(line);
+        }
+      }
+    }
+    List<String> merged = new ArrayList<>();
+    boolean written = false;
+    for (String line : first) {
+      if (line.trim().startsWith("<entry ")) {
+        if (!written) {
+          merged.addAll(entries);
+          written = true;
+        }
+      } else if (line.startsWith("</dataSetManifest>") && !written) {
+        merged.addAll(entries);
+        merged.add(line);
+        written = true;
+      } else {
+        merged.add(line);
+      }
+    }
+    Files.write(destination, String.join("\n", merged).getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Merge FHIR Group resources by combining their members. Every shard draws the same group
+   * identifier from the shared population seed, so the first shard's group is kept.
+   */
+  private static void mergeGroups(List<Path> sources, Path destination, boolean ndjson)
+      throws IOException {
+    JsonObject group = null;
+    JsonArray members = new JsonArray();
+    for (Path source : sources) {
+      JsonObject shardGroup = JsonParser.parseString(
+          String.join("\n", readAllLines(source))).getAsJsonObject();
+      if (group == null) {
+        group = shardGroup;
+      }
+      if (shardGroup.has("member")) {
+        members.addAll(shardGroup.getAsJsonArray("member"));
+      }
+    }
+    group.add("member", members);
+    group.addProperty("quantity", members.size());
+    writeJson(destination, group, ndjson);
+  }
+
+  /**
+   * Merge FHIR bundles of organizations, locations and practitioners, keeping each distinct
+   * entry once and summing its utilization extensions.
+   */
+  private static void mergeBundles(List<Path> sources, Path destination) throws IOException {
+    JsonObject bundle = null;
+    Map<String, JsonObject> entries = new LinkedHashMap<>();
+    for (Path source : sources) {
+      JsonObject shardBundle = JsonParser.parseString(
+          new String(Files.readAllBytes(source), StandardCharsets.UTF_8)).getAsJsonObject();
+      if (bundle == null) {
+        bundle = shardBundle;
+      }
+      if (shardBundle.has("entry")) {
+        for (JsonElement element : shardBundle.getAsJsonArray("entry")) {
+          JsonObject entry = element.getAsJsonObject();
+          String key = entry.has("fullUrl") ? entry.get("fullUrl").getAsString()
+              : resourceKey(entry.getAsJsonObject("resource"));
+          JsonObject existing = entries.putIfAbsent(key, entry);
+          if (existing != null) {
+            addUtilization(existing.getAsJsonObject("resource"),
+                entry.getAsJsonObject("resource"));
+          }
+        }
+      }
+    }
+    JsonArray merged = new JsonArray();
+    entries.values().forEach(merged::add);
+    bundle.add("entry", merged);
+    writeJson(destination, bundle, false);
+  }
+
+  /**
+   * Merge NDJSON files of organizations, locations and practitioners, keeping each distinct
+   * resource once and summing its utilization extensions.
+   */
+  private static void mergeResources(List<Path> sources, Path destination) throws IOException {
+    Map<String, JsonObject> resources = new LinkedHashMap<>();
+    for (Path source : sources) {
+      try (BufferedReader reader = newReader(source)) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          if (line.isEmpty()) {
+            continue;
+          }
+          JsonObject resource = JsonParser.parseString(line).getAsJsonObject();
+          JsonObject existing = resources.putIfAbsent(resourceKey(resource), resource);
+          if (existing != null) {
+            addUtilization(existing, resource);
+          }
+        }
+      }
+    }
+    Gson gson = new Gson();
+    try (BufferedWriter writer = newWriter(destination)) {
+      for (JsonObject resource : resources.values()) {
+        writer.write(gson.toJson(resource));
+        writer.write(System.lineSeparator());
+      }
+    }
+  }
+
+  private static String resourceKey(JsonObject resource) {
+    return resource.get("resourceType").getAsString() + "/" + resource.get("id").getAsString();
+  }
+
+  /**
+   * Add the integer utilization extensions of one resource to those of another.
+   */
+  private static void addUtilization(JsonObject into, JsonObject from) {
+    if (!from.has("extension")) {
+      return;
+    }
+    if (!into.has("extension")) {
+      into.add("extension", new JsonArray());
+    }
+    JsonArray intoExtensions = into.getAsJsonArray("extension");
+    for (JsonElement element : from.getAsJsonArray("extension")) {
+      JsonObject extension = element.getAsJsonObject();
+      String url = extension.get("url").getAsString();
+      if (!url.contains(UTILIZATION_EXTENSION) || !extension.has("valueInteger")) {
+        continue;
+      }
+      JsonObject match = null;
+      for (JsonElement candidate : intoExtensions) {
+        if (url.equals(candidate.getAsJsonObject().get("url").getAsString())) {
+          match = candidate.getAsJsonObject();
+          break;
+        }
+      }
+      if (match == null) {
+        intoExtensions.add(extension);
+      } else {
+        match.addProperty("valueInteger", match.get("valueInteger").getAsLong()
+            + extension.get("valueInteger").getAsLong());
+      }
+    }
+  }
+
+  private static void writeJson(Path destination, JsonObject json, boolean ndjson)
+      throws IOException {
+    Gson gson = ndjson || !Config.getAsBoolean("exporter.pretty_print", true)
+        ? new Gson() : new GsonBuilder().setPrettyPrinting().create();
+    try (BufferedWriter writer = newWriter(destination)) {
+      writer.write(gson.toJson(json));
+      writer.write(System.lineSeparator());
+    }
+  }
+
+  /**
+   * Open a file for reading, decompressing it if it was written with an {@link OutputCodec}.
+   */
+  private static InputStream open(Path file) throws IOException {
+    return OutputCodec.forFile(file).unwrap(Files.newInputStream(file));
+  }
+
+  /**
+   * Create a file, compressing it with the {@link OutputCodec} its name was written with.
+   */
+  private static OutputStream create(Path file) throws IOException {
+    return OutputCodec.forFile(file).wrap(Files.newOutputStream(file));
+  }
+
+  private static BufferedReader newReader(Path file) throws IOException {
+    return new BufferedReader(new InputStreamReader(open(file), StandardCharsets.UTF_8));
+  }
+
+  private static BufferedWriter newWriter(Path file) throws IOException {
+    return new BufferedWriter(new OutputStreamWriter(create(file), StandardCharsets.UTF_8));
+  }
+
+  private static List<String> readAllLines(Path file) throws IOException {
+    try (BufferedReader reader = newReader(file)) {
+      return reader.lines().collect(Collectors.toList());
+    }
+  }
+
+  /**
+   * Keep the first shard's copy of a file that cannot be merged. Files that are identical in
+   * every shard, such as configuration metadata, are expected here.
+   */
+  private static void keepFirst(List<Path> sources, Path destination) throws IOException {
+    byte[] first = Files.readAllBytes(sources.get(0));
+    for (Path source : sources.subList(1, sources.size())) {
+      if (!Arrays.equals(first, Files.readAllBytes(source))) {
+        System.out.println("Warning: unable to merge " + source.getFileName()
+            + " from all shards, keeping the copy from the first shard.");
+        break;
+      }
+    }
+    Files.write(destination, first);
+  }
+}
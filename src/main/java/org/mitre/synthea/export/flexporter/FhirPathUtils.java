@@ -1,24 +1,59 @@
 package org.mitre.synthea.export.flexporter;
 
+import ca.uhn.fhir.fhirpath.FhirPathExecutionException;
+
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import org.apache.commons.exec.util.StringUtils;
-import org.hl7.fhir.r4.hapi.fluentpath.FhirPathR4;
+import org.hl7.fhir.exceptions.FHIRException;
+import org.hl7.fhir.r4.hapi.ctx.HapiWorkerContext;
 import org.hl7.fhir.r4.model.Base;
 import org.hl7.fhir.r4.model.BooleanType;
 import org.hl7.fhir.r4.model.Bundle;
 import org.hl7.fhir.r4.model.Bundle.BundleEntryComponent;
+import org.hl7.fhir.r4.model.ExpressionNode;
 import org.hl7.fhir.r4.model.Resource;
 import org.hl7.fhir.r4.model.StringType;
+import org.hl7.fhir.r4.utils.FHIRPathEngine;
 import org.mitre.synthea.export.FhirR4;
 
 
 public abstract class FhirPathUtils {
 
-  private static final FhirPathR4 FHIRPATH = new FhirPathR4(FhirR4.getContext());
+  /**
+   * The engine behind HAPI's FhirPathR4, used directly so that expressions can be parsed once
+   * and evaluated many times.
+   */
+  private static final FHIRPathEngine FHIRPATH = new FHIRPathEngine(
+      new HapiWorkerContext(FhirR4.getContext(), FhirR4.getContext().getValidationSupport()));
+
+  /** Parsed expressions by FHIRPath string. Mappings only use a small set of expressions. */
+  private static final Map<String, ExpressionNode> PARSED =
+      new ConcurrentHashMap<String, ExpressionNode>();
+
+  /**
+   * Parse a FHIRPath string, or get the result of parsing it before.
+   *
+   * @param fhirpath FHIRPath string
+   * @return the parsed expression
+   * @throws FhirPathExecutionException if the string is not valid FHIRPath
+   */
+  static ExpressionNode parse(String fhirpath) {
+    ExpressionNode expression = PARSED.get(fhirpath);
+    if (expression == null) {
+      try {
+        expression = FHIRPATH.parse(fhirpath);
+      } catch (FHIRException e) {
+        throw new FhirPathExecutionException(e);
+      }
+      PARSED.putIfAbsent(fhirpath, expression);
+    }
+    return expression;
+  }
 
   /**
    * Execute the given FHIRPath against the given resource and return the results.
@@ -28,7 +63,12 @@ public abstract class FhirPathUtils {
    * @return Raw values from FHIRPath engine evaluating the string
    */
   public static List<Base> evaluateResource(Resource resource, String fhirpath) {
-    return FHIRPATH.evaluate(resource, fhirpath, Base.class);
+    ExpressionNode expression = parse(fhirpath);
+    try {
+      return FHIRPATH.evaluate(resource, expression);
+    } catch (FHIRException e) {
+      throw new FhirPathExecutionException(e);
+    }
   }
 
   /**
@@ -92,6 +132,18 @@ public abstract class FhirPathUtils {
    */
   public static List<Base> evaluateBundle(Bundle bundle, String fhirpath,
       Map<String, Object> variables, boolean returnResources) {
+    return evaluateBundle(bundle, substituteVariables(fhirpath, variables), returnResources);
+  }
+
+  /**
+   * Replace references to variables in a FHIRPath string with their values. Lists of values
+   * become a union of quoted strings.
+   *
+   * @param fhirpath FHIRPath string, referring to variables as %name
+   * @param variables FHIRPath variables to inject, may be null
+   * @return the FHIRPath string with the variables replaced
+   */
+  static String substituteVariables(String fhirpath, Map<String, Object> variables) {
 
     if (variables != null) {
       for (Map.Entry<String, Object> entry : variables.entrySet()) {
@@ -129,7 +181,7 @@ public abstract class FhirPathUtils {
       }
     }
 
-    return evaluateBundle(bundle, fhirpath, returnResources);
+    return fhirpath;
   }
 
 
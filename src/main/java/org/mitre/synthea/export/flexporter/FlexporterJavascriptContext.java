@@ -2,14 +2,32 @@ package org.mitre.synthea.export.flexporter;
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang3.StringUtils;
 import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Engine;
 import org.graalvm.polyglot.Source;
 import org.graalvm.polyglot.Value;
 
+/**
+ * A JavaScript context for running Flexporter scripts against a Bundle.
+ *
+ * <p>All contexts share one GraalJS engine, and scripts are parsed into sources once and cached,
+ * so code that has been run in one context does not need to be parsed and compiled again in
+ * another. Each context still has its own globals, so a new context should be used for each
+ * patient: scripts may declare top-level constants, which cannot be declared twice in the same
+ * context. Contexts are not thread safe.</p>
+ */
 public class FlexporterJavascriptContext {
+  private static final Engine ENGINE = Engine.newBuilder().build();
+  private static final Map<String, Source> SOURCES = new ConcurrentHashMap<String, Source>();
+  private static final Map<String, Source> LIBRARIES = new ConcurrentHashMap<String, Source>();
+
   private final Context jsContext;
+  private final Value parseFn;
+  private final Value stringifyFn;
 
   private Value workingBundleAsJSObject;
 
@@ -17,7 +35,9 @@ public class FlexporterJavascriptContext {
    * Default constructor for a Javascript Context.
    */
   public FlexporterJavascriptContext() {
-    jsContext = Context.create("js");
+    jsContext = Context.newBuilder("js").engine(ENGINE).build();
+    parseFn = jsContext.eval(source("(bundleString) => JSON.parse(bundleString)"));
+    stringifyFn = jsContext.eval(source("(bundle) => JSON.stringify(bundle)"));
     // TODO: if we want to add custom libraries like fhirpath or fhir-mapper, do it here
     // try {
 
@@ -35,6 +55,10 @@ public class FlexporterJavascriptContext {
     // }
   }
 
+  private static Source source(String code) {
+    return SOURCES.computeIfAbsent(code, c -> Source.create("js", c));
+  }
+
   /**
    * Load the JS file referenced by the given file path into the JS context.
    * Globals registered in the given file will be accessible to other loaded functions.
@@ -42,9 +66,13 @@ public class FlexporterJavascriptContext {
    * @throws IOException if the file doesn't exist, can't be read, or can't be parsed as JS
    */
   public void loadFile(String filename) throws IOException {
-    URL url = FlexporterJavascriptContext.class.getClassLoader().getResource("./lib/" + filename);
-
-    jsContext.eval(Source.newBuilder("js", url).build());
+    Source source = LIBRARIES.get(filename);
+    if (source == null) {
+      URL url = FlexporterJavascriptContext.class.getClassLoader().getResource("./lib/" + filename);
+      source = Source.newBuilder("js", url).build();
+      LIBRARIES.putIfAbsent(filename, source);
+    }
+    jsContext.eval(source);
   }
 
   /**
@@ -52,7 +80,7 @@ public class FlexporterJavascriptContext {
    * @param functionDef JavaScript code
    */
   public void loadFunction(String functionDef) {
-    jsContext.eval("js", functionDef);
+    jsContext.eval(source(functionDef));
   }
 
   /**
@@ -63,9 +91,6 @@ public class FlexporterJavascriptContext {
    */
   public void loadBundle(String bundleAsString) {
     // workingBundleAsJSObject = JSON.parse(bundleAsString)
-
-    Value parseFn = jsContext.eval("js","(bundleString) => JSON.parse(bundleString)");
-
     workingBundleAsJSObject = parseFn.execute(bundleAsString);
   }
 
@@ -74,9 +99,6 @@ public class FlexporterJavascriptContext {
    */
   public String getBundle() {
     // return JSON.stringify(workingBundleAsJSObject)
-
-    Value stringifyFn = jsContext.eval("js","(bundle) => JSON.stringify(bundle)");
-
     String bundleString = stringifyFn.execute(workingBundleAsJSObject).asString();
 
     return bundleString;
@@ -7,6 +7,7 @@ import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 
+import org.hl7.fhir.r4.model.Bundle;
 import org.yaml.snakeyaml.Yaml;
 import org.yaml.snakeyaml.constructor.Constructor;
 
@@ -22,6 +23,9 @@ public class Mapping {
    */
   public List<Map<String, Object>> actions;
 
+  /** The applicability FHIRPath with the variables substituted, once it has been used. */
+  private String resolvedApplicability;
+
   /**
    * Read the provided file into a Mapping.
    * @param mappingFile Source file to read content from
@@ -34,4 +38,19 @@ public class Mapping {
 
     return yaml.loadAs(selectorInputSteam, Mapping.class);
   }
+
+  /**
+   * Whether this mapping applies to the given Bundle. The variables are substituted into the
+   * applicability FHIRPath the first time, and the parsed expression is reused after that.
+   * @param bundle FHIR bundle to check
+   * @return true if the applicability FHIRPath is truthy for the Bundle
+   */
+  public boolean appliesTo(Bundle bundle) {
+    String fhirpath = resolvedApplicability;
+    if (fhirpath == null) {
+      fhirpath = FhirPathUtils.substituteVariables(applicability, variables);
+      resolvedApplicability = fhirpath;
+    }
+    return FhirPathUtils.appliesToBundle(bundle, fhirpath);
+  }
 }
@@ -0,0 +1,495 @@
+package org.mitre.synthea.export.parquet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import org.mitre.synthea.export.CSVTable.Column;
+import org.mitre.synthea.export.CSVTable.ColumnType;
+import org.mitre.synthea.world.concepts.Cents;
+
+/**
+ * Buffers the values of one column for a row group and writes them as a Parquet column chunk:
+ * a dictionary page for CODE columns, followed by a single data page. Every column is
+ * OPTIONAL, so the data page starts with the definition level of each row, 0 for a null value
+ * and 1 otherwise, and only the values that are present follow.
+ */
+final class ColumnWriter {
+  // physical types
+  static final int INT32 = 1;
+  static final int INT64 = 2;
+  static final int DOUBLE = 5;
+  static final int BYTE_ARRAY = 6;
+
+  // converted types
+  static final int UTF8 = 0;
+  static final int DECIMAL = 5;
+  static final int DATE = 6;
+  static final int TIMESTAMP_MILLIS = 9;
+
+  // encodings
+  static final int PLAIN = 0;
+  static final int PLAIN_DICTIONARY = 2;
+  static final int RLE = 3;
+
+  // page types
+  private static final int DATA_PAGE = 0;
+  private static final int DICTIONARY_PAGE = 2;
+
+  // compression codecs
+  static final int UNCOMPRESSED = 0;
+  static final int GZIP = 2;
+
+  /** Columns with more distinct values than this are written without a dictionary. */
+  private static final int MAX_DICTIONARY_ENTRIES = 1 << 16;
+  private static final int MAX_DICTIONARY_BYTES = 1 << 20;
+
+  private static final ZoneId ZONE = ZoneId.systemDefault();
+
+  final Column column;
+  final int physicalType;
+  private final boolean dictionary;
+  private final int codec;
+
+  private byte[] levels = new byte[1024];
+  private long[] longs;
+  private double[] doubles;
+  private String[] strings;
+  private int rows = 0;
+  private int count = 0;
+
+  /**
+   * The metadata of a column chunk that has been written, with offsets relative to the
+   * start of the stream it was written to.
+   */
+  static final class Chunk {
+    final ColumnWriter column;
+    final int[] encodings;
+    final int codec;
+    final long numValues;
+    final long uncompressedSize;
+    final long compressedSize;
+    final long dataPageOffset;
+    final long dictionaryPageOffset;
+
+    private Chunk(ColumnWriter column, int[] encodings, int codec, long numValues,
+        long uncompressedSize, long compressedSize, long dataPageOffset,
+        long dictionaryPageOffset) {
+      this.column = column;
+      this.encodings = encodings;
+      this.codec = codec;
+      this.numValues = numValues;
+      this.uncompressedSize = uncompressedSize;
+      this.compressedSize = compressedSize;
+      this.dataPageOffset = dataPageOffset;
+      this.dictionaryPageOffset = dictionaryPageOffset;
+    }
+
+    /**
+     * Get the same chunk, moved to a later position in a file.
+     */
+    Chunk shift(long offset) {
+      return new Chunk(column, encodings, codec, numValues, uncompressedSize, compressedSize,
+          dataPageOffset + offset,
+          dictionaryPageOffset < 0 ? -1 : dictionaryPageOffset + offset);
+    }
+
+    /**
+     * Get the offset of the first page of this chunk.
+     */
+    long getFileOffset() {
+      return dictionaryPageOffset < 0 ? dataPageOffset : dictionaryPageOffset;
+    }
+
+    /**
+     * Write the ColumnChunk struct of this chunk, as an element of a list.
+     */
+    void write(ThriftCompactWriter thrift) {
+      thrift.beginStructElement()
+          .i64(2, getFileOffset())
+          .beginStruct(3)
+          .i32(1, column.physicalType)
+          .list(2, ThriftCompactWriter.TYPE_I32, encodings.length);
+      for (int encoding : encodings) {
+        thrift.i32Element(encoding);
+      }
+      thrift.list(3, ThriftCompactWriter.TYPE_BINARY, 1)
+          .stringElement(column.column.name)
+          .i32(4, codec)
+          .i64(5, numValues)
+          .i64(6, uncompressedSize)
+          .i64(7, compressedSize)
+          .i64(9, dataPageOffset);
+      if (dictionaryPageOffset >= 0) {
+        thrift.i64(11, dictionaryPageOffset);
+      }
+      thrift.endStruct().endStruct();
+    }
+  }
+
+  /**
+   * Create a writer for a column.
+   * @param column the column.
+   * @param gzip whether to compress pages with gzip.
+   */
+  ColumnWriter(Column column, boolean gzip) {
+    this.column = column;
+    this.codec = gzip ? GZIP : UNCOMPRESSED;
+    this.physicalType = physicalType(column.type);
+    switch (physicalType) {
+      case BYTE_ARRAY:
+        strings = new String[1024];
+        break;
+      case DOUBLE:
+        doubles = new double[1024];
+        break;
+      default:
+        longs = new long[1024];
+        break;
+    }
+    this.dictionary = column.type == ColumnType.CODE;
+  }
+
+  private static int physicalType(ColumnType type) {
+    switch (type) {
+      case TEXT:
+      case CODE:
+        return BYTE_ARRAY;
+      case NUMBER:
+        return DOUBLE;
+      case DATE:
+        return INT32;
+      default:
+        return INT64;
+    }
+  }
+
+  /**
+   * Write the SchemaElement of a column, as an element of a list.
+   */
+  static void writeSchema(ThriftCompactWriter thrift, Column column) {
+    thrift.beginStructElement()
+        .i32(1, physicalType(column.type))
+        .i32(3, 1) // OPTIONAL
+        .string(4, column.name);
+    switch (column.type) {
+      case TEXT:
+      case CODE:
+        thrift.i32(6, UTF8);
+        break;
+      case MONEY:
+        thrift.i32(6, DECIMAL).i32(7, 2).i32(8, 18);
+        break;
+      case DATE:
+        thrift.i32(6, DATE);
+        break;
+      case TIMESTAMP:
+        thrift.i32(6, TIMESTAMP_MILLIS);
+        break;
+      default:
+        break;
+    }
+    thrift.endStruct();
+  }
+
+  /**
+   * Add the value of this column for the next row.
+   * @param value the value from a typed CSVRow, or null.
+   */
+  void add(Object value) {
+    if (rows == levels.length) {
+      levels = Arrays.copyOf(levels, rows * 2);
+    }
+    boolean present = value != null && !"".equals(value);
+    if (present) {
+      try {
+        convert(value);
+      } catch (NumberFormatException | ArithmeticException e) {
+        // values that cannot be represented in the column's type are written as null
+        present = false;
+      }
+    }
+    levels[rows++] = (byte) (present ? 1 : 0);
+    if (present) {
+      count++;
+    }
+  }
+
+  /**
+   * Store a non-null value at the next position, converted to the physical type.
+   */
+  private void convert(Object value) {
+    switch (column.type) {
+      case TEXT:
+      case CODE:
+        if (count == strings.length) {
+          strings = Arrays.copyOf(strings, count * 2);
+        }
+        strings[count] = value.toString();
+        return;
+      case NUMBER:
+        if (count == doubles.length) {
+          doubles = Arrays.copyOf(doubles, count * 2);
+        }
+        doubles[count] = value instanceof Number
+            ? ((Number) value).doubleValue() : Double.parseDouble(value.toString());
+        return;
+      default:
+        break;
+    }
+    long converted;
+    switch (column.type) {
+      case MONEY:
+        // Longs are amounts in cents, anything else is an amount in dollars
+        converted = value instanceof Long ? (Long) value
+            : Cents.valueOf(value instanceof BigDecimal
+                ? (BigDecimal) value : new BigDecimal(value.toString()));
+        break;
+      case DATE:
+        converted = Instant.ofEpochMilli(toLong(value)).atZone(ZONE).toLocalDate().toEpochDay();
+        break;
+      default:
+        converted = toLong(value);
+        break;
+    }
+    if (count == longs.length) {
+      longs = Arrays.copyOf(longs, count * 2);
+    }
+    longs[count] = converted;
+  }
+
+  private static long toLong(Object value) {
+    return value instanceof Number
+        ? ((Number) value).longValue() : Long.parseLong(value.toString());
+  }
+
+  /**
+   * Write the buffered values as a column chunk and clear them.
+   * @param out the stream to write the chunk to.
+   * @param position the number of bytes written to the stream so far.
+   * @return the metadata of the chunk.
+   * @throws IOException if the chunk cannot be written.
+   */
+  Chunk write(OutputStream out, long position) throws IOException {
+    ByteArrayOutputStream body = new ByteArrayOutputStream(count * 8 + 64);
+    writeLevels(body);
+
+    long dictionaryPageOffset = -1;
+    long uncompressedSize = 0;
+    long compressedSize = 0;
+    int[] encodings;
+    int[] indices = dictionary && count > 0 ? buildDictionary() : null;
+    if (indices != null) {
+      ByteArrayOutputStream values = new ByteArrayOutputStream();
+      int entries = 0;
+      for (int i = 0; i < count; i++) {
+        if (indices[i] == entries) {
+          writePlain(values, strings[i]);
+          entries++;
+        }
+      }
+      dictionaryPageOffset = position;
+      long[] sizes = writePage(out, DICTIONARY_PAGE, values.toByteArray(), entries,
+          PLAIN_DICTIONARY);
+      uncompressedSize += sizes[0];
+      compressedSize += sizes[1];
+
+      int bitWidth = Math.max(1, 32 - Integer.numberOfLeadingZeros(entries - 1));
+      body.write(bitWidth);
+      encodeHybrid(indices, count, bitWidth, body);
+      encodings = new int[] { PLAIN_DICTIONARY, RLE };
+    } else {
+      writePlain(body);
+      encodings = new int[] { PLAIN, RLE };
+    }
+    long dataPageOffset = position + compressedSize;
+    long[] sizes = writePage(out, DATA_PAGE, body.toByteArray(), rows, encodings[0]);
+    uncompressedSize += sizes[0];
+    compressedSize += sizes[1];
+
+    Chunk chunk = new Chunk(this, encodings, codec, rows, uncompressedSize, compressedSize,
+        dataPageOffset, dictionaryPageOffset);
+    if (strings != null) {
+      Arrays.fill(strings, 0, count, null);
+    }
+    rows = 0;
+    count = 0;
+    return chunk;
+  }
+
+  /**
+   * Number the distinct values in order of first appearance.
+   * @return the dictionary index of each value, or null if the column has too many distinct
+   *     values for a dictionary to be worthwhile.
+   */
+  private int[] buildDictionary() {
+    Map<String, Integer> ids = new HashMap<>();
+    int[] indices = new int[count];
+    long bytes = 0;
+    for (int i = 0; i < count; i++) {
+      Integer id = ids.get(strings[i]);
+      if (id == null) {
+        id = ids.size();
+        ids.put(strings[i], id);
+        bytes += 4 + strings[i].length();
+        if (ids.size() > MAX_DICTIONARY_ENTRIES || bytes > MAX_DICTIONARY_BYTES) {
+          return null;
+        }
+      }
+      indices[i] = id;
+    }
+    return indices;
+  }
+
+  private void writeLevels(ByteArrayOutputStream body) {
+    int[] values = new int[rows];
+    for (int i = 0; i < rows; i++) {
+      values[i] = levels[i];
+    }
+    ByteArrayOutputStream encoded = new ByteArrayOutputStream(64);
+    encodeHybrid(values, rows, 1, encoded);
+    writeInt(body, encoded.size());
+    body.write(encoded.toByteArray(), 0, encoded.size());
+  }
+
+  private void writePlain(ByteArrayOutputStream body) {
+    for (int i = 0; i < count; i++) {
+      switch (physicalType) {
+        case BYTE_ARRAY:
+          writePlain(body, strings[i]);
+          break;
+        case DOUBLE:
+          writeLong(body, Double.doubleToLongBits(doubles[i]));
+          break;
+        case INT32:
+          writeInt(body, (int) longs[i]);
+          break;
+        default:
+          writeLong(body, longs[i]);
+          break;
+      }
+    }
+  }
+
+  private static void writePlain(ByteArrayOutputStream body, String value) {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    writeInt(body, bytes.length);
+    body.write(bytes, 0, bytes.length);
+  }
+
+  private static void writeInt(ByteArrayOutputStream out, int value) {
+    out.write(value);
+    out.write(value >>> 8);
+    out.write(value >>> 16);
+    out.write(value >>> 24);
+  }
+
+  private static void writeLong(ByteArrayOutputStream out, long value) {
+    writeInt(out, (int) value);
+    writeInt(out, (int) (value >>> 32));
+  }
+
+  /**
+   * Write a page header and the page body, compressed with the column's codec.
+   * @return the uncompressed and compressed size of the page, including its header.
+   */
+  private long[] writePage(OutputStream out, int type, byte[] body, int numValues,
+      int encoding) throws IOException {
+    byte[] compressed = body;
+    if (codec == GZIP) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length / 4 + 64);
+      try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+        gzip.write(body);
+      }
+      compressed = bytes.toByteArray();
+    }
+    ThriftCompactWriter header = new ThriftCompactWriter().beginStructElement()
+        .i32(1, type)
+        .i32(2, body.length)
+        .i32(3, compressed.length);
+    if (type == DATA_PAGE) {
+      header.beginStruct(5)
+          .i32(1, numValues)
+          .i32(2, encoding)
+          .i32(3, RLE)
+          .i32(4, RLE)
+          .endStruct();
+    } else {
+      header.beginStruct(7)
+          .i32(1, numValues)
+          .i32(2, encoding)
+          .endStruct();
+    }
+    byte[] headerBytes = header.endStruct().toByteArray();
+    out.write(headerBytes);
+    out.write(compressed);
+    return new long[] { headerBytes.length + body.length, headerBytes.length + compressed.length };
+  }
+
+  /**
+   * Encode values with the RLE / bit-packing hybrid encoding. Runs of at least 8 equal values
+   * are run length encoded, everything else is bit-packed in groups of 8.
+   * @param values the values to encode.
+   * @param count the number of values.
+   * @param bitWidth the number of bits needed for the largest value.
+   * @param out the stream to write the encoded values to.
+   */
+  static void encodeHybrid(int[] values, int count, int bitWidth, ByteArrayOutputStream out) {
+    int byteWidth = (bitWidth + 7) / 8;
+    int i = 0;
+    while (i < count) {
+      int run = runLength(values, i, count);
+      if (run >= 8) {
+        writeVarint(out, run << 1);
+        for (int b = 0; b < byteWidth; b++) {
+          out.write(values[i] >>> (8 * b));
+        }
+        i += run;
+        continue;
+      }
+      // bit-pack until the next long run, at most 63 groups so the header fits in a byte
+      int start = i;
+      int groups = 0;
+      do {
+        i += 8;
+        groups++;
+      } while (i < count && groups < 63 && runLength(values, i, count) < 8);
+      writeVarint(out, (groups << 1) | 1);
+      long buffer = 0;
+      int bits = 0;
+      for (int j = start; j < start + groups * 8; j++) {
+        buffer |= (long) (j < count ? values[j] : 0) << bits;
+        bits += bitWidth;
+        while (bits >= 8) {
+          out.write((int) buffer);
+          buffer >>>= 8;
+          bits -= 8;
+        }
+      }
+    }
+  }
+
+  private static int runLength(int[] values, int start, int count) {
+    int end = start + 1;
+    while (end < count && values[end] == values[start]) {
+      end++;
+    }
+    return end - start;
+  }
+
+  private static void writeVarint(ByteArrayOutputStream out, int value) {
+    while ((value & ~0x7F) != 0) {
+      out.write((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.write(value);
+  }
+}
@@ -0,0 +1,287 @@
+package org.mitre.synthea.export.parquet;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.mitre.synthea.export.CSVRow;
+import org.mitre.synthea.export.CSVTable;
+import org.mitre.synthea.export.Exporter;
+import org.mitre.synthea.helpers.Config;
+
+/**
+ * Writes the {@link CSVTable}s as Apache Parquet files, one per table in the "parquet" output
+ * folder, when <code>exporter.parquet.export</code> is enabled.
+ *
+ * <p>Rows are built by the CSVExporter and handed over with their typed values. Each exporting
+ * thread buffers its own rows and, every <code>exporter.parquet.row_group_size</code> rows,
+ * writes them as a row group to a part file of its own, so threads never wait on each other.
+ * Once the population is complete, {@link #export()} concatenates the parts of each table and
+ * writes the footer that describes all of their row groups.</p>
+ */
+public class ParquetExporter {
+  private static final byte[] MAGIC = "PAR1".getBytes(StandardCharsets.US_ASCII);
+
+  /** The rows of one table buffered by one thread, and the row groups already written. */
+  private static class TableWriter {
+    private final ColumnWriter[] columns;
+    private final Path partFile;
+    private final List<RowGroup> rowGroups = new ArrayList<>();
+    private OutputStream out;
+    private long position = 0;
+    private int rows = 0;
+
+    private TableWriter(CSVTable table, Path partFile, boolean gzip) {
+      this.partFile = partFile;
+      CSVTable.Column[] tableColumns = table.getColumns();
+      columns = new ColumnWriter[tableColumns.length];
+      for (int i = 0; i < columns.length; i++) {
+        columns[i] = new ColumnWriter(tableColumns[i], gzip);
+      }
+    }
+
+    private void add(CSVRow row, int rowGroupSize) throws IOException {
+      for (int i = 0; i < columns.length; i++) {
+        columns[i].add(row.get(i));
+      }
+      rows++;
+      if (rows >= rowGroupSize) {
+        writeRowGroup();
+      }
+    }
+
+    private void writeRowGroup() throws IOException {
+      if (rows == 0) {
+        return;
+      }
+      if (out == null) {
+        Files.createDirectories(partFile.getParent());
+        out = new BufferedOutputStream(Files.newOutputStream(partFile), 64 * 1024);
+      }
+      RowGroup rowGroup = new RowGroup(rows);
+      for (ColumnWriter column : columns) {
+        ColumnWriter.Chunk chunk = column.write(out, position);
+        rowGroup.chunks.add(chunk);
+        position += chunk.compressedSize;
+      }
+      rowGroups.add(rowGroup);
+      rows = 0;
+    }
+
+    private void close() throws IOException {
+      writeRowGroup();
+      if (out != null) {
+        out.close();
+        out = null;
+      }
+    }
+  }
+
+  /** The metadata of a row group. */
+  private static class RowGroup {
+    private final long numRows;
+    private final List<ColumnWriter.Chunk> chunks = new ArrayList<>();
+
+    private RowGroup(long numRows) {
+      this.numRows = numRows;
+    }
+
+    private RowGroup shift(long offset) {
+      RowGroup shifted = new RowGroup(numRows);
+      for (ColumnWriter.Chunk chunk : chunks) {
+        shifted.chunks.add(chunk.shift(offset));
+      }
+      return shifted;
+    }
+
+    private void write(ThriftCompactWriter thrift) {
+      long totalByteSize = 0;
+      thrift.beginStructElement()
+          .list(1, ThriftCompactWriter.TYPE_STRUCT, chunks.size());
+      for (ColumnWriter.Chunk chunk : chunks) {
+        chunk.write(thrift);
+        totalByteSize += chunk.uncompressedSize;
+      }
+      thrift.i64(2, totalByteSize)
+          .i64(3, numRows)
+          .endStruct();
+    }
+  }
+
+  /** The tables being written by one thread. */
+  private class Worker {
+    private final int id;
+    private final Map<CSVTable, TableWriter> tables = new EnumMap<>(CSVTable.class);
+
+    private Worker(int id) {
+      this.id = id;
+    }
+
+    private void add(CSVRow row) throws IOException {
+      CSVTable table = row.getTable();
+      TableWriter writer = tables.get(table);
+      if (writer == null) {
+        Path partFile = getPartsDirectory().resolve(table.getName() + "." + id + ".part");
+        writer = new TableWriter(table, partFile, gzip);
+        tables.put(table, writer);
+      }
+      writer.add(row, rowGroupSize);
+    }
+  }
+
+  private final AtomicInteger nextWorkerId = new AtomicInteger();
+  private final List<Worker> workers = new ArrayList<>();
+  private volatile ThreadLocal<Worker> worker;
+  private Path outputDirectory;
+  private int rowGroupSize;
+  private boolean gzip;
+
+  private ParquetExporter() {
+    init();
+  }
+
+  /**
+   * Re-read the configuration and discard any buffered rows.
+   * Only to be used between runs, and in unit tests.
+   */
+  public synchronized void init() {
+    outputDirectory = Exporter.getOutputFolder("parquet", null).toPath();
+    rowGroupSize = Math.max(1, Config.getAsInteger("exporter.parquet.row_group_size", 50000));
+    String compression = Config.get("exporter.parquet.compression", "gzip").trim();
+    gzip = compression.equalsIgnoreCase("gzip");
+    workers.clear();
+    worker = ThreadLocal.withInitial(this::newWorker);
+  }
+
+  private Worker newWorker() {
+    Worker newWorker = new Worker(nextWorkerId.getAndIncrement());
+    synchronized (this) {
+      workers.add(newWorker);
+    }
+    return newWorker;
+  }
+
+  private Path getPartsDirectory() {
+    return outputDirectory.resolve("parts");
+  }
+
+  /**
+   * Thread safe singleton pattern adopted from
+   * https://stackoverflow.com/questions/7048198/thread-safe-singletons-in-java
+   */
+  private static class SingletonHolder {
+    /**
+     * Singleton instance of the ParquetExporter.
+     */
+    private static final ParquetExporter instance = new ParquetExporter();
+  }
+
+  /**
+   * Get the current instance of the ParquetExporter.
+   *
+   * @return the current instance of the ParquetExporter.
+   */
+  public static ParquetExporter getInstance() {
+    return SingletonHolder.instance;
+  }
+
+  /**
+   * Add a row to its table. The row is buffered by the calling thread until a row group is
+   * full.
+   *
+   * @param row a typed row of one of the tables.
+   * @throws IOException if a full row group cannot be written.
+   */
+  public void add(CSVRow row) throws IOException {
+    worker.get().add(row);
+  }
+
+  /**
+   * Write every row added so far to the Parquet files of the tables, and start over. Must only
+   * be called once nothing else is adding rows, i.e. after the population is complete.
+   *
+   * @throws IOException if the files cannot be written.
+   */
+  public synchronized void export() throws IOException {
+    List<Worker> finished = new ArrayList<>(workers);
+    finished.sort((a, b) -> Integer.compare(a.id, b.id));
+    for (Worker w : finished) {
+      for (TableWriter writer : w.tables.values()) {
+        writer.close();
+      }
+    }
+    Files.createDirectories(outputDirectory);
+    for (CSVTable table : CSVTable.values()) {
+      merge(table, finished);
+    }
+    Files.deleteIfExists(getPartsDirectory());
+    workers.clear();
+    worker = ThreadLocal.withInitial(this::newWorker);
+  }
+
+  /**
+   * Concatenate the part files of a table into a single Parquet file.
+   */
+  private void merge(CSVTable table, List<Worker> finished) throws IOException {
+    Path file = outputDirectory.resolve(table.getName() + ".parquet");
+    List<RowGroup> rowGroups = new ArrayList<>();
+    long numRows = 0;
+    try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024)) {
+      out.write(MAGIC);
+      long position = MAGIC.length;
+      for (Worker w : finished) {
+        TableWriter writer = w.tables.get(table);
+        if (writer == null || writer.rowGroups.isEmpty()) {
+          continue;
+        }
+        Files.copy(writer.partFile, out);
+        for (RowGroup rowGroup : writer.rowGroups) {
+          rowGroups.add(rowGroup.shift(position));
+          numRows += rowGroup.numRows;
+        }
+        position += writer.position;
+        Files.delete(writer.partFile);
+      }
+      byte[] footer = footer(table, rowGroups, numRows);
+      out.write(footer);
+      out.write(footer.length);
+      out.write(footer.length >>> 8);
+      out.write(footer.length >>> 16);
+      out.write(footer.length >>> 24);
+      out.write(MAGIC);
+    }
+  }
+
+  /**
+   * Build the FileMetaData of a file.
+   */
+  private byte[] footer(CSVTable table, List<RowGroup> rowGroups, long numRows) {
+    CSVTable.Column[] columns = table.getColumns();
+    ThriftCompactWriter thrift = new ThriftCompactWriter().beginStructElement()
+        .i32(1, 1)
+        .list(2, ThriftCompactWriter.TYPE_STRUCT, columns.length + 1);
+    thrift.beginStructElement()
+        .string(4, "schema")
+        .i32(5, columns.length)
+        .endStruct();
+    for (CSVTable.Column column : columns) {
+      ColumnWriter.writeSchema(thrift, column);
+    }
+    thrift.i64(3, numRows)
+        .list(4, ThriftCompactWriter.TYPE_STRUCT, rowGroups.size());
+    for (RowGroup rowGroup : rowGroups) {
+      rowGroup.write(thrift);
+    }
+    return thrift.string(6, "Synthea")
+        .endStruct()
+        .toByteArray();
+  }
+}
@@ -0,0 +1,131 @@
+package org.mitre.synthea.export.parquet;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes Thrift structures using the compact protocol, which is how Parquet encodes its page
+ * headers and file footer. Only the parts of the protocol that Parquet metadata uses are
+ * supported: structs, lists, booleans, 32 and 64 bit integers and strings.
+ */
+final class ThriftCompactWriter {
+  static final byte TYPE_BOOLEAN_TRUE = 1;
+  static final byte TYPE_BOOLEAN_FALSE = 2;
+  static final byte TYPE_I32 = 5;
+  static final byte TYPE_I64 = 6;
+  static final byte TYPE_BINARY = 8;
+  static final byte TYPE_LIST = 9;
+  static final byte TYPE_STRUCT = 12;
+
+  private final ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+  /** The last field id written in each enclosing struct, innermost last. */
+  private short[] lastFieldIds = new short[8];
+  private int depth = 0;
+
+  private void fieldHeader(int id, byte type) {
+    int delta = id - lastFieldIds[depth];
+    if (delta > 0 && delta <= 15) {
+      out.write((delta << 4) | type);
+    } else {
+      out.write(type);
+      varint(zigzag32(id));
+    }
+    lastFieldIds[depth] = (short) id;
+  }
+
+  private void varint(long value) {
+    while ((value & ~0x7FL) != 0) {
+      out.write((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.write((int) value);
+  }
+
+  private static long zigzag32(int value) {
+    return ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL;
+  }
+
+  private static long zigzag64(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  ThriftCompactWriter i32(int id, int value) {
+    fieldHeader(id, TYPE_I32);
+    varint(zigzag32(value));
+    return this;
+  }
+
+  ThriftCompactWriter i64(int id, long value) {
+    fieldHeader(id, TYPE_I64);
+    varint(zigzag64(value));
+    return this;
+  }
+
+  ThriftCompactWriter bool(int id, boolean value) {
+    fieldHeader(id, value ? TYPE_BOOLEAN_TRUE : TYPE_BOOLEAN_FALSE);
+    return this;
+  }
+
+  ThriftCompactWriter string(int id, String value) {
+    fieldHeader(id, TYPE_BINARY);
+    stringElement(value);
+    return this;
+  }
+
+  /**
+   * Start a struct field. Its fields are written next, followed by {@link #endStruct()}.
+   */
+  ThriftCompactWriter beginStruct(int id) {
+    fieldHeader(id, TYPE_STRUCT);
+    return beginStructElement();
+  }
+
+  /**
+   * Start a struct that is an element of a list, or the top level struct.
+   */
+  ThriftCompactWriter beginStructElement() {
+    depth++;
+    if (depth == lastFieldIds.length) {
+      lastFieldIds = Arrays.copyOf(lastFieldIds, depth * 2);
+    }
+    lastFieldIds[depth] = 0;
+    return this;
+  }
+
+  ThriftCompactWriter endStruct() {
+    out.write(0);
+    depth--;
+    return this;
+  }
+
+  /**
+   * Start a list field. Exactly <code>size</code> elements of the given type must follow.
+   */
+  ThriftCompactWriter list(int id, byte elementType, int size) {
+    fieldHeader(id, TYPE_LIST);
+    if (size < 15) {
+      out.write((size << 4) | elementType);
+    } else {
+      out.write(0xF0 | elementType);
+      varint(size);
+    }
+    return this;
+  }
+
+  ThriftCompactWriter i32Element(int value) {
+    varint(zigzag32(value));
+    return this;
+  }
+
+  ThriftCompactWriter stringElement(String value) {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    varint(bytes.length);
+    out.write(bytes, 0, bytes.length);
+    return this;
+  }
+
+  byte[] toByteArray() {
+    return out.toByteArray();
+  }
+}
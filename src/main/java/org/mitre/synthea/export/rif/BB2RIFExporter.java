@@ -218,7 +218,7 @@ public class BB2RIFExporter {
     if (primary != null) {
       String prefix = primary.substring(0, 3);
       if (externalCodes != null && externalCodes.containsKey(prefix)) {
-        String externalCode = externalCodes.get(prefix).next(person);
+        String externalCode = externalCodes.get(prefix).next(person.exportRandom());
         fieldValues.put(externalCodeKey, externalCode);
         fieldValues.put(externalVersionKey, "0");
         return true;
@@ -85,7 +85,7 @@ public class BeneficiaryExporter extends RIFExporter {
 
     // About 7% of non-dual-eligible beneficiaries decline Medicare Part B
     // Carrier claims won't be generated unless the beneficiary is enrolled in Part B
-    boolean partBEnrollee = person.rand(0.0, 100.0) < PART_B_ENROLLEE_PERCENT;
+    boolean partBEnrollee = person.exportRandom().rand(0.0, 100.0) < PART_B_ENROLLEE_PERCENT;
     person.attributes.put(RIFExporter.BB2_PARTB_ENROLLEE, partBEnrollee);
 
     PartCContractHistory partCContracts = new PartCContractHistory(person,
@@ -121,7 +121,8 @@ public class BeneficiaryExporter extends RIFExporter {
       }
 
       HashMap<BB2RIFStructure.BENEFICIARY, String> fieldValues = new HashMap<>();
-      exporter.staticFieldConfig.setValues(fieldValues, BB2RIFStructure.BENEFICIARY.class, person);
+      exporter.staticFieldConfig.setValues(fieldValues, BB2RIFStructure.BENEFICIARY.class,
+              person.exportRandom());
       if (!firstYearOutput) {
         // The first year output is set via staticFieldConfig to "INSERT", subsequent years
         // need to be "UPDATE"
@@ -162,7 +163,7 @@ public class BeneficiaryExporter extends RIFExporter {
       if (countyCode == null) {
         countyCode = exporter.locationMapper.stateCountyNameToCountyCode(
             (String)person.attributes.get(Person.STATE),
-            (String)person.attributes.get(Person.COUNTY), person);
+            (String)person.attributes.get(Person.COUNTY), person.exportRandom());
       }
       fieldValues.put(BB2RIFStructure.BENEFICIARY.BENE_COUNTY_CD, countyCode);
       for (int i = 0; i < monthCount; i++) {
@@ -502,7 +503,7 @@ public class BeneficiaryExporter extends RIFExporter {
     boolean medicaidEligible = income < MEDICAID_THRESHOLD;
 
     if (medicareEligible && medicaidEligible) {
-      return dualCodes.next(person);
+      return dualCodes.next(person.exportRandom());
     } else if (medicaidEligible) {
       return "00"; // Not enrolled in Medicare (medicaid only)
     } else {
@@ -526,7 +527,7 @@ public class BeneficiaryExporter extends RIFExporter {
       return "T";
     }
 
-    String currentBeneIdCode = bicCodes.next(person);
+    String currentBeneIdCode = bicCodes.next(person.exportRandom());
     if (currentBeneIdCode.startsWith("C")) {
       if (ageThisYear >= 65) {
         currentBeneIdCode = pickMaritalStatusBIC(person);
@@ -547,20 +548,20 @@ public class BeneficiaryExporter extends RIFExporter {
     } else if (gender.equals("F")) {
       // female
       if (maritalStatus.equals("M")) {
-        return person.rand(new String[] {"B","B","B3","B2"});
+        return person.exportRandom().rand(new String[] {"B","B","B3","B2"});
       } else if (maritalStatus.equals("D")) {
-        return person.rand(new String[] {"D6","D6","B6","B9"});
+        return person.exportRandom().rand(new String[] {"D6","D6","B6","B9"});
       } else if (maritalStatus.equals("W")) {
-        return person.rand(new String[] {"D","D","D2"});
+        return person.exportRandom().rand(new String[] {"D","D","D2"});
       }
     } else {
       // male
       if (maritalStatus.equals("M")) {
-        return person.rand(new String[] {"B1","B1","BY"});
+        return person.exportRandom().rand(new String[] {"B1","B1","BY"});
       } else if (maritalStatus.equals("D")) {
-        return person.rand(new String[] {"BR","BR","BT"});
+        return person.exportRandom().rand(new String[] {"BR","BR","BT"});
       } else if (maritalStatus.equals("W")) {
-        return person.rand(new String[] {"D1","D1","D3"});
+        return person.exportRandom().rand(new String[] {"D1","D1","D3"});
       }
     }
     return "M";
@@ -1,7 +1,6 @@
 package org.mitre.synthea.export.rif;
 
 import java.io.IOException;
-import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -16,6 +15,7 @@ import org.mitre.synthea.helpers.SimpleCSV;
 import org.mitre.synthea.helpers.Utilities;
 import org.mitre.synthea.world.agents.Clinician;
 import org.mitre.synthea.world.agents.Person;
+import org.mitre.synthea.world.concepts.Cents;
 import org.mitre.synthea.world.concepts.Claim;
 import org.mitre.synthea.world.concepts.ClinicianSpecialty;
 import org.mitre.synthea.world.concepts.HealthRecord;
@@ -97,7 +97,8 @@ public class CarrierExporter extends RIFExporter {
         }
       }
 
-      exporter.staticFieldConfig.setValues(fieldValues, BB2RIFStructure.CARRIER.class, person);
+      exporter.staticFieldConfig.setValues(fieldValues, BB2RIFStructure.CARRIER.class,
+              person.exportRandom());
       fieldValues.put(BB2RIFStructure.CARRIER.BENE_ID,
               (String) person.attributes.get(RIFExporter.BB2_BENE_ID));
 
@@ -173,7 +174,8 @@ public class CarrierExporter extends RIFExporter {
         // If the encounter has a recorded reason, enter the mapped
         // values into the principle diagnoses code.
         if (exporter.conditionCodeMapper.canMap(encounter.reason)) {
-          icdReasonCode = exporter.conditionCodeMapper.map(encounter.reason, person, true);
+          icdReasonCode = exporter.conditionCodeMapper.map(encounter.reason,
+                  person.exportRandom(), true);
           fieldValues.put(BB2RIFStructure.CARRIER.PRNCPAL_DGNS_CD, icdReasonCode);
           fieldValues.put(BB2RIFStructure.CARRIER.LINE_ICD_DGNS_CD, icdReasonCode);
         }
@@ -199,7 +201,7 @@ public class CarrierExporter extends RIFExporter {
       synchronized (exporter.rifWriters.getOrCreateWriter(BB2RIFStructure.CARRIER.class)) {
         int lineNum = 1;
         CLIA cliaLab = RIFExporter.cliaLabNumbers[
-                person.randInt(RIFExporter.cliaLabNumbers.length)];
+                person.exportRandom().randInt(RIFExporter.cliaLabNumbers.length)];
         List<Claim.ClaimEntry> allItems = new ArrayList<>();
         allItems.add(encounter.claim.mainEntry);
         allItems.addAll(encounter.claim.items);
@@ -209,7 +211,7 @@ public class CarrierExporter extends RIFExporter {
           if (lineItem.entry instanceof HealthRecord.Procedure) {
             for (HealthRecord.Code code : lineItem.entry.codes) {
               if (exporter.hcpcsCodeMapper.canMap(code)) {
-                hcpcsCode = exporter.hcpcsCodeMapper.map(code, person, true);
+                hcpcsCode = exporter.hcpcsCodeMapper.map(code, person.exportRandom(), true);
                 break; // take the first mappable code for each procedure
               }
             }
@@ -217,16 +219,16 @@ public class CarrierExporter extends RIFExporter {
             HealthRecord.Medication med = (HealthRecord.Medication) lineItem.entry;
             if (med.administration) {
               hcpcsCode = "T1502";  // Administration of medication
-              ndcCode = exporter.medicationCodeMapper.map(med.codes.get(0), person);
+              ndcCode = exporter.medicationCodeMapper.map(med.codes.get(0), person.exportRandom());
             }
           }
           if (icdReasonCode == null) {
             // If there is an icdReasonCode, then then LINE_ICD_DGNS_CD is already set.
             // If not, we might choose a value for each line item.
-            double probability = person.rand();
+            double probability = person.exportRandom().rand();
             if (probability <= 0.06) {
               // Random code
-              int index = person.randInt(mappedDiagnosisCodes.size());
+              int index = person.exportRandom().randInt(mappedDiagnosisCodes.size());
               String code = mappedDiagnosisCodes.get(index);
               fieldValues.put(BB2RIFStructure.CARRIER.LINE_ICD_DGNS_CD, code);
             } else if (probability <= 0.48) {
@@ -246,27 +248,25 @@ public class CarrierExporter extends RIFExporter {
           fieldValues.put(BB2RIFStructure.CARRIER.HCPCS_CD, hcpcsCode);
           if (exporter.betosCodeMapper.canMap(hcpcsCode)) {
             fieldValues.put(BB2RIFStructure.CARRIER.BETOS_CD,
-                    exporter.betosCodeMapper.map(hcpcsCode, person));
+                    exporter.betosCodeMapper.map(hcpcsCode, person.exportRandom()));
           } else {
             fieldValues.put(BB2RIFStructure.CARRIER.BETOS_CD, "");
           }
           fieldValues.put(BB2RIFStructure.CARRIER.LINE_NDC_CD, ndcCode);
           fieldValues.put(BB2RIFStructure.CARRIER.LINE_BENE_PTB_DDCTBL_AMT,
-                  String.format("%.2f", lineItem.deductiblePaidByPatient));
+                  Cents.toString(lineItem.deductiblePaidByPatient));
           fieldValues.put(BB2RIFStructure.CARRIER.LINE_COINSRNC_AMT,
-                  String.format("%.2f", lineItem.coinsurancePaidByPayer));
+                  Cents.toString(lineItem.coinsurancePaidByPayer));
 
           // Like NCH_CLM_BENE_PMT_AMT, LINE_BENE_PMT_AMT is always zero
           // (set in field value spreadsheet)
-          BigDecimal providerAmount = lineItem.coinsurancePaidByPayer.add(lineItem.paidByPayer);
-          fieldValues.put(BB2RIFStructure.CARRIER.LINE_PRVDR_PMT_AMT,
-              String.format("%.2f", providerAmount));
-          fieldValues.put(BB2RIFStructure.CARRIER.LINE_NCH_PMT_AMT,
-              String.format("%.2f", providerAmount));
+          String providerAmount = Cents.toString(lineItem.getCoveredCostInCents());
+          fieldValues.put(BB2RIFStructure.CARRIER.LINE_PRVDR_PMT_AMT, providerAmount);
+          fieldValues.put(BB2RIFStructure.CARRIER.LINE_NCH_PMT_AMT, providerAmount);
           fieldValues.put(BB2RIFStructure.CARRIER.LINE_SBMTD_CHRG_AMT,
-              String.format("%.2f", lineItem.cost));
+              Cents.toString(lineItem.cost));
           fieldValues.put(BB2RIFStructure.CARRIER.LINE_ALOWD_CHRG_AMT,
-              String.format("%.2f", lineItem.cost.subtract(lineItem.adjustment)));
+              Cents.toString(lineItem.cost - lineItem.adjustment));
 
           // If this item is a lab report, add the number of the clinical lab...
           if  (lineItem.entry instanceof HealthRecord.Report) {
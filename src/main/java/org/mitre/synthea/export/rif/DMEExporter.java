@@ -8,6 +8,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.mitre.synthea.export.ExportHelper;
 import org.mitre.synthea.world.agents.Clinician;
 import org.mitre.synthea.world.agents.Person;
+import org.mitre.synthea.world.concepts.Cents;
 import org.mitre.synthea.world.concepts.Claim;
 import org.mitre.synthea.world.concepts.ClinicianSpecialty;
 import org.mitre.synthea.world.concepts.HealthRecord;
@@ -60,7 +61,8 @@ public class DMEExporter extends RIFExporter {
       }
 
       fieldValues.clear();
-      exporter.staticFieldConfig.setValues(fieldValues, BB2RIFStructure.DME.class, person);
+      exporter.staticFieldConfig.setValues(fieldValues, BB2RIFStructure.DME.class,
+              person.exportRandom());
 
       // complex fields that could not easily be set using cms_field_values.tsv
       fieldValues.put(BB2RIFStructure.DME.CLM_ID, "" + claimId);
@@ -102,7 +104,8 @@ public class DMEExporter extends RIFExporter {
         // If the encounter has a recorded reason, enter the mapped
         // values into the principle diagnoses code.
         if (exporter.conditionCodeMapper.canMap(encounter.reason)) {
-          String icdCode = exporter.conditionCodeMapper.map(encounter.reason, person, true);
+          String icdCode = exporter.conditionCodeMapper.map(encounter.reason,
+                  person.exportRandom(), true);
           fieldValues.put(BB2RIFStructure.DME.PRNCPAL_DGNS_CD, icdCode);
           fieldValues.put(BB2RIFStructure.DME.LINE_ICD_DGNS_CD, icdCode);
         }
@@ -169,35 +172,32 @@ public class DMEExporter extends RIFExporter {
                   RIFExporter.bb2DateFromTimestamp(lineItem.entry.start));
           fieldValues.put(BB2RIFStructure.DME.CLM_THRU_DT,
                   RIFExporter.bb2DateFromTimestamp(lineItem.entry.start));
-          String hcpcsCode = exporter.dmeCodeMapper.map(lineItem.entry.codes.get(0), person);
+          String hcpcsCode = exporter.dmeCodeMapper.map(lineItem.entry.codes.get(0),
+                  person.exportRandom());
           fieldValues.put(BB2RIFStructure.DME.HCPCS_CD, hcpcsCode);
           if (exporter.betosCodeMapper.canMap(hcpcsCode)) {
             fieldValues.put(BB2RIFStructure.DME.BETOS_CD,
-                    exporter.betosCodeMapper.map(hcpcsCode, person));
+                    exporter.betosCodeMapper.map(hcpcsCode, person.exportRandom()));
           } else {
             fieldValues.put(BB2RIFStructure.DME.BETOS_CD, "");
           }
           fieldValues.put(BB2RIFStructure.DME.LINE_CMS_TYPE_SRVC_CD,
                   exporter.dmeCodeMapper.map(lineItem.entry.codes.get(0),
                           BB2RIFStructure.DME.LINE_CMS_TYPE_SRVC_CD.toString().toLowerCase(),
-                          person));
+                          person.exportRandom()));
           fieldValues.put(BB2RIFStructure.DME.LINE_BENE_PTB_DDCTBL_AMT,
-                  String.format("%.2f", lineItem.deductiblePaidByPatient));
+                  Cents.toString(lineItem.deductiblePaidByPatient));
           fieldValues.put(BB2RIFStructure.DME.LINE_COINSRNC_AMT,
-                  String.format("%.2f", lineItem.getCoinsurancePaid()));
+                  Cents.toString(lineItem.getCoinsurancePaidInCents()));
           // LINE_BENE_PMT_AMT and NCH_CLM_BENE_PMT_AMT are always 0, set in field value spreadsheet
-          BigDecimal providerAmount = lineItem.getCoveredCost();
-          fieldValues.put(BB2RIFStructure.DME.LINE_PRVDR_PMT_AMT,
-              String.format("%.2f", providerAmount));
-          fieldValues.put(BB2RIFStructure.DME.LINE_NCH_PMT_AMT,
-              String.format("%.2f", providerAmount));
+          String providerAmount = Cents.toString(lineItem.getCoveredCostInCents());
+          fieldValues.put(BB2RIFStructure.DME.LINE_PRVDR_PMT_AMT, providerAmount);
+          fieldValues.put(BB2RIFStructure.DME.LINE_NCH_PMT_AMT, providerAmount);
           fieldValues.put(BB2RIFStructure.DME.LINE_SBMTD_CHRG_AMT,
-              String.format("%.2f", lineItem.getTotalClaimCost()));
-          BigDecimal allowedAmount = lineItem.getTotalClaimCost().subtract(lineItem.adjustment);
-          fieldValues.put(BB2RIFStructure.DME.LINE_ALOWD_CHRG_AMT,
-              String.format("%.2f", allowedAmount));
-          fieldValues.put(BB2RIFStructure.DME.LINE_PRMRY_ALOWD_CHRG_AMT,
-              String.format("%.2f", allowedAmount));
+              Cents.toString(lineItem.cost));
+          String allowedAmount = Cents.toString(lineItem.cost - lineItem.adjustment);
+          fieldValues.put(BB2RIFStructure.DME.LINE_ALOWD_CHRG_AMT, allowedAmount);
+          fieldValues.put(BB2RIFStructure.DME.LINE_PRMRY_ALOWD_CHRG_AMT, allowedAmount);
 
           // set the line number and write out field values
           fieldValues.put(BB2RIFStructure.DME.LINE_NUM, Integer.toString(lineNum++));
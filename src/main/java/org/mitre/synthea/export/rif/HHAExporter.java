@@ -1,8 +1,6 @@
 package org.mitre.synthea.export.rif;
 
 import java.io.IOException;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.util.HashMap;
 import java.util.List;
 import org.apache.commons.lang3.StringUtils;
@@ -11,6 +9,7 @@ import org.mitre.synthea.helpers.ConsolidatedServicePeriods;
 import org.mitre.synthea.helpers.ConsolidatedServicePeriods.ConsolidatedServicePeriod;
 import org.mitre.synthea.helpers.Utilities;
 import org.mitre.synthea.world.agents.Person;
+import org.mitre.synthea.world.concepts.Cents;
 import org.mitre.synthea.world.concepts.Claim;
 import org.mitre.synthea.world.concepts.HealthRecord;
 
@@ -68,7 +67,8 @@ public class HHAExporter extends RIFExporter {
       long fiDocId = RIFExporter.nextFiDocCntlNum.getAndDecrement();
 
       fieldValues.clear();
-      exporter.staticFieldConfig.setValues(fieldValues, BB2RIFStructure.HHA.class, person);
+      exporter.staticFieldConfig.setValues(fieldValues, BB2RIFStructure.HHA.class,
+              person.exportRandom());
 
       // The REQUIRED fields
       fieldValues.put(BB2RIFStructure.HHA.BENE_ID,
@@ -100,9 +100,9 @@ public class HHAExporter extends RIFExporter {
       // characteristics.
       String ppsCode = null;
       if (servicePeriod.getStart() > HHA_PPS_PDGM_START) {
-        ppsCode = exporter.hhaPDGMCodes.next(person);
+        ppsCode = exporter.hhaPDGMCodes.next(person.exportRandom());
       } else if (servicePeriod.getStart() > HHA_PPS_CASE_MIX_START) {
-        ppsCode = exporter.hhaCaseMixCodes.next(person);
+        ppsCode = exporter.hhaCaseMixCodes.next(person.exportRandom());
       }
 
       ConsolidatedClaimLines consolidatedClaimLines = new ConsolidatedClaimLines();
@@ -112,15 +112,15 @@ public class HHAExporter extends RIFExporter {
           if (lineItem.entry instanceof HealthRecord.Procedure) {
             // 10% of line items use a PPS code, use higher number here to account for
             // every claim having a total charge line
-            if (ppsCode != null && person.rand() < 0.15) {
+            if (ppsCode != null && person.exportRandom().rand() < 0.15) {
               hcpcsCode = ppsCode;
               revCenter = HHA_PPS_REV_CNTR;
             } else {
               for (HealthRecord.Code code : lineItem.entry.codes) {
                 if (exporter.hcpcsCodeMapper.canMap(code)) {
-                  hcpcsCode = exporter.hcpcsCodeMapper.map(code, person, true);
+                  hcpcsCode = exporter.hcpcsCodeMapper.map(code, person.exportRandom(), true);
                   if (exporter.hhaRevCntrMapper.canMap(hcpcsCode)) {
-                    revCenter = exporter.hhaRevCntrMapper.map(hcpcsCode, person);
+                    revCenter = exporter.hhaRevCntrMapper.map(hcpcsCode, person.exportRandom());
                   }
                   break; // take the first mappable code for each procedure
                 }
@@ -261,25 +261,22 @@ public class HHAExporter extends RIFExporter {
   private static void setHHAClaimLineCosts(HashMap<BB2RIFStructure.HHA, String> fieldValues,
           Claim.ClaimCost lineItem, int count) {
     fieldValues.put(BB2RIFStructure.HHA.REV_CNTR_RATE_AMT,
-            String.format("%.2f",
-                    lineItem.cost.divide(BigDecimal.valueOf(count),
-                            RoundingMode.HALF_EVEN).setScale(2, RoundingMode.HALF_EVEN)));
+            Cents.toString(Cents.divide(lineItem.cost, count)));
     fieldValues.put(BB2RIFStructure.HHA.REV_CNTR_PMT_AMT_AMT,
-            String.format("%.2f", lineItem.coinsurancePaidByPayer.add(lineItem.paidByPayer)));
+            Cents.toString(lineItem.getCoveredCostInCents()));
     fieldValues.put(BB2RIFStructure.HHA.REV_CNTR_TOT_CHRG_AMT,
-            String.format("%.2f", lineItem.cost));
+            Cents.toString(lineItem.cost));
     fieldValues.put(BB2RIFStructure.HHA.REV_CNTR_NCVRD_CHRG_AMT,
-            String.format("%.2f", lineItem.copayPaidByPatient.add(lineItem.deductiblePaidByPatient)
-                    .add(lineItem.patientOutOfPocket)));
-    if (lineItem.patientOutOfPocket.compareTo(Claim.ZERO_CENTS) == 0
-            && lineItem.deductiblePaidByPatient.compareTo(Claim.ZERO_CENTS) == 0) {
+            Cents.toString(lineItem.getPatientCostInCents()));
+    if (lineItem.patientOutOfPocket == 0
+            && lineItem.deductiblePaidByPatient == 0) {
       // Not subject to deductible or coinsurance
       fieldValues.put(BB2RIFStructure.HHA.REV_CNTR_DDCTBL_COINSRNC_CD, "3");
-    } else if (lineItem.patientOutOfPocket.compareTo(Claim.ZERO_CENTS) > 0
-            && lineItem.deductiblePaidByPatient.compareTo(Claim.ZERO_CENTS) > 0) {
+    } else if (lineItem.patientOutOfPocket > 0
+            && lineItem.deductiblePaidByPatient > 0) {
       // Subject to deductible and coinsurance
       fieldValues.put(BB2RIFStructure.HHA.REV_CNTR_DDCTBL_COINSRNC_CD, "0");
-    } else if (lineItem.patientOutOfPocket.compareTo(Claim.ZERO_CENTS) == 0) {
+    } else if (lineItem.patientOutOfPocket == 0) {
       // Not subject to deductible
       fieldValues.put(BB2RIFStructure.HHA.REV_CNTR_DDCTBL_COINSRNC_CD, "1");
     } else {
@@ -1,14 +1,13 @@
 package org.mitre.synthea.export.rif;
 
 import java.io.IOException;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import org.apache.commons.lang3.StringUtils;
 import org.mitre.synthea.export.ExportHelper;
 import org.mitre.synthea.world.agents.Person;
+import org.mitre.synthea.world.concepts.Cents;
 import org.mitre.synthea.world.concepts.Claim;
 import org.mitre.synthea.world.concepts.HealthRecord;
 
@@ -58,7 +57,8 @@ public class HospiceExporter extends RIFExporter {
       }
 
       HashMap<BB2RIFStructure.HOSPICE, String> fieldValues = new HashMap<>();
-      exporter.staticFieldConfig.setValues(fieldValues, BB2RIFStructure.HOSPICE.class, person);
+      exporter.staticFieldConfig.setValues(fieldValues, BB2RIFStructure.HOSPICE.class,
+              person.exportRandom());
 
       // Initial random revenue center from field code CSV
       String revCenter = fieldValues.get(BB2RIFStructure.HOSPICE.REV_CNTR);
@@ -72,9 +72,10 @@ public class HospiceExporter extends RIFExporter {
           String hcpcsCode = null;
           for (HealthRecord.Code code : lineItem.entry.codes) {
             if (exporter.hcpcsCodeMapper.canMap(code)) {
-              hcpcsCode = exporter.hcpcsCodeMapper.map(code, person, true);
+              hcpcsCode = exporter.hcpcsCodeMapper.map(code, person.exportRandom(), true);
               if (exporter.hospiceRevCntrMapper.canMap(hcpcsCode)) {
-                revCenter = exporter.hospiceRevCntrMapper.map(hcpcsCode, person, true);
+                revCenter = exporter.hospiceRevCntrMapper.map(hcpcsCode,
+                        person.exportRandom(), true);
               }
               break; // take the first mappable code for each procedure
             }
@@ -146,27 +147,24 @@ public class HospiceExporter extends RIFExporter {
   private static void setClaimLineCosts(Map<BB2RIFStructure.HOSPICE, String> fieldValues,
           Claim.ClaimCost lineItem, int count) {
     fieldValues.put(BB2RIFStructure.HOSPICE.REV_CNTR_RATE_AMT,
-            String.format("%.2f", lineItem.cost
-                    .divide(BigDecimal.valueOf(Integer.max(1, count)), RoundingMode.HALF_EVEN)
-                    .setScale(2, RoundingMode.HALF_EVEN)));
+            Cents.toString(Cents.divide(lineItem.cost, Integer.max(1, count))));
     fieldValues.put(BB2RIFStructure.HOSPICE.REV_CNTR_PMT_AMT_AMT,
-            String.format("%.2f", lineItem.getCoveredCost()));
+            Cents.toString(lineItem.getCoveredCostInCents()));
     fieldValues.put(BB2RIFStructure.HOSPICE.REV_CNTR_PRVDR_PMT_AMT,
-            String.format("%.2f", lineItem.getCoveredCost()));
+            Cents.toString(lineItem.getCoveredCostInCents()));
     fieldValues.put(BB2RIFStructure.HOSPICE.REV_CNTR_TOT_CHRG_AMT,
-            String.format("%.2f", lineItem.cost));
+            Cents.toString(lineItem.cost));
     fieldValues.put(BB2RIFStructure.HOSPICE.REV_CNTR_NCVRD_CHRG_AMT,
-            String.format("%.2f", lineItem.copayPaidByPatient
-                    .add(lineItem.deductiblePaidByPatient).add(lineItem.patientOutOfPocket)));
-    if (lineItem.patientOutOfPocket.compareTo(Claim.ZERO_CENTS) == 0
-            && lineItem.deductiblePaidByPatient.compareTo(Claim.ZERO_CENTS) == 0) {
+            Cents.toString(lineItem.getPatientCostInCents()));
+    if (lineItem.patientOutOfPocket == 0
+            && lineItem.deductiblePaidByPatient == 0) {
       // Not subject to deductible or coinsurance
       fieldValues.put(BB2RIFStructure.HOSPICE.REV_CNTR_DDCTBL_COINSRNC_CD, "3");
-    } else if (lineItem.patientOutOfPocket.compareTo(Claim.ZERO_CENTS) > 0
-            && lineItem.deductiblePaidByPatient.compareTo(Claim.ZERO_CENTS) > 0) {
+    } else if (lineItem.patientOutOfPocket > 0
+            && lineItem.deductiblePaidByPatient > 0) {
       // Subject to deductible and coinsurance
       fieldValues.put(BB2RIFStructure.HOSPICE.REV_CNTR_DDCTBL_COINSRNC_CD, "0");
-    } else if (lineItem.patientOutOfPocket.compareTo(Claim.ZERO_CENTS) == 0) {
+    } else if (lineItem.patientOutOfPocket == 0) {
       // Not subject to deductible
       fieldValues.put(BB2RIFStructure.HOSPICE.REV_CNTR_DDCTBL_COINSRNC_CD, "1");
     } else {
@@ -239,7 +237,8 @@ public class HospiceExporter extends RIFExporter {
       // If the encounter has a recorded reason, enter the mapped
       // values into the principle diagnoses code.
       if (exporter.conditionCodeMapper.canMap(encounter.reason)) {
-        String icdCode = exporter.conditionCodeMapper.map(encounter.reason, person, true);
+        String icdCode = exporter.conditionCodeMapper.map(encounter.reason,
+                person.exportRandom(), true);
         fieldValues.put(BB2RIFStructure.HOSPICE.PRNCPAL_DGNS_CD, icdCode);
       }
     }
@@ -58,7 +58,7 @@ public class InpatientExporter extends RIFExporter {
       for (Claim.ClaimEntry lineItem: billableItems) {
         billableTotal.addCosts(lineItem);
       }
-      if (billableTotal.getTotalClaimCost().compareTo(Claim.ZERO_CENTS) == 0) {
+      if (billableTotal.cost == 0) {
         continue;
       }
 
@@ -67,7 +67,8 @@ public class InpatientExporter extends RIFExporter {
       long fiDocId = RIFExporter.nextFiDocCntlNum.getAndDecrement();
 
       HashMap<BB2RIFStructure.INPATIENT, String> fieldValues = new HashMap<>();
-      exporter.staticFieldConfig.setValues(fieldValues, BB2RIFStructure.INPATIENT.class, person);
+      exporter.staticFieldConfig.setValues(fieldValues, BB2RIFStructure.INPATIENT.class,
+              person.exportRandom());
 
       // The REQUIRED fields
       fieldValues.put(BB2RIFStructure.INPATIENT.BENE_ID,
@@ -143,7 +144,8 @@ public class InpatientExporter extends RIFExporter {
         // If the encounter has a recorded reason, enter the mapped
         // values into the principle diagnoses code.
         if (exporter.conditionCodeMapper.canMap(encounter.reason)) {
-          icdReasonCode = exporter.conditionCodeMapper.map(encounter.reason, person, true);
+          icdReasonCode = exporter.conditionCodeMapper.map(encounter.reason,
+                  person.exportRandom(), true);
           fieldValues.put(BB2RIFStructure.INPATIENT.PRNCPAL_DGNS_CD, icdReasonCode);
           fieldValues.put(BB2RIFStructure.INPATIENT.ADMTG_DGNS_CD, icdReasonCode);
         }
@@ -170,10 +172,10 @@ public class InpatientExporter extends RIFExporter {
         for (Claim.ClaimEntry lineItem: billableItems) {
           String hcpcsCode = null;
           if (lineItem.entry instanceof HealthRecord.Procedure) {
-            hcpcsCode = getFirstMappedHCPCSCode(lineItem.entry.codes, person);
+            hcpcsCode = getFirstMappedHCPCSCode(lineItem.entry.codes, person.exportRandom());
             String revCntr = originalRandomRevCenter;
             if (exporter.inpatientRevCntrMapper.canMap(hcpcsCode)) {
-              revCntr = exporter.inpatientRevCntrMapper.map(hcpcsCode, person);
+              revCntr = exporter.inpatientRevCntrMapper.map(hcpcsCode, person.exportRandom());
             }
             fieldValues.put(BB2RIFStructure.INPATIENT.REV_CNTR, revCntr);
             fieldValues.remove(BB2RIFStructure.INPATIENT.REV_CNTR_NDC_QTY);
@@ -238,15 +240,13 @@ public class InpatientExporter extends RIFExporter {
             String.format("%.2f", claim.getTotalClaimCost()));
     fieldValues.put(BB2RIFStructure.INPATIENT.REV_CNTR_NCVRD_CHRG_AMT,
             String.format("%.2f", claim.getPatientCost()));
-    if (claim.patientOutOfPocket.compareTo(Claim.ZERO_CENTS) == 0
-            && claim.getDeductiblePaid().compareTo(Claim.ZERO_CENTS) == 0) {
+    if (claim.patientOutOfPocket == 0 && claim.deductiblePaidByPatient == 0) {
       // Not subject to deductible or coinsurance
       fieldValues.put(BB2RIFStructure.INPATIENT.REV_CNTR_DDCTBL_COINSRNC_CD, "3");
-    } else if (claim.patientOutOfPocket.compareTo(Claim.ZERO_CENTS) > 0
-            && claim.getDeductiblePaid().compareTo(Claim.ZERO_CENTS) > 0) {
+    } else if (claim.patientOutOfPocket > 0 && claim.deductiblePaidByPatient > 0) {
       // Subject to deductible and coinsurance
       fieldValues.put(BB2RIFStructure.INPATIENT.REV_CNTR_DDCTBL_COINSRNC_CD, "0");
-    } else if (claim.patientOutOfPocket.compareTo(Claim.ZERO_CENTS) == 0) {
+    } else if (claim.patientOutOfPocket == 0) {
       // Not subject to deductible
       fieldValues.put(BB2RIFStructure.INPATIENT.REV_CNTR_DDCTBL_COINSRNC_CD, "1");
     } else {
@@ -282,7 +282,7 @@ public class InpatientExporter extends RIFExporter {
       // Add a DRG code, if applicable
       if (exporter.drgCodeMapper.canMap(icdCode)) {
         fieldValues.put(BB2RIFStructure.INPATIENT.CLM_DRG_CD,
-                exporter.drgCodeMapper.map(icdCode, person));
+                exporter.drgCodeMapper.map(icdCode, person.exportRandom()));
       }
       // Check for external code...
       exporter.setExternalCode(person, fieldValues,
@@ -308,7 +308,8 @@ public class InpatientExporter extends RIFExporter {
         for (HealthRecord.Code code : procedure.codes) {
           if (exporter.conditionCodeMapper.canMap(code)) {
             mappableProcedures.add(procedure);
-            mappedProcedureCodes.add(exporter.conditionCodeMapper.map(code, person, true));
+            mappedProcedureCodes.add(exporter.conditionCodeMapper.map(code,
+                    person.exportRandom(), true));
             break; // take the first mappable code for each procedure
           }
         }
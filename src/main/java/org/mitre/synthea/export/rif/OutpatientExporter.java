@@ -52,7 +52,7 @@ public class OutpatientExporter extends RIFExporter {
       for (Claim.ClaimEntry lineItem: billableItems) {
         billableTotal.addCosts(lineItem);
       }
-      if (billableTotal.getTotalClaimCost().compareTo(Claim.ZERO_CENTS) == 0) {
+      if (billableTotal.cost == 0) {
         continue;
       }
 
@@ -61,7 +61,8 @@ public class OutpatientExporter extends RIFExporter {
       long fiDocId = RIFExporter.nextFiDocCntlNum.getAndDecrement();
 
       HashMap<BB2RIFStructure.OUTPATIENT, String> fieldValues = new HashMap<>();
-      exporter.staticFieldConfig.setValues(fieldValues, BB2RIFStructure.OUTPATIENT.class, person);
+      exporter.staticFieldConfig.setValues(fieldValues, BB2RIFStructure.OUTPATIENT.class,
+              person.exportRandom());
 
       // The REQUIRED fields
       fieldValues.put(BB2RIFStructure.OUTPATIENT.BENE_ID,
@@ -101,7 +102,8 @@ public class OutpatientExporter extends RIFExporter {
         // If the encounter has a recorded reason, enter the mapped
         // values into the principle diagnoses code.
         if (exporter.conditionCodeMapper.canMap(encounter.reason)) {
-          icdReasonCode = exporter.conditionCodeMapper.map(encounter.reason, person, true);
+          icdReasonCode = exporter.conditionCodeMapper.map(encounter.reason,
+                  person.exportRandom(), true);
           fieldValues.put(BB2RIFStructure.OUTPATIENT.PRNCPAL_DGNS_CD, icdReasonCode);
         }
       }
@@ -127,12 +129,12 @@ public class OutpatientExporter extends RIFExporter {
         for (Claim.ClaimEntry lineItem : billableItems) {
           String hcpcsCode = null;
           if (lineItem.entry instanceof HealthRecord.Procedure) {
-            hcpcsCode = getFirstMappedHCPCSCode(lineItem.entry.codes, person);
+            hcpcsCode = getFirstMappedHCPCSCode(lineItem.entry.codes, person.exportRandom());
             String revCenter = originalRandomRevCenter;
             if (encounter.type.equals(HealthRecord.EncounterType.VIRTUAL.toString())) {
-              revCenter = person.randBoolean() ? "0780" : "0789";
+              revCenter = person.exportRandom().randBoolean() ? "0780" : "0789";
             } else if (exporter.outpatientRevCntrMapper.canMap(hcpcsCode)) {
-              revCenter = exporter.outpatientRevCntrMapper.map(hcpcsCode, person);
+              revCenter = exporter.outpatientRevCntrMapper.map(hcpcsCode, person.exportRandom());
             }
             fieldValues.put(BB2RIFStructure.OUTPATIENT.REV_CNTR, revCenter);
             fieldValues.remove(BB2RIFStructure.OUTPATIENT.REV_CNTR_IDE_NDC_UPC_NUM);
@@ -144,7 +146,8 @@ public class OutpatientExporter extends RIFExporter {
               hcpcsCode = "T1502";  // Administration of medication
               // Drugs requiring specific id
               fieldValues.put(BB2RIFStructure.OUTPATIENT.REV_CNTR, "0636");
-              String ndcCode = exporter.medicationCodeMapper.map(med.codes.get(0), person);
+              String ndcCode = exporter.medicationCodeMapper.map(med.codes.get(0),
+                      person.exportRandom());
               fieldValues.put(BB2RIFStructure.OUTPATIENT.REV_CNTR_IDE_NDC_UPC_NUM, ndcCode);
               fieldValues.put(BB2RIFStructure.OUTPATIENT.REV_CNTR_NDC_QTY, "1"); // 1 Unit
               fieldValues.put(BB2RIFStructure.OUTPATIENT.REV_CNTR_NDC_QTY_QLFR_CD, "UN"); // Unit
@@ -256,7 +259,8 @@ public class OutpatientExporter extends RIFExporter {
         for (HealthRecord.Code code : procedure.codes) {
           if (exporter.conditionCodeMapper.canMap(code)) {
             mappableProcedures.add(procedure);
-            mappedProcedureCodes.add(exporter.conditionCodeMapper.map(code, person, true));
+            mappedProcedureCodes.add(exporter.conditionCodeMapper.map(code,
+                    person.exportRandom(), true));
             break; // take the first mappable code for each procedure
           }
         }
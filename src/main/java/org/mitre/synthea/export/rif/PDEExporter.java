@@ -86,7 +86,7 @@ public class PDEExporter extends RIFExporter {
         long supplyInterval = supplyDaysMax * 24 * 60 * 60 * 1000;
         long finishTime = medication.stop == 0L ? stopTime : Long.min(medication.stop, stopTime);
         String medicationCode = exporter.medicationCodeMapper.map(medication.codes.get(0),
-                person);
+                person.exportRandom());
         long time = medication.start;
         int fillNo = 1;
         while (time < finishTime) {
@@ -117,7 +117,8 @@ public class PDEExporter extends RIFExporter {
       long claimGroupId = RIFExporter.nextClaimGroupId.getAndDecrement();
 
       fieldValues.clear();
-      exporter.staticFieldConfig.setValues(fieldValues, BB2RIFStructure.PDE.class, person);
+      exporter.staticFieldConfig.setValues(fieldValues, BB2RIFStructure.PDE.class,
+              person.exportRandom());
 
       // The REQUIRED fields
       fieldValues.put(BB2RIFStructure.PDE.PDE_ID, "" + pdeId);
@@ -138,7 +139,8 @@ public class PDEExporter extends RIFExporter {
       //         UUID.fromString(medication.claim.payer.uuid)
       //         .getMostSignificantBits())).substring(0, 5));
       fieldValues.put(BB2RIFStructure.PDE.PLAN_CNTRCT_REC_ID, fill.partDContractID.toString());
-      fieldValues.put(BB2RIFStructure.PDE.DAW_PROD_SLCTN_CD, "" + (int) person.rand(0, 9));
+      fieldValues.put(BB2RIFStructure.PDE.DAW_PROD_SLCTN_CD,
+          "" + (int) person.exportRandom().rand(0, 9));
       fieldValues.put(BB2RIFStructure.PDE.QTY_DSPNSD_NUM, "" + fill.quantity);
       fieldValues.put(BB2RIFStructure.PDE.DAYS_SUPLY_NUM, "" + fill.days);
       fieldValues.put(BB2RIFStructure.PDE.FILL_NUM, "" + fill.fillNo);
@@ -187,7 +189,8 @@ public class PDEExporter extends RIFExporter {
       fieldValues.put(BB2RIFStructure.PDE.NCVRD_PLAN_PD_AMT,
           String.format("%.2f", fill.medication.claim.getTotalAdjustment()));
 
-      fieldValues.put(BB2RIFStructure.PDE.PHRMCY_SRVC_TYPE_CD, "0" + (int) person.rand(1, 8));
+      fieldValues.put(BB2RIFStructure.PDE.PHRMCY_SRVC_TYPE_CD,
+          "0" + (int) person.exportRandom().rand(1, 8));
       fieldValues.put(BB2RIFStructure.PDE.PD_DT, RIFExporter.bb2DateFromTimestamp(fill.time));
       String residenceCode = getResidenceCode(person, fill.encounter);
       fieldValues.put(BB2RIFStructure.PDE.PTNT_RSDNC_CD, residenceCode);
@@ -206,7 +209,7 @@ public class PDEExporter extends RIFExporter {
   private static String getResidenceCode(Person person, HealthRecord.Encounter encounter) {
     Set<ClaimType> claimTypes = RIFExporter.getClaimTypes(encounter);
     String residenceCode = "00"; // 00=not specified
-    double roll = person.rand();
+    double roll = person.exportRandom().rand();
     if (claimTypes.contains(ClaimType.SNF)) {
       residenceCode = "03"; // 03=long-term
     } else if (claimTypes.contains(ClaimType.HHA)) {
@@ -193,7 +193,8 @@ public abstract class RIFExporter {
               dx.codes.add(dx.codes.get(0));
               diagnoses.add(dx);
             } else if (exporter.conditionCodeMapper.canMap(dx.codes.get(0))) {
-              String mapped = exporter.conditionCodeMapper.map(dx.codes.get(0), person, true);
+              String mapped = exporter.conditionCodeMapper.map(dx.codes.get(0),
+                      person.exportRandom(), true);
               // Temporarily add the mapped code... we'll remove it later.
               HealthRecord.Code mappedCode = new HealthRecord.Code("ICD10", mapped,
                       dx.codes.get(0).display);
@@ -241,7 +242,8 @@ public abstract class RIFExporter {
         if (dx.codes.get(0).system.startsWith("ICD10")) {
           diagnoses.add(dx);
         } else if (exporter.conditionCodeMapper.canMap(dx.codes.get(0).code)) {
-          String mapped = exporter.conditionCodeMapper.map(dx.codes.get(0).code, person, true);
+          String mapped = exporter.conditionCodeMapper.map(dx.codes.get(0).code,
+                  person.exportRandom(), true);
           if (mapped.equals(code)) {
             diagnoses.add(dx);
           }
@@ -420,7 +422,7 @@ public abstract class RIFExporter {
     billableItems.add(encounter.claim.mainEntry);
     billableItems.addAll(encounter.claim.items);
     billableItems.removeIf(claimEntry -> {
-      if (claimEntry.cost.compareTo(Claim.ZERO_CENTS) == 0) {
+      if (claimEntry.cost == 0) {
         return true; // zero cost entries are dropped
       } else if (claimEntry.entry instanceof HealthRecord.Procedure) {
         for (HealthRecord.Code code : claimEntry.entry.codes) {
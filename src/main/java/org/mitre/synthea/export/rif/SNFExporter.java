@@ -1,8 +1,6 @@
 package org.mitre.synthea.export.rif;
 
 import java.io.IOException;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -10,6 +8,7 @@ import java.util.Map;
 import org.apache.commons.lang3.StringUtils;
 import org.mitre.synthea.export.ExportHelper;
 import org.mitre.synthea.world.agents.Person;
+import org.mitre.synthea.world.concepts.Cents;
 import org.mitre.synthea.world.concepts.Claim;
 import org.mitre.synthea.world.concepts.HealthRecord;
 
@@ -56,7 +55,8 @@ public class SNFExporter extends RIFExporter {
       }
 
       HashMap<BB2RIFStructure.SNF, String> fieldValues = new HashMap<>();
-      exporter.staticFieldConfig.setValues(fieldValues, BB2RIFStructure.SNF.class, person);
+      exporter.staticFieldConfig.setValues(fieldValues, BB2RIFStructure.SNF.class,
+              person.exportRandom());
 
       int diagnosisCount = mapDiagnoses(fieldValues, person, encounter);
       int procedureCount = mapProcedures(fieldValues, person, encounter);
@@ -147,23 +147,20 @@ public class SNFExporter extends RIFExporter {
   private static void setClaimLineCosts(Map<BB2RIFStructure.SNF, String> fieldValues,
           Claim.ClaimCost lineItem, int count) {
     fieldValues.put(BB2RIFStructure.SNF.REV_CNTR_RATE_AMT,
-            String.format("%.2f", lineItem.cost
-                    .divide(BigDecimal.valueOf(count), RoundingMode.HALF_EVEN)
-                    .setScale(2, RoundingMode.HALF_EVEN)));
+            Cents.toString(Cents.divide(lineItem.cost, count)));
     fieldValues.put(BB2RIFStructure.SNF.REV_CNTR_TOT_CHRG_AMT,
-            String.format("%.2f", lineItem.cost));
+            Cents.toString(lineItem.cost));
     fieldValues.put(BB2RIFStructure.SNF.REV_CNTR_NCVRD_CHRG_AMT,
-            String.format("%.2f", lineItem.copayPaidByPatient
-                    .add(lineItem.deductiblePaidByPatient).add(lineItem.patientOutOfPocket)));
-    if (lineItem.patientOutOfPocket.compareTo(Claim.ZERO_CENTS) == 0
-            && lineItem.deductiblePaidByPatient.compareTo(Claim.ZERO_CENTS) == 0) {
+            Cents.toString(lineItem.getPatientCostInCents()));
+    if (lineItem.patientOutOfPocket == 0
+            && lineItem.deductiblePaidByPatient == 0) {
       // Not subject to deductible or coinsurance
       fieldValues.put(BB2RIFStructure.SNF.REV_CNTR_DDCTBL_COINSRNC_CD, "3");
-    } else if (lineItem.patientOutOfPocket.compareTo(Claim.ZERO_CENTS) > 0
-            && lineItem.deductiblePaidByPatient.compareTo(Claim.ZERO_CENTS) > 0) {
+    } else if (lineItem.patientOutOfPocket > 0
+            && lineItem.deductiblePaidByPatient > 0) {
       // Subject to deductible and coinsurance
       fieldValues.put(BB2RIFStructure.SNF.REV_CNTR_DDCTBL_COINSRNC_CD, "0");
-    } else if (lineItem.patientOutOfPocket.compareTo(Claim.ZERO_CENTS) == 0) {
+    } else if (lineItem.patientOutOfPocket == 0) {
       // Not subject to deductible
       fieldValues.put(BB2RIFStructure.SNF.REV_CNTR_DDCTBL_COINSRNC_CD, "1");
     } else {
@@ -242,12 +239,13 @@ public class SNFExporter extends RIFExporter {
       // If the encounter has a recorded reason, enter the mapped
       // values into the principle diagnoses code.
       if (exporter.conditionCodeMapper.canMap(encounter.reason)) {
-        String icdCode = exporter.conditionCodeMapper.map(encounter.reason, person, true);
+        String icdCode = exporter.conditionCodeMapper.map(encounter.reason,
+                person.exportRandom(), true);
         fieldValues.put(BB2RIFStructure.SNF.PRNCPAL_DGNS_CD, icdCode);
         fieldValues.put(BB2RIFStructure.SNF.ADMTG_DGNS_CD, icdCode);
         if (exporter.drgCodeMapper.canMap(icdCode)) {
           fieldValues.put(BB2RIFStructure.SNF.CLM_DRG_CD,
-                  exporter.drgCodeMapper.map(icdCode, person));
+                  exporter.drgCodeMapper.map(icdCode, person.exportRandom()));
         }
       }
     }
@@ -296,7 +294,7 @@ public class SNFExporter extends RIFExporter {
         fieldValues.put(BB2RIFStructure.SNF.ADMTG_DGNS_CD, icdCode);
         if (exporter.drgCodeMapper.canMap(icdCode)) {
           fieldValues.put(BB2RIFStructure.SNF.CLM_DRG_CD,
-                  exporter.drgCodeMapper.map(icdCode, person));
+                  exporter.drgCodeMapper.map(icdCode, person.exportRandom()));
         }
       }
     }
@@ -315,7 +313,8 @@ public class SNFExporter extends RIFExporter {
         for (HealthRecord.Code code : procedure.codes) {
           if (exporter.conditionCodeMapper.canMap(code)) {
             mappableProcedures.add(procedure);
-            mappedProcedureCodes.add(exporter.conditionCodeMapper.map(code, person, true));
+            mappedProcedureCodes.add(exporter.conditionCodeMapper.map(code,
+                    person.exportRandom(), true));
             break; // take the first mappable code for each procedure
           }
         }
@@ -353,11 +352,11 @@ public class SNFExporter extends RIFExporter {
         String revCntr = null;
         for (HealthRecord.Code code : lineItem.entry.codes) {
           if (exporter.snfRevCntrMapper.canMap(code)) {
-            revCntr = exporter.snfRevCntrMapper.map(code, person, true);
+            revCntr = exporter.snfRevCntrMapper.map(code, person.exportRandom(), true);
           }
           if (codeMapper.canMap(code)) {
-            if (person.rand() < 0.15) { // Only 15% of SNF claim have a HCPCS code
-              snfCode = codeMapper.map(code, person, true);
+            if (person.exportRandom().rand() < 0.15) { // Only 15% of SNF claim have a HCPCS code
+              snfCode = codeMapper.map(code, person.exportRandom(), true);
               consolidatedClaimLines.addClaimLine(snfCode, revCntr, lineItem, encounter);
             }
             break; // take the first mappable code for each procedure
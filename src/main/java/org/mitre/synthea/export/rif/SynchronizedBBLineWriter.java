@@ -6,6 +6,7 @@ import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Map;
 import org.mitre.synthea.export.Exporter;
+import org.mitre.synthea.export.OutputCodec;
 
 /**
  * Utility class for writing to BB2 writers.
@@ -78,11 +79,12 @@ class SynchronizedBBLineWriter<E extends Enum<E>> {
   }
 
   /**
-   * Get the file that this writer writes to.
+   * Get the file that this writer writes to, with the extension of the configured
+   * output compression if any.
    * @return the file
    */
   public File getFile() {
-    return path.toFile();
+    return OutputCodec.fromConfig().resolve(path).toFile();
   }
 
 }
@@ -37,15 +37,16 @@ public abstract class ContractHistory<T extends FixedLengthIdentifier> {
     int endYear = Utilities.getYear(stopTime);
     int endMonth = 12;
     contractPeriods = new ArrayList<>();
-    ContractPeriod currentContractPeriod = new ContractPeriod(endYear - yearsOfHistory, person);
+    ContractPeriod currentContractPeriod = new ContractPeriod(endYear - yearsOfHistory,
+            person.exportRandom());
     for (int year = endYear - yearsOfHistory; year <= endYear; year++) {
       if (year == endYear) {
         endMonth = Utilities.getMonth(stopTime);
       }
       for (int month = 1; month <= endMonth; month++) {
-        if ((month == 1 && person.randInt(100) < percentChangeOpenEnrollment)
-                || person.randInt(100) < percentChangeMidYear) {
-          ContractPeriod newContractPeriod = new ContractPeriod(year, month, person);
+        if ((month == 1 && person.exportRandom().randInt(100) < percentChangeOpenEnrollment)
+                || person.exportRandom().randInt(100) < percentChangeMidYear) {
+          ContractPeriod newContractPeriod = new ContractPeriod(year, month, person.exportRandom());
           T currentContractID = currentContractPeriod.getContractID();
           T newContractID = newContractPeriod.getContractID();
           if ((currentContractID != null && !currentContractID.equals(newContractID))
@@ -49,7 +49,7 @@ public class PartDContractHistory extends ContractHistory<PartDContractID> {
     // 1% chance of being enrolled in employer PDP if person's income is above threshold
     // TBD determine real % of employer PDP enrollment
     employeePDP = getPartDCostSharingCode(person).equals("09")
-            && person.randInt(100) == 1;
+            && person.exportRandom().randInt(100) == 1;
   }
 
   /**
@@ -35,6 +35,14 @@ public abstract class FixedLengthIdentifier {
 
   public abstract <T extends FixedLengthIdentifier> T next();
 
+  /**
+   * Get the number of identifiers that follow this one before the format runs out.
+   * @return the number of identifiers after this one
+   */
+  public long remaining() {
+    return maxValue(format) - value;
+  }
+
   public static String getAndUpdateId(AtomicReference<? extends FixedLengthIdentifier> idRef) {
     FixedLengthIdentifier id = idRef.getAndUpdate(v -> v.next());
     return id.toString();
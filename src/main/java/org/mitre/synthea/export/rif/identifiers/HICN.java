@@ -51,6 +51,16 @@ public class HICN extends FixedLengthIdentifier {
 
   @Override
   public HICN next() {
-    return new HICN(value + 1, fake);
+    return plus(1);
+  }
+
+  /**
+   * Get the HICN that comes the given number of identifiers after this one.
+   * @param count the number of identifiers to skip
+   * @return the HICN
+   * @throws IllegalArgumentException if the result is out of range
+   */
+  public HICN plus(long count) {
+    return new HICN(value + count, fake);
   }
 }
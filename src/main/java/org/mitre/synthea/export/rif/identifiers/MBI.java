@@ -51,6 +51,16 @@ public class MBI extends FixedLengthIdentifier {
 
   @Override
   public MBI next() {
-    return new MBI(value + 1, fake);
+    return plus(1);
+  }
+
+  /**
+   * Get the MBI that comes the given number of identifiers after this one.
+   * @param count the number of identifiers to skip
+   * @return the MBI
+   * @throws IllegalArgumentException if the result is out of range
+   */
+  public MBI plus(long count) {
+    return new MBI(value + count, fake);
   }
 }
@@ -1,18 +1,22 @@
 package org.mitre.synthea.export.rif.tools;
 
-import com.fasterxml.jackson.databind.MappingIterator;
-import com.fasterxml.jackson.databind.SequenceWriter;
-import com.fasterxml.jackson.dataformat.csv.CsvMapper;
-import com.fasterxml.jackson.dataformat.csv.CsvSchema;
-import java.io.File;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
+import org.mitre.synthea.export.OutputCodec;
+
 /**
  * Utility for converting from original BB2 RIF 3 file bene output to one bene file per year.
+ * Rows are copied as they are, and only the year column of each is read. Compressed input files
+ * are read, and the output files compressed, with the {@link OutputCodec} of their extension.
  */
 public class BB2RIFBeneSplitter {
 
@@ -27,6 +31,24 @@ public class BB2RIFBeneSplitter {
     "BENE_ENROLLMT_REF_YR" // CCW
   };
 
+  /** The output file of one year. */
+  private static class YearWriter {
+    private final String[] header;
+    private final OutputStream out;
+
+    private YearWriter(Path outputFile, String[] header) throws IOException {
+      this.header = header;
+      this.out = new BufferedOutputStream(
+          OutputCodec.forFile(outputFile).wrap(Files.newOutputStream(outputFile)), 1024 * 1024);
+      writeLine(header);
+    }
+
+    private void writeLine(String[] columns) throws IOException {
+      out.write(String.join("|", columns).getBytes(StandardCharsets.UTF_8));
+      out.write(System.lineSeparator().getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
   /**
    * Split original 3 bene files into one file per year.Read in original beneficiary.csv,
    * beneficiary_interim.csv and beneficiary_final.csv from the current directory and output one
@@ -41,49 +63,78 @@ public class BB2RIFBeneSplitter {
       System.out.println("Usage ./gradlew rifBeneSplit -Pargs=\"inputDir\"");
       System.exit(-1);
     }
-    Map<String, SequenceWriter> writers = new HashMap<>();
-    for (String inputFileName: inputFiles) {
-      File inputFile = Path.of(args[0]).resolve(inputFileName).toFile();
-      CsvMapper mapper = new CsvMapper();
-      CsvSchema schema = CsvSchema.emptySchema().withHeader().withColumnSeparator('|');
-      MappingIterator<LinkedHashMap<String, String>> sourceRows = mapper
-              .readerFor(LinkedHashMap.class).with(schema).readValues(inputFile);
-      while (sourceRows.hasNextValue()) {
-        LinkedHashMap<String, String> inputRow = sourceRows.next();
-        String year = getYear(inputRow);
+    Map<String, YearWriter> writers = new HashMap<>();
+    try {
+      for (String inputFileName: inputFiles) {
+        split(Path.of(args[0]), inputFileName, writers);
+      }
+    } finally {
+      for (YearWriter writer: writers.values()) {
+        writer.out.close();
+      }
+    }
+  }
+
+  /**
+   * Copy the rows of one input file to the files of their years. The input files are read in
+   * turn so that the rows of each year keep their order.
+   */
+  private static void split(Path directory, String inputFileName, Map<String, YearWriter> writers)
+          throws IOException {
+    Path inputFile = directory.resolve(inputFileName);
+    OutputCodec codec = OutputCodec.NONE;
+    for (OutputCodec candidate : OutputCodec.values()) {
+      if (Files.exists(candidate.resolve(inputFile))) {
+        codec = candidate;
+        break;
+      }
+    }
+    try (LineScanner scanner = new LineScanner(codec.resolve(inputFile), '|')) {
+      if (!scanner.next()) {
+        return;
+      }
+      String[] header = scanner.columns();
+      int yearColumn = getYearColumn(header);
+      while (scanner.next()) {
+        String year = yearColumn < 0 ? null : scanner.column(yearColumn);
         if (year == null) {
           throw new IOException(
                   String.format("Error: %s does not contain a year field", inputFileName));
         }
-        if (!writers.containsKey(year)) {
-          writers.put(year, getWriter(year, mapper, args[0], inputRow));
+        YearWriter writer = writers.get(year);
+        if (writer == null) {
+          Path outputFile = codec.resolve(directory.resolve("beneficiary_" + year + ".csv"));
+          writer = new YearWriter(outputFile, header);
+          writers.put(year, writer);
+        }
+        if (Arrays.equals(header, writer.header)) {
+          scanner.copyLine(writer.out);
+        } else {
+          // the columns of this file are in a different order to those of the year's file
+          writer.writeLine(reorder(header, scanner.columns(), writer.header));
         }
-        writers.get(year).write(inputRow);
       }
-      sourceRows.close();
-    }
-    for (SequenceWriter writer: writers.values()) {
-      writer.close();
     }
   }
 
-  private static String getYear(LinkedHashMap<String, String> row) {
-    String year = null;
+  private static int getYearColumn(String[] header) {
+    List<String> columns = Arrays.asList(header);
     for (String yearField: yearFields) {
-      year = row.get(yearField);
-      if (year != null) {
-        break;
+      int index = columns.indexOf(yearField);
+      if (index >= 0) {
+        return index;
       }
     }
-    return year;
+    return -1;
   }
 
-  private static SequenceWriter getWriter(String year, CsvMapper mapper, String outputDir,
-          LinkedHashMap<String, String> inputRow) throws IOException {
-    File outputFile = Path.of(outputDir).resolve("beneficiary_" + year + ".csv").toFile();
-    CsvSchema.Builder schemaBuilder = CsvSchema.builder();
-    schemaBuilder.setUseHeader(true).setColumnSeparator('|').disableQuoteChar();
-    schemaBuilder.addColumns(inputRow.keySet(), CsvSchema.ColumnType.STRING);
-    return mapper.writer(schemaBuilder.build()).writeValues(outputFile);
+  private static String[] reorder(String[] header, String[] row, String[] outputHeader) {
+    List<String> columns = Arrays.asList(header);
+    String[] output = new String[outputHeader.length];
+    for (int i = 0; i < outputHeader.length; i++) {
+      int index = columns.indexOf(outputHeader[i]);
+      output[i] = index >= 0 && index < row.length ? row[index] : "";
+    }
+    return output;
   }
 }
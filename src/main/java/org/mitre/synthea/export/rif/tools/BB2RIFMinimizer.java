@@ -1,11 +1,17 @@
 package org.mitre.synthea.export.rif.tools;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
@@ -14,12 +20,15 @@ import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 import org.mitre.synthea.export.Exporter;
+import org.mitre.synthea.export.OutputCodec;
 import org.mitre.synthea.export.rif.BB2RIFStructure.EXPORT_SUMMARY;
 import org.mitre.synthea.helpers.SimpleCSV;
 
 /**
  * Functionality to filter a set of RIF files to leave only enough beneficiaries to cover all
- * claim types.
+ * claim types. The files are scanned in parallel, a line at a time, and only the BENE_ID column
+ * of each line is read. Compressed files are read and written with the {@link OutputCodec} of
+ * their extension.
  */
 public class BB2RIFMinimizer {
 
@@ -51,36 +60,86 @@ public class BB2RIFMinimizer {
 
   private static void filterOutputFiles(File inputDir, File outputDir, List<String> minimalBenes)
           throws IOException {
-    for (File f: inputDir.listFiles((file, name) -> name.endsWith(".csv"))) {
-      char columnSeparator = '|';
-      if (f.getName().equals("export_summary.csv")) {
-        columnSeparator = ',';
-      }
-      String csvData = new String(Files.readAllBytes(f.toPath()));
-      List<LinkedHashMap<String, String>> csv = SimpleCSV.parse(csvData, columnSeparator);
-      csv.removeIf((row) -> !minimalBenes.contains(row.get(EXPORT_SUMMARY.BENE_ID.toString())));
-      if (csv.size() > 0) {
-        Files.write(outputDir.toPath().resolve(f.getName()),
-                SimpleCSV.unparse(csv, columnSeparator).getBytes());
-      } else {
-        // this shoudn't happen since the minimum set of benes should cover all claim types
-        System.out.printf("Unexpectedly empty: %s", f.getName());
-        System.exit(-1);
+    Set<String> benes = new HashSet<>(minimalBenes);
+    List<String> emptyFiles = Collections.synchronizedList(new ArrayList<>());
+    try {
+      Arrays.stream(inputDir.listFiles((file, name) -> uncompressedName(name).endsWith(".csv")))
+          .parallel()
+          .forEach(f -> {
+            try {
+              if (!filterOutputFile(f, outputDir, benes)) {
+                emptyFiles.add(f.getName());
+              }
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    if (!emptyFiles.isEmpty()) {
+      // this shoudn't happen since the minimum set of benes should cover all claim types
+      System.out.printf("Unexpectedly empty: %s", String.join(", ", emptyFiles));
+      System.exit(-1);
+    }
+  }
+
+  /**
+   * Copy the header of a RIF file, and the rows of the given benes.
+   * @return false if the file has no rows of the given benes, in which case it is not written.
+   */
+  private static boolean filterOutputFile(File f, File outputDir, Set<String> benes)
+          throws IOException {
+    char columnSeparator = '|';
+    if (uncompressedName(f.getName()).equals("export_summary.csv")) {
+      columnSeparator = ',';
+    }
+    Path outputFile = outputDir.toPath().resolve(f.getName());
+    long rows = 0;
+    try (LineScanner scanner = new LineScanner(f.toPath(), columnSeparator);
+        OutputStream out = new BufferedOutputStream(
+            OutputCodec.forFile(outputFile).wrap(Files.newOutputStream(outputFile)),
+            1024 * 1024)) {
+      if (scanner.next()) {
+        int beneColumn = Arrays.asList(scanner.columns())
+            .indexOf(EXPORT_SUMMARY.BENE_ID.toString());
+        scanner.copyLine(out);
+        while (beneColumn >= 0 && scanner.next()) {
+          if (benes.contains(scanner.column(beneColumn))) {
+            scanner.copyLine(out);
+            rows++;
+          }
+        }
       }
     }
+    if (rows == 0) {
+      Files.delete(outputFile);
+      return false;
+    }
+    return true;
   }
 
   private static List<String> getMinimalSetOfBenes(File inputDir)
           throws FileNotFoundException, IOException {
     Path summaryPath = inputDir.toPath().resolve("export_summary.csv").toAbsolutePath();
-    if (!summaryPath.toFile().exists()) {
-      throw new FileNotFoundException(String.format(
-              "Export summary file (%s) not found - did you run the RIF exporter?",
-              summaryPath.toString()));
+    for (OutputCodec codec : OutputCodec.values()) {
+      Path compressedPath = codec.resolve(summaryPath);
+      if (compressedPath.toFile().exists()) {
+        try (InputStream in = codec.unwrap(Files.newInputStream(compressedPath))) {
+          return getMinimalSetOfBenes(new String(in.readAllBytes()));
+        }
+      }
     }
+    throw new FileNotFoundException(String.format(
+            "Export summary file (%s) not found - did you run the RIF exporter?",
+            summaryPath.toString()));
+  }
 
-    String csvData = new String(Files.readAllBytes(summaryPath));
-    return getMinimalSetOfBenes(csvData);
+  /**
+   * Get the name of a file without the extension of the codec it was compressed with, if any.
+   */
+  private static String uncompressedName(String name) {
+    return OutputCodec.forFile(Path.of(name)).strip(name);
   }
 
   static List<String> getMinimalSetOfBenes(String csvData) throws IOException {
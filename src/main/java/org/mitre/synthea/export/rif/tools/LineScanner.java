@@ -0,0 +1,216 @@
+package org.mitre.synthea.export.rif.tools;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.mitre.synthea.export.OutputCodec;
+
+/**
+ * Reads the lines of a delimited RIF file through memory-mapped windows of the file, so that
+ * files of any size can be scanned without reading them into memory. Only the columns that are
+ * asked for are decoded, and a line can be copied to an output as it is. Files written with an
+ * {@link OutputCodec} cannot be mapped, so they are decompressed into smaller windows on the
+ * heap instead.
+ *
+ * <p>RIF files are written without quoting, so columns are split on every separator.</p>
+ */
+final class LineScanner implements Closeable {
+  private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+  private static final int STREAM_WINDOW_SIZE = 1024 * 1024;
+  private static final byte[] LINE_SEPARATOR =
+      System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
+  /** The file, if it is mapped. */
+  private final FileChannel channel;
+  /** The decompressed file, if it is not mapped. */
+  private final InputStream in;
+  private final int windowLength;
+  /** The size of the file, or Long.MAX_VALUE until the end of a decompressed file is read. */
+  private long size;
+  private final byte separator;
+  private ByteBuffer window;
+  /** The offset of the window in the file. */
+  private long windowStart;
+  private int windowSize;
+  /** The offset in the window of the start of the next line. */
+  private int position;
+  private int lineStart;
+  /** The offset in the window of the end of the current line, before any line terminator. */
+  private int lineEnd;
+  private byte[] buffer = new byte[8192];
+
+  /**
+   * Open a file to scan.
+   * @param file the file.
+   * @param separator the column separator.
+   * @throws IOException if the file cannot be opened.
+   */
+  LineScanner(Path file, char separator) throws IOException {
+    OutputCodec codec = OutputCodec.forFile(file);
+    if (codec == OutputCodec.NONE) {
+      this.channel = FileChannel.open(file, StandardOpenOption.READ);
+      this.in = null;
+      this.size = channel.size();
+      this.windowLength = WINDOW_SIZE;
+    } else {
+      this.channel = null;
+      // an empty file has no header for the codec to read
+      this.in = Files.size(file) == 0 ? InputStream.nullInputStream()
+          : codec.unwrap(Files.newInputStream(file));
+      this.size = Long.MAX_VALUE;
+      this.windowLength = STREAM_WINDOW_SIZE;
+    }
+    this.separator = (byte) separator;
+    map(0, windowLength);
+  }
+
+  private void map(long start, int length) throws IOException {
+    if (channel != null) {
+      windowSize = (int) Math.min(length, size - start);
+      window = channel.map(FileChannel.MapMode.READ_ONLY, start, windowSize);
+    } else {
+      // keep the rest of the current window, and decompress more of the file after it
+      byte[] bytes = new byte[length];
+      int filled = 0;
+      if (window != null) {
+        filled = windowSize - (int) (start - windowStart);
+        window.position((int) (start - windowStart));
+        window.get(bytes, 0, filled);
+      }
+      while (filled < length) {
+        int read = in.read(bytes, filled, length - filled);
+        if (read < 0) {
+          size = start + filled;
+          break;
+        }
+        filled += read;
+      }
+      windowSize = filled;
+      window = ByteBuffer.wrap(bytes, 0, filled);
+    }
+    windowStart = start;
+    position = 0;
+  }
+
+  /**
+   * Move to the next line of the file. Blank lines are skipped.
+   * @return false if there are no more lines.
+   * @throws IOException if the file cannot be read.
+   */
+  boolean next() throws IOException {
+    while (windowStart + position < size) {
+      int end = indexOf((byte) '\n', position, windowSize);
+      int next = end + 1;
+      if (end < 0) {
+        if (windowStart + windowSize < size) {
+          // the line continues past the window, so move the window to the start of the line,
+          // and make it larger if the line is longer than a whole window
+          if (position == 0 && windowSize > Integer.MAX_VALUE / 2) {
+            throw new IOException("Line too long at offset " + windowStart);
+          }
+          map(windowStart + position, position == 0 ? windowSize * 2 : windowLength);
+          continue;
+        }
+        // the last line does not have a terminator
+        end = windowSize;
+        next = windowSize;
+      }
+      lineStart = position;
+      lineEnd = end > lineStart && window.get(end - 1) == '\r' ? end - 1 : end;
+      position = next;
+      if (lineEnd > lineStart) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private int indexOf(byte b, int from, int to) {
+    for (int i = from; i < to; i++) {
+      if (window.get(i) == b) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Get a column of the current line.
+   * @param index the index of the column.
+   * @return the value of the column, or null if the line does not have that many columns.
+   */
+  String column(int index) {
+    int start = lineStart;
+    for (int i = 0; i < index; i++) {
+      int end = indexOf(separator, start, lineEnd);
+      if (end < 0) {
+        return null;
+      }
+      start = end + 1;
+    }
+    int end = indexOf(separator, start, lineEnd);
+    return decode(start, end < 0 ? lineEnd : end);
+  }
+
+  /**
+   * Get every column of the current line, such as the names of the columns in a header.
+   * @return the values of the columns.
+   */
+  String[] columns() {
+    List<String> columns = new ArrayList<String>();
+    int start = lineStart;
+    int end;
+    while ((end = indexOf(separator, start, lineEnd)) >= 0) {
+      columns.add(decode(start, end));
+      start = end + 1;
+    }
+    columns.add(decode(start, lineEnd));
+    return columns.toArray(new String[0]);
+  }
+
+  /**
+   * Copy the current line to an output, followed by the system line separator.
+   * @param out the output.
+   * @throws IOException if the line cannot be written.
+   */
+  void copyLine(OutputStream out) throws IOException {
+    int length = fill(lineStart, lineEnd);
+    out.write(buffer, 0, length);
+    out.write(LINE_SEPARATOR);
+  }
+
+  private String decode(int start, int end) {
+    int length = fill(start, end);
+    return new String(buffer, 0, length, StandardCharsets.UTF_8);
+  }
+
+  private int fill(int start, int end) {
+    int length = end - start;
+    if (buffer.length < length) {
+      buffer = new byte[Math.max(length, buffer.length * 2)];
+    }
+    window.position(start);
+    window.get(buffer, 0, length);
+    return length;
+  }
+
+  @Override
+  public void close() throws IOException {
+    window = null;
+    if (channel != null) {
+      channel.close();
+    } else {
+      in.close();
+    }
+  }
+}
@@ -0,0 +1,235 @@
+package org.mitre.synthea.helpers;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable weighted sampler. All state is held in final primitive arrays, so a single instance
+ * can be shared between threads without synchronization, and every draw consumes exactly one
+ * value from the random number generator.
+ *
+ * <p>With the default <code>generate.random.algorithm = legacy</code>, a draw makes a binary
+ * search over the cumulative weights in the order the items were added, which selects exactly the
+ * same item for a given random value as the cumulative walk that earlier versions used, so
+ * existing seeds still give the same people. With <code>splittable</code>, which already changes
+ * every draw, the sampler instead uses Vose's alias method, so every draw takes constant time
+ * regardless of how many items the sampler holds. The method is chosen when the sampler is
+ * built.</p>
+ *
+ * <p>Instances are created with a {@link Builder}:</p>
+ * <pre>
+ * AliasSampler&lt;String&gt; sampler = AliasSampler.&lt;String&gt;builder()
+ *     .add(0.25, "a")
+ *     .add(0.75, "b")
+ *     .build();
+ * </pre>
+ *
+ * @param <E> the type of item being sampled.
+ */
+public final class AliasSampler<E> implements Serializable {
+  private static final long serialVersionUID = -3094521865627309853L;
+
+  private final Object[] items;
+  // cumulative weights, only used when there is no alias table
+  private final double[] cumulative;
+  private final double total;
+  private final double[] probability;
+  private final int[] alias;
+
+  private AliasSampler(Object[] items, double[] weights, double total, boolean useAlias) {
+    int n = items.length;
+    this.total = total;
+    if (!useAlias) {
+      // An item whose weight is too small to change the running total replaces the item before
+      // it, as it did when the cumulative weights were the keys of a map.
+      Object[] kept = new Object[n];
+      double[] sums = new double[n];
+      int count = 0;
+      double sum = 0;
+      for (int i = 0; i < n; i++) {
+        sum += weights[i];
+        if (count > 0 && sums[count - 1] == sum) {
+          count--;
+        }
+        kept[count] = items[i];
+        sums[count++] = sum;
+      }
+      this.items = Arrays.copyOf(kept, count);
+      this.cumulative = Arrays.copyOf(sums, count);
+      this.probability = null;
+      this.alias = null;
+      return;
+    }
+    this.items = items;
+    this.cumulative = null;
+    this.probability = new double[n];
+    this.alias = new int[n];
+
+    // Scale the weights so that the average is 1.0, then pair each "small" column (below the
+    // average) with a "large" column that donates the remainder of the small column's slot.
+    double[] scaled = new double[n];
+    int[] small = new int[n];
+    int[] large = new int[n];
+    int smallCount = 0;
+    int largeCount = 0;
+    for (int i = 0; i < n; i++) {
+      scaled[i] = weights[i] * n / total;
+      if (scaled[i] < 1.0) {
+        small[smallCount++] = i;
+      } else {
+        large[largeCount++] = i;
+      }
+    }
+    while (smallCount > 0 && largeCount > 0) {
+      int less = small[--smallCount];
+      int more = large[--largeCount];
+      probability[less] = scaled[less];
+      alias[less] = more;
+      scaled[more] = (scaled[more] + scaled[less]) - 1.0;
+      if (scaled[more] < 1.0) {
+        small[smallCount++] = more;
+      } else {
+        large[largeCount++] = more;
+      }
+    }
+    // Anything left over is only off from 1.0 due to floating point error.
+    while (largeCount > 0) {
+      int index = large[--largeCount];
+      probability[index] = 1.0;
+      alias[index] = index;
+    }
+    while (smallCount > 0) {
+      int index = small[--smallCount];
+      probability[index] = 1.0;
+      alias[index] = index;
+    }
+  }
+
+  /**
+   * Create a new builder.
+   * @param <E> the type of item being sampled.
+   * @return an empty builder.
+   */
+  public static <E> Builder<E> builder() {
+    return new Builder<E>();
+  }
+
+  /**
+   * Select an item at random by the weight of the items. Selecting an item does not remove it
+   * from the sampler.
+   * @param random the random number generator.
+   * @return a random item weighted by the item weights.
+   */
+  public E next(RandomNumberGenerator random) {
+    return next(random.rand());
+  }
+
+  /**
+   * Select the item corresponding to the given uniform value. Without an alias table, this is
+   * the first item whose cumulative weight is greater than <code>value</code> times the total
+   * weight. With one, the integer part of <code>value * size()</code> selects a column of the
+   * table and the fractional part selects between that column's item and its alias.
+   * @param value a value between 0.0 (inclusive) and 1.0 (exclusive).
+   * @return the selected item.
+   */
+  @SuppressWarnings("unchecked")
+  E next(double value) {
+    int n = items.length;
+    if (n == 0) {
+      throw new IllegalStateException("Cannot select an item from an empty collection.");
+    }
+    if (alias == null) {
+      double target = value * total;
+      int low = 0;
+      int high = n - 1;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (cumulative[mid] > target) {
+          high = mid;
+        } else {
+          low = mid + 1;
+        }
+      }
+      return (E) items[low];
+    }
+    double scaled = value * n;
+    int column = (int) scaled;
+    if (column >= n) {
+      column = n - 1;
+    }
+    if (scaled - column < probability[column]) {
+      return (E) items[column];
+    }
+    return (E) items[alias[column]];
+  }
+
+  /**
+   * Check whether this sampler uses an alias table rather than the cumulative weights.
+   * @return true if every draw takes constant time.
+   */
+  public boolean usesAliasTable() {
+    return alias != null;
+  }
+
+  /**
+   * Get the number of items that may be selected.
+   * @return the number of items.
+   */
+  public int size() {
+    return items.length;
+  }
+
+  /**
+   * Builder for an {@link AliasSampler}. Items with a weight that is not positive are ignored.
+   * @param <E> the type of item being sampled.
+   */
+  public static final class Builder<E> {
+    private final List<E> items = new ArrayList<E>();
+    private double[] weights = new double[8];
+    private double total = 0;
+
+    private Builder() {
+    }
+
+    /**
+     * Add an item with the given weight. If the weight is not positive, the item is not added.
+     * @param weight positive weight of the item.
+     * @param item the item.
+     * @return this builder.
+     */
+    public Builder<E> add(double weight, E item) {
+      if (weight <= 0) {
+        return this;
+      }
+      int index = items.size();
+      if (index == weights.length) {
+        weights = Arrays.copyOf(weights, index * 2);
+      }
+      weights[index] = weight;
+      items.add(item);
+      total += weight;
+      return this;
+    }
+
+    /**
+     * Build the sampler, using the alias method only if the configured random number algorithm
+     * is <code>splittable</code>. The builder may continue to be used afterwards.
+     * @return an immutable sampler over the items added so far.
+     */
+    public AliasSampler<E> build() {
+      return build(DefaultRandomNumberGenerator.Algorithm.fromConfig()
+          == DefaultRandomNumberGenerator.Algorithm.SPLITTABLE);
+    }
+
+    /**
+     * Build the sampler. The builder may continue to be used afterwards.
+     * @param useAlias true to use the alias method, false to search the cumulative weights.
+     * @return an immutable sampler over the items added so far.
+     */
+    AliasSampler<E> build(boolean useAlias) {
+      return new AliasSampler<E>(items.toArray(), weights, total, useAlias);
+    }
+  }
+}
@@ -450,9 +450,9 @@ public class ChartRenderer {
         // If time is defined for the X axis, and it hasn't yet been created,
         // create the time axis values now
         if (valuesX == null && axisIsTimeX) {
-          valuesX = new ArrayList<Double>(timeSeries.getValues().size());
+          valuesX = new ArrayList<Double>(timeSeries.size());
 
-          for (int i = 0; i < timeSeries.getValues().size(); i++) {
+          for (int i = 0; i < timeSeries.size(); i++) {
             valuesX.add(timeSeries.getPeriod() * i);
           }
         }
@@ -1,69 +1,133 @@
 package org.mitre.synthea.helpers;
 
 import java.io.Serializable;
-import java.util.Random;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A default implementation of the RandomNumberGenerator interface.
  * The goal is to isolate sources of randomness by consolidating the use of java.util.Random
  * or other sources of randomness for traceability.
+ *
+ * <p>A generator is only ever used by one thread at a time (each Person is simulated by a single
+ * thread), so unlike java.util.Random it does not update its state atomically. The algorithm is
+ * selected with <code>generate.random.algorithm</code>: <code>legacy</code> produces exactly the
+ * same numbers as java.util.Random with the same seed, and <code>splittable</code> uses the
+ * faster SplitMix64 algorithm of java.util.SplittableRandom.</p>
+ *
+ * <p>A generator can be split into named streams with {@link #split(String)}. The seed of a
+ * stream only depends on the seed of this generator and the name of the stream, so drawing
+ * numbers from one stream does not change the numbers drawn from this generator or any other
+ * stream.</p>
  */
 public class DefaultRandomNumberGenerator implements RandomNumberGenerator, Serializable {
+  private static final long serialVersionUID = -3158326915438417493L;
 
-  private long seed;
-  private Random random;
-  private AtomicLong count;
+  /**
+   * The algorithms that a generator can use.
+   */
+  public enum Algorithm {
+    /** The linear congruential generator of java.util.Random. */
+    LEGACY,
+    /** The SplitMix64 generator of java.util.SplittableRandom. */
+    SPLITTABLE;
+
+    /**
+     * Get the algorithm selected by <code>generate.random.algorithm</code>.
+     * @return the configured algorithm, legacy by default.
+     */
+    public static Algorithm fromConfig() {
+      String name = Config.get("generate.random.algorithm", "legacy");
+      try {
+        return Algorithm.valueOf(name.trim().toUpperCase());
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("Unknown generate.random.algorithm: " + name, e);
+      }
+    }
+  }
+
+  private final long seed;
+  private final Algorithm algorithm;
+  private final Source source;
+  private long count;
 
   /**
-   * Create a new default random number generator.
+   * Create a new default random number generator, using the configured algorithm.
    * @param seed The random number generator seed.
    */
   public DefaultRandomNumberGenerator(long seed) {
+    this(seed, Algorithm.fromConfig());
+  }
+
+  /**
+   * Create a new default random number generator.
+   * @param seed The random number generator seed.
+   * @param algorithm The algorithm to generate numbers with.
+   */
+  public DefaultRandomNumberGenerator(long seed, Algorithm algorithm) {
     this.seed = seed;
-    random = new Random(this.seed);
-    count = new AtomicLong();
+    this.algorithm = algorithm;
+    if (algorithm == Algorithm.LEGACY) {
+      this.source = new LegacySource(seed);
+    } else {
+      this.source = new SplitMixSource(seed);
+    }
   }
 
   public long getSeed() {
     return this.seed;
   }
 
+  public Algorithm getAlgorithm() {
+    return this.algorithm;
+  }
+
+  /**
+   * Create an independent generator for a named stream of numbers, using the same algorithm.
+   * This does not draw any numbers from this generator, and the same name always gives the
+   * same stream.
+   * @param name The name of the stream.
+   * @return A new generator.
+   */
+  public DefaultRandomNumberGenerator split(String name) {
+    long streamSeed = SplitMixSource.mix64(seed + SplitMixSource.mix64(
+        SplitMixSource.GOLDEN_GAMMA * name.hashCode()));
+    return new DefaultRandomNumberGenerator(streamSeed, algorithm);
+  }
+
   @Override
   public double rand() {
-    count.incrementAndGet();
-    return random.nextDouble();
+    count++;
+    return source.nextDouble();
   }
 
   @Override
   public boolean randBoolean() {
-    count.incrementAndGet();
-    return random.nextBoolean();
+    count++;
+    return source.nextBoolean();
   }
 
   @Override
   public double randGaussian() {
-    count.incrementAndGet();
-    return random.nextGaussian();
+    count++;
+    return source.nextGaussian();
   }
 
   @Override
   public int randInt() {
-    count.incrementAndGet();
-    return random.nextInt();
+    count++;
+    return source.nextInt();
   }
 
   @Override
   public int randInt(int bound) {
-    count.incrementAndGet();
-    return random.nextInt(bound);
+    count++;
+    return source.nextInt(bound);
   }
 
   @Override
   public long randLong() {
-    count.incrementAndGet();
-    return random.nextLong();
+    count++;
+    return source.nextLong();
   }
 
   @Override
@@ -73,7 +137,168 @@ public class DefaultRandomNumberGenerator implements RandomNumberGenerator, Seri
 
   @Override
   public long getCount() {
-    return count.get();
+    return count;
+  }
+
+  /**
+   * The state of an algorithm. Gaussian values are made from uniform doubles with the polar
+   * method, as java.util.Random does.
+   */
+  private abstract static class Source implements Serializable {
+    private static final long serialVersionUID = 5306287467916208541L;
+
+    private double nextNextGaussian;
+    private boolean haveNextNextGaussian;
+
+    abstract double nextDouble();
+
+    abstract boolean nextBoolean();
+
+    abstract int nextInt();
+
+    abstract int nextInt(int bound);
+
+    abstract long nextLong();
+
+    double nextGaussian() {
+      if (haveNextNextGaussian) {
+        haveNextNextGaussian = false;
+        return nextNextGaussian;
+      }
+      double v1;
+      double v2;
+      double s;
+      do {
+        v1 = 2 * nextDouble() - 1;
+        v2 = 2 * nextDouble() - 1;
+        s = v1 * v1 + v2 * v2;
+      } while (s >= 1 || s == 0);
+      double multiplier = StrictMath.sqrt(-2 * StrictMath.log(s) / s);
+      nextNextGaussian = v2 * multiplier;
+      haveNextNextGaussian = true;
+      return v1 * multiplier;
+    }
+  }
+
+  /**
+   * The algorithm of java.util.Random, without the atomic update of its state.
+   */
+  private static final class LegacySource extends Source {
+    private static final long serialVersionUID = -7629524934577123917L;
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    private long state;
+
+    LegacySource(long seed) {
+      state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    private int next(int bits) {
+      state = (state * MULTIPLIER + ADDEND) & MASK;
+      return (int) (state >>> (48 - bits));
+    }
+
+    @Override
+    double nextDouble() {
+      return (((long) next(26) << 27) + next(27)) * 0x1.0p-53;
+    }
+
+    @Override
+    boolean nextBoolean() {
+      return next(1) != 0;
+    }
+
+    @Override
+    int nextInt() {
+      return next(32);
+    }
+
+    @Override
+    int nextInt(int bound) {
+      if (bound <= 0) {
+        throw new IllegalArgumentException("bound must be positive");
+      }
+      int r = next(31);
+      int m = bound - 1;
+      if ((bound & m) == 0) {
+        return (int) ((bound * (long) r) >> 31);
+      }
+      for (int u = r; u - (r = u % bound) + m < 0; u = next(31)) {
+        // reject values from the incomplete range at the top
+      }
+      return r;
+    }
+
+    @Override
+    long nextLong() {
+      return ((long) next(32) << 32) + next(32);
+    }
   }
 
+  /**
+   * The SplitMix64 algorithm of java.util.SplittableRandom, which is not Serializable itself.
+   */
+  private static final class SplitMixSource extends Source {
+    private static final long serialVersionUID = 8723370581462811264L;
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private long state;
+
+    SplitMixSource(long seed) {
+      state = seed;
+    }
+
+    static long mix64(long z) {
+      z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+      z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+      return z ^ (z >>> 31);
+    }
+
+    private static int mix32(long z) {
+      z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+      return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+    }
+
+    private long nextSeed() {
+      return state += GOLDEN_GAMMA;
+    }
+
+    @Override
+    double nextDouble() {
+      return (mix64(nextSeed()) >>> 11) * 0x1.0p-53;
+    }
+
+    @Override
+    boolean nextBoolean() {
+      return mix32(nextSeed()) < 0;
+    }
+
+    @Override
+    int nextInt() {
+      return mix32(nextSeed());
+    }
+
+    @Override
+    int nextInt(int bound) {
+      if (bound <= 0) {
+        throw new IllegalArgumentException("bound must be positive");
+      }
+      int r = mix32(nextSeed());
+      int m = bound - 1;
+      if ((bound & m) == 0) {
+        return r & m;
+      }
+      for (int u = r >>> 1; u + m - (r = u % bound) < 0; u = mix32(nextSeed()) >>> 1) {
+        // reject values from the incomplete range at the top
+      }
+      return r;
+    }
+
+    @Override
+    long nextLong() {
+      return mix64(nextSeed());
+    }
+  }
 }
@@ -7,14 +7,14 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.RandomAccess;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -249,24 +249,46 @@ public class ExpressionProcessor {
 
     // Add all model outputs to the expression parameter map as lists of decimals
     for (String param : getParamNames()) {
-      List<BigDecimal> paramList = new ArrayList<BigDecimal>(results.getRowCount());
-
       Column col = results.getColumn(param);
       if (col == null) {
         throw new IllegalArgumentException("Invalid model parameter \"" + param
             + "\" in expression \"" + expression + "\".");
       }
 
-      for (int i = leadTimeIdx; i < col.getRowCount(); i++) {
-        paramList.add(new BigDecimal(col.getValue(i)));
-      }
-      expParams.put(param, paramList);
+      expParams.put(param, new DecimalColumn(col, leadTimeIdx));
     }
 
     // Evaluate the expression
     return evaluateNumeric(expParams);
   }
 
+  /**
+   * A read-only view of the rows of a simulation results column from a given row onwards, as
+   * decimals. Values are converted as they are read rather than copied up front.
+   */
+  private static class DecimalColumn extends AbstractList<BigDecimal> implements RandomAccess {
+    private final Column column;
+    private final int start;
+
+    private DecimalColumn(Column column, int start) {
+      this.column = column;
+      this.start = start;
+    }
+
+    @Override
+    public BigDecimal get(int index) {
+      if (index < 0 || index >= size()) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+      }
+      return new BigDecimal(column.getValue(start + index));
+    }
+
+    @Override
+    public int size() {
+      return Math.max(0, column.getRowCount() - start);
+    }
+  }
+
   /**
    * Evaluates the expression with parameters derived from the given Person object.
    * @param person Person instance to get parameters from
@@ -0,0 +1,516 @@
+package org.mitre.synthea.helpers;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Opt-in instrumentation of a generation run, to see where a slow run spends its time without
+ * attaching a profiler. When <code>generate.instrumentation.enabled</code> is true, this tracks:
+ * - the time spent and memory allocated in each phase of the run (picking demographics, each
+ *   module, each exporter, the post-completion exporters), by the thread that ran it
+ * - counters, such as the number of people generated, and their rate per second
+ * - gauges, such as the number of people waiting to be simulated or exported
+ *
+ * <p>A snapshot of these is written as JSON to <code>generate.instrumentation.file</code> every
+ * <code>generate.instrumentation.interval_seconds</code>, and they are available over JMX as
+ * the <code>org.mitre.synthea:type=Instrumentation</code> MBean while the run is going. Each
+ * phase is also recorded as a <code>org.mitre.synthea.Phase</code> event when a JFR recording
+ * is enabled for it.</p>
+ *
+ * <p>Phases are measured with {@link Phase#begin()} and {@link Phase#end()} on the same thread,
+ * and may be nested. When instrumentation is disabled these do nothing.</p>
+ */
+public abstract class Instrumentation {
+  /** Whether phases are being measured. Set by {@link #start()}. */
+  public static volatile boolean enabled = false;
+
+  private static final String MBEAN_NAME = "org.mitre.synthea:type=Instrumentation";
+  /** A phase that is never reported, for code that measures nothing while disabled. */
+  private static final Phase NONE = new Phase("none");
+  private static final Map<String, Phase> phases = new ConcurrentHashMap<>();
+  private static final Map<String, LongSupplier> counters = new ConcurrentSkipListMap<>();
+  private static final Map<String, LongSupplier> gauges = new ConcurrentSkipListMap<>();
+  private static final ThreadLocal<Frames> frames = ThreadLocal.withInitial(Frames::new);
+  private static final com.sun.management.ThreadMXBean threads = allocationBean();
+  private static final EventType phaseEventType = EventType.getEventType(PhaseEvent.class);
+
+  private static ScheduledExecutorService scheduler;
+  private static Path file;
+  private static long started;
+  /** Counter values at the previous snapshot, to report recent rates. */
+  private static Map<String, Long> previousCounters = new TreeMap<>();
+  private static long previousSnapshot;
+
+  /**
+   * The time and allocation of one phase of the run, summed over every thread.
+   */
+  public static final class Phase {
+    private final String name;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+
+    private Phase(String name) {
+      this.name = name;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * Start measuring this phase on the current thread.
+     * @return this phase.
+     */
+    public Phase begin() {
+      if (enabled) {
+        frames.get().push(this);
+      }
+      return this;
+    }
+
+    /**
+     * Stop measuring this phase on the current thread. Any phase begun inside it that was not
+     * ended, for example because of an exception, is abandoned.
+     */
+    public void end() {
+      if (enabled) {
+        frames.get().pop(this);
+      }
+    }
+
+    private void record(long elapsed, long allocated) {
+      count.increment();
+      nanos.add(elapsed);
+      maxNanos.accumulate(elapsed);
+      if (allocated > 0) {
+        bytes.add(allocated);
+      }
+    }
+
+    private void reset() {
+      count.reset();
+      nanos.reset();
+      bytes.reset();
+      maxNanos.reset();
+    }
+
+    private Map<String, Object> toMap() {
+      long n = count.sum();
+      long total = nanos.sum();
+      Map<String, Object> map = new LinkedHashMap<>();
+      map.put("name", name);
+      map.put("count", n);
+      map.put("total_ms", total / 1_000_000L);
+      map.put("mean_us", n == 0 ? 0 : total / n / 1_000L);
+      map.put("max_ms", maxNanos.get() / 1_000_000L);
+      map.put("allocated_mb", bytes.sum() / (1024L * 1024L));
+      return map;
+    }
+  }
+
+  /**
+   * The phases being measured by one thread, innermost last.
+   */
+  private static final class Frames {
+    private Phase[] stack = new Phase[8];
+    private long[] startNanos = new long[8];
+    private long[] startBytes = new long[8];
+    private PhaseEvent[] events = new PhaseEvent[8];
+    private int depth = 0;
+
+    private void push(Phase phase) {
+      if (depth == stack.length) {
+        int size = depth * 2;
+        stack = Arrays.copyOf(stack, size);
+        startNanos = Arrays.copyOf(startNanos, size);
+        startBytes = Arrays.copyOf(startBytes, size);
+        events = Arrays.copyOf(events, size);
+      }
+      stack[depth] = phase;
+      if (phaseEventType.isEnabled()) {
+        PhaseEvent event = new PhaseEvent();
+        event.begin();
+        events[depth] = event;
+      }
+      startBytes[depth] = allocatedBytes();
+      startNanos[depth] = System.nanoTime();
+      depth++;
+    }
+
+    private void pop(Phase phase) {
+      long now = System.nanoTime();
+      int index = depth - 1;
+      while (index >= 0 && stack[index] != phase) {
+        index--;
+      }
+      if (index < 0) {
+        // begun while instrumentation was disabled
+        return;
+      }
+      long allocated = allocatedBytes() - startBytes[index];
+      phase.record(now - startNanos[index], allocated);
+      PhaseEvent event = events[index];
+      if (event != null) {
+        event.end();
+        if (event.shouldCommit()) {
+          event.phase = phase.name;
+          event.allocated = allocated;
+          event.commit();
+        }
+      }
+      for (int i = index; i < depth; i++) {
+        stack[i] = null;
+        events[i] = null;
+      }
+      depth = index;
+    }
+  }
+
+  /**
+   * A JFR event for one phase of the run on one thread.
+   */
+  @Name("org.mitre.synthea.Phase")
+  @Label("Synthea Phase")
+  @Category("Synthea")
+  @Description("A phase of a generation run, such as a module or an exporter")
+  static final class PhaseEvent extends jdk.jfr.Event {
+    @Label("Phase")
+    String phase;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocated;
+  }
+
+  private static com.sun.management.ThreadMXBean allocationBean() {
+    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) bean;
+      if (allocation.isThreadAllocatedMemorySupported()) {
+        return allocation;
+      }
+    }
+    return null;
+  }
+
+  private static long allocatedBytes() {
+    return threads == null ? 0L : threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  /**
+   * Get a phase by name, creating it if it has not been measured yet.
+   * @param name The name of the phase.
+   * @return The phase.
+   */
+  public static Phase phase(String name) {
+    return phases.computeIfAbsent(name, Phase::new);
+  }
+
+  /**
+   * Start measuring a phase on the current thread. When instrumentation is disabled this does
+   * not look the phase up.
+   * @param name The name of the phase.
+   * @return The phase, to {@link Phase#end()}.
+   */
+  public static Phase begin(String name) {
+    return enabled ? phase(name).begin() : NONE;
+  }
+
+  /**
+   * Report a count that only increases, such as the number of people generated, along with
+   * its rate per second, until instrumentation is stopped. Ignored if it is not enabled.
+   * @param name The name of the counter.
+   * @param value Supplies the current count.
+   */
+  public static void counter(String name, LongSupplier value) {
+    if (enabled) {
+      counters.put(name, value);
+    }
+  }
+
+  /**
+   * Report a value that goes up and down, such as the length of a queue, until
+   * instrumentation is stopped. Ignored if it is not enabled.
+   * @param name The name of the gauge.
+   * @param value Supplies the current value.
+   */
+  public static void gauge(String name, LongSupplier value) {
+    if (enabled) {
+      gauges.put(name, value);
+    }
+  }
+
+  /**
+   * Start measuring, if <code>generate.instrumentation.enabled</code> is true: clear any
+   * earlier measurements, register the MBean and start writing snapshots.
+   */
+  public static synchronized void start() {
+    if (!Config.getAsBoolean("generate.instrumentation.enabled", false)) {
+      return;
+    }
+    stop();
+    phases.values().forEach(Phase::reset);
+    previousCounters = new TreeMap<>();
+    started = System.nanoTime();
+    previousSnapshot = started;
+    if (threads != null) {
+      threads.setThreadAllocatedMemoryEnabled(true);
+    }
+    enabled = true;
+
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName(MBEAN_NAME);
+      if (!server.isRegistered(name)) {
+        server.registerMBean(
+            new StandardMBean(new Bean(), InstrumentationMXBean.class, true), name);
+      }
+    } catch (JMException e) {
+      System.out.println("Unable to register the instrumentation MBean: " + e.getMessage());
+    }
+
+    String baseDir = Config.get("exporter.baseDirectory", "./output/");
+    file = Paths.get(Config.get("generate.instrumentation.file",
+        Paths.get(baseDir, "metrics", "instrumentation.json").toString()));
+    long interval = Config.getAsLong("generate.instrumentation.interval_seconds", 10L);
+    if (interval > 0) {
+      ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "instrumentation");
+        thread.setDaemon(true);
+        return thread;
+      });
+      executor.scheduleAtFixedRate(() -> writeScheduledSnapshot(executor),
+          interval, interval, TimeUnit.SECONDS);
+      scheduler = executor;
+    }
+  }
+
+  /**
+   * Stop measuring, write a final snapshot and unregister the MBean. Counters and gauges are
+   * forgotten, since they refer to the objects of the run.
+   */
+  public static synchronized void stop() {
+    if (!enabled) {
+      return;
+    }
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+      scheduler = null;
+    }
+    writeSnapshot();
+    System.out.println("Instrumentation snapshot written to " + file);
+    enabled = false;
+    counters.clear();
+    gauges.clear();
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName(MBEAN_NAME);
+      if (server.isRegistered(name)) {
+        server.unregisterMBean(name);
+      }
+    } catch (JMException e) {
+      System.out.println("Unable to unregister the instrumentation MBean: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Take a snapshot of every phase, counter and gauge.
+   * @return The snapshot, as nested maps and lists that serialize to JSON.
+   */
+  public static Map<String, Object> snapshot() {
+    return snapshot(false);
+  }
+
+  /**
+   * Take a snapshot of every phase, counter and gauge.
+   * @param advance Whether the next snapshot reports recent rates since this one.
+   * @return The snapshot.
+   */
+  private static synchronized Map<String, Object> snapshot(boolean advance) {
+    long now = System.nanoTime();
+    double elapsed = Math.max((now - started) / 1e9, 1e-9);
+    double sinceLast = Math.max((now - previousSnapshot) / 1e9, 1e-9);
+
+    Map<String, Object> snapshot = new LinkedHashMap<>();
+    snapshot.put("timestamp", Instant.now().toString());
+    snapshot.put("elapsed_seconds", Math.round(elapsed * 10) / 10.0);
+
+    Map<String, Object> counterValues = new LinkedHashMap<>();
+    Map<String, Long> current = new TreeMap<>();
+    for (Map.Entry<String, LongSupplier> entry : counters.entrySet()) {
+      long value = entry.getValue().getAsLong();
+      long previous = previousCounters.getOrDefault(entry.getKey(), 0L);
+      Map<String, Object> counter = new LinkedHashMap<>();
+      counter.put("value", value);
+      counter.put("per_second", Math.round(value / elapsed * 100) / 100.0);
+      counter.put("recent_per_second", Math.round((value - previous) / sinceLast * 100) / 100.0);
+      counterValues.put(entry.getKey(), counter);
+      current.put(entry.getKey(), value);
+    }
+    if (advance) {
+      previousCounters = current;
+      previousSnapshot = now;
+    }
+    snapshot.put("counters", counterValues);
+
+    Map<String, Long> gaugeValues = new LinkedHashMap<>();
+    for (Map.Entry<String, LongSupplier> entry : gauges.entrySet()) {
+      gaugeValues.put(entry.getKey(), entry.getValue().getAsLong());
+    }
+    snapshot.put("gauges", gaugeValues);
+
+    // the phases that took the most time first
+    List<Phase> sorted = new ArrayList<>(phases.values());
+    sorted.sort((a, b) -> Long.compare(b.nanos.sum(), a.nanos.sum()));
+    List<Map<String, Object>> phaseValues = new ArrayList<>();
+    for (Phase phase : sorted) {
+      if (phase.count.sum() > 0) {
+        phaseValues.add(phase.toMap());
+      }
+    }
+    snapshot.put("phases", phaseValues);
+    return snapshot;
+  }
+
+  private static String snapshotJson(boolean advance) {
+    Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    return gson.toJson(snapshot(advance));
+  }
+
+  /**
+   * Write a periodic snapshot, unless the scheduler that it came from has been stopped while
+   * it was waiting for the lock, so that it cannot replace the final snapshot written by
+   * {@link #stop()}.
+   * @param executor The scheduler that the snapshot came from.
+   */
+  private static synchronized void writeScheduledSnapshot(ScheduledExecutorService executor) {
+    if (scheduler == executor) {
+      writeSnapshot();
+    }
+  }
+
+  /**
+   * Write a snapshot to the snapshot file, replacing the previous one in a single step so that
+   * a reader never sees a partial file.
+   */
+  private static synchronized void writeSnapshot() {
+    try {
+      Files.createDirectories(file.toAbsolutePath().getParent());
+      Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+      Files.write(temp, snapshotJson(true).getBytes(StandardCharsets.UTF_8));
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      System.out.println("Unable to write instrumentation snapshot: " + e.getMessage());
+    }
+  }
+
+  /**
+   * The management interface of the instrumentation.
+   */
+  public interface InstrumentationMXBean {
+    /** Get the current value of every counter. */
+    Map<String, Long> getCounters();
+
+    /** Get the current value of every gauge. */
+    Map<String, Long> getGauges();
+
+    /** Get the total time in milliseconds spent in each phase. */
+    Map<String, Long> getPhaseMillis();
+
+    /** Get the number of times each phase was measured. */
+    Map<String, Long> getPhaseCounts();
+
+    /** Get the total memory in bytes allocated during each phase. */
+    Map<String, Long> getPhaseAllocatedBytes();
+
+    /** Get a snapshot of everything, as written to the snapshot file. */
+    String getSnapshot();
+  }
+
+  private static final class Bean implements InstrumentationMXBean {
+    private static Map<String, Long> values(Map<String, LongSupplier> suppliers) {
+      Map<String, Long> values = new TreeMap<>();
+      suppliers.forEach((name, supplier) -> values.put(name, supplier.getAsLong()));
+      return values;
+    }
+
+    private static Map<String, Long> phaseValues(Function<Phase, Long> f) {
+      Map<String, Long> values = new TreeMap<>();
+      phases.forEach((name, phase) -> {
+        if (phase.count.sum() > 0) {
+          values.put(name, f.apply(phase));
+        }
+      });
+      return values;
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+      return values(counters);
+    }
+
+    @Override
+    public Map<String, Long> getGauges() {
+      return values(gauges);
+    }
+
+    @Override
+    public Map<String, Long> getPhaseMillis() {
+      return phaseValues(phase -> phase.nanos.sum() / 1_000_000L);
+    }
+
+    @Override
+    public Map<String, Long> getPhaseCounts() {
+      return phaseValues(phase -> phase.count.sum());
+    }
+
+    @Override
+    public Map<String, Long> getPhaseAllocatedBytes() {
+      return phaseValues(phase -> phase.bytes.sum());
+    }
+
+    @Override
+    public String getSnapshot() {
+      return snapshotJson(false);
+    }
+  }
+}
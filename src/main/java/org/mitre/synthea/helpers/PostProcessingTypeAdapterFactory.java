@@ -0,0 +1,65 @@
+package org.mitre.synthea.helpers;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Applies an action to every object of a base type, or of any of its subtypes, as soon as GSON
+ * has read all of its fields. For example, GMF Logic is compiled this way when a module is
+ * loaded.
+ *
+ * <p>GSON gives factories that are registered later precedence, so this factory must be
+ * registered before any {@link InnerClassTypeAdapterFactory} for the same base type. That
+ * factory then picks the subtype, and delegates reading it to this one.</p>
+ *
+ * @param <T> the base type.
+ */
+public class PostProcessingTypeAdapterFactory<T> implements TypeAdapterFactory {
+  private final Class<T> baseType;
+  private final Consumer<? super T> action;
+
+  private PostProcessingTypeAdapterFactory(Class<T> baseType, Consumer<? super T> action) {
+    this.baseType = baseType;
+    this.action = action;
+  }
+
+  /**
+   * Create a factory that applies an action to every object of the given type once it is read.
+   * @param baseType the base type.
+   * @param action the action to apply.
+   * @return the factory.
+   */
+  public static <T> PostProcessingTypeAdapterFactory<T> of(Class<T> baseType,
+      Consumer<? super T> action) {
+    return new PostProcessingTypeAdapterFactory<T>(baseType, action);
+  }
+
+  @Override
+  public <R> TypeAdapter<R> create(Gson gson, TypeToken<R> type) {
+    if (!baseType.isAssignableFrom(type.getRawType())) {
+      return null;
+    }
+    TypeAdapter<R> delegate = gson.getDelegateAdapter(this, type);
+
+    return new TypeAdapter<R>() {
+      @Override public R read(JsonReader in) throws IOException {
+        R value = delegate.read(in);
+        if (value != null) {
+          action.accept(baseType.cast(value));
+        }
+        return value;
+      }
+
+      @Override public void write(JsonWriter out, R value) throws IOException {
+        delegate.write(out, value);
+      }
+    };
+  }
+}
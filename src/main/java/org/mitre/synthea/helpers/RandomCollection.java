@@ -1,16 +1,18 @@
 package org.mitre.synthea.helpers;
 
 import java.io.Serializable;
-import java.util.Map.Entry;
-import java.util.TreeMap;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Random collection of objects, with weightings. Intended to be an equivalent to the ruby Pickup
- * gem. Adapted from https://stackoverflow.com/a/6409791/630384
+ * gem. Items are selected using an {@link AliasSampler}, which is built on the first draw after
+ * the collection is modified, so draws do not walk a map of boxed weights.
  */
 public class RandomCollection<E> implements Serializable {
-  private final TreeMap<Double, E> map = new TreeMap<Double, E>();
-  private double total = 0;
+  private final List<E> items = new ArrayList<E>();
+  private final List<Double> weights = new ArrayList<Double>();
+  private transient volatile AliasSampler<E> sampler;
 
   /**
    * Add an object (result) to the collection with a given weight.
@@ -23,8 +25,9 @@ public class RandomCollection<E> implements Serializable {
     if (weight <= 0) {
       return;
     }
-    total += weight;
-    map.put(total, result);
+    items.add(result);
+    weights.add(weight);
+    sampler = null;
   }
 
   /**
@@ -32,10 +35,8 @@ public class RandomCollection<E> implements Serializable {
    * @param other the collection from which to copy entries.
    */
   public void addAll(RandomCollection<E> other) {
-    Double weightAdj = 0.0;
-    for (Entry<Double, E> e: other.map.entrySet()) {
-      add(e.getKey() - weightAdj, e.getValue());
-      weightAdj = e.getKey();
+    for (int i = 0; i < other.items.size(); i++) {
+      add(other.weights.get(i), other.items.get(i));
     }
   }
 
@@ -48,14 +49,24 @@ public class RandomCollection<E> implements Serializable {
    * @return a random item from the collection weighted by the item weights.
    */
   public E next(RandomNumberGenerator random) {
-    return next(random.rand() * total);
+    return freeze().next(random);
   }
 
-  private E next(double value) {
-    Entry<Double, E> entry = map.higherEntry(value);
-    if (entry == null) {
-      entry = map.lastEntry();
+  /**
+   * Get an immutable sampler over the current contents of this collection. The sampler is
+   * cached until the collection is next modified.
+   * @return the sampler.
+   */
+  public AliasSampler<E> freeze() {
+    AliasSampler<E> current = sampler;
+    if (current == null) {
+      AliasSampler.Builder<E> builder = AliasSampler.builder();
+      for (int i = 0; i < items.size(); i++) {
+        builder.add(weights.get(i), items.get(i));
+      }
+      current = builder.build();
+      sampler = current;
     }
-    return entry.getValue();
+    return current;
   }
 }
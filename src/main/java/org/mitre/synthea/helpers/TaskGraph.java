@@ -0,0 +1,129 @@
+package org.mitre.synthea.helpers;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+/**
+ * A dependency graph of tasks, such as the startup phases that load providers, payers and
+ * modules, or the exporters that run once every person has been generated. Each task is started
+ * on a bounded pool as soon as every task it depends on has finished, so independent tasks run
+ * concurrently.
+ *
+ * <p>Tasks run in a {@link ForkJoinPool}, so a task may itself use parallel streams to split
+ * its work across the same pool.</p>
+ */
+public class TaskGraph {
+  private final ForkJoinPool pool;
+  private final BiFunction<String, Runnable, Runnable> wrapper;
+  private final Map<String, CompletableFuture<Void>> tasks = new LinkedHashMap<>();
+  private final Map<String, Long> durations = new ConcurrentHashMap<>();
+
+  /**
+   * Create an empty graph.
+   * @param threads the maximum number of tasks (or parts of tasks) to run at once.
+   */
+  public TaskGraph(int threads) {
+    this(threads, (name, task) -> task);
+  }
+
+  /**
+   * Create an empty graph that wraps every enabled task, for example to measure it as an
+   * instrumentation phase.
+   * @param threads the maximum number of tasks (or parts of tasks) to run at once.
+   * @param wrapper given the name and work of a task, returns the work to run in its place.
+   */
+  public TaskGraph(int threads, BiFunction<String, Runnable, Runnable> wrapper) {
+    if (threads < 1) {
+      throw new IllegalArgumentException(String.format("Illegal thread count (%d)", threads));
+    }
+    this.pool = new ForkJoinPool(threads);
+    this.wrapper = wrapper;
+  }
+
+  /**
+   * Add a task.
+   * @param name the name of the task, used in the timing report and to refer to it as a
+   *     dependency of later tasks.
+   * @param task the work of the task.
+   * @param dependencies names of previously added tasks that must finish first.
+   * @return this graph.
+   */
+  public TaskGraph add(String name, Runnable task, String... dependencies) {
+    return add(name, true, task, dependencies);
+  }
+
+  /**
+   * Add a task that may be disabled.
+   * @param name the name of the task, used in the timing report and to refer to it as a
+   *     dependency of later tasks.
+   * @param enabled whether the task is enabled. A disabled task does nothing, but later tasks
+   *     may still depend on it.
+   * @param task the work of the task.
+   * @param dependencies names of previously added tasks that must finish first.
+   * @return this graph.
+   */
+  public TaskGraph add(String name, boolean enabled, Runnable task, String... dependencies) {
+    if (tasks.containsKey(name)) {
+      throw new IllegalArgumentException("Duplicate task: " + name);
+    }
+    CompletableFuture<?>[] prerequisites = new CompletableFuture<?>[dependencies.length];
+    for (int i = 0; i < dependencies.length; i++) {
+      prerequisites[i] = tasks.get(dependencies[i]);
+      if (prerequisites[i] == null) {
+        throw new IllegalArgumentException("Unknown task: " + dependencies[i]);
+      }
+    }
+    Runnable work = enabled ? wrapper.apply(name, task) : null;
+    tasks.put(name, CompletableFuture.allOf(prerequisites).thenRunAsync(() -> {
+      if (work != null) {
+        long start = System.nanoTime();
+        work.run();
+        durations.put(name, System.nanoTime() - start);
+      }
+    }, pool));
+    return this;
+  }
+
+  /**
+   * Wait for every task to finish. If any task fails, the tasks that depend on it are skipped,
+   * and the error it threw is rethrown once the others have finished.
+   */
+  public void run() {
+    try {
+      CompletableFuture.allOf(tasks.values().toArray(new CompletableFuture<?>[0])).join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw e;
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Report how long each task that has run took, in the order they were added.
+   * @return the name and duration of each task, separated by commas.
+   */
+  public String timings() {
+    List<String> report = new ArrayList<>();
+    for (String name : tasks.keySet()) {
+      Long duration = durations.get(name);
+      if (duration != null) {
+        report.add(String.format("%s %d ms", name, TimeUnit.NANOSECONDS.toMillis(duration)));
+      }
+    }
+    return String.join(", ", report);
+  }
+}
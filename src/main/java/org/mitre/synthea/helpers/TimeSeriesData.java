@@ -1,37 +1,107 @@
 package org.mitre.synthea.helpers;
 
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
 import java.io.Serializable;
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.RandomAccess;
 
+/**
+ * Provides a collection of time series values as well as sampling metadata concerning those
+ * values. The values are kept in a primitive array, which may be shared with the caller, and
+ * {@link #getValues()} is a view of them.
+ */
+@JsonAdapter(TimeSeriesData.Adapter.class)
 public class TimeSeriesData implements Serializable {
-  /** Provides a collection of time series values as well as sampling metadata
-   *  concerning those values.
-   */
-  private List<Double> values;
+  private static final long serialVersionUID = 3178263469102537854L;
+
+  private double[] values;
+  private int size;
   private double period; // number of seconds between samples
 
   public TimeSeriesData(double period) {
-    this.setValues(new ArrayList<Double>());
-    this.setPeriod(period);
+    this(10, period);
   }
 
+  /**
+   * Create a series with a copy of the given values.
+   * @param values the sample values.
+   * @param period the number of seconds between samples.
+   */
   public TimeSeriesData(List<Double> values, double period) {
     this.setValues(values);
     this.setPeriod(period);
   }
 
   public TimeSeriesData(int initialCapacity, double period) {
-    this.setValues(new ArrayList<Double>(initialCapacity));
+    this.values = new double[initialCapacity];
     this.setPeriod(period);
   }
 
+  /**
+   * Create a series over an array of values, without copying them. Values added later are
+   * added to a copy.
+   * @param values the sample values.
+   * @param period the number of seconds between samples.
+   */
+  public TimeSeriesData(double[] values, double period) {
+    this.values = values;
+    this.size = values.length;
+    this.setPeriod(period);
+  }
+
+  /**
+   * Get a read-only view of the values.
+   * @return the values.
+   */
   public List<Double> getValues() {
-    return values;
+    return new Values();
   }
 
+  /**
+   * Replace the values with a copy of the given ones.
+   * @param values the sample values.
+   */
   public void setValues(List<Double> values) {
-    this.values = values;
+    this.values = new double[values.size()];
+    this.size = 0;
+    for (Double value : values) {
+      this.values[size++] = value;
+    }
+  }
+
+  /**
+   * Get a sample value.
+   * @param index the index of the sample.
+   * @return the value.
+   */
+  public double getValue(int index) {
+    if (index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+    return values[index];
+  }
+
+  /**
+   * Get the number of samples.
+   * @return the number of samples.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Get a copy of the values.
+   * @return the values.
+   */
+  public double[] toArray() {
+    return Arrays.copyOf(values, size);
   }
 
   public double getPeriod() {
@@ -42,8 +112,71 @@ public class TimeSeriesData implements Serializable {
     this.period = period;
   }
 
+  /**
+   * Add a value to the end of the series.
+   * @param value the value.
+   * @return true.
+   */
   public boolean addValue(double value) {
-    return this.values.add(value);
+    if (size == values.length) {
+      values = Arrays.copyOf(values, Math.max(10, size + (size >> 1)));
+    }
+    values[size++] = value;
+    return true;
+  }
+
+  private class Values extends AbstractList<Double> implements RandomAccess {
+    @Override
+    public Double get(int index) {
+      return getValue(index);
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
   }
 
+  /**
+   * Reads and writes a series as its values and period, leaving out any spare capacity.
+   */
+  static class Adapter extends TypeAdapter<TimeSeriesData> {
+    @Override
+    public void write(JsonWriter out, TimeSeriesData series) throws IOException {
+      if (series == null) {
+        out.nullValue();
+        return;
+      }
+      out.beginObject();
+      out.name("values").beginArray();
+      for (int i = 0; i < series.size; i++) {
+        out.value(series.values[i]);
+      }
+      out.endArray();
+      out.name("period").value(series.period);
+      out.endObject();
+    }
+
+    @Override
+    public TimeSeriesData read(JsonReader in) throws IOException {
+      TimeSeriesData series = new TimeSeriesData(0.0);
+      in.beginObject();
+      while (in.hasNext()) {
+        String name = in.nextName();
+        if (name.equals("values")) {
+          in.beginArray();
+          while (in.hasNext()) {
+            series.addValue(in.nextDouble());
+          }
+          in.endArray();
+        } else if (name.equals("period")) {
+          series.period = in.nextDouble();
+        } else {
+          in.skipValue();
+        }
+      }
+      in.endObject();
+      return series;
+    }
+  }
 }
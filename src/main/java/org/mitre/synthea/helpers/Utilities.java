@@ -518,6 +518,8 @@ public class Utilities {
   public static Gson getGson() {
     return new GsonBuilder()
       .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
+      // compile each Logic once it is read, must come before the factory that picks its type
+      .registerTypeAdapterFactory(PostProcessingTypeAdapterFactory.of(Logic.class, Logic::compile))
       .registerTypeAdapterFactory(InnerClassTypeAdapterFactory.of(Logic.class,"condition_type"))
       .registerTypeAdapterFactory(InnerClassTypeAdapterFactory.of(State.class, "type"))
       // as of JDK16, GSON can no longer handle certain sdk classes
@@ -216,11 +216,15 @@ public class IoMapper implements Serializable {
             + "\" cannot be mapped to patient value \"" + to + "\"");
       }
 
-      // Make it a TimeSeriesData object, which is just an ArrayList with sample
-      // frequency information
-      TimeSeriesData seriesData = new TimeSeriesData(results.getRowCount(),
+      // Make it a TimeSeriesData object, which is an array of values with sample
+      // frequency information. The results may be cached and shared between people, so
+      // the values are copied rather than viewed.
+      double[] values = new double[col.getRowCount()];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = col.getValue(i);
+      }
+      TimeSeriesData seriesData = new TimeSeriesData(values,
           results.getTimePoint(1) - results.getTimePoint(0));
-      col.iterator().forEachRemaining(seriesData::addValue);
 
       // Return the sampled values
       return seriesData;
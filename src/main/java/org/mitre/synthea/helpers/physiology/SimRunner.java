@@ -16,7 +16,6 @@ import org.simulator.math.odes.MultiTable;
 public class SimRunner {
   private PhysiologyGeneratorConfig config;
   private Person person;
-  private PhysiologySimulator simulator;
   private Map<String,String> paramTypes = new HashMap<String, String>();
   private Map<String,Double> prevInputs = new HashMap<String, Double>();
   private Map<VitalSign,Double> vitalSignResults = new HashMap<VitalSign,Double>();
@@ -30,12 +29,7 @@ public class SimRunner {
   public SimRunner(PhysiologyGeneratorConfig config, Person person) {
     this.config = config;
     this.person = person;
-    simulator = new PhysiologySimulator(
-        config.getModel(),
-        config.getSolver(),
-        config.getStepSize(),
-        config.getSimDuration()
-    );
+    PhysiologySimulator simulator = getSimulator();
 
     // All Patient parameters are set to the default Decimal type
     // TODO: May need to find a way to handle alternative types in the future
@@ -54,6 +48,19 @@ public class SimRunner {
     }
   }
 
+  /**
+   * Retrieves the simulator for this configuration that belongs to the current thread.
+   * @return pooled simulator
+   */
+  private PhysiologySimulator getSimulator() {
+    return PhysiologySimulator.getPooledSimulator(
+        config.getModel(),
+        config.getSolver(),
+        config.getStepSize(),
+        config.getSimDuration()
+    );
+  }
+
   /**
    * Retrieves the simulation configuration.
    * @return simulation configuration
@@ -77,7 +84,7 @@ public class SimRunner {
    */
   public void compareDefaultInputs() {
     for (IoMapper mapper : config.getInputs()) {
-      prevInputs.put(mapper.getTo(), simulator.getParamDefault(mapper.getTo()));
+      prevInputs.put(mapper.getTo(), getSimulator().getParamDefault(mapper.getTo()));
     }
   }
 
@@ -144,7 +151,7 @@ public class SimRunner {
    */
   private MultiTable runSim(long time, Map<String,Double> modelInputs) {
     try {
-      MultiTable results = simulator.run(modelInputs);
+      MultiTable results = getSimulator().run(modelInputs);
       return results;
     } catch (DerivativeException ex) {
       Logger.getLogger(this.getClass().getName()).log(
@@ -2,13 +2,14 @@ package org.mitre.synthea.modules;
 
 import com.google.gson.Gson;
 
+import java.io.Serializable;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
 
 import org.mitre.synthea.helpers.Attributes;
 import org.mitre.synthea.helpers.Attributes.Inventory;
@@ -30,21 +31,143 @@ import org.mitre.synthea.world.concepts.HealthRecord.Code;
 public class Immunizations {
   public static final String IMMUNIZATIONS = "immunizations";
 
-  @SuppressWarnings({ "unchecked", "rawtypes" })
-  private static final Map<String, Map> immunizationSchedule = loadImmunizationSchedule();
+  /** A vaccine in the immunization schedule, compiled from immunization_schedule.json. */
+  private static final class Vaccine {
+    private final String name;
+    private final Code code;
+    /** The recommended age of each dose, in months. */
+    private final double[] atMonths;
+    /** The time at which the vaccine became available. */
+    private final long firstAvailable;
+
+    @SuppressWarnings("rawtypes")
+    private Vaccine(String name, Map schedule) {
+      this.name = name;
+      Map code = (Map) schedule.get("code");
+      this.code = new Code(code.get("system").toString(), code.get("code").toString(),
+          code.get("display").toString());
+      List doses = (List) schedule.get("at_months");
+      this.atMonths = new double[doses.size()];
+      for (int i = 0; i < atMonths.length; i++) {
+        atMonths[i] = ((Number) doses.get(i)).doubleValue();
+      }
+      Number year = (Number) schedule.getOrDefault("first_available", 1900);
+      this.firstAvailable = Utilities.convertCalendarYearsToTime(year.intValue());
+    }
+
+    /**
+     * Get the index of the first recommended dose, starting at the given one, that is within
+     * four years of the given age.
+     * @return the index, or the number of doses if there are none.
+     */
+    private int nextDoseWithinFourYears(int from, int ageInMonths) {
+      int dose = from;
+      while (dose < atMonths.length && (ageInMonths - atMonths[dose]) >= 48) {
+        dose++;
+      }
+      return dose;
+    }
+  }
+
+  /**
+   * The times that doses of a vaccine were given to a person, and their age in months at each,
+   * stored as primitive arrays. This is the List&lt;Long&gt; of each immunization in the
+   * IMMUNIZATIONS attribute.
+   */
+  static final class DoseHistory extends AbstractList<Long> implements Serializable {
+    private static final long serialVersionUID = -5127019614532864102L;
+
+    private long[] times = new long[4];
+    /** The age in months at each dose, or -1 if it has not been calculated yet. */
+    private int[] ages = new int[4];
+    private int size;
+
+    private DoseHistory() {
+    }
+
+    private DoseHistory(Collection<Long> times) {
+      for (Long time : times) {
+        add(time);
+      }
+    }
+
+    @Override
+    public Long get(int index) {
+      return getTime(index);
+    }
+
+    private long getTime(int index) {
+      if (index < 0 || index >= size) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+      }
+      return times[index];
+    }
+
+    /**
+     * Get the age of the person in months at a dose, calculating it the first time it is needed.
+     */
+    private int getAgeInMonths(int index, Person person) {
+      if (ages[index] < 0) {
+        ages[index] = person.ageInMonths(times[index]);
+      }
+      return ages[index];
+    }
+
+    @Override
+    public boolean add(Long time) {
+      add(time, -1);
+      return true;
+    }
+
+    private void add(long time, int ageInMonths) {
+      if (size == times.length) {
+        times = Arrays.copyOf(times, size * 2);
+        ages = Arrays.copyOf(ages, size * 2);
+      }
+      times[size] = time;
+      ages[size] = ageInMonths;
+      size++;
+      modCount++;
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
 
-  @SuppressWarnings("rawtypes")
-  private static Map loadImmunizationSchedule() {
+  private static final Vaccine[] vaccines = loadImmunizationSchedule();
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private static Vaccine[] loadImmunizationSchedule() {
     String filename = "immunization_schedule.json";
+    Map<String, Map> schedule;
     try {
       String json = Utilities.readResource(filename);
       Gson g = new Gson();
-      return g.fromJson(json, HashMap.class);
+      schedule = g.fromJson(json, HashMap.class);
     } catch (Exception e) {
       System.err.println("ERROR: unable to load json: " + filename);
       e.printStackTrace();
       throw new ExceptionInInitializerError(e);
     }
+    List<Vaccine> compiled = new ArrayList<Vaccine>(schedule.size());
+    schedule.forEach((name, vaccine) -> compiled.add(new Vaccine(name, vaccine)));
+    return compiled.toArray(new Vaccine[0]);
+  }
+
+  /**
+   * Get the dose history of an immunization, creating it if there is none yet.
+   */
+  private static DoseHistory getDoseHistory(String immunization,
+      Map<String, List<Long>> immunizationsGiven) {
+    List<Long> history = immunizationsGiven.get(immunization);
+    if (history instanceof DoseHistory) {
+      return (DoseHistory) history;
+    }
+    DoseHistory doses = history == null ? new DoseHistory() : new DoseHistory(history);
+    immunizationsGiven.put(immunization, doses);
+    return doses;
   }
 
   /**
@@ -53,7 +176,7 @@ public class Immunizations {
    * @param person - the person to vaccinate.
    * @param time - the current simulation time.
    */
-  @SuppressWarnings({ "unchecked", "rawtypes" })
+  @SuppressWarnings("unchecked")
   public static void performEncounter(Person person, long time) {
     Map<String, List<Long>> immunizationsGiven;
     if (person.attributes.containsKey(IMMUNIZATIONS)) {
@@ -63,16 +186,14 @@ public class Immunizations {
       person.attributes.put(IMMUNIZATIONS, immunizationsGiven);
     }
 
-    for (String immunization : immunizationSchedule.keySet()) {
-      int series = immunizationDue(immunization, person, time, immunizationsGiven);
+    int ageInMonths = person.ageInMonths(time);
+    for (Vaccine vaccine : vaccines) {
+      DoseHistory history = getDoseHistory(vaccine.name, immunizationsGiven);
+      int series = immunizationDue(vaccine, person, ageInMonths, time, history);
       if (series > 0) {
-        List<Long> history = immunizationsGiven.get(immunization);
-        history.add(time);
-        HealthRecord.Immunization entry = person.record.immunization(time, immunization);
-        Map code = (Map) immunizationSchedule.get(immunization).get("code");
-        HealthRecord.Code immCode = new HealthRecord.Code(code.get("system").toString(),
-            code.get("code").toString(), code.get("display").toString());
-        entry.codes.add(immCode);
+        history.add(time, ageInMonths);
+        HealthRecord.Immunization entry = person.record.immunization(time, vaccine.name);
+        entry.codes.add(vaccine.code);
         entry.series = series;
       }
     }
@@ -89,30 +210,27 @@ public class Immunizations {
    *     where the value is the series. For example, 1 if this is the first time the
    *     vaccine was administered; 2 if this is the second time, et cetera.
    */
-  @SuppressWarnings({ "rawtypes", "unchecked" })
   public static int immunizationDue(String immunization, Person person, long time,
       Map<String, List<Long>> immunizationsGiven) {
-    int ageInMonths = person.ageInMonths(time);
-
-    List<Long> history = null;
-    if (immunizationsGiven.containsKey(immunization)) {
-      history = immunizationsGiven.get(immunization);
-    } else {
-      history = new ArrayList<Long>();
-      immunizationsGiven.put(immunization, history);
+    DoseHistory history = getDoseHistory(immunization, immunizationsGiven);
+    for (Vaccine vaccine : vaccines) {
+      if (vaccine.name.equals(immunization)) {
+        return immunizationDue(vaccine, person, person.ageInMonths(time), time, history);
+      }
     }
+    throw new IllegalArgumentException("Unknown immunization: " + immunization);
+  }
 
+  private static int immunizationDue(Vaccine vaccine, Person person, int ageInMonths, long time,
+      DoseHistory history) {
     // Don't administer if the immunization wasn't historically available at the date of the
     // encounter
-    Map schedule = immunizationSchedule.get(immunization);
-    Double firstAvailable = (Double) schedule.getOrDefault("first_available", 1900);
-    if (time < Utilities.convertCalendarYearsToTime(firstAvailable.intValue())) {
+    if (time < vaccine.firstAvailable) {
       return -1;
     }
 
     // Don't administer if all recommended doses have already been given
-    List atMonths = new ArrayList((List) schedule.get("at_months"));
-    if (history.size() >= atMonths.size()) {
+    if (history.size() >= vaccine.atMonths.length) {
       return -1;
     }
 
@@ -131,26 +249,25 @@ public class Immunizations {
 
     // 1) eliminate any recommended doses that are not within 4 years of the patient's age
     // at_months = at_months.reject { |am| age_in_months - am >= 48 }
-    Predicate<Double> notWithinFourYears = p -> ((ageInMonths - p) >= 48);
-    atMonths.removeIf(notWithinFourYears);
-    if (atMonths.isEmpty()) {
+    int dose = vaccine.nextDoseWithinFourYears(0, ageInMonths);
+    if (dose == vaccine.atMonths.length) {
       return -1;
     }
 
     // 2) eliminate recommended doses that were actually administered
-    for (Long date : history) {
-      int ageAtDate = person.ageInMonths(date);
-      double recommendedAge = (double) atMonths.get(0);
+    for (int i = 0; i < history.size(); i++) {
+      int ageAtDate = history.getAgeInMonths(i, person);
+      double recommendedAge = vaccine.atMonths[dose];
       if (ageAtDate >= recommendedAge && ((ageAtDate - recommendedAge) < 48)) {
-        atMonths.remove(0);
-        if (atMonths.isEmpty()) {
+        dose = vaccine.nextDoseWithinFourYears(dose + 1, ageInMonths);
+        if (dose == vaccine.atMonths.length) {
           return -1;
         }
       }
     }
 
     // 3) see if there are any recommended doses remaining that this patient is old enough for
-    if (!atMonths.isEmpty() && ageInMonths >= (double) atMonths.get(0)) {
+    if (ageInMonths >= vaccine.atMonths[dose]) {
       return history.size() + 1;
     }
     return -1;
@@ -161,21 +278,11 @@ public class Immunizations {
    *
    * @return Collection of all codes and concepts this module uses
    */
-  @SuppressWarnings("rawtypes")
   public static Collection<Code> getAllCodes() {
-    List<Map> rawCodes = (List<Map>) immunizationSchedule.values()
-        .stream().map(m -> (Map)m.get("code")).collect(Collectors.toList());
-
-    List<Code> convertedCodes = new ArrayList<Code>(rawCodes.size());
-
-    for (Map m : rawCodes) {
-      Code immCode = new Code(m.get("system").toString(),
-                              m.get("code").toString(),
-                              m.get("display").toString());
-
-      convertedCodes.add(immCode);
+    List<Code> convertedCodes = new ArrayList<Code>(vaccines.length);
+    for (Vaccine vaccine : vaccines) {
+      convertedCodes.add(vaccine.code);
     }
-
     return convertedCodes;
   }
 
@@ -184,13 +291,10 @@ public class Immunizations {
    * @param code The vaccine code.
    * @return The maximum number of doses to be administered.
    */
-  @SuppressWarnings("rawtypes")
   public static int getMaximumDoses(String code) {
-    for (String immunization : immunizationSchedule.keySet()) {
-      Map icode = (Map) immunizationSchedule.get(immunization).get("code");
-      if (icode.get("code").equals(code)) {
-        List doses = (List) immunizationSchedule.get(immunization).get("at_months");
-        return doses.size();
+    for (Vaccine vaccine : vaccines) {
+      if (vaccine.code.code.equals(code)) {
+        return vaccine.atMonths.length;
       }
     }
     return 1;
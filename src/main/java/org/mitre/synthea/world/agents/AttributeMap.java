@@ -0,0 +1,360 @@
+package org.mitre.synthea.world.agents;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The attributes of a Person. Well-known attributes, such as the birthdate and the ones set by
+ * generic modules, are registered as a {@link Slot} and stored in an array indexed by the slot,
+ * so code that holds the slot can read and write the attribute without hashing the name or
+ * allocating a map entry. Any other attribute is stored in a map by name.
+ *
+ * <p>This is an ordinary <code>Map</code>, so attributes can still be read and written by name.
+ * Registered attributes are always iterated first, in order of their names, followed by the
+ * others. Like a ConcurrentHashMap, null keys and values are not allowed and the map may be
+ * modified while it is being iterated. Unlike a ConcurrentHashMap, a map must not be modified
+ * by several threads at once; a Person is only ever simulated by one thread at a time.</p>
+ */
+public final class AttributeMap extends AbstractMap<String, Object> implements Serializable {
+  private static final long serialVersionUID = 2618441358472103751L;
+
+  private static final Map<String, Slot> SLOTS = new ConcurrentHashMap<String, Slot>();
+  /** Every registered slot, ordered by name. Replaced whenever a slot is registered. */
+  private static volatile Slot[] sorted = new Slot[0];
+
+  /** Values of registered attributes, indexed by slot. */
+  private transient Object[] values;
+  /** The number of registered slots when the values were last reconciled with the map. */
+  private transient int slotLimit;
+  /** The number of non-null values. */
+  private transient int slotted;
+  /** Attributes that were not registered when they were stored. Created when first needed. */
+  private transient Map<String, Object> dynamic;
+
+  /**
+   * An attribute with a reserved place in every AttributeMap.
+   */
+  public static final class Slot {
+    private final String key;
+    private final int index;
+
+    private Slot(String key, int index) {
+      this.key = key;
+      this.index = index;
+    }
+
+    /**
+     * Get the name of the attribute.
+     * @return the name of the attribute.
+     */
+    public String getKey() {
+      return key;
+    }
+
+    @Override
+    public String toString() {
+      return key;
+    }
+  }
+
+  /**
+   * Get the slot of an attribute, registering it if it does not have one yet.
+   * @param key the name of the attribute.
+   * @return the slot.
+   */
+  public static Slot slot(String key) {
+    Slot slot = SLOTS.get(key);
+    if (slot != null) {
+      return slot;
+    }
+    synchronized (AttributeMap.class) {
+      slot = SLOTS.get(key);
+      if (slot == null) {
+        Slot[] next = Arrays.copyOf(sorted, sorted.length + 1);
+        slot = new Slot(key, sorted.length);
+        next[sorted.length] = slot;
+        Arrays.sort(next, Comparator.comparing(Slot::getKey));
+        // Register the slot before publishing the new length. A map that sees the new length
+        // without the slot would store the attribute by name and never move it into its slot,
+        // while one that sees the slot first reconciles under this lock.
+        SLOTS.put(key, slot);
+        sorted = next;
+      }
+      return slot;
+    }
+  }
+
+  /**
+   * Create an empty map.
+   */
+  public AttributeMap() {
+    init();
+  }
+
+  private void init() {
+    slotLimit = sorted.length;
+    values = new Object[slotLimit];
+  }
+
+  /**
+   * Move any attribute that has been registered since it was stored into its slot, and make
+   * room for every slot registered so far.
+   */
+  private void reconcile() {
+    synchronized (AttributeMap.class) {
+      int limit = sorted.length;
+      if (values.length < limit) {
+        values = Arrays.copyOf(values, limit);
+      }
+      if (dynamic != null) {
+        Iterator<Map.Entry<String, Object>> iter = dynamic.entrySet().iterator();
+        while (iter.hasNext()) {
+          Map.Entry<String, Object> entry = iter.next();
+          Slot slot = SLOTS.get(entry.getKey());
+          if (slot != null) {
+            values[slot.index] = entry.getValue();
+            slotted++;
+            iter.remove();
+          }
+        }
+      }
+      slotLimit = limit;
+    }
+  }
+
+  /**
+   * Get the value of a registered attribute.
+   * @param slot the slot of the attribute.
+   * @return the value, or null if the attribute is not set.
+   */
+  public Object get(Slot slot) {
+    if (slot.index >= slotLimit) {
+      reconcile();
+    }
+    return values[slot.index];
+  }
+
+  @Override
+  public Object get(Object key) {
+    Slot slot = SLOTS.get(key);
+    if (slot != null) {
+      return get(slot);
+    }
+    return dynamic == null ? null : dynamic.get(key);
+  }
+
+  /**
+   * Whether a registered attribute is set.
+   * @param slot the slot of the attribute.
+   * @return true if the attribute is set.
+   */
+  public boolean containsKey(Slot slot) {
+    return get(slot) != null;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return get(key) != null;
+  }
+
+  /**
+   * Set the value of a registered attribute.
+   * @param slot the slot of the attribute.
+   * @param value the new value.
+   * @return the previous value, or null if the attribute was not set.
+   */
+  public Object put(Slot slot, Object value) {
+    Objects.requireNonNull(value);
+    Object previous = get(slot);
+    values[slot.index] = value;
+    if (previous == null) {
+      slotted++;
+    }
+    return previous;
+  }
+
+  @Override
+  public Object put(String key, Object value) {
+    Objects.requireNonNull(value);
+    Slot slot = SLOTS.get(key);
+    if (slot != null) {
+      return put(slot, value);
+    }
+    if (dynamic == null) {
+      dynamic = new ConcurrentHashMap<String, Object>();
+    }
+    return dynamic.put(key, value);
+  }
+
+  /**
+   * Clear a registered attribute.
+   * @param slot the slot of the attribute.
+   * @return the previous value, or null if the attribute was not set.
+   */
+  public Object remove(Slot slot) {
+    Object previous = get(slot);
+    if (previous != null) {
+      values[slot.index] = null;
+      slotted--;
+    }
+    return previous;
+  }
+
+  @Override
+  public Object remove(Object key) {
+    Slot slot = SLOTS.get(key);
+    if (slot != null) {
+      return remove(slot);
+    }
+    return dynamic == null ? null : dynamic.remove(key);
+  }
+
+  @Override
+  public int size() {
+    return slotted + (dynamic == null ? 0 : dynamic.size());
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(values, null);
+    slotted = 0;
+    dynamic = null;
+  }
+
+  @Override
+  public Set<Map.Entry<String, Object>> entrySet() {
+    return new AbstractSet<Map.Entry<String, Object>>() {
+      @Override
+      public Iterator<Map.Entry<String, Object>> iterator() {
+        return new EntryIterator();
+      }
+
+      @Override
+      public int size() {
+        return AttributeMap.this.size();
+      }
+
+      @Override
+      public void clear() {
+        AttributeMap.this.clear();
+      }
+    };
+  }
+
+  /**
+   * Iterates over the registered attributes in order of their names, then over the others.
+   */
+  private final class EntryIterator implements Iterator<Map.Entry<String, Object>> {
+    private final Slot[] order = sorted;
+    private int position = 0;
+    private Iterator<Map.Entry<String, Object>> others;
+    private Map.Entry<String, Object> next;
+    private Slot lastSlot;
+    private boolean lastWasOther;
+
+    @Override
+    public boolean hasNext() {
+      if (next != null) {
+        return true;
+      }
+      while (position < order.length) {
+        Slot slot = order[position++];
+        Object value = slot.index < values.length ? values[slot.index] : null;
+        if (value != null) {
+          next = new SlotEntry(slot, value);
+          return true;
+        }
+      }
+      if (others == null) {
+        if (dynamic == null) {
+          return false;
+        }
+        others = dynamic.entrySet().iterator();
+      }
+      if (others.hasNext()) {
+        next = others.next();
+        return true;
+      }
+      return false;
+    }
+
+    @Override
+    public Map.Entry<String, Object> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Map.Entry<String, Object> entry = next;
+      next = null;
+      lastWasOther = !(entry instanceof SlotEntry);
+      lastSlot = lastWasOther ? null : ((SlotEntry) entry).slot;
+      return entry;
+    }
+
+    @Override
+    public void remove() {
+      if (lastWasOther) {
+        others.remove();
+      } else if (lastSlot != null) {
+        AttributeMap.this.remove(lastSlot);
+      } else {
+        throw new IllegalStateException();
+      }
+      lastSlot = null;
+      lastWasOther = false;
+    }
+  }
+
+  /**
+   * An entry of a registered attribute. Setting its value sets the attribute.
+   */
+  private final class SlotEntry extends AbstractMap.SimpleEntry<String, Object> {
+    private static final long serialVersionUID = -3702410584133307422L;
+    private final transient Slot slot;
+
+    private SlotEntry(Slot slot, Object value) {
+      super(slot.key, value);
+      this.slot = slot;
+    }
+
+    @Override
+    public Object setValue(Object value) {
+      put(slot, value);
+      return super.setValue(value);
+    }
+  }
+
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    out.defaultWriteObject();
+    out.writeInt(size());
+    for (Map.Entry<String, Object> entry : entrySet()) {
+      out.writeObject(entry.getKey());
+      out.writeObject(entry.getValue());
+    }
+  }
+
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    init();
+    int size = in.readInt();
+    for (int i = 0; i < size; i++) {
+      put((String) in.readObject(), in.readObject());
+    }
+  }
+}
@@ -0,0 +1,145 @@
+package org.mitre.synthea.world.agents;
+
+/**
+ * Calendar arithmetic for the age of a Person, without allocating any java.time objects.
+ * Age is checked many times per time step by modules, so the birthdate is converted to a
+ * calendar date once, and the age at the most recent day asked for is remembered.
+ *
+ * <p>Ages are exactly those of <code>Period.between(birthdate, date)</code> with both dates
+ * taken in UTC, including for leap days and birthdays at the end of a month: someone born on
+ * 29 February is a year older on 1 March in a common year, and someone born on 31 January is a
+ * month older on the last day of February.</p>
+ */
+final class BirthCalendar {
+  private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+  /** Days from 0000-03-01 to 1970-01-01. */
+  private static final long DAYS_0000_TO_1970 = 719468;
+  private static final long DAYS_PER_ERA = 146097;
+
+  /** The birthdate, in epoch millis, that this calendar was built for. */
+  final long birthTime;
+  private final long birthDay;
+  private final int birthYear;
+  private final int birthMonth;
+  private final int birthDayOfMonth;
+
+  /** The epoch day of the last age calculated, and the age on that day. */
+  private long memoDay = Long.MIN_VALUE;
+  private int memoMonths;
+  private int memoDays;
+
+  /**
+   * Create a calendar for the given birthdate.
+   * @param birthTime the birthdate in epoch millis.
+   */
+  BirthCalendar(long birthTime) {
+    this.birthTime = birthTime;
+    this.birthDay = Math.floorDiv(birthTime, MILLIS_PER_DAY);
+    long civil = civilFromDays(birthDay);
+    this.birthYear = (int) (civil >> 9);
+    this.birthMonth = (int) (civil >> 5) & 0xF;
+    this.birthDayOfMonth = (int) civil & 0x1F;
+  }
+
+  /**
+   * Age at the given time in whole months, as <code>Period.toTotalMonths()</code>.
+   * Negative before the birthdate.
+   * @param time the time in epoch millis.
+   * @return the number of whole months since birth.
+   */
+  int totalMonths(long time) {
+    update(time);
+    return memoMonths;
+  }
+
+  /**
+   * Days since the last whole month of age at the given time, as <code>Period.getDays()</code>.
+   * @param time the time in epoch millis.
+   * @return the number of days past the last whole month.
+   */
+  int days(long time) {
+    update(time);
+    return memoDays;
+  }
+
+  private void update(long time) {
+    long day = Math.floorDiv(time, MILLIS_PER_DAY);
+    if (day == memoDay) {
+      return;
+    }
+    long civil = civilFromDays(day);
+    int year = (int) (civil >> 9);
+    int month = (int) (civil >> 5) & 0xF;
+    int dayOfMonth = (int) civil & 0x1F;
+
+    // the same steps as LocalDate.until(LocalDate)
+    long months = (year * 12L + month - 1) - (birthYear * 12L + birthMonth - 1);
+    long days = dayOfMonth - birthDayOfMonth;
+    if (months > 0 && days < 0) {
+      months--;
+      long total = birthYear * 12L + birthMonth - 1 + months;
+      int anniversaryYear = (int) Math.floorDiv(total, 12);
+      int anniversaryMonth = (int) Math.floorMod(total, 12) + 1;
+      int anniversaryDay = Math.min(birthDayOfMonth,
+          lengthOfMonth(anniversaryYear, anniversaryMonth));
+      days = day - daysFromCivil(anniversaryYear, anniversaryMonth, anniversaryDay);
+    } else if (months < 0 && days > 0) {
+      months++;
+      days -= lengthOfMonth(year, month);
+    }
+    memoMonths = (int) months;
+    memoDays = (int) days;
+    memoDay = day;
+  }
+
+  /**
+   * Convert an epoch day to a proleptic Gregorian date.
+   * @param epochDay days since 1970-01-01.
+   * @return the year, month and day of month packed as <code>year &lt;&lt; 9 | month &lt;&lt; 5
+   *     | day</code>.
+   */
+  static long civilFromDays(long epochDay) {
+    long shifted = epochDay + DAYS_0000_TO_1970;
+    long era = Math.floorDiv(shifted, DAYS_PER_ERA);
+    long dayOfEra = shifted - era * DAYS_PER_ERA;
+    long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+    long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+    // months are counted from March, so that the leap day is the last day of the year
+    long marchMonth = (5 * dayOfYear + 2) / 153;
+    long day = dayOfYear - (153 * marchMonth + 2) / 5 + 1;
+    long month = marchMonth < 10 ? marchMonth + 3 : marchMonth - 9;
+    long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+    return year << 9 | month << 5 | day;
+  }
+
+  /**
+   * Convert a proleptic Gregorian date to an epoch day.
+   * @param year the year.
+   * @param month the month, from 1 to 12.
+   * @param day the day of the month.
+   * @return days since 1970-01-01.
+   */
+  static long daysFromCivil(int year, int month, int day) {
+    long marchYear = month <= 2 ? year - 1 : year;
+    long era = Math.floorDiv(marchYear, 400);
+    long yearOfEra = marchYear - era * 400;
+    long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+    long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+    return era * DAYS_PER_ERA + dayOfEra - DAYS_0000_TO_1970;
+  }
+
+  private static int lengthOfMonth(int year, int month) {
+    switch (month) {
+      case 2:
+        boolean leap = (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+        return leap ? 29 : 28;
+      case 4:
+      case 6:
+      case 9:
+      case 11:
+        return 30;
+      default:
+        return 31;
+    }
+  }
+}
@@ -139,6 +139,16 @@ public class Clinician implements Serializable, QuadTreeElement {
     return procedures;
   }
 
+  /**
+   * Replace the encounter and procedure counts of this Clinician with those of a previously
+   * saved copy, so that an interrupted run can be resumed.
+   * @param saved A deserialized copy of this Clinician.
+   */
+  public synchronized void restoreStatistics(Clinician saved) {
+    this.encounters = saved.encounters;
+    this.procedures = saved.procedures;
+  }
+
   @Override
   public double getX() {
     return getLonLat().getX();
@@ -21,6 +21,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import org.mitre.synthea.export.JSONSkip;
 import org.mitre.synthea.helpers.Utilities;
 import org.mitre.synthea.world.agents.behaviors.payeradjustment.IPayerAdjustment;
+import org.mitre.synthea.world.concepts.Cents;
 import org.mitre.synthea.world.concepts.Claim;
 import org.mitre.synthea.world.concepts.Claim.ClaimEntry;
 import org.mitre.synthea.world.concepts.HealthRecord;
@@ -50,8 +51,9 @@ public class Payer implements Serializable {
 
   /* Payer Statistics. */
   private BigDecimal revenue;
-  private BigDecimal costsCovered;
-  private BigDecimal costsUncovered;
+  // Covered and uncovered costs are tracked in cents.
+  private long costsCovered;
+  private long costsUncovered;
   private double totalQOLS; // Total customer quality of life scores.
   // Unique utilizers of Payer, by Person ID, with number of utilizations per Person.
   private final Map<String, AtomicInteger> customerUtilization;
@@ -131,8 +133,8 @@ public class Payer implements Serializable {
     // Initial tracking values.
     this.entryUtilization = HashBasedTable.create();
     this.customerUtilization = new HashMap<String, AtomicInteger>();
-    this.costsCovered = Claim.ZERO_CENTS;
-    this.costsUncovered = Claim.ZERO_CENTS;
+    this.costsCovered = 0L;
+    this.costsUncovered = 0L;
     this.revenue = Claim.ZERO_CENTS;
     this.totalQOLS = 0.0;
   }
@@ -196,9 +198,9 @@ public class Payer implements Serializable {
    * which defaults to none.
    * @param claimEntry The claim entry to be adjusted.
    * @param person The person making the claim.
-   * @return The dollar amount the claim entry was adjusted.
+   * @return The amount the claim entry was adjusted, in cents.
    */
-  public BigDecimal adjustClaim(ClaimEntry claimEntry, Person person) {
+  public long adjustClaim(ClaimEntry claimEntry, Person person) {
     return payerAdjustment.adjustClaim(claimEntry, person);
   }
 
@@ -282,19 +284,19 @@ public class Payer implements Serializable {
   /**
    * Increases the total costs incurred by the payer by the given amount.
    *
-   * @param costToPayer the cost of the current encounter, after the patient's copay.
+   * @param costToPayer the cost of the current encounter, after the patient's copay, in cents.
    */
-  public void addCoveredCost(BigDecimal costToPayer) {
-    this.costsCovered = this.costsCovered.add(costToPayer);
+  public void addCoveredCost(long costToPayer) {
+    this.costsCovered += costToPayer;
   }
 
   /**
    * Increases the costs the payer did not cover by the given amount.
    *
-   * @param costToPatient the costs that the payer did not cover.
+   * @param costToPatient the costs that the payer did not cover, in cents.
    */
-  public void addUncoveredCost(BigDecimal costToPatient) {
-    this.costsUncovered = this.costsUncovered.add(costToPatient);
+  public void addUncoveredCost(long costToPatient) {
+    this.costsUncovered += costToPatient;
   }
 
   /**
@@ -422,6 +424,14 @@ public class Payer implements Serializable {
    * @return the total value of coverage paid.
    */
   public BigDecimal getAmountCovered() {
+    return Cents.toBigDecimal(this.costsCovered);
+  }
+
+  /**
+   * Returns the amount of money the payer paid for healthcare, in cents.
+   * @return the total value of coverage paid.
+   */
+  public long getAmountCoveredInCents() {
     return this.costsCovered;
   }
 
@@ -430,6 +440,14 @@ public class Payer implements Serializable {
    * @return the total value of uncovered patient healthcare.
    */
   public BigDecimal getAmountUncovered() {
+    return Cents.toBigDecimal(this.costsUncovered);
+  }
+
+  /**
+   * Returns the amount of money the payer did not cover, in cents.
+   * @return the total value of uncovered patient healthcare.
+   */
+  public long getAmountUncoveredInCents() {
     return this.costsUncovered;
   }
 
@@ -451,8 +469,8 @@ public class Payer implements Serializable {
     hash = 53 * hash + Objects.hashCode(this.ownership);
     hash = 53 * hash + Objects.hashCode(this.statesCovered);
     hash = 53 * hash + this.revenue.hashCode();
-    hash = 53 * hash + this.costsCovered.hashCode();
-    hash = 53 * hash + this.costsUncovered.hashCode();
+    hash = 53 * hash + Long.hashCode(this.costsCovered);
+    hash = 53 * hash + Long.hashCode(this.costsUncovered);
     hash = 53 * hash + (int) (Double.doubleToLongBits(this.totalQOLS)
             ^ (Double.doubleToLongBits(this.totalQOLS) >>> 32));
     return hash;
@@ -473,10 +491,10 @@ public class Payer implements Serializable {
     if (!this.revenue.equals(other.revenue)) {
       return false;
     }
-    if (!this.costsCovered.equals(other.costsCovered)) {
+    if (this.costsCovered != other.costsCovered) {
       return false;
     }
-    if (!this.costsUncovered.equals(other.costsUncovered)) {
+    if (this.costsUncovered != other.costsUncovered) {
       return false;
     }
     if (Double.doubleToLongBits(this.totalQOLS)
@@ -524,6 +542,22 @@ public class Payer implements Serializable {
     this.revenue = this.revenue.add(additionalRevenue);
   }
 
+  /**
+   * Replace the statistics of this payer with those of a previously saved copy, so that an
+   * interrupted run can be resumed.
+   * @param saved A deserialized copy of this payer.
+   */
+  public synchronized void restoreStatistics(Payer saved) {
+    this.revenue = saved.revenue;
+    this.costsCovered = saved.costsCovered;
+    this.costsUncovered = saved.costsUncovered;
+    this.totalQOLS = saved.totalQOLS;
+    this.customerUtilization.clear();
+    this.customerUtilization.putAll(saved.customerUtilization);
+    this.entryUtilization = saved.entryUtilization != null
+        ? saved.entryUtilization : HashBasedTable.create();
+  }
+
   /**
    * Returns the government payer plan if this is a government payer.
    * @return  This payer's government payer plan.
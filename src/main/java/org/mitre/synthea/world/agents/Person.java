@@ -4,10 +4,7 @@ import java.awt.geom.Point2D;
 import java.io.Serializable;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.time.Instant;
-import java.time.LocalDate;
 import java.time.Period;
-import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -45,8 +42,10 @@ public class Person implements Serializable, RandomNumberGenerator, QuadTreeElem
   private static final long serialVersionUID = 4322116644425686379L;
 
   public static final String BIRTHDATE = "birthdate";
+  /** No longer set; the birthdate is converted to a calendar date outside the attributes. */
   public static final String BIRTHDATE_AS_LOCALDATE = "birthdate_as_localdate";
   public static final String DEATHDATE = "deathdate";
+  public static final String EXPORT_RANDOM_STREAM = "export";
   public static final String FIRST_NAME = "first_name";
   public static final String MIDDLE_NAME = "middle_name";
   public static final String LAST_NAME = "last_name";
@@ -121,7 +120,16 @@ public class Person implements Serializable, RandomNumberGenerator, QuadTreeElem
   public static final String NO_VEHICLE_ACCESS = "no_vehicle_access";
   public static final String UNINSURED = "uninsured";
 
+  private static final AttributeMap.Slot BIRTHDATE_SLOT = AttributeMap.slot(BIRTHDATE);
+  private static final AttributeMap.Slot DEATHDATE_SLOT = AttributeMap.slot(DEATHDATE);
+  private static final AttributeMap.Slot CURRENT_ENCOUNTER_MODULE_SLOT =
+      AttributeMap.slot(Person.CURRENT_ENCOUNTER_MODULE);
+
   private final DefaultRandomNumberGenerator random;
+  /** Named streams of random numbers split from the person's, created when first used. */
+  private Map<String, RandomNumberGenerator> randomStreams;
+  /** The birthdate as a calendar date, built when the age is first needed. */
+  private transient BirthCalendar birthCalendar;
   public long populationSeed;
   /**
    * Tracks the last time that the person was updated over a serialize/deserialize.
@@ -131,7 +139,7 @@ public class Person implements Serializable, RandomNumberGenerator, QuadTreeElem
    * Tracks the remaining modules for a person over a serialize/deserialize.
    */
   public List<Module> currentModules;
-  public Map<String, Object> attributes;
+  public AttributeMap attributes;
   public Map<VitalSign, ValueGenerator> vitalSigns;
   /** Data structure for storing symptoms faced by a person.
    * Adding the Long keyset to keep track of the time a symptom is set. */
@@ -165,7 +173,7 @@ public class Person implements Serializable, RandomNumberGenerator, QuadTreeElem
    */
   public Person(long seed) {
     random = new DefaultRandomNumberGenerator(seed);
-    attributes = new ConcurrentHashMap<String, Object>();
+    attributes = new AttributeMap();
     vitalSigns = new ConcurrentHashMap<VitalSign, ValueGenerator>();
     symptoms = new ConcurrentHashMap<String, ExpressedSymptom>();
     /* initialized the onsetConditions field */
@@ -247,31 +255,65 @@ public class Person implements Serializable, RandomNumberGenerator, QuadTreeElem
     return random.getCount();
   }
 
+  /**
+   * Get a named stream of random numbers for this person. With the splittable algorithm, each
+   * stream is independent of the person's own random numbers and of every other stream, so
+   * drawing from it does not change how the person is simulated. With the legacy algorithm,
+   * this is the person itself, so that the numbers drawn are the same as they have always been.
+   * @param name The name of the stream.
+   * @return The random number generator of the stream.
+   */
+  public RandomNumberGenerator randomStream(String name) {
+    if (random.getAlgorithm() == DefaultRandomNumberGenerator.Algorithm.LEGACY) {
+      return this;
+    }
+    if (randomStreams == null) {
+      randomStreams = new HashMap<String, RandomNumberGenerator>();
+    }
+    return randomStreams.computeIfAbsent(name, random::split);
+  }
+
+  /**
+   * Get the stream of random numbers used by exporters, which may run before the simulation of
+   * the person continues.
+   * @return The random number generator of the export stream.
+   */
+  public RandomNumberGenerator exportRandom() {
+    return randomStream(EXPORT_RANDOM_STREAM);
+  }
+
   @Override
   public long getSeed() {
     return random.getSeed();
   }
 
+  /**
+   * Get the calendar of the person's birthdate, building it again if the birthdate changed.
+   * @return the calendar, or null if the person has no birthdate.
+   */
+  private BirthCalendar birthCalendar() {
+    Object birthTime = attributes.get(BIRTHDATE_SLOT);
+    if (birthTime == null) {
+      return null;
+    }
+    long birthdate = (long) birthTime;
+    // we call age() a lot, so the birthdate is only converted to a calendar date once
+    if (birthCalendar == null || birthCalendar.birthTime != birthdate) {
+      birthCalendar = new BirthCalendar(birthdate);
+    }
+    return birthCalendar;
+  }
+
   /**
    * Returns a person's age in Period form.
    */
   public Period age(long time) {
-    Period age = Period.ZERO;
-
-    if (attributes.containsKey(BIRTHDATE)) {
-      LocalDate now = Instant.ofEpochMilli(time).atZone(ZoneOffset.UTC).toLocalDate();
-
-      // we call age() a lot, so caching the birthdate as a LocalDate saves some translation
-      LocalDate birthdate = (LocalDate) attributes.get(BIRTHDATE_AS_LOCALDATE);
-      if (birthdate == null) {
-        birthdate = Instant.ofEpochMilli((long) attributes.get(BIRTHDATE))
-            .atZone(ZoneOffset.UTC).toLocalDate();
-        attributes.put(BIRTHDATE_AS_LOCALDATE, birthdate);
-      }
-
-      age = Period.between(birthdate, now);
+    BirthCalendar calendar = birthCalendar();
+    if (calendar == null) {
+      return Period.ZERO;
     }
-    return age;
+    int months = calendar.totalMonths(time);
+    return Period.of(months / 12, months % 12, calendar.days(time));
   }
 
   /**
@@ -281,10 +323,14 @@ public class Person implements Serializable, RandomNumberGenerator, QuadTreeElem
    * @return decimal age in years
    */
   public double ageInDecimalYears(long time) {
-    Period agePeriod = age(time);
+    BirthCalendar calendar = birthCalendar();
+    if (calendar == null) {
+      return 0;
+    }
+    int months = calendar.totalMonths(time);
 
-    double years = agePeriod.getYears() + agePeriod.getMonths() / 12.0
-        + agePeriod.getDays() / 365.2425;
+    double years = months / 12 + (months % 12) / 12.0
+        + calendar.days(time) / 365.2425;
 
     if (years < 0) {
       years = 0;
@@ -301,7 +347,8 @@ public class Person implements Serializable, RandomNumberGenerator, QuadTreeElem
    *         before they were born.
    */
   public int ageInMonths(long time) {
-    int months = (int) age(time).toTotalMonths();
+    BirthCalendar calendar = birthCalendar();
+    int months = calendar == null ? 0 : calendar.totalMonths(time);
     if (months < 0) {
       months = 0;
     }
@@ -316,7 +363,8 @@ public class Person implements Serializable, RandomNumberGenerator, QuadTreeElem
    *         before they were born.
    */
   public int ageInYears(long time) {
-    int years = age(time).getYears();
+    BirthCalendar calendar = birthCalendar();
+    int years = calendar == null ? 0 : calendar.totalMonths(time) / 12;
     if (years < 0) {
       years = 0;
     }
@@ -327,8 +375,8 @@ public class Person implements Serializable, RandomNumberGenerator, QuadTreeElem
    * Returns whether a person is alive at the given time.
    */
   public boolean alive(long time) {
-    boolean born = attributes.containsKey(Person.BIRTHDATE);
-    Long died = (Long) attributes.get(Person.DEATHDATE);
+    boolean born = attributes.containsKey(BIRTHDATE_SLOT);
+    Long died = (Long) attributes.get(DEATHDATE_SLOT);
     return (born && (died == null || died > time));
   }
 
@@ -499,7 +547,7 @@ public class Person implements Serializable, RandomNumberGenerator, QuadTreeElem
   public void recordDeath(long time, Code cause) {
     if (alive(time)) {
       long deathTime = time;
-      attributes.put(Person.DEATHDATE, Long.valueOf(deathTime));
+      attributes.put(DEATHDATE_SLOT, Long.valueOf(deathTime));
       if (cause == null) {
         attributes.remove(CAUSE_OF_DEATH);
       } else {
@@ -602,7 +650,7 @@ public class Person implements Serializable, RandomNumberGenerator, QuadTreeElem
    * currently in an encounter.
    */
   public String getCurrentEncounterModule() {
-    return (String) attributes.get(CURRENT_ENCOUNTER_MODULE);
+    return (String) attributes.get(CURRENT_ENCOUNTER_MODULE_SLOT);
   }
 
   /**
@@ -610,7 +658,7 @@ public class Person implements Serializable, RandomNumberGenerator, QuadTreeElem
    * @return true if there is a current encounter, false otherwise.
    */
   public boolean hasCurrentEncounter() {
-    return attributes.containsKey(CURRENT_ENCOUNTER_MODULE);
+    return attributes.containsKey(CURRENT_ENCOUNTER_MODULE_SLOT);
   }
 
   /**
@@ -622,7 +670,7 @@ public class Person implements Serializable, RandomNumberGenerator, QuadTreeElem
    * @param module The name of the module releasing the reservation.
    */
   public void releaseCurrentEncounter(long time, String module) {
-    attributes.remove(CURRENT_ENCOUNTER_MODULE);
+    attributes.remove(CURRENT_ENCOUNTER_MODULE_SLOT);
   }
 
   /**
@@ -636,7 +684,7 @@ public class Person implements Serializable, RandomNumberGenerator, QuadTreeElem
     if (hasCurrentEncounter()) {
       return false;
     } else {
-      attributes.put(CURRENT_ENCOUNTER_MODULE, module);
+      attributes.put(CURRENT_ENCOUNTER_MODULE_SLOT, module);
       return true;
     }
   }
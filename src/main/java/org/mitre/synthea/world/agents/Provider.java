@@ -267,6 +267,31 @@ public class Provider implements QuadTreeElement, Serializable {
     return this.revenue;
   }
 
+  /**
+   * Replace the utilization and revenue of this provider, and the encounter and procedure
+   * counts of its clinicians, with those of a previously saved copy, so that an interrupted
+   * run can be resumed.
+   * @param saved A deserialized copy of this provider.
+   */
+  public synchronized void restoreStatistics(Provider saved) {
+    this.revenue = saved.revenue;
+    this.utilization = saved.utilization != null ? saved.utilization : HashBasedTable.create();
+    Map<String, Clinician> savedClinicians = new HashMap<String, Clinician>();
+    for (List<Clinician> clinicians : saved.clinicianMap.values()) {
+      for (Clinician clinician : clinicians) {
+        savedClinicians.put(clinician.uuid, clinician);
+      }
+    }
+    for (List<Clinician> clinicians : clinicianMap.values()) {
+      for (Clinician clinician : clinicians) {
+        Clinician savedClinician = savedClinicians.get(clinician.uuid);
+        if (savedClinician != null) {
+          clinician.restoreStatistics(savedClinician);
+        }
+      }
+    }
+  }
+
   /**
    * Find specific service provider for the given person.
    * @param person The patient who requires the service.
@@ -1,10 +1,9 @@
 package org.mitre.synthea.world.agents.behaviors.payeradjustment;
 
 import java.io.Serializable;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 
 import org.mitre.synthea.world.agents.Person;
+import org.mitre.synthea.world.concepts.Cents;
 import org.mitre.synthea.world.concepts.Claim.ClaimEntry;
 
 /**
@@ -16,6 +15,8 @@ public class PayerAdjustmentFixed implements IPayerAdjustment, Serializable {
 
   /** Fixed adjustment rate. */
   double rate;
+  /** The fixed adjustment rate, as applied to claim costs in cents. */
+  private final Cents.Rate centsRate;
 
   /**
    * Create a new fixed payer adjustment.
@@ -28,12 +29,12 @@ public class PayerAdjustmentFixed implements IPayerAdjustment, Serializable {
     } else if (this.rate > 1.0) {
       this.rate = 1.0;
     }
+    this.centsRate = Cents.Rate.of(this.rate);
   }
 
   @Override
-  public BigDecimal adjustClaim(ClaimEntry claimEntry, Person person) {
-    claimEntry.adjustment = BigDecimal.valueOf(this.rate).multiply(claimEntry.cost)
-            .setScale(2, RoundingMode.HALF_EVEN);
+  public long adjustClaim(ClaimEntry claimEntry, Person person) {
+    claimEntry.adjustment = Cents.multiply(claimEntry.cost, this.centsRate);
     return claimEntry.adjustment;
   }
 }
@@ -1,11 +1,9 @@
 package org.mitre.synthea.world.agents.behaviors.payeradjustment;
 
 import java.io.Serializable;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 
 import org.mitre.synthea.world.agents.Person;
-import org.mitre.synthea.world.concepts.Claim;
+import org.mitre.synthea.world.concepts.Cents;
 import org.mitre.synthea.world.concepts.Claim.ClaimEntry;
 
 /**
@@ -32,14 +30,13 @@ public class PayerAdjustmentRandom implements IPayerAdjustment, Serializable {
   }
 
   @Override
-  public BigDecimal adjustClaim(ClaimEntry claimEntry, Person person) {
+  public long adjustClaim(ClaimEntry claimEntry, Person person) {
     if (person.randBoolean()) {
       double currentRate = person.rand(0.0, rate);
-      claimEntry.adjustment = BigDecimal.valueOf(currentRate).multiply(claimEntry.cost)
-              .setScale(2, RoundingMode.HALF_EVEN);
+      claimEntry.adjustment = Cents.multiply(claimEntry.cost, Cents.Rate.of(currentRate));
       return claimEntry.adjustment;
     } else {
-      return Claim.ZERO_CENTS;
+      return 0L;
     }
   }
 }
@@ -0,0 +1,239 @@
+package org.mitre.synthea.world.concepts;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point helpers for monetary amounts held as a whole number of cents in a primitive
+ * <code>long</code>. Claim adjudication works entirely in cents so that no intermediate
+ * <code>BigDecimal</code> instances are allocated per claim line; amounts are only converted
+ * back to decimal when they are serialized by an exporter.
+ *
+ * <p>Every operation here reproduces the result of the <code>BigDecimal</code> arithmetic that
+ * it replaces, including the rounding mode, so exported values are unchanged.</p>
+ */
+public final class Cents {
+  /** Number of cents in a dollar. */
+  public static final long PER_DOLLAR = 100L;
+
+  /** Largest magnitude (in dollars) that is converted from a double without a fallback. */
+  private static final double MAX_FAST_DOUBLE = 1.0e13;
+
+  private static final long[] POWERS_OF_TEN = {
+      1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L,
+      1_000_000_000L, 10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L,
+      10_000_000_000_000L, 100_000_000_000_000L, 1_000_000_000_000_000L,
+      10_000_000_000_000_000L, 100_000_000_000_000_000L, 1_000_000_000_000_000_000L
+  };
+
+  private Cents() {
+    // utility class
+  }
+
+  /**
+   * Convert a decimal amount into cents. Amounts with more than two decimal places are
+   * rounded using {@link RoundingMode#HALF_EVEN}.
+   * @param amount the decimal amount, in dollars.
+   * @return the amount in cents.
+   */
+  public static long valueOf(BigDecimal amount) {
+    return amount.setScale(2, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+  }
+
+  /**
+   * Convert a double amount into cents, truncating any fractional cents. The result is
+   * identical to <code>BigDecimal.valueOf(amount).setScale(2, RoundingMode.DOWN)</code>, which
+   * is how entry costs have always been truncated, but without allocating.
+   * @param amount the amount, in dollars.
+   * @return the truncated amount in cents.
+   */
+  public static long truncate(double amount) {
+    if (Double.isNaN(amount) || Double.isInfinite(amount)
+        || Math.abs(amount) >= MAX_FAST_DOUBLE) {
+      return valueOf(BigDecimal.valueOf(amount).setScale(2, RoundingMode.DOWN));
+    }
+    if (amount < 0) {
+      return -truncate(-amount);
+    }
+    // BigDecimal.valueOf(double) uses the shortest decimal string that uniquely identifies
+    // the double. Since (c / 100.0) is the double closest to the decimal c/100, that string is
+    // at least c/100 exactly when (c / 100.0) <= amount, so we only need to nudge our estimate.
+    long cents = (long) (amount * PER_DOLLAR);
+    while (cents > 0 && (cents / (double) PER_DOLLAR) > amount) {
+      cents--;
+    }
+    while (((cents + 1) / (double) PER_DOLLAR) <= amount) {
+      cents++;
+    }
+    return cents;
+  }
+
+  /**
+   * Convert cents into a decimal amount with a scale of two.
+   * @param cents the amount in cents.
+   * @return the decimal amount, in dollars.
+   */
+  public static BigDecimal toBigDecimal(long cents) {
+    return BigDecimal.valueOf(cents, 2);
+  }
+
+  /**
+   * Multiply an amount in cents by a decimal rate, rounding the result to the nearest cent
+   * using {@link RoundingMode#HALF_EVEN}. Equivalent to
+   * <code>rate.multiply(amount).setScale(2, RoundingMode.HALF_EVEN)</code>.
+   * @param cents the amount in cents.
+   * @param rateUnscaled the unscaled value of the rate.
+   * @param rateScale the scale of the rate.
+   * @return the product, in cents.
+   */
+  public static long multiply(long cents, long rateUnscaled, int rateScale) {
+    try {
+      long product = Math.multiplyExact(cents, rateUnscaled);
+      if (rateScale <= 0) {
+        if (-rateScale >= POWERS_OF_TEN.length) {
+          throw new ArithmeticException("Rate scale out of range: " + rateScale);
+        }
+        return Math.multiplyExact(product, POWERS_OF_TEN[-rateScale]);
+      }
+      if (rateScale >= POWERS_OF_TEN.length) {
+        throw new ArithmeticException("Rate scale out of range: " + rateScale);
+      }
+      long divisor = POWERS_OF_TEN[rateScale];
+      long quotient = product / divisor;
+      long remainder = Math.abs(product % divisor);
+      if (remainder != 0) {
+        long twice = remainder * 2;
+        if (twice > divisor || (twice == divisor && (quotient & 1) != 0)) {
+          quotient += Long.signum(product);
+        }
+      }
+      return quotient;
+    } catch (ArithmeticException e) {
+      // Too large for long arithmetic, fall back to the exact decimal calculation.
+      return valueOf(BigDecimal.valueOf(rateUnscaled, rateScale)
+          .multiply(toBigDecimal(cents)));
+    }
+  }
+
+  /**
+   * Multiply an amount in cents by a decimal rate, rounding the result to the nearest cent
+   * using {@link RoundingMode#HALF_EVEN}. Equivalent to
+   * <code>rate.multiply(amount).setScale(2, RoundingMode.HALF_EVEN)</code>.
+   * @param cents the amount in cents.
+   * @param rate the rate.
+   * @return the product, in cents.
+   */
+  public static long multiply(long cents, Rate rate) {
+    return multiply(cents, rate.unscaled, rate.scale);
+  }
+
+  /**
+   * Divide an amount in cents by a whole number, rounding the result to the nearest cent using
+   * {@link RoundingMode#HALF_EVEN}. Equivalent to
+   * <code>amount.divide(BigDecimal.valueOf(divisor), RoundingMode.HALF_EVEN)</code> for an
+   * amount with a scale of two.
+   * @param cents the amount in cents.
+   * @param divisor the divisor.
+   * @return the quotient, in cents.
+   */
+  public static long divide(long cents, long divisor) {
+    long quotient = cents / divisor;
+    long remainder = Math.abs(cents % divisor);
+    long absDivisor = Math.abs(divisor);
+    if (remainder != 0 && absDivisor - remainder <= remainder) {
+      if (absDivisor - remainder < remainder || (quotient & 1) != 0) {
+        quotient += Long.signum(cents) * Long.signum(divisor);
+      }
+    }
+    return quotient;
+  }
+
+  /**
+   * Format an amount in cents as a plain decimal string with exactly two decimal places,
+   * e.g. <code>"-12.05"</code>. The result matches both <code>BigDecimal.toString()</code> of
+   * a scale two value and <code>String.format("%.2f", ...)</code>.
+   * @param cents the amount in cents.
+   * @return the formatted amount.
+   */
+  public static String toString(long cents) {
+    return append(new StringBuilder(24), cents).toString();
+  }
+
+  /**
+   * Append an amount in cents to the given builder as a plain decimal string with exactly two
+   * decimal places.
+   * @param sb the builder to append to.
+   * @param cents the amount in cents.
+   * @return the builder.
+   */
+  public static StringBuilder append(StringBuilder sb, long cents) {
+    if (cents == Long.MIN_VALUE) {
+      return sb.append(toBigDecimal(cents).toPlainString());
+    }
+    if (cents < 0) {
+      sb.append('-');
+      cents = -cents;
+    }
+    long fraction = cents % PER_DOLLAR;
+    sb.append(cents / PER_DOLLAR).append('.');
+    if (fraction < 10) {
+      sb.append('0');
+    }
+    return sb.append(fraction);
+  }
+
+  /**
+   * A decimal rate (for example a coinsurance percentage) pre-decomposed into its unscaled
+   * value and scale so that it can be applied to cents without allocating.
+   */
+  public static final class Rate implements java.io.Serializable {
+    private static final long serialVersionUID = 6148127386516403781L;
+
+    /** The unscaled value of the rate. */
+    public final long unscaled;
+    /** The scale of the rate. */
+    public final int scale;
+
+    private Rate(long unscaled, int scale) {
+      this.unscaled = unscaled;
+      this.scale = scale;
+    }
+
+    /**
+     * Create a rate from a decimal value. Trailing zeros are removed so that the unscaled
+     * value is as small as possible.
+     * @param rate the rate.
+     * @return the rate.
+     */
+    public static Rate of(BigDecimal rate) {
+      BigDecimal stripped = rate.signum() == 0 ? BigDecimal.ZERO : rate.stripTrailingZeros();
+      return new Rate(stripped.unscaledValue().longValueExact(), stripped.scale());
+    }
+
+    /**
+     * Create a rate from a double, using the same decimal expansion as
+     * <code>BigDecimal.valueOf(double)</code>.
+     * @param rate the rate.
+     * @return the rate.
+     */
+    public static Rate of(double rate) {
+      return of(BigDecimal.valueOf(rate));
+    }
+
+    /**
+     * Whether this rate is greater than zero.
+     * @return true if the rate is positive.
+     */
+    public boolean isPositive() {
+      return unscaled > 0;
+    }
+
+    /**
+     * Get this rate as a decimal value.
+     * @return the rate.
+     */
+    public BigDecimal toBigDecimal() {
+      return BigDecimal.valueOf(unscaled, scale);
+    }
+  }
+}
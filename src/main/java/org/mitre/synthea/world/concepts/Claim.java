@@ -1,12 +1,14 @@
 package org.mitre.synthea.world.concepts;
 
+import com.google.gson.annotations.JsonAdapter;
+
 import java.io.Serializable;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
+import org.mitre.synthea.export.CentsTypeAdapter;
 import org.mitre.synthea.export.JSONSkip;
 import org.mitre.synthea.world.agents.Payer;
 import org.mitre.synthea.world.agents.PayerManager;
@@ -22,22 +24,30 @@ public class Claim implements Serializable {
   public static final BigDecimal ZERO_CENTS = BigDecimal.ZERO.setScale(2);
 
   public static class ClaimCost {
-    /** total cost of the entry. */
-    public BigDecimal cost = ZERO_CENTS;
-    /** copay paid by patient. */
-    public BigDecimal copayPaidByPatient = ZERO_CENTS;
-    /** deductible paid by patient. */
-    public BigDecimal deductiblePaidByPatient = ZERO_CENTS;
-    /** amount the charge was decreased by payer adjustment. */
-    public BigDecimal adjustment = ZERO_CENTS;
-    /** coinsurance paid by payer. */
-    public BigDecimal coinsurancePaidByPayer = ZERO_CENTS;
-    /** otherwise paid by payer. */
-    public BigDecimal paidByPayer = ZERO_CENTS;
-    /** otherwise paid by secondary payer. */
-    public BigDecimal paidBySecondaryPayer = ZERO_CENTS;
-    /** otherwise paid by patient out of pocket. */
-    public BigDecimal patientOutOfPocket = ZERO_CENTS;
+    /** total cost of the entry, in cents. */
+    @JsonAdapter(CentsTypeAdapter.class)
+    public long cost;
+    /** copay paid by patient, in cents. */
+    @JsonAdapter(CentsTypeAdapter.class)
+    public long copayPaidByPatient;
+    /** deductible paid by patient, in cents. */
+    @JsonAdapter(CentsTypeAdapter.class)
+    public long deductiblePaidByPatient;
+    /** amount the charge was decreased by payer adjustment, in cents. */
+    @JsonAdapter(CentsTypeAdapter.class)
+    public long adjustment;
+    /** coinsurance paid by payer, in cents. */
+    @JsonAdapter(CentsTypeAdapter.class)
+    public long coinsurancePaidByPayer;
+    /** otherwise paid by payer, in cents. */
+    @JsonAdapter(CentsTypeAdapter.class)
+    public long paidByPayer;
+    /** otherwise paid by secondary payer, in cents. */
+    @JsonAdapter(CentsTypeAdapter.class)
+    public long paidBySecondaryPayer;
+    /** otherwise paid by patient out of pocket, in cents. */
+    @JsonAdapter(CentsTypeAdapter.class)
+    public long patientOutOfPocket;
 
     /**
      * Create a new instance with all costs set to zero.
@@ -49,14 +59,14 @@ public class Claim implements Serializable {
      * Reset all claim costs to zero.
      */
     public void reset() {
-      cost = ZERO_CENTS;
-      copayPaidByPatient = ZERO_CENTS;
-      deductiblePaidByPatient = ZERO_CENTS;
-      adjustment = ZERO_CENTS;
-      coinsurancePaidByPayer = ZERO_CENTS;
-      paidByPayer = ZERO_CENTS;
-      paidBySecondaryPayer = ZERO_CENTS;
-      patientOutOfPocket = ZERO_CENTS;
+      cost = 0L;
+      copayPaidByPatient = 0L;
+      deductiblePaidByPatient = 0L;
+      adjustment = 0L;
+      coinsurancePaidByPayer = 0L;
+      paidByPayer = 0L;
+      paidBySecondaryPayer = 0L;
+      patientOutOfPocket = 0L;
     }
 
     /**
@@ -79,29 +89,37 @@ public class Claim implements Serializable {
      * @param other the other claim entry.
      */
     public void addCosts(ClaimCost other) {
-      this.cost = this.cost.add(other.cost);
-      this.copayPaidByPatient = this.copayPaidByPatient.add(other.copayPaidByPatient);
-      this.deductiblePaidByPatient
-          = this.deductiblePaidByPatient.add(other.deductiblePaidByPatient);
-      this.adjustment = this.adjustment.add(other.adjustment);
-      this.coinsurancePaidByPayer = this.coinsurancePaidByPayer.add(other.coinsurancePaidByPayer);
-      this.paidByPayer = this.paidByPayer.add(other.paidByPayer);
-      this.paidBySecondaryPayer = this.paidBySecondaryPayer.add(other.paidBySecondaryPayer);
-      this.patientOutOfPocket = this.patientOutOfPocket.add(other.patientOutOfPocket);
+      this.cost += other.cost;
+      this.copayPaidByPatient += other.copayPaidByPatient;
+      this.deductiblePaidByPatient += other.deductiblePaidByPatient;
+      this.adjustment += other.adjustment;
+      this.coinsurancePaidByPayer += other.coinsurancePaidByPayer;
+      this.paidByPayer += other.paidByPayer;
+      this.paidBySecondaryPayer += other.paidBySecondaryPayer;
+      this.patientOutOfPocket += other.patientOutOfPocket;
     }
 
     /**
      * Returns the amount of coinsurance paid by the patient, either via secondary insurance or out
-     * of pocket.
+     * of pocket, in cents.
      * @return the amount of coinsurance paid
      */
-    public BigDecimal getCoinsurancePaid() {
-      if (this.paidBySecondaryPayer.compareTo(Claim.ZERO_CENTS) > 0) {
+    public long getCoinsurancePaidInCents() {
+      if (this.paidBySecondaryPayer > 0) {
         return this.paidBySecondaryPayer;
-      } else if (this.coinsurancePaidByPayer.compareTo(Claim.ZERO_CENTS) > 0) {
+      } else if (this.coinsurancePaidByPayer > 0) {
         return this.patientOutOfPocket;
       }
-      return Claim.ZERO_CENTS;
+      return 0L;
+    }
+
+    /**
+     * Returns the amount of coinsurance paid by the patient, either via secondary insurance or out
+     * of pocket.
+     * @return the amount of coinsurance paid
+     */
+    public BigDecimal getCoinsurancePaid() {
+      return Cents.toBigDecimal(getCoinsurancePaidInCents());
     }
 
     /**
@@ -109,23 +127,37 @@ public class Claim implements Serializable {
      * encounter.
      */
     public BigDecimal getTotalClaimCost() {
-      return cost;
+      return Cents.toBigDecimal(cost);
+    }
+
+    /**
+     * Returns the amount covered by the payer, in cents.
+     */
+    public long getCoveredCostInCents() {
+      return coinsurancePaidByPayer + paidByPayer;
     }
 
     public BigDecimal getCoveredCost() {
-      return coinsurancePaidByPayer.add(paidByPayer);
+      return Cents.toBigDecimal(getCoveredCostInCents());
     }
 
     public BigDecimal getDeductiblePaid() {
-      return deductiblePaidByPatient;
+      return Cents.toBigDecimal(deductiblePaidByPatient);
     }
 
     public BigDecimal getCopayPaid() {
-      return copayPaidByPatient;
+      return Cents.toBigDecimal(copayPaidByPatient);
+    }
+
+    /**
+     * Returns the cost to the patient, including copay, coinsurance, and deductible, in cents.
+     */
+    public long getPatientCostInCents() {
+      return patientOutOfPocket + copayPaidByPatient + deductiblePaidByPatient;
     }
 
     public BigDecimal getPatientCost() {
-      return patientOutOfPocket.add(copayPaidByPatient).add(deductiblePaidByPatient);
+      return Cents.toBigDecimal(getPatientCostInCents());
     }
   }
 
@@ -144,8 +176,8 @@ public class Claim implements Serializable {
      */
     private void assignCosts(PlanRecord planRecord) {
       reset();
-      this.cost = this.entry.getCost();
-      BigDecimal remainingBalance = this.cost;
+      this.cost = this.entry.getCostInCents();
+      long remainingBalance = this.cost;
 
       InsurancePlan plan = planRecord.getPlan();
 
@@ -158,67 +190,63 @@ public class Claim implements Serializable {
 
       plan.incrementCoveredEntries(this.entry);
 
-      if (planRecord.getOutOfPocketExpenses().compareTo(plan.getMaxOop()) > 0) {
+      if (planRecord.getOutOfPocketExpensesInCents() > plan.getMaxOopInCents()) {
         // TODO - This will only trigger after a person has already paid more than their Max OOP.
         // An accurate implementation would require a Max OOP check for every time a patient is
         // assigned costs in this method.
         // The person has already paid their maximum out-of-pocket costs.
         this.paidByPayer = remainingBalance;
-        remainingBalance = BigDecimal.ZERO;
+        remainingBalance = 0L;
       }
 
       // Apply copay to Encounters and Medication claims only
       if ((this.entry instanceof HealthRecord.Encounter)
           || (this.entry instanceof HealthRecord.Medication)) {
-        this.copayPaidByPatient = plan.determineCopay(this.entry.type, this.entry.start);
-        if (this.copayPaidByPatient.compareTo(remainingBalance) > 0) {
+        this.copayPaidByPatient = plan.determineCopayInCents(this.entry.type, this.entry.start);
+        if (this.copayPaidByPatient > remainingBalance) {
           this.copayPaidByPatient = remainingBalance;
         }
-        remainingBalance = remainingBalance.subtract(this.copayPaidByPatient);
+        remainingBalance -= this.copayPaidByPatient;
       }
       // Check if the patient has remaining deductible
-      if (remainingBalance.compareTo(Claim.ZERO_CENTS) > 0 && planRecord.remainingDeductible
-              .compareTo(Claim.ZERO_CENTS) > 0) {
-        if (planRecord.remainingDeductible.compareTo(remainingBalance) >= 0) {
+      if (remainingBalance > 0 && planRecord.remainingDeductible > 0) {
+        if (planRecord.remainingDeductible >= remainingBalance) {
           this.deductiblePaidByPatient = remainingBalance;
         } else {
           this.deductiblePaidByPatient = planRecord.remainingDeductible;
         }
-        remainingBalance = remainingBalance.subtract(this.deductiblePaidByPatient);
-        planRecord.remainingDeductible = planRecord.remainingDeductible
-            .subtract(this.deductiblePaidByPatient);
+        remainingBalance -= this.deductiblePaidByPatient;
+        planRecord.remainingDeductible -= this.deductiblePaidByPatient;
       }
-      if (remainingBalance.compareTo(Claim.ZERO_CENTS) > 0) {
+      if (remainingBalance > 0) {
         // Check if the payer has an adjustment
-        BigDecimal adjustment = plan.adjustClaim(this, person);
-        remainingBalance = remainingBalance.subtract(adjustment);
+        long adjustment = plan.adjustClaim(this, person);
+        remainingBalance -= adjustment;
       }
-      if (remainingBalance.compareTo(Claim.ZERO_CENTS) > 0) {
+      if (remainingBalance > 0) {
         // Check if the patient has coinsurance
-        BigDecimal patientCoinsurance = plan.getPatientCoinsurance();
-        if (patientCoinsurance.compareTo(Claim.ZERO_CENTS) > 0) {
-          BigDecimal payerCoinsurance = BigDecimal.ONE.subtract(plan.getPatientCoinsurance());
+        if (plan.getPatientCoinsuranceRate().isPositive()) {
           // Payer covers some
-          this.coinsurancePaidByPayer = payerCoinsurance.multiply(remainingBalance)
-                  .setScale(2, RoundingMode.HALF_EVEN);
-          remainingBalance = remainingBalance.subtract(this.coinsurancePaidByPayer);
+          this.coinsurancePaidByPayer =
+              Cents.multiply(remainingBalance, plan.getPayerCoinsuranceRate());
+          remainingBalance -= this.coinsurancePaidByPayer;
         } else {
           // Payer covers all
           this.paidByPayer = remainingBalance;
-          remainingBalance = BigDecimal.ZERO;
+          remainingBalance = 0L;
         }
       }
-      if (remainingBalance.compareTo(Claim.ZERO_CENTS) > 0) {
+      if (remainingBalance > 0) {
         // If secondary insurance, payer covers remainder, not patient.
         if (!planRecord.getSecondaryPlan().isNoInsurance()) {
           this.paidBySecondaryPayer = remainingBalance;
-          remainingBalance = remainingBalance.subtract(this.paidBySecondaryPayer);
+          remainingBalance -= this.paidBySecondaryPayer;
         }
       }
-      if (remainingBalance.compareTo(Claim.ZERO_CENTS) > 0) {
+      if (remainingBalance > 0) {
         // Patient amount
         this.patientOutOfPocket = remainingBalance;
-        remainingBalance = remainingBalance.subtract(this.patientOutOfPocket);
+        remainingBalance -= this.patientOutOfPocket;
       }
     }
   }
@@ -277,9 +305,9 @@ public class Claim implements Serializable {
       totals.addCosts(item);
     }
 
-    planRecord.incrementOutOfPocketExpenses(getTotalPatientCost());
-    planRecord.incrementPrimaryCoverage(getTotalCoveredCost());
-    planRecord.incrementSecondaryCoverage(getTotalPaidBySecondaryPayer());
+    planRecord.incrementOutOfPocketExpenses(this.totals.getPatientCostInCents());
+    planRecord.incrementPrimaryCoverage(this.totals.getCoveredCostInCents());
+    planRecord.incrementSecondaryCoverage(this.totals.paidBySecondaryPayer);
   }
 
   /**
@@ -305,11 +333,11 @@ public class Claim implements Serializable {
   }
 
   public BigDecimal getTotalPaidBySecondaryPayer() {
-    return this.totals.paidBySecondaryPayer;
+    return Cents.toBigDecimal(this.totals.paidBySecondaryPayer);
   }
 
   public BigDecimal getTotalAdjustment() {
-    return this.totals.adjustment;
+    return Cents.toBigDecimal(this.totals.adjustment);
   }
 
   /**
@@ -164,6 +164,18 @@ public class Costs {
     return (baseCost * locationAdjustment);
   }
 
+  /**
+   * Return the cost of the given entry (Encounter/Procedure/Immunization/Medication) in
+   * whole cents, truncating any fractional cents.
+   *
+   * @param entry the entry to calculate the cost for.
+   * @param person the person associated with the entry.
+   * @return the total cost of the entry, in cents.
+   */
+  public static long determineCostOfEntryInCents(Entry entry, Person person) {
+    return Cents.truncate(determineCostOfEntry(entry, person));
+  }
+
   /**
    * Load all cost data needed by the system.
    */
@@ -3,13 +3,13 @@ package org.mitre.synthea.world.concepts;
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import com.google.gson.annotations.JsonAdapter;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.text.SimpleDateFormat;
 import java.time.Instant;
 import java.util.ArrayList;
@@ -25,6 +25,7 @@ import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
+import org.mitre.synthea.export.CentsTypeAdapter;
 import org.mitre.synthea.export.JSONSkip;
 import org.mitre.synthea.helpers.RandomNumberGenerator;
 import org.mitre.synthea.helpers.Utilities;
@@ -45,6 +46,9 @@ public class HealthRecord implements Serializable {
   public static final String MEDICATIONS = "medications";
   public static final String IMMUNIZATIONS = "immunizations";
 
+  /** Marker for an entry whose cost has not been determined yet. */
+  private static final long COST_NOT_DETERMINED = Long.MIN_VALUE;
+
   /**
    * HealthRecord.Code represents a system, code, and display value.
    */
@@ -166,7 +170,8 @@ public class HealthRecord implements Serializable {
     public long stop;
     public String type;
     public List<Code> codes;
-    private BigDecimal cost;
+    @JsonAdapter(CentsTypeAdapter.class)
+    private long cost = COST_NOT_DETERMINED;
 
     /**
      * Constructor for Entry.
@@ -181,16 +186,21 @@ public class HealthRecord implements Serializable {
      * Determines the cost of the entry based on type and location adjustment factors.
      */
     void determineCost() {
-      this.cost = BigDecimal.valueOf(Costs.determineCostOfEntry(this, this.record.person));
-      // truncate to 2 decimal places
-      this.cost = this.cost.setScale(2, RoundingMode.DOWN);
+      this.cost = Costs.determineCostOfEntryInCents(this, this.record.person);
     }
 
     /**
      * Returns the base cost of the entry.
      */
     public BigDecimal getCost() {
-      if ((this.cost == null)) {
+      return Cents.toBigDecimal(this.getCostInCents());
+    }
+
+    /**
+     * Returns the base cost of the entry, in cents.
+     */
+    public long getCostInCents() {
+      if (this.cost == COST_NOT_DETERMINED) {
         this.determineCost();
       }
       return this.cost;
@@ -23,6 +23,8 @@ public class TelemedicineConfig implements Serializable {
   public static final String AMBULATORY = "ambulatory";
   public static final String EMERGENCY = "emergency";
   public static final String TELEMEDICINE = "telemedicine";
+  /** The resource that the configuration is read from. */
+  public static final String CONFIG_FILE = "telemedicine_config.json";
 
   // The time in the simulation that transitions to telemedicine should start
   private long telemedicineStartTime;
@@ -101,9 +103,8 @@ public class TelemedicineConfig implements Serializable {
   public static TelemedicineConfig fromJSON() {
     TelemedicineConfig config = new TelemedicineConfig();
 
-    String filename = "telemedicine_config.json";
     try {
-      String json = Utilities.readResource(filename);
+      String json = Utilities.readResource(CONFIG_FILE);
       Gson g = new Gson();
       HashMap configHash = g.fromJson(json, HashMap.class);
       int startYear = ((Double) configHash.get("start_year")).intValue();
@@ -131,7 +132,7 @@ public class TelemedicineConfig implements Serializable {
       config.telemedTypicalEmergency = telemedicineTypical.toEnumeratedDistribution();
 
     } catch (Exception e) {
-      System.err.println("ERROR: unable to load json: " + filename);
+      System.err.println("ERROR: unable to load json: " + CONFIG_FILE);
       e.printStackTrace();
       throw new ExceptionInInitializerError(e);
     }
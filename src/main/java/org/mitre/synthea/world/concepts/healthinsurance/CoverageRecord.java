@@ -10,6 +10,7 @@ import org.mitre.synthea.export.JSONSkip;
 import org.mitre.synthea.helpers.Config;
 import org.mitre.synthea.world.agents.PayerManager;
 import org.mitre.synthea.world.agents.Person;
+import org.mitre.synthea.world.concepts.Cents;
 import org.mitre.synthea.world.concepts.Claim;
 
 /**
@@ -142,11 +143,14 @@ public class CoverageRecord implements Serializable {
    * @return The healthcare expenses.
    */
   public BigDecimal getTotalOutOfPocketExpenses() {
-    BigDecimal total = BigDecimal.ZERO;
+    if (planHistory.isEmpty()) {
+      return BigDecimal.ZERO;
+    }
+    long total = 0L;
     for (PlanRecord planRecord : planHistory) {
-      total = total.add(planRecord.getOutOfPocketExpenses());
+      total += planRecord.getOutOfPocketExpensesInCents();
     }
-    return total;
+    return Cents.toBigDecimal(total);
   }
 
   /**
@@ -167,11 +171,11 @@ public class CoverageRecord implements Serializable {
    * @return  The healthcare coverage.
    */
   public BigDecimal getTotalCoverage() {
-    BigDecimal total = Claim.ZERO_CENTS;
+    long total = 0L;
     for (PlanRecord planRecord : planHistory) {
-      total = total.add(planRecord.getCoveredExpenses());
+      total += planRecord.getCoveredExpensesInCents();
     }
-    return total;
+    return Cents.toBigDecimal(total);
   }
 
   /**
@@ -189,8 +193,8 @@ public class CoverageRecord implements Serializable {
       return income;
     }
     PlanRecord currentPlanRecord = this.getPlanRecordAtTime(time);
-    BigDecimal currentYearlyExpenses = BigDecimal.ZERO;
-    currentYearlyExpenses = currentYearlyExpenses.add(currentPlanRecord.getOutOfPocketExpenses());
+    BigDecimal currentYearlyExpenses =
+        Cents.toBigDecimal(currentPlanRecord.getOutOfPocketExpensesInCents());
     currentYearlyExpenses = currentYearlyExpenses.add(currentPlanRecord.getInsuranceExpenses());
 
     return (BigDecimal.valueOf(income).subtract(currentYearlyExpenses)).intValue();
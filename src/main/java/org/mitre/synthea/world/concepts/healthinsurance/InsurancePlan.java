@@ -13,6 +13,7 @@ import org.mitre.synthea.world.agents.Payer;
 import org.mitre.synthea.world.agents.Person;
 import org.mitre.synthea.world.agents.behaviors.planeligibility.IPlanEligibility;
 import org.mitre.synthea.world.agents.behaviors.planeligibility.PlanEligibilityFinder;
+import org.mitre.synthea.world.concepts.Cents;
 import org.mitre.synthea.world.concepts.Claim;
 import org.mitre.synthea.world.concepts.Claim.ClaimEntry;
 import org.mitre.synthea.world.concepts.HealthRecord.EncounterType;
@@ -30,6 +31,12 @@ public class InsurancePlan implements Serializable {
   private final BigDecimal defaultCoinsurance;
   private final BigDecimal monthlyPremium;
   private final BigDecimal maxOutOfPocket;
+  // Cost sharing values used during claim adjudication, pre-converted to cents and rates.
+  private final long deductibleInCents;
+  private final long defaultCopayInCents;
+  private final long maxOutOfPocketInCents;
+  private final Cents.Rate payerCoinsuranceRate;
+  private final Cents.Rate patientCoinsuranceRate;
   private final int priority;
   private final Set<String> servicesCovered;
   private final boolean medicareSupplement;
@@ -70,6 +77,12 @@ public class InsurancePlan implements Serializable {
     this.defaultCopay = defaultCopay;
     this.monthlyPremium = monthlyPremium;
     this.maxOutOfPocket = maxOutOfPocket;
+    this.deductibleInCents = Cents.valueOf(deductible);
+    this.defaultCopayInCents = Cents.valueOf(defaultCopay);
+    this.maxOutOfPocketInCents = Cents.valueOf(maxOutOfPocket);
+    BigDecimal patientCoinsurance = this.getPatientCoinsurance();
+    this.patientCoinsuranceRate = Cents.Rate.of(patientCoinsurance);
+    this.payerCoinsuranceRate = Cents.Rate.of(BigDecimal.ONE.subtract(patientCoinsurance));
     this.priority = priority;
     this.servicesCovered = servicesCovered;
     this.medicareSupplement = medicareSupplement;
@@ -119,6 +132,21 @@ public class InsurancePlan implements Serializable {
     return copay;
   }
 
+  /**
+   * Determines the copay owed for this Payer based on the type of entry, in cents.
+   * See {@link #determineCopay(String, long)}.
+   *
+   * @param entryType the entry type to calculate the copay for.
+   * @param entryStart The start time of the entry.
+   */
+  public long determineCopayInCents(String entryType, long entryStart) {
+    if (entryType.equalsIgnoreCase(EncounterType.WELLNESS.toString())
+        && entryStart > HealthInsuranceModule.mandateTime) {
+      return 0L;
+    }
+    return this.defaultCopayInCents;
+  }
+
   /**
    * Returns the monthly premium for this plan. If this is an income based premium, it will
    * use the income to calculate what the monthly premium should be.
@@ -137,6 +165,10 @@ public class InsurancePlan implements Serializable {
     return this.deductible;
   }
 
+  public long getDeductibleInCents() {
+    return this.deductibleInCents;
+  }
+
   public BigDecimal getPayerCoinsurance() {
     return this.defaultCoinsurance;
   }
@@ -146,6 +178,18 @@ public class InsurancePlan implements Serializable {
     return coinsurance.compareTo(BigDecimal.ONE) == -1 ? coinsurance : BigDecimal.ZERO;
   }
 
+  /**
+   * Returns the share of the remaining balance the payer pays when the patient has coinsurance.
+   * @return one minus the patient coinsurance.
+   */
+  public Cents.Rate getPayerCoinsuranceRate() {
+    return this.payerCoinsuranceRate;
+  }
+
+  public Cents.Rate getPatientCoinsuranceRate() {
+    return this.patientCoinsuranceRate;
+  }
+
   /**
    * Pays the plan's premium to the Payer, increasing their revenue.
    *
@@ -232,17 +276,17 @@ public class InsurancePlan implements Serializable {
 
   /**
    * Adds a covered cost to this plan.
-   * @param coveredCosts  The cost covered.
+   * @param coveredCosts  The cost covered, in cents.
    */
-  protected void addCoveredCost(BigDecimal coveredCosts) {
+  protected void addCoveredCost(long coveredCosts) {
     this.payer.addCoveredCost(coveredCosts);
   }
 
   /**
    * Adds an uncovered cost to this plan.
-   * @param uncoveredCosts  The cost covered.
+   * @param uncoveredCosts  The cost covered, in cents.
    */
-  protected void addUncoveredCost(BigDecimal uncoveredCosts) {
+  protected void addUncoveredCost(long uncoveredCosts) {
     this.payer.addUncoveredCost(uncoveredCosts);
   }
 
@@ -252,9 +296,9 @@ public class InsurancePlan implements Serializable {
    * which defaults to none.
    * @param claimEntry The claim entry to be adjusted.
    * @param person The person making the claim.
-   * @return The dollar amount the claim entry was adjusted.
+   * @return The amount the claim entry was adjusted, in cents.
    */
-  public BigDecimal adjustClaim(ClaimEntry claimEntry, Person person) {
+  public long adjustClaim(ClaimEntry claimEntry, Person person) {
     return this.payer.adjustClaim(claimEntry, person);
   }
 
@@ -331,6 +375,10 @@ public class InsurancePlan implements Serializable {
     return this.maxOutOfPocket;
   }
 
+  public long getMaxOopInCents() {
+    return this.maxOutOfPocketInCents;
+  }
+
   @Override
   public String toString() {
     // an ugly toString, but the goal is just to have a consistent "thing" to sort by
@@ -1,10 +1,14 @@
 package org.mitre.synthea.world.concepts.healthinsurance;
 
+import com.google.gson.annotations.JsonAdapter;
+
 import java.io.Serializable;
 import java.math.BigDecimal;
 
+import org.mitre.synthea.export.CentsTypeAdapter;
 import org.mitre.synthea.world.agents.Payer;
 import org.mitre.synthea.world.agents.Person;
+import org.mitre.synthea.world.concepts.Cents;
 import org.mitre.synthea.world.concepts.Claim;
 
 /**
@@ -20,10 +24,13 @@ public class PlanRecord implements Serializable {
   private InsurancePlan secondaryPlan;
   public String ownership;
   public String ownerName;
-  private BigDecimal coveredExpenses = Claim.ZERO_CENTS;
-  public BigDecimal remainingDeductible = Claim.ZERO_CENTS;
+  @JsonAdapter(CentsTypeAdapter.class)
+  private long coveredExpenses;
+  @JsonAdapter(CentsTypeAdapter.class)
+  public long remainingDeductible;
   // Any healthcare expenses not covered by insurance and paid, out of pocket, by the patient.
-  private BigDecimal outOfPocketExpenses = Claim.ZERO_CENTS;
+  @JsonAdapter(CentsTypeAdapter.class)
+  private long outOfPocketExpenses;
   // The expenses associated with having an insurance plan: Premiums.
   private BigDecimal insuranceExpenses = Claim.ZERO_CENTS;
 
@@ -39,7 +46,7 @@ public class PlanRecord implements Serializable {
     // c.add(Calendar.YEAR, 1);
     this.stop = nextEnrollmentPeriod;
     this.plan = plan;
-    this.remainingDeductible = plan.getDeductible();
+    this.remainingDeductible = plan.getDeductibleInCents();
   }
 
   /**
@@ -67,26 +74,34 @@ public class PlanRecord implements Serializable {
     return sb.toString();
   }
 
-  public void incrementOutOfPocketExpenses(BigDecimal expenses) {
-    this.outOfPocketExpenses = this.outOfPocketExpenses.add(expenses);
+  public void incrementOutOfPocketExpenses(long expenses) {
+    this.outOfPocketExpenses += expenses;
     this.plan.addUncoveredCost(expenses);
   }
 
-  public void incrementPrimaryCoverage(BigDecimal coverage) {
-    this.coveredExpenses = this.coveredExpenses.add(coverage);
+  public void incrementPrimaryCoverage(long coverage) {
+    this.coveredExpenses += coverage;
     this.plan.addCoveredCost(coverage);
   }
 
-  public void incrementSecondaryCoverage(BigDecimal coverage) {
-    this.coveredExpenses = this.coveredExpenses.add(coverage);
+  public void incrementSecondaryCoverage(long coverage) {
+    this.coveredExpenses += coverage;
     this.secondaryPlan.addCoveredCost(coverage);
   }
 
   public BigDecimal getOutOfPocketExpenses() {
+    return Cents.toBigDecimal(this.outOfPocketExpenses);
+  }
+
+  public long getOutOfPocketExpensesInCents() {
     return this.outOfPocketExpenses;
   }
 
   public BigDecimal getCoveredExpenses() {
+    return Cents.toBigDecimal(this.coveredExpenses);
+  }
+
+  public long getCoveredExpensesInCents() {
     return this.coveredExpenses;
   }
 
@@ -10,8 +10,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.mitre.synthea.helpers.AliasSampler;
 import org.mitre.synthea.helpers.Config;
-import org.mitre.synthea.helpers.RandomCollection;
 import org.mitre.synthea.helpers.RandomNumberGenerator;
 import org.mitre.synthea.helpers.SimpleCSV;
 import org.mitre.synthea.helpers.Utilities;
@@ -31,17 +31,17 @@ public class Demographics implements Comparable<Demographics>, Serializable {
   public String state;
   public String county;
   public Map<String, Double> ages;
-  private RandomCollection<String> ageDistribution;
+  private AliasSampler<String> ageDistribution;
   public Map<String, Double> gender;
-  private RandomCollection<String> genderDistribution;
+  private AliasSampler<String> genderDistribution;
   public Map<String, Double> race;
-  private RandomCollection<String> raceDistribution;
+  private AliasSampler<String> raceDistribution;
   public double ethnicity;
-  private RandomCollection<String> ethnicityDistribution;
+  private AliasSampler<String> ethnicityDistribution;
   public Map<String, Double> income;
-  private RandomCollection<String> incomeDistribution;
+  private AliasSampler<String> incomeDistribution;
   public Map<String, Double> education;
-  private RandomCollection<String> educationDistribution;
+  private AliasSampler<String> educationDistribution;
 
   /**
    * Pick an age based on the population distribution for the city.
@@ -51,7 +51,7 @@ public class Demographics implements Comparable<Demographics>, Serializable {
   public int pickAge(RandomNumberGenerator random) {
     // lazy-load in case this randomcollection isn't necessary
     if (ageDistribution == null) {
-      ageDistribution = buildRandomCollectionFromMap(ages);
+      ageDistribution = buildSamplerFromMap(ages);
     }
     /*
      * Sample Age frequency: "ages": { "0..4": 0.03810425832699584, "5..9": 0.04199539968180355,
@@ -80,7 +80,7 @@ public class Demographics implements Comparable<Demographics>, Serializable {
 
     // lazy-load in case this randomcollection isn't necessary
     if (genderDistribution == null) {
-      genderDistribution = buildRandomCollectionFromMap(gender);
+      genderDistribution = buildSamplerFromMap(gender);
     }
 
     /*
@@ -99,7 +99,7 @@ public class Demographics implements Comparable<Demographics>, Serializable {
   public String pickRace(RandomNumberGenerator random) {
     // lazy-load in case this random collection isn't necessary
     if (raceDistribution == null) {
-      raceDistribution = buildRandomCollectionFromMap(race);
+      raceDistribution = buildSamplerFromMap(race);
     }
 
     /*
@@ -120,13 +120,100 @@ public class Demographics implements Comparable<Demographics>, Serializable {
    */
   public String pickEthnicity(RandomNumberGenerator random) {
     if (ethnicityDistribution == null) {
-      ethnicityDistribution = new RandomCollection();
-      ethnicityDistribution.add(ethnicity, "hispanic");
-      ethnicityDistribution.add(1 - ethnicity, "nonhispanic");
+      ethnicityDistribution = AliasSampler.<String>builder()
+          .add(ethnicity, "hispanic")
+          .add(1 - ethnicity, "nonhispanic")
+          .build();
     }
     return ethnicityDistribution.next(random);
   }
 
+  // https://factfinder.census.gov/faces/tableservices/jsf/pages/productview.xhtml?pid=ACS_17_5YR_B16006&prodType=table
+  // Of the estimated 51,375,831 people with Hispanic ethnicity in the US:
+  // - 13,957,749 speak only English (27.1%)
+  // - 27,902,879 speak Spanish and English very well or well (54.3%)
+  // - 9,278,993 speak Spanish and English not well or not at all (18%)
+  // - 0.4% speak another language, which we will ignore to simplify things
+  // 48.85% will speak English (only English + half of bilingual) the rest will speak Spanish
+  private static final AliasSampler<String> HISPANIC_LANGUAGE_USAGE =
+      AliasSampler.<String>builder()
+          .add(48.85, "english")
+          .add(51.15, "spanish")
+          .build();
+
+  // For the people who are of nonhispanic ethnicity, use the national distribution of
+  // languages spoken:
+  // http://www2.census.gov/library/data/tables/2008/demo/language-use/2009-2013-acs-lang-tables-nation.xls?#
+  //
+  // While the census does not provide a breakdown of language usage by
+  // race, previously Synthea would associate languages to race through ethnicity. This
+  // code "flattens" out that older relationship.
+
+  // Only 1.5% of people who report a race of white alone speak English less than very well.
+  // Given the previous categorization of languages by Synthea, the numbers line up closely.
+  // https://factfinder.census.gov/faces/tableservices/jsf/pages/productview.xhtml?pid=ACS_17_5YR_B16005H&prodType=table
+  private static final AliasSampler<String> WHITE_LANGUAGE_USAGE =
+      AliasSampler.<String>builder()
+          .add(0.002, "italian")
+          .add(0.004, "french")
+          .add(0.003, "german")
+          .add(0.001, "polish")
+          .add(0.002, "portuguese")
+          .add(0.003, "russian")
+          .add(0.001, "greek")
+          .add(0.984, "english")
+          .build();
+
+  // Only 3% of people who report a race of black or African American alone speak English
+  // less than very well.
+  // https://factfinder.census.gov/faces/tableservices/jsf/pages/productview.xhtml?pid=ACS_17_5YR_B16005B&prodType=table
+  private static final AliasSampler<String> BLACK_LANGUAGE_USAGE =
+      AliasSampler.<String>builder()
+          .add(0.004, "french")
+          .add(0.026, "spanish")
+          .add(0.97, "english")
+          .build();
+
+  // 33% of people who report a race of Asian alone speak English less than very well
+  // https://factfinder.census.gov/faces/tableservices/jsf/pages/productview.xhtml?pid=ACS_17_5YR_B16005D&prodType=table
+  // From the national language numbers:
+  // - 2,896,766 Chinese speakers
+  // - 449,475 Japanese speakers
+  // - 1,117,343 Korean speakers
+  // - 1,399,936 Vietnamese speakers
+  // - 643,337 Hindi speakers
+  // So, 44.5% of the selected Asian language speakers use Chinese, which accounts for 14.7%
+  // of the overall population of people who report a race of Asian. This is repeated for
+  // the rest of the languages.
+  private static final AliasSampler<String> ASIAN_LANGUAGE_USAGE =
+      AliasSampler.<String>builder()
+          .add(0.147, "chinese")
+          .add(0.022, "japanese")
+          .add(0.056, "korean")
+          .add(0.07, "vietnamese")
+          .add(0.033, "hindi")
+          .add(0.67, "english")
+          .build();
+
+  // https://files.hawaii.gov/dbedt/economic/data_reports/Non_English_Speaking_Population_in_Hawaii_April_2016.pdf
+  private static final AliasSampler<String> HAWAIIAN_LANGUAGE_USAGE =
+      AliasSampler.<String>builder()
+          .add(0.891, "english")
+          .add(0.109, "hawaiian")
+          .build();
+
+  // 36% of people who report a race of something else speak English less than well
+  // https://factfinder.census.gov/faces/tableservices/jsf/pages/productview.xhtml?pid=ACS_17_5YR_B16005F&prodType=table
+  // There are 924,374 Arabic speakers estimated nationally. Since there are 14,270,613
+  // people report some other race, we'll give people in this race category a 6.5% chance
+  // of speaking Arabic.
+  // TODO: Figure out what languages to assign to the missing 30%
+  private static final AliasSampler<String> OTHER_LANGUAGE_USAGE =
+      AliasSampler.<String>builder()
+          .add(0.065, "arabic")
+          .add(0.935, "english")
+          .build();
+
   /**
    * Selects a language based on race and ethnicity.
    * For those of Hispanic ethnicity, language statistics are pulled from the national distribution
@@ -139,91 +226,24 @@ public class Demographics implements Comparable<Demographics>, Serializable {
   public String languageFromRaceAndEthnicity(String race, String ethnicity,
       RandomNumberGenerator random) {
     if (ethnicity.equals("hispanic")) {
-      RandomCollection<String> hispanicLanguageUsage = new RandomCollection<>();
-      // https://factfinder.census.gov/faces/tableservices/jsf/pages/productview.xhtml?pid=ACS_17_5YR_B16006&prodType=table
-      // Of the estimated 51,375,831 people with Hispanic ethnicity in the US:
-      // - 13,957,749 speak only English (27.1%)
-      // - 27,902,879 speak Spanish and English very well or well (54.3%)
-      // - 9,278,993 speak Spanish and English not well or not at all (18%)
-      // - 0.4% speak another language, which we will ignore to simplify things
-      // 48.85% will speak English (only English + half of bilingual) the rest will speak Spanish
-      hispanicLanguageUsage.add(48.85, "english");
-      hispanicLanguageUsage.add(51.15, "spanish");
-      return hispanicLanguageUsage.next(random);
+      return HISPANIC_LANGUAGE_USAGE.next(random);
     } else {
       switch (race) {
-        // For the people who are of nonhispanic ethnicity, use the national distribution of
-        // languages spoken:
-        // http://www2.census.gov/library/data/tables/2008/demo/language-use/2009-2013-acs-lang-tables-nation.xls?#
-        //
-        // While the census does not provide a breakdown of language usage by
-        // race, previously Synthea would associate languages to race through ethnicity. This
-        // code "flattens" out that older relationship.
         case "white":
-          // Only 1.5% of people who report a race of white alone speak English less than very well.
-          // Given the previous categorization of languages by Synthea, the numbers line up closely.
-          // https://factfinder.census.gov/faces/tableservices/jsf/pages/productview.xhtml?pid=ACS_17_5YR_B16005H&prodType=table
-          RandomCollection<String> whiteLanguageUsage = new RandomCollection();
-          whiteLanguageUsage.add(0.002, "italian");
-          whiteLanguageUsage.add(0.004, "french");
-          whiteLanguageUsage.add(0.003, "german");
-          whiteLanguageUsage.add(0.001, "polish");
-          whiteLanguageUsage.add(0.002, "portuguese");
-          whiteLanguageUsage.add(0.003, "russian");
-          whiteLanguageUsage.add(0.001, "greek");
-          whiteLanguageUsage.add(0.984, "english");
-          return whiteLanguageUsage.next(random);
+          return WHITE_LANGUAGE_USAGE.next(random);
         case "black":
-          // Only 3% of people who report a race of black or African American alone speak English
-          // less than very well.
-          // https://factfinder.census.gov/faces/tableservices/jsf/pages/productview.xhtml?pid=ACS_17_5YR_B16005B&prodType=table
-          RandomCollection<String> blackLanguageUsage = new RandomCollection();
-          blackLanguageUsage.add(0.004, "french");
-          blackLanguageUsage.add(0.026, "spanish");
-          blackLanguageUsage.add(0.97, "english");
-          return blackLanguageUsage.next(random);
+          return BLACK_LANGUAGE_USAGE.next(random);
         case "asian":
-          // 33% of people who report a race of Asian alone speak English less than very well
-          // https://factfinder.census.gov/faces/tableservices/jsf/pages/productview.xhtml?pid=ACS_17_5YR_B16005D&prodType=table
-          // From the national language numbers:
-          // - 2,896,766 Chinese speakers
-          // - 449,475 Japanese speakers
-          // - 1,117,343 Korean speakers
-          // - 1,399,936 Vietnamese speakers
-          // - 643,337 Hindi speakers
-          // So, 44.5% of the selected Asian language speakers use Chinese, which accounts for 14.7%
-          // of the overall population of people who report a race of Asian. This is repeated for
-          // the rest of the languages.
-          RandomCollection<String> asianLanguageUsage = new RandomCollection();
-          asianLanguageUsage.add(0.147, "chinese");
-          asianLanguageUsage.add(0.022, "japanese");
-          asianLanguageUsage.add(0.056, "korean");
-          asianLanguageUsage.add(0.07, "vietnamese");
-          asianLanguageUsage.add(0.033, "hindi");
-          asianLanguageUsage.add(0.67, "english");
-          return asianLanguageUsage.next(random);
+          return ASIAN_LANGUAGE_USAGE.next(random);
         case "native":
           // TODO: This is overly simplistic, 7% of people who report a race of American Indian and
           // Alaska Native speak English less than well.
           // https://factfinder.census.gov/faces/tableservices/jsf/pages/productview.xhtml?pid=ACS_17_5YR_B16005C&prodType=table
           return "english";
         case "hawaiian":
-          // https://files.hawaii.gov/dbedt/economic/data_reports/Non_English_Speaking_Population_in_Hawaii_April_2016.pdf
-          RandomCollection<String> hawaiianLanguageUsage = new RandomCollection();
-          hawaiianLanguageUsage.add(0.891, "english");
-          hawaiianLanguageUsage.add(0.109, "hawaiian");
-          return hawaiianLanguageUsage.next(random);
+          return HAWAIIAN_LANGUAGE_USAGE.next(random);
         case "other":
-          // 36% of people who report a race of something else speak English less than well
-          // https://factfinder.census.gov/faces/tableservices/jsf/pages/productview.xhtml?pid=ACS_17_5YR_B16005F&prodType=table
-          // There are 924,374 Arabic speakers estimated nationally. Since there are 14,270,613
-          // people report some other race, we'll give people in this race category a 6.5% chance
-          // of speaking Arabic.
-          // TODO: Figure out what languages to assign to the missing 30%
-          RandomCollection<String> otherLanguageUsage = new RandomCollection();
-          otherLanguageUsage.add(0.065, "arabic");
-          otherLanguageUsage.add(0.935, "english");
-          return otherLanguageUsage.next(random);
+          return OTHER_LANGUAGE_USAGE.next(random);
         default:
           // Should never happen
           return "english";
@@ -242,7 +262,7 @@ public class Demographics implements Comparable<Demographics>, Serializable {
       Map<String, Double> tempIncome = new HashMap<>(income);
       tempIncome.remove("mean");
       tempIncome.remove("median");
-      incomeDistribution = buildRandomCollectionFromMap(tempIncome);
+      incomeDistribution = buildSamplerFromMap(tempIncome);
     }
 
     /*
@@ -300,7 +320,7 @@ public class Demographics implements Comparable<Demographics>, Serializable {
   public String pickEducation(RandomNumberGenerator random) {
     // lazy-load in case this randomcollection isn't necessary
     if (educationDistribution == null) {
-      educationDistribution = buildRandomCollectionFromMap(education);
+      educationDistribution = buildSamplerFromMap(education);
     }
 
     return educationDistribution.next(random);
@@ -536,14 +556,14 @@ public class Demographics implements Comparable<Demographics>, Serializable {
   }
 
   /**
-   * Helper function to convert a map of frequencies into a RandomCollection.
+   * Helper function to convert a map of frequencies into an AliasSampler.
    */
-  private static RandomCollection<String> buildRandomCollectionFromMap(Map<String, Double> map) {
-    RandomCollection<String> distribution = new RandomCollection<>();
+  private static AliasSampler<String> buildSamplerFromMap(Map<String, Double> map) {
+    AliasSampler.Builder<String> distribution = AliasSampler.builder();
     for (Map.Entry<String, Double> e : map.entrySet()) {
       distribution.add(e.getValue(), e.getKey());
     }
-    return distribution;
+    return distribution.build();
   }
 
   @Override
@@ -0,0 +1,198 @@
+package org.mitre.synthea.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mitre.synthea.TestHelper;
+import org.mitre.synthea.export.CSVExporter;
+import org.mitre.synthea.export.Exporter;
+import org.mitre.synthea.helpers.Config;
+import org.mitre.synthea.helpers.SimpleCSV;
+
+public class CheckpointTest {
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void testRanges() {
+    BitSet indices = new BitSet();
+    indices.set(0, 100);
+    indices.set(150);
+    indices.set(152, 154);
+    String ranges = Checkpoint.Journal.formatRanges(indices);
+    assertEquals("0-99,150,152-153", ranges);
+    BitSet parsed = new BitSet();
+    Checkpoint.Journal.parseRanges(ranges, parsed);
+    assertEquals(indices, parsed);
+    assertEquals("", Checkpoint.Journal.formatRanges(new BitSet()));
+  }
+
+  @Test
+  public void testJournalIgnoresIncompleteBlock() throws Exception {
+    Path journalFile = tmp.getRoot().toPath().resolve("journal");
+    Path csv = tmp.getRoot().toPath().resolve("patients.csv");
+    Generator.GeneratorOptions options = new Generator.GeneratorOptions();
+    options.seed = 123L;
+    options.clinicianSeed = 456L;
+    options.population = 10;
+
+    Checkpoint.Journal journal = new Checkpoint.Journal();
+    BitSet done = new BitSet();
+    done.set(0, 3);
+    journal.append(journalFile, 1, options, Collections.singletonMap(csv, 100L), done);
+    done.clear();
+    done.set(5);
+    journal.append(journalFile, 2, options, Collections.singletonMap(csv, 250L), done);
+    // simulate a crash part way through writing the third block
+    Files.write(journalFile, "checkpoint 3\ndone 3-4\nfile 400 ".getBytes(StandardCharsets.UTF_8),
+        StandardOpenOption.APPEND);
+
+    Checkpoint.Journal read = Checkpoint.Journal.read(journalFile);
+    assertEquals(2, read.sequence);
+    assertEquals(123L, read.seed);
+    assertEquals(456L, read.clinicianSeed);
+    assertEquals(10, read.population);
+    assertEquals(4, read.completed.cardinality());
+    assertTrue(read.completed.get(5));
+    assertFalse(read.completed.get(3));
+    assertEquals(Long.valueOf(250L), read.files.get(csv));
+  }
+
+  @Test
+  public void testMissingJournal() throws Exception {
+    Checkpoint.Journal read = Checkpoint.Journal.read(tmp.getRoot().toPath().resolve("none"));
+    assertEquals(0, read.sequence);
+    assertTrue(read.completed.isEmpty());
+  }
+
+  @Test
+  public void testRestoreFiles() throws Exception {
+    File output = tmp.newFolder("output");
+    Path known = output.toPath().resolve("patients.csv").toAbsolutePath().normalize();
+    Files.write(known, "header\nrow1\npartial".getBytes(StandardCharsets.UTF_8));
+    Path unknown = output.toPath().resolve("fhir").resolve("Patient.ndjson");
+    Files.createDirectories(unknown.getParent());
+    Files.write(unknown, "{}\n".getBytes(StandardCharsets.UTF_8));
+    Path record = output.toPath().resolve("fhir").resolve("Someone.json");
+    Files.write(record, "{}".getBytes(StandardCharsets.UTF_8));
+
+    Map<Path, Long> files = new HashMap<>();
+    files.put(known, 12L);
+    Checkpoint.truncateFiles(files);
+    Checkpoint.deleteUnknownFiles(output.toPath(), files.keySet());
+
+    assertEquals("header\nrow1\n", new String(Files.readAllBytes(known), StandardCharsets.UTF_8));
+    assertFalse(Files.exists(unknown));
+    assertTrue(Files.exists(record));
+  }
+
+  @Test
+  public void testRestoreKeepsUncheckpointedExporters() throws Exception {
+    Path output = tmp.newFolder("output").toPath().toAbsolutePath().normalize();
+    Path known = write(output.resolve("csv").resolve("patients.csv"));
+    Path unknownCsv = write(output.resolve("csv").resolve("claims.csv"));
+    Path unknownGzip = write(output.resolve("csv").resolve("encounters.csv.gz"));
+    Path unknownLz4 = write(output.resolve("fhir").resolve("Patient.ndjson.lz4"));
+    Path bfd = write(output.resolve("bfd").resolve("beneficiary_2020.csv"));
+    Path bfdNpi = write(output.resolve("bfd").resolve("npi.tsv"));
+    Path cdw = write(output.resolve("cdw").resolve("condition.csv"));
+    Path symptoms = write(output.resolve("symptoms").resolve("csv").resolve("symptoms.csv"));
+
+    Checkpoint.deleteUnknownFiles(output, Collections.singleton(known));
+
+    assertTrue(Files.exists(known));
+    assertFalse(Files.exists(unknownCsv));
+    assertFalse(Files.exists(unknownGzip));
+    assertFalse(Files.exists(unknownLz4));
+    assertTrue(Files.exists(bfd));
+    assertTrue(Files.exists(bfdNpi));
+    assertTrue(Files.exists(cdw));
+    assertTrue(Files.exists(symptoms));
+  }
+
+  @Test
+  public void testResumeWithoutJournalStartsFresh() throws Exception {
+    Path output = tmp.newFolder("output").toPath();
+    Path csv = write(output.resolve("csv").resolve("patients.csv"));
+    Path ndjson = write(output.resolve("fhir").resolve("Patient.ndjson"));
+
+    Checkpoint checkpoint = new Checkpoint(null, output, 0);
+    Generator.GeneratorOptions options = new Generator.GeneratorOptions();
+    options.population = 7;
+    checkpoint.load(options);
+    checkpoint.restore();
+
+    assertEquals(7, options.population);
+    assertFalse(checkpoint.isComplete(0));
+    assertTrue(Files.exists(csv));
+    assertTrue(Files.exists(ndjson));
+  }
+
+  @Test
+  public void testResumeKeepsChargeIdsUnique() throws Exception {
+    Path output = tmp.newFolder("output").toPath();
+    TestHelper.exportOff();
+    Generator.DEFAULT_STATE = Config.get("test_state.default", "Massachusetts");
+    Config.set("exporter.baseDirectory", output.toString());
+    Config.set("exporter.csv.export", "true");
+    Config.set("exporter.csv.folder_per_run", "false");
+    Config.set("exporter.csv.included_files", "");
+    Config.set("exporter.csv.excluded_files", "");
+    try {
+      CSVExporter.getInstance().init();
+      Generator.GeneratorOptions options = new Generator.GeneratorOptions();
+      options.population = 2;
+      Generator generator = new Generator(options);
+      generator.options.overflow = false;
+      new Checkpoint(generator, output, 1).run(0, () -> generator.generatePerson(0, 1L));
+      long chargeIdsBefore = CSVExporter.getInstance().getNextChargeId();
+      assertTrue(chargeIdsBefore > 0);
+
+      // the run stops here, and a new process resumes it with a new CSV exporter
+      Checkpoint resumed = new Checkpoint(generator, output, 1);
+      resumed.load(new Generator.GeneratorOptions());
+      CSVExporter.getInstance().init();
+      resumed.restore();
+      assertEquals(chargeIdsBefore, CSVExporter.getInstance().getNextChargeId());
+      resumed.run(1, () -> generator.generatePerson(1, 2L));
+      Exporter.flushOpenFiles();
+
+      String csv = new String(Files.readAllBytes(
+          output.resolve("csv").resolve("claims_transactions.csv")), StandardCharsets.UTF_8);
+      List<LinkedHashMap<String, String>> rows = SimpleCSV.parse(csv);
+      Set<String> chargeIds = new HashSet<>();
+      for (Map<String, String> row : rows) {
+        assertTrue("Duplicate CHARGEID " + row.get("CHARGEID"),
+            chargeIds.add(row.get("CHARGEID")));
+      }
+      assertTrue(chargeIds.contains(Long.toString(chargeIdsBefore)));
+    } finally {
+      Config.set("exporter.csv.export", "false");
+      Config.set("exporter.csv.append_mode", "false");
+    }
+  }
+
+  private static Path write(Path path) throws Exception {
+    Files.createDirectories(path.getParent());
+    Files.write(path, "row\n".getBytes(StandardCharsets.UTF_8));
+    return path;
+  }
+}
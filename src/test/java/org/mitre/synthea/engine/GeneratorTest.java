@@ -1,6 +1,7 @@
 package org.mitre.synthea.engine;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
@@ -10,6 +11,7 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.nio.file.Path;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -355,4 +357,23 @@ public class GeneratorTest {
       assertTrue((Boolean)p.attributes.get("diabetes"));
     }
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testMayMeetCriteriaReusesProbe() throws Exception {
+    Generator.GeneratorOptions opts = new Generator.GeneratorOptions();
+    opts.population = 1;
+    opts.keepPatientsModulePath =
+        Path.of("src/test/resources/keep_patients_module/keep_female.json");
+    Generator generator = new Generator(opts);
+
+    Map<String, Object> male = new HashMap<String, Object>();
+    male.put(Person.GENDER, "M");
+    Map<String, Object> female = new HashMap<String, Object>();
+    female.put(Person.GENDER, "F");
+    assertFalse(generator.mayMeetCriteria(male));
+    assertTrue(generator.mayMeetCriteria(female));
+    assertFalse(generator.mayMeetCriteria(male));
+    // nothing is left over from the previous attempt, so the gender is not yet known
+    assertTrue(generator.mayMeetCriteria(new HashMap<String, Object>()));
+  }
+}
@@ -20,6 +20,7 @@ import java.time.temporal.ChronoUnit;
 import java.util.LinkedList;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.apache.commons.lang3.SerializationUtils;
 import org.junit.Before;
 import org.junit.Test;
 import org.mitre.synthea.TestHelper;
@@ -559,4 +560,16 @@ public class LogicTest {
     assertFalse(doTest("notTrueTest"));
     assertTrue(doTest("notFalseTest"));
   }
+
+  @Test
+  public void test_compiled_logic_after_serialization() {
+    // module bundles restore logic with Java Serialization, which drops the compiled fields
+    for (String testName : new String[] { "atLeast3_3TrueTest", "atMost2_3TrueTest",
+        "attributeGt100Test", "isHalloween2007Test" }) {
+      JsonObject definition = tests.getAsJsonObject(testName).deepCopy();
+      Logic logic = Utilities.getGson().fromJson(definition, Logic.class);
+      Logic copy = SerializationUtils.roundtrip(logic);
+      assertEquals(testName, logic.test(person, time), copy.test(person, time));
+    }
+  }
 }
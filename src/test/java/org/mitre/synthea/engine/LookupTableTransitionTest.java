@@ -1,6 +1,8 @@
 package org.mitre.synthea.engine;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
@@ -700,4 +702,21 @@ public class LookupTableTransitionTest {
           e.getMessage().contains("does not match a JSON state to transition to in CSV table"));
     }
   }
-}
\ No newline at end of file
+
+  @Test
+  public void intervalIndexFirstRangeWins() {
+    LookupTable.IntervalIndex index = LookupTable.IntervalIndex.of(
+        new long[] { 0, 51, 20, Long.MIN_VALUE },
+        new long[] { 50, 140, 30, -1 },
+        new Object[] { "young", "old", "hidden", "negative" });
+    assertEquals("negative", index.get(Long.MIN_VALUE));
+    assertEquals("negative", index.get(-1));
+    assertEquals("young", index.get(0));
+    assertEquals("young", index.get(25));
+    assertEquals("young", index.get(50));
+    assertEquals("old", index.get(51));
+    assertEquals("old", index.get(140));
+    assertNull(index.get(141));
+    assertNull(index.get(Long.MAX_VALUE));
+  }
+}
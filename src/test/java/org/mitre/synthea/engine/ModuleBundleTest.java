@@ -0,0 +1,94 @@
+package org.mitre.synthea.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ModuleBundleTest {
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    Path bundle = tmp.getRoot().toPath().resolve("modules.bundle");
+    ModuleBundle.Contents contents = new ModuleBundle.Contents();
+    contents.modules.put("copd", Module.getModuleByPath("copd"));
+    contents.modules.put("medications/ace_arb", Module.getModuleByPath("medications/ace_arb"));
+    ModuleBundle.write(bundle, "abc", contents);
+
+    ModuleBundle.Contents read = ModuleBundle.read(bundle, "abc");
+    assertNotNull(read);
+    assertEquals(contents.modules.keySet(), read.modules.keySet());
+    Module copd = read.modules.get("copd");
+    assertEquals("COPD Module", copd.name);
+    assertEquals(Module.getModuleByPath("copd").getStateNames(), copd.getStateNames());
+    assertEquals(copd, copd.getState("Initial").module);
+    assertEquals(Module.getModuleByPath("medications/ace_arb").submoduleName,
+        read.modules.get("medications/ace_arb").submoduleName);
+
+    // a bundle compiled from different inputs is ignored
+    assertNull(ModuleBundle.read(bundle, "def"));
+    assertNull(ModuleBundle.read(tmp.getRoot().toPath().resolve("missing.bundle"), "abc"));
+  }
+
+  @Test
+  public void testDamagedBundleIsIgnored() throws Exception {
+    Path bundle = tmp.getRoot().toPath().resolve("modules.bundle");
+    ModuleBundle.Contents contents = new ModuleBundle.Contents();
+    contents.modules.put("copd", Module.getModuleByPath("copd"));
+    ModuleBundle.write(bundle, "abc", contents);
+
+    byte[] bytes = Files.readAllBytes(bundle);
+    bytes[bytes.length - 10] ^= 0x55;
+    Files.write(bundle, bytes);
+    assertNull(ModuleBundle.read(bundle, "abc"));
+
+    Files.write(bundle, new byte[] { 1, 2, 3 });
+    assertNull(ModuleBundle.read(bundle, "abc"));
+  }
+
+  @Test
+  public void testChecksumTracksModuleFiles() throws Exception {
+    File modules = tmp.newFolder("modules");
+    Path module = modules.toPath().resolve("example.json");
+    Files.write(module, "{\"name\": \"a\"}".getBytes(StandardCharsets.UTF_8));
+    List<Path> paths = Collections.singletonList(modules.toPath());
+
+    String original = ModuleBundle.checksum(paths, null);
+    assertEquals(original, ModuleBundle.checksum(paths, null));
+
+    Files.write(module, "{\"name\": \"b\"}".getBytes(StandardCharsets.UTF_8));
+    String changed = ModuleBundle.checksum(paths, null);
+    assertNotEquals(original, changed);
+
+    Path overrides = tmp.newFile("overrides.properties").toPath();
+    Files.write(overrides, "example.json::$.name = 1".getBytes(StandardCharsets.UTF_8));
+    assertNotEquals(changed, ModuleBundle.checksum(paths, overrides.toString()));
+  }
+
+  @Test
+  public void testChecksumTracksPhysiologyState() throws Exception {
+    List<Path> paths = Collections.singletonList(tmp.newFolder("modules").toPath());
+    boolean enabled = State.ENABLE_PHYSIOLOGY_STATE;
+    try {
+      State.ENABLE_PHYSIOLOGY_STATE = false;
+      String disabled = ModuleBundle.checksum(paths, null);
+      State.ENABLE_PHYSIOLOGY_STATE = true;
+      assertNotEquals(disabled, ModuleBundle.checksum(paths, null));
+    } finally {
+      State.ENABLE_PHYSIOLOGY_STATE = enabled;
+    }
+  }
+}
@@ -33,6 +33,7 @@ import java.util.stream.Collectors;
 
 import org.junit.Test;
 import org.mitre.synthea.helpers.Utilities;
+import org.mitre.synthea.world.agents.Person;
 import org.powermock.reflect.Whitebox;
 
 public class ModuleTest {
@@ -175,6 +176,54 @@ public class ModuleTest {
     assertEquals("COPD Module", module.name);
   }
 
+  @Test
+  public void modulesAreShared() {
+    assertSame(Module.getModuleByPath("copd"), Module.getModuleByPath("copd"));
+
+    Module submodule = Module.getModuleByPath("medications/ace_arb");
+    assertTrue(submodule.submodule);
+    String name = submodule.name;
+    Module view = submodule.calledBy("COPD Module");
+    assertEquals("COPD Module", view.name);
+    assertEquals(name, view.submoduleName);
+    assertEquals(submodule.getStateNames(), view.getStateNames());
+    assertSame(view, submodule.calledBy("COPD Module"));
+    // the shared submodule itself is not renamed
+    assertEquals(name, submodule.name);
+    assertSame(submodule, Module.getModuleByPath("medications/ace_arb"));
+  }
+
+  @Test
+  public void mayReachJudgesDemographics() throws Exception {
+    String json = "{\"name\": \"keep\", \"gmf_version\": 2, \"states\": {"
+        + "\"Initial\": {\"type\": \"Initial\", \"conditional_transition\": ["
+        + "{\"transition\": \"Old_Enough\", \"condition\": {\"condition_type\": \"And\", "
+        + "\"conditions\": [{\"condition_type\": \"Gender\", \"gender\": \"F\"}, "
+        + "{\"condition_type\": \"Age\", \"operator\": \">=\", \"quantity\": 50, "
+        + "\"unit\": \"years\"}]}}, {\"transition\": \"Terminal\"}]},"
+        + "\"Old_Enough\": {\"type\": \"Simple\", \"conditional_transition\": ["
+        + "{\"transition\": \"Keep\", \"condition\": {\"condition_type\": \"Attribute\", "
+        + "\"attribute\": \"diabetes\", \"operator\": \"==\", \"value\": true}}, "
+        + "{\"transition\": \"Terminal\"}]},"
+        + "\"Terminal\": {\"type\": \"Terminal\"}, \"Keep\": {\"type\": \"Terminal\"}}}";
+    Module keep = new Module(JsonParser.parseString(json).getAsJsonObject(), false);
+    long now = System.currentTimeMillis();
+
+    // the attribute is only known after simulation, so the Keep state may be reached
+    assertTrue(keep.mayReach("Keep", demographics("F", 60, now), now));
+    // too young to ever be 50 by the end of the simulation
+    assertFalse(keep.mayReach("Keep", demographics("F", 40, now), now));
+    assertFalse(keep.mayReach("Keep", demographics("M", 60, now), now));
+    assertTrue(keep.mayReach("Terminal", demographics("M", 60, now), now));
+  }
+
+  private static Person demographics(String gender, int age, long now) {
+    Person person = new Person(0L);
+    person.attributes.put(Person.GENDER, gender);
+    person.attributes.put(Person.BIRTHDATE, now - Utilities.convertTime("years", age));
+    return person;
+  }
+
   @Test
   public void addLocalModules() {
     Module.addModules(new File("src/test/resources/module"));
@@ -1,6 +1,9 @@
 package org.mitre.synthea.engine;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import com.google.common.collect.Lists;
@@ -53,6 +56,96 @@ public class PhysiologySimulatorTest {
     PhysiologySimulator.setOutputPath(outFolder.getRoot().toPath());
   }
 
+  @Test
+  public void testPooledSimulator() throws Exception {
+    PhysiologySimulator first = PhysiologySimulator.getPooledSimulator(
+        "circulation/Smith2004_CVS_human.xml", "runge_kutta", 0.01, 4);
+    PhysiologySimulator second = PhysiologySimulator.getPooledSimulator(
+        "circulation/Smith2004_CVS_human.xml", "runge_kutta", 0.01, 4);
+    assertSame(first, second);
+
+    PhysiologySimulator otherSolver = PhysiologySimulator.getPooledSimulator(
+        "circulation/Smith2004_CVS_human.xml", "euler", 0.01, 4);
+    assertNotSame(first, otherSolver);
+
+    PhysiologySimulator[] otherThread = new PhysiologySimulator[1];
+    Thread thread = new Thread(() -> otherThread[0] = PhysiologySimulator.getPooledSimulator(
+        "circulation/Smith2004_CVS_human.xml", "runge_kutta", 0.01, 4));
+    thread.start();
+    thread.join();
+    assertNotNull(otherThread[0]);
+    assertNotSame(first, otherThread[0]);
+
+    // A reused simulator must not carry state over from a previous run
+    Map<String,Double> inputs = new HashMap<String,Double>();
+    inputs.put("R_sys", 2.0);
+    MultiTable expected = otherThread[0].run(inputs);
+    first.run(new HashMap<String,Double>());
+    MultiTable actual = first.run(inputs);
+    Column expectedCol = expected.getColumn("P_ao");
+    Column actualCol = actual.getColumn("P_ao");
+    assertEquals(expectedCol.getRowCount(), actualCol.getRowCount());
+    for (int i = 0; i < expectedCol.getRowCount(); i++) {
+      assertEquals(expectedCol.getValue(i), actualCol.getValue(i), 0.0);
+    }
+  }
+
+  @Test
+  public void testPooledSimulatorConfigurations() {
+    PhysiologySimulator first = PhysiologySimulator.getPooledSimulator(
+        "circulation/Smith2004_CVS_human.xml", "runge_kutta", 0.01, 4);
+    assertSame(first, PhysiologySimulator.getPooledSimulator(
+        "circulation/Smith2004_CVS_human.xml", "runge_kutta", 0.01, 4));
+    assertNotSame(first, PhysiologySimulator.getPooledSimulator(
+        "circulation/Smith2004_CVS_human.xml", "runge_kutta", 0.02, 4));
+    assertNotSame(first, PhysiologySimulator.getPooledSimulator(
+        "circulation/Smith2004_CVS_human.xml", "runge_kutta", 0.01, 2));
+  }
+
+  @Test
+  public void testResultCache() throws Exception {
+    PhysiologySimulator.setResultCacheSize(10);
+    try {
+      PhysiologySimulator simulator = PhysiologySimulator.getPooledSimulator(
+          "circulation/Smith2004_CVS_human.xml", "runge_kutta", 0.01, 2);
+      Map<String,Double> inputs = new HashMap<String,Double>();
+      inputs.put("R_sys", 2.0);
+      MultiTable results = simulator.run(inputs);
+
+      // Inputs that round to the same value reuse the result
+      inputs.put("R_sys", 2.00001);
+      assertSame(results, simulator.run(inputs));
+
+      // Different inputs, step sizes and durations give different results
+      inputs.put("R_sys", 2.5);
+      assertNotSame(results, simulator.run(inputs));
+      inputs.put("R_sys", 2.0);
+      MultiTable otherStep = PhysiologySimulator.getPooledSimulator(
+          "circulation/Smith2004_CVS_human.xml", "runge_kutta", 0.02, 2).run(inputs);
+      assertNotSame(results, otherStep);
+      MultiTable otherDuration = PhysiologySimulator.getPooledSimulator(
+          "circulation/Smith2004_CVS_human.xml", "runge_kutta", 0.01, 1).run(inputs);
+      assertNotSame(results, otherDuration);
+      assertTrue(otherDuration.getRowCount() < results.getRowCount());
+
+      // The cache is shared between threads
+      MultiTable[] otherThread = new MultiTable[1];
+      Thread thread = new Thread(() -> {
+        try {
+          otherThread[0] = PhysiologySimulator.getPooledSimulator(
+              "circulation/Smith2004_CVS_human.xml", "runge_kutta", 0.01, 2).run(inputs);
+        } catch (DerivativeException e) {
+          throw new RuntimeException(e);
+        }
+      });
+      thread.start();
+      thread.join();
+      assertSame(results, otherThread[0]);
+    } finally {
+      PhysiologySimulator.setResultCacheSize(0);
+    }
+  }
+
   @Test
   public void testCvsSimulation() {
     try {
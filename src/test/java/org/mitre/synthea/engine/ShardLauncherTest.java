@@ -0,0 +1,185 @@
+package org.mitre.synthea.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mitre.synthea.TestHelper;
+import org.mitre.synthea.export.CSVExporter;
+import org.mitre.synthea.export.ShardMerger;
+import org.mitre.synthea.export.rif.identifiers.HICN;
+import org.mitre.synthea.export.rif.identifiers.MBI;
+import org.mitre.synthea.helpers.Config;
+import org.mitre.synthea.helpers.SimpleCSV;
+import org.mitre.synthea.world.agents.PayerManager;
+import org.mitre.synthea.world.agents.Provider;
+
+public class ShardLauncherTest {
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  private static ShardLauncher launcher(int population, int workers) {
+    Generator.GeneratorOptions options = new Generator.GeneratorOptions();
+    options.population = population;
+    return new ShardLauncher(new ArrayList<>(), options, workers);
+  }
+
+  private static String value(List<String> overrides, String key) {
+    for (String override : overrides) {
+      if (override.startsWith("--" + key + "=")) {
+        return override.substring(key.length() + 3);
+      }
+    }
+    throw new AssertionError("No override for " + key);
+  }
+
+  @Test
+  public void testBfdIdRangesAreDisjoint() {
+    int population = 1000;
+    int workers = 4;
+    ShardLauncher launcher = launcher(population, workers);
+    Set<String> beneIds = new HashSet<>();
+    Set<String> mbis = new HashSet<>();
+    Set<String> hicns = new HashSet<>();
+    long previousClaimStart = Long.MAX_VALUE;
+    for (int i = 0; i < workers; i++) {
+      List<String> overrides = launcher.bfdIdRanges(i);
+      long claimStart = Long.parseLong(value(overrides, "exporter.bfd.clm_id_start"));
+      // each shard counts down from below the IDs of the shard before it
+      assertTrue(claimStart <= previousClaimStart - population);
+      previousClaimStart = claimStart;
+
+      long beneStart = Long.parseLong(value(overrides, "exporter.bfd.bene_id_start"));
+      MBI mbi = MBI.parse(value(overrides, "exporter.bfd.mbi_start"));
+      HICN hicn = HICN.parse(value(overrides, "exporter.bfd.hicn_start"));
+      for (int person = 0; person < population / workers; person++) {
+        assertTrue(beneIds.add(Long.toString(beneStart - person)));
+        assertTrue(mbis.add(mbi.toString()));
+        assertTrue(hicns.add(hicn.toString()));
+        mbi = mbi.next();
+        hicn = hicn.next();
+      }
+    }
+    List<String> first = launcher.bfdIdRanges(0);
+    assertEquals(Config.get("exporter.bfd.clm_id_start"),
+        value(first, "exporter.bfd.clm_id_start"));
+    assertEquals(MBI.parse(Config.get("exporter.bfd.mbi_start")).toString(),
+        value(first, "exporter.bfd.mbi_start"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBfdIdRangesTooSmall() {
+    // there are only 10^8 fake HICNs
+    launcher(Integer.MAX_VALUE, 2).bfdIdRanges(1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBfdIdRangesNonNegativeStart() {
+    // IDs count down, so only 100 IDs are left below a start of 100
+    String start = Config.get("exporter.bfd.bene_id_start");
+    Config.set("exporter.bfd.bene_id_start", "100");
+    try {
+      launcher(1000, 2).bfdIdRanges(1);
+    } finally {
+      Config.set("exporter.bfd.bene_id_start", start);
+    }
+  }
+
+  @Test
+  public void testChargeIdRangesAreDisjoint() {
+    int workers = 4;
+    ShardLauncher launcher = launcher(1000, workers);
+    assertEquals(0L, launcher.chargeIdStart(0));
+    for (int i = 1; i < workers; i++) {
+      assertEquals(Long.MAX_VALUE / workers,
+          launcher.chargeIdStart(i) - launcher.chargeIdStart(i - 1));
+    }
+    List<String> command = launcher.workerCommand(2, Paths.get("shard"));
+    assertEquals(Long.toString(launcher.chargeIdStart(2)),
+        value(command, "exporter.csv.charge_id_start"));
+  }
+
+  @Test
+  public void testShardedRunHasSamePatients() throws Exception {
+    TestHelper.exportOff();
+    Generator.DEFAULT_STATE = Config.get("test_state.default", "Massachusetts");
+    Config.set("exporter.csv.export", "true");
+    Config.set("exporter.csv.folder_per_run", "false");
+    Config.set("exporter.csv.included_files", "");
+    Config.set("exporter.csv.excluded_files", "");
+    try {
+      Path single = tmp.newFolder("single").toPath();
+      generate(single, 0, 1, 0L);
+      Path sharded = tmp.newFolder("sharded").toPath();
+      Path shard0 = sharded.resolve("shards").resolve("0");
+      Path shard1 = sharded.resolve("shards").resolve("1");
+      ShardLauncher launcher = launcher(4, 2);
+      generate(shard0, 0, 2, launcher.chargeIdStart(0));
+      generate(shard1, 1, 2, launcher.chargeIdStart(1));
+      ShardMerger.merge(Arrays.asList(shard0, shard1), sharded);
+
+      // the same people are generated, in shard order
+      assertEquals(column(single, "patients.csv", "Id"), column(sharded, "patients.csv", "Id"));
+      List<String> chargeIds = column(sharded, "claims_transactions.csv", "CHARGEID");
+      assertFalse(chargeIds.isEmpty());
+      assertEquals(chargeIds.size(), new HashSet<>(chargeIds).size());
+    } finally {
+      Config.set("exporter.csv.export", "false");
+      Config.set("exporter.csv.charge_id_start", "0");
+    }
+  }
+
+  private static void generate(Path output, int shardIndex, int shardCount, long chargeIdStart) {
+    Config.set("exporter.baseDirectory", output.toString());
+    Config.set("exporter.csv.charge_id_start", Long.toString(chargeIdStart));
+    Provider.clear();
+    PayerManager.clear();
+    CSVExporter.getInstance().init();
+    Generator.GeneratorOptions options = new Generator.GeneratorOptions();
+    options.population = 4;
+    options.threadPoolSize = 1;
+    options.seed = 42L;
+    options.clinicianSeed = 42L;
+    options.referenceTime = 1_600_000_000_000L;
+    options.endTime = options.referenceTime;
+    options.shardIndex = shardIndex;
+    options.shardCount = shardCount;
+    new Generator(options).run();
+  }
+
+  private static List<String> column(Path output, String file, String column)
+      throws Exception {
+    String csv = new String(Files.readAllBytes(output.resolve("csv").resolve(file)),
+        StandardCharsets.UTF_8);
+    List<String> values = new ArrayList<>();
+    for (Map<String, String> row : SimpleCSV.parse(csv)) {
+      values.add(row.get(column));
+    }
+    return values;
+  }
+
+  @Test
+  public void testWorkerCommandForwardsOnlyMemoryAndProperties() {
+    List<String> command = launcher(10, 2).workerCommand(1, Paths.get("shard"));
+    for (String option : command.subList(1, command.indexOf("-cp"))) {
+      assertTrue(option, option.startsWith("-Xm") || option.startsWith("-Xss")
+          || option.startsWith("-D"));
+    }
+    assertFalse(command.stream().anyMatch(arg -> arg.startsWith("-javaagent")));
+    assertTrue(command.get(command.indexOf("-shard") + 1).startsWith("1/2/"));
+  }
+}
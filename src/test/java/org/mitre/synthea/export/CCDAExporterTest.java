@@ -9,6 +9,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import javax.xml.parsers.DocumentBuilder;
@@ -155,6 +156,24 @@ public class CCDAExporterTest {
     }
   }
 
+  @Test
+  public void testExportDoesNotModifyPerson() throws Exception {
+    PayerManager.clear();
+    PayerManager.loadPayers(new Location(Generator.DEFAULT_STATE, null));
+    TestHelper.loadTestProperties();
+    Person[] people = TestHelper.getGeneratedPeople();
+    TestHelper.exportOff();
+    Config.set("exporter.ccda.export", "true");
+    Person person = people[0];
+    Map<String, Object> attributes = new HashMap<String, Object>(person.attributes);
+    int encounters = person.record.encounters.size();
+    String ccdaXml = CCDAExporter.export(person, System.currentTimeMillis());
+    DocumentBuilderFactory.newInstance().newDocumentBuilder()
+        .parse(IOUtils.toInputStream(ccdaXml, "UTF-8"));
+    assertEquals(attributes, new HashMap<String, Object>(person.attributes));
+    assertEquals(encounters, person.record.encounters.size());
+  }
+
   @Ignore("Manual test to debug failed CCDA exports.")
   @Test
   public void testFailedCCDAExports() throws Exception {
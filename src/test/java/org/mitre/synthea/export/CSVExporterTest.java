@@ -1,10 +1,12 @@
 package org.mitre.synthea.export;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.nio.file.Files;
+import java.nio.file.Path;
 
 import org.junit.Before;
 import org.junit.ClassRule;
@@ -17,6 +19,8 @@ import org.mitre.synthea.engine.Generator.GeneratorOptions;
 import org.mitre.synthea.export.Exporter.ExporterRuntimeOptions;
 import org.mitre.synthea.helpers.Config;
 import org.mitre.synthea.helpers.SimpleCSV;
+import org.mitre.synthea.world.agents.PayerManager;
+import org.mitre.synthea.world.agents.Provider;
 
 public class CSVExporterTest {
   /**
@@ -91,6 +95,42 @@ public class CSVExporterTest {
         + " CSV files in the output directory, found " + count, NUMBER_OF_FILES, count);
   }
 
+  @Test
+  public void testDeferredCSVExportIsRepeatable() throws Exception {
+    Config.set("exporter.csv.included_files", "patients.csv,encounters.csv");
+    Config.set("exporter.csv.excluded_files", "");
+    try {
+      Path first = generateDeferred();
+      Path second = generateDeferred();
+      for (String file : new String[] {"patients.csv", "encounters.csv"}) {
+        assertArrayEquals(file, Files.readAllBytes(first.resolve(file)),
+            Files.readAllBytes(second.resolve(file)));
+      }
+    } finally {
+      Config.set("exporter.csv.included_files", "");
+    }
+  }
+
+  private static Path generateDeferred() throws Exception {
+    File output = tempFolder.newFolder();
+    Config.set("exporter.baseDirectory", output.toString());
+    Provider.clear();
+    PayerManager.clear();
+    CSVExporter.getInstance().init();
+    ExporterRuntimeOptions exportOpts = new ExporterRuntimeOptions();
+    exportOpts.deferExports = true;
+    GeneratorOptions generatorOpts = new GeneratorOptions();
+    generatorOpts.population = 10;
+    generatorOpts.threadPoolSize = 1;
+    generatorOpts.seed = 42L;
+    generatorOpts.clinicianSeed = 42L;
+    generatorOpts.referenceTime = 1_600_000_000_000L;
+    generatorOpts.endTime = generatorOpts.referenceTime;
+    // run() replays the deferred people through the post completion exports
+    new Generator(generatorOpts, exportOpts).run();
+    return output.toPath().resolve("csv");
+  }
+
   @Test
   public void testCSVExportIncludes() throws Exception {
     Config.set("exporter.csv.included_files", "patients.csv,medications.csv,procedures.csv");
@@ -0,0 +1,46 @@
+package org.mitre.synthea.export;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mitre.synthea.TestHelper;
+import org.mitre.synthea.world.agents.Person;
+
+public class ExportPipelineTest {
+
+  /**
+   * Turn off every exporter, so that only the pipeline itself is exercised.
+   * @throws Exception on configuration loading error.
+   */
+  @Before
+  public void setup() throws Exception {
+    TestHelper.loadTestProperties();
+    TestHelper.exportOff();
+  }
+
+  @Test
+  public void testCloseWaitsForQueuedPeople() {
+    Exporter.ExporterRuntimeOptions options = new Exporter.ExporterRuntimeOptions();
+    options.yearsOfHistory = 0;
+    long time = System.currentTimeMillis();
+    ExportPipeline pipeline = new ExportPipeline(2, 1, options);
+    for (int i = 0; i < 50; i++) {
+      Person person = new Person(i);
+      person.attributes.put(Person.BIRTHDATE, time - TestHelper.years(30));
+      // blocks whenever both threads are busy and one person is already waiting
+      pipeline.submit(person, time);
+    }
+    pipeline.close();
+    assertEquals(0, pipeline.backlog());
+    assertTrue(pipeline.report(),
+        pipeline.report().startsWith("Export pipeline: 50 submitted"));
+    assertTrue(pipeline.report(), pipeline.report().contains("50 exported, 0 failed"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testIllegalQueueSize() {
+    new ExportPipeline(1, 0, new Exporter.ExporterRuntimeOptions());
+  }
+}
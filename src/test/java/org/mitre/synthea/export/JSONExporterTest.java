@@ -8,6 +8,7 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -63,4 +64,34 @@ public class JSONExporterTest {
     assertTrue("Validation of exported JSON bundle failed: "
         + String.join("|", errors), errors.size() == 0);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void exportWithModuleHistoryLimit() throws Exception {
+    TestHelper.loadTestProperties();
+    TestHelper.exportOff();
+    Config.set("exporter.json.export", "true");
+    Config.set("exporter.json.include_module_history", "true");
+    Config.set("exporter.json.module_history_limit", "1");
+    try {
+      List<String> errors = ParallelTestingService.runInParallel(2, (person) -> {
+        List<String> validationErrors = new ArrayList<>();
+        StringWriter writer = new StringWriter();
+        JSONExporter.export(person, writer);
+        JsonObject attributes = JsonParser.parseString(writer.toString()).getAsJsonObject()
+            .get("attributes").getAsJsonObject();
+        attributes.keySet().forEach((attributeName) -> {
+          JsonElement value = attributes.get(attributeName);
+          if (attributeName.endsWith("Module") && value.isJsonArray()
+              && value.getAsJsonArray().size() > 1) {
+            validationErrors.add(String.format("Module %s has a history of %d states",
+                attributeName, value.getAsJsonArray().size()));
+          }
+        });
+        return validationErrors;
+      });
+      assertTrue(String.join("|", errors), errors.isEmpty());
+    } finally {
+      Config.set("exporter.json.module_history_limit", "0");
+    }
+  }
+}
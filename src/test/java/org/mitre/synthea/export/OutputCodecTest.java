@@ -0,0 +1,116 @@
+package org.mitre.synthea.export;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+import org.mitre.synthea.helpers.Config;
+
+public class OutputCodecTest {
+
+  private static byte[] lines(int count) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      sb.append("{\"resourceType\":\"Observation\",\"id\":\"").append(i).append("\"}\n");
+    }
+    return sb.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static byte[] decompress(OutputCodec codec, byte[] compressed) throws IOException {
+    try (InputStream in = codec.unwrap(new ByteArrayInputStream(compressed))) {
+      return IOUtils.toByteArray(in);
+    }
+  }
+
+  private static void testRoundTrip(OutputCodec codec) throws IOException {
+    // more than one block, written in pieces with flushes in between
+    byte[] data = lines(100_000);
+    assertTrue(data.length > 2 * CompressingOutputStream.BLOCK_SIZE);
+    ByteArrayOutputStream file = new ByteArrayOutputStream();
+    try (OutputStream out = codec.wrap(file)) {
+      for (int offset = 0; offset < data.length; offset += 10_000) {
+        out.write(data, offset, Math.min(10_000, data.length - offset));
+        out.flush();
+      }
+    }
+    assertTrue(file.size() < data.length);
+    assertArrayEquals(data, decompress(codec, file.toByteArray()));
+  }
+
+  @Test
+  public void testGzipRoundTrip() throws Exception {
+    testRoundTrip(OutputCodec.GZIP);
+  }
+
+  @Test
+  public void testLz4RoundTrip() throws Exception {
+    testRoundTrip(OutputCodec.LZ4);
+  }
+
+  @Test
+  public void testSyncEndsBlock() throws Exception {
+    for (OutputCodec codec : new OutputCodec[] { OutputCodec.GZIP, OutputCodec.LZ4 }) {
+      ByteArrayOutputStream file = new ByteArrayOutputStream();
+      CompressingOutputStream out = (CompressingOutputStream) codec.wrap(file);
+      out.write("first\n".getBytes(StandardCharsets.UTF_8));
+      out.sync();
+      // everything written so far can be read back, as if the file were truncated here
+      assertEquals("first\n",
+          new String(decompress(codec, file.toByteArray()), StandardCharsets.UTF_8));
+      out.write("second\n".getBytes(StandardCharsets.UTF_8));
+      out.close();
+      assertEquals("first\nsecond\n",
+          new String(decompress(codec, file.toByteArray()), StandardCharsets.UTF_8));
+    }
+  }
+
+  @Test
+  public void testConcatenatedFiles() throws Exception {
+    for (OutputCodec codec : new OutputCodec[] { OutputCodec.GZIP, OutputCodec.LZ4 }) {
+      byte[] first = "a,1\n".getBytes(StandardCharsets.UTF_8);
+      byte[] second = "b,2\n".getBytes(StandardCharsets.UTF_8);
+      ByteArrayOutputStream file = new ByteArrayOutputStream();
+      file.write(codec.compress(first, first.length));
+      file.write(codec.compress(second, second.length));
+      assertEquals("a,1\nb,2\n",
+          new String(decompress(codec, file.toByteArray()), StandardCharsets.UTF_8));
+    }
+  }
+
+  @Test
+  public void testFileNames() {
+    assertEquals(Paths.get("fhir", "Patient.ndjson.gz"),
+        OutputCodec.GZIP.resolve(Paths.get("fhir", "Patient.ndjson")));
+    assertEquals(Paths.get("csv", "patients.csv"),
+        OutputCodec.NONE.resolve(Paths.get("csv", "patients.csv")));
+    assertEquals(OutputCodec.LZ4, OutputCodec.forFile(Paths.get("beneficiary_2020.csv.lz4")));
+    assertEquals(OutputCodec.NONE, OutputCodec.forFile(Paths.get("patients.csv")));
+    assertEquals("patients.csv", OutputCodec.GZIP.strip("patients.csv.gz"));
+  }
+
+  @Test
+  public void testUnknownCodec() {
+    String compression = Config.get("exporter.compression");
+    Config.set("exporter.compression", "zip");
+    try {
+      OutputCodec.fromConfig();
+      fail("Expected an unknown compression to be rejected");
+    } catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("exporter.compression"));
+      assertTrue(e.getMessage(), e.getMessage().contains("none, gzip or lz4"));
+    } finally {
+      Config.set("exporter.compression", compression);
+    }
+  }
+}
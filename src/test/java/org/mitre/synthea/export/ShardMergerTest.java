@@ -0,0 +1,119 @@
+package org.mitre.synthea.export;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ShardMergerTest {
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private static void write(Path file, String... lines) throws IOException {
+    Files.createDirectories(file.getParent());
+    Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testMerge() throws Exception {
+    Path root = tempFolder.getRoot().toPath();
+    Path shard0 = root.resolve("shards/0");
+    Path shard1 = root.resolve("shards/1");
+
+    write(shard0.resolve("csv/patients.csv"), "Id,NAME", "a,Alice");
+    write(shard1.resolve("csv/patients.csv"), "Id,NAME", "b,Bob", "c,Carol");
+    write(shard0.resolve("csv/organizations.csv"),
+        "Id,NAME,ADDRESS,CITY,STATE,ZIP,LAT,LON,PHONE,REVENUE,UTILIZATION",
+        "o1,Hospital,1 Main,Town,MA,01000,42.1,-71.1,555,100.50,3",
+        "o2,Clinic,2 Main,Town,MA,01000,42.2,-71.2,555,10.00,1");
+    write(shard1.resolve("csv/organizations.csv"),
+        "Id,NAME,ADDRESS,CITY,STATE,ZIP,LAT,LON,PHONE,REVENUE,UTILIZATION",
+        "o1,Hospital,1 Main,Town,MA,01000,42.1,-71.1,555,20.25,2");
+    write(shard0.resolve("fhir/Patient.ndjson"), "{\"id\":\"a\"}");
+    write(shard1.resolve("fhir/Patient.ndjson"), "{\"id\":\"b\"}");
+    write(shard1.resolve("fhir/Bob.json"), "{}");
+
+    ShardMerger.merge(Arrays.asList(shard0, shard1), root);
+
+    assertEquals(Arrays.asList("Id,NAME", "a,Alice", "b,Bob", "c,Carol"),
+        Files.readAllLines(root.resolve("csv/patients.csv")));
+    List<String> organizations = Files.readAllLines(root.resolve("csv/organizations.csv"));
+    assertEquals(3, organizations.size());
+    assertEquals("o1,Hospital,1 Main,Town,MA,01000,42.1,-71.1,555,120.75,5",
+        organizations.get(1));
+    assertEquals("o2,Clinic,2 Main,Town,MA,01000,42.2,-71.2,555,10.00,1",
+        organizations.get(2));
+    assertEquals(Arrays.asList("{\"id\":\"a\"}", "{\"id\":\"b\"}"),
+        Files.readAllLines(root.resolve("fhir/Patient.ndjson")));
+    assertEquals(Arrays.asList("{}"), Files.readAllLines(root.resolve("fhir/Bob.json")));
+    assertFalse(Files.exists(shard1.resolve("fhir/Bob.json")));
+  }
+
+  @Test
+  public void testMergePayers() throws Exception {
+    Path root = tempFolder.getRoot().toPath();
+    Path shard0 = root.resolve("shards/0");
+    Path shard1 = root.resolve("shards/1");
+    String header = "Id,NAME,AMOUNT_COVERED,UNIQUE_CUSTOMERS,QOLS_AVG,MEMBER_MONTHS";
+    write(shard0.resolve("csv/payers.csv"), header, "p1,Payer,10.00,1,0.5,24");
+    write(shard1.resolve("csv/payers.csv"), header, "p1,Payer,5.00,1,1.0,12");
+
+    ShardMerger.merge(Arrays.asList(shard0, shard1), root);
+
+    List<String> payers = Files.readAllLines(root.resolve("csv/payers.csv"));
+    // (0.5 * 2 + 1.0 * 1) / 3 years
+    assertEquals("p1,Payer,15.00,2," + (2.0 / 3.0) + ",36", payers.get(1));
+  }
+
+  @Test
+  public void testMergeQuotedValues() throws Exception {
+    Path root = tempFolder.getRoot().toPath();
+    Path shard0 = root.resolve("shards/0");
+    Path shard1 = root.resolve("shards/1");
+    String header = "Id,NAME,ENCOUNTERS,PROCEDURES";
+    write(shard0.resolve("csv/providers.csv"), header, "p1,\"Smith, Jo\",3,1");
+    write(shard1.resolve("csv/providers.csv"), header, "p1,\"Smith, Jo\",2,0", "p2,Lee,1,1");
+
+    ShardMerger.merge(Arrays.asList(shard0, shard1), root);
+
+    assertEquals(Arrays.asList(header, "p1,\"Smith, Jo\",5,1", "p2,Lee,1,1"),
+        Files.readAllLines(root.resolve("csv/providers.csv")));
+  }
+
+  @Test
+  public void testMergeCompressed() throws Exception {
+    Path root = tempFolder.getRoot().toPath();
+    Path shard0 = root.resolve("shards/0");
+    Path shard1 = root.resolve("shards/1");
+    writeCompressed(shard0.resolve("csv/patients.csv.gz"), "Id,NAME\na,Alice\n");
+    writeCompressed(shard1.resolve("csv/patients.csv.gz"), "Id,NAME\nb,Bob\n");
+
+    ShardMerger.merge(Arrays.asList(shard0, shard1), root);
+
+    Path merged = root.resolve("csv/patients.csv.gz");
+    try (InputStream in = OutputCodec.GZIP.unwrap(Files.newInputStream(merged))) {
+      assertEquals("Id,NAME\na,Alice\nb,Bob\n",
+          new String(IOUtils.toByteArray(in), StandardCharsets.UTF_8));
+    }
+  }
+
+  private static void writeCompressed(Path file, String contents) throws IOException {
+    Files.createDirectories(file.getParent());
+    try (OutputStream out = OutputCodec.GZIP.wrap(Files.newOutputStream(file))) {
+      out.write(contents.getBytes(StandardCharsets.UTF_8));
+    }
+  }
+}
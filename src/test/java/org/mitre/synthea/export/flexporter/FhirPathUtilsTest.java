@@ -2,6 +2,7 @@ package org.mitre.synthea.export.flexporter;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.List;
@@ -121,4 +122,29 @@ public class FhirPathUtilsTest {
     assertTrue(FhirPathUtils.appliesToBundle(b1, fhirpath, variables));
     assertFalse(FhirPathUtils.appliesToBundle(b2, fhirpath, variables));
   }
+
+  @Test
+  public void testMappingAppliesTo() {
+    Patient p1 = new Patient();
+    p1.addName().addGiven("Laura").setFamily("Dern");
+    Bundle b1 = new Bundle();
+    b1.addEntry().setResource(p1);
+
+    Patient p2 = new Patient();
+    p2.addName().addGiven("Sigourney").setFamily("Weaver");
+    Bundle b2 = new Bundle();
+    b2.addEntry().setResource(p2);
+
+    Mapping mapping = new Mapping();
+    mapping.applicability = "Patient.name.family in %jurassicNames";
+    mapping.variables = Map.of("jurassicNames", List.of("Neill", "Dern", "Goldblum"));
+
+    // the same answers every time, with the resolved path and parsed expression reused
+    for (int i = 0; i < 2; i++) {
+      assertTrue(mapping.appliesTo(b1));
+      assertFalse(mapping.appliesTo(b2));
+    }
+    assertSame(FhirPathUtils.parse("Patient.name.family"),
+        FhirPathUtils.parse("Patient.name.family"));
+  }
 }
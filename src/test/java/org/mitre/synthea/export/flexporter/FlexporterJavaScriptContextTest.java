@@ -60,4 +60,30 @@ public class FlexporterJavaScriptContextTest {
       // but this is the real point of the test
     });
   }
+
+  @Test
+  public void testTopLevelConstForEachPatient() {
+    IParser parser = FhirR4.getContext().newJsonParser();
+    for (String family : new String[] {"Aquamarine", "Burgundy"}) {
+      // a new context for each patient, as the exporter does, so the const is declared once
+      FlexporterJavascriptContext context = new FlexporterJavascriptContext();
+      context.loadFunction("const ACTIVE = true;\n"
+          + "function setActive(resource) {\n"
+          + "  resource.active = ACTIVE;\n"
+          + "}");
+
+      Patient p = new Patient();
+      p.addName().setFamily(family);
+      Bundle b = new Bundle();
+      b.addEntry().setResource(p);
+
+      context.loadBundle(parser.encodeResourceToString(b));
+      context.applyFunctionToResources("setActive", "Patient");
+      Bundle outBundle = parser.parseResource(Bundle.class, context.getBundle());
+
+      Patient outPatient = (Patient) outBundle.getEntryFirstRep().getResource();
+      assertEquals(family, outPatient.getNameFirstRep().getFamily());
+      assertTrue(outPatient.getActive());
+    }
+  }
 }
@@ -0,0 +1,127 @@
+package org.mitre.synthea.export.parquet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.mitre.synthea.TestHelper;
+import org.mitre.synthea.engine.Generator;
+import org.mitre.synthea.engine.Generator.GeneratorOptions;
+import org.mitre.synthea.export.CSVExporter;
+import org.mitre.synthea.export.CSVTable;
+import org.mitre.synthea.export.Exporter;
+import org.mitre.synthea.export.Exporter.ExporterRuntimeOptions;
+import org.mitre.synthea.helpers.Config;
+
+public class ParquetExporterTest {
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private File exportDir;
+
+  /**
+   * Export only the Parquet tables, to a temporary folder.
+   * @throws Exception if something goes wrong
+   */
+  @Before
+  public void setUp() throws Exception {
+    TestHelper.exportOff();
+    TestHelper.loadTestProperties();
+    Generator.DEFAULT_STATE = Config.get("test_state.default", "Massachusetts");
+    Config.set("exporter.parquet.export", "true");
+    Config.set("exporter.parquet.row_group_size", "100");
+    Config.set("exporter.csv.folder_per_run", "false");
+    exportDir = tempFolder.newFolder();
+    Config.set("exporter.baseDirectory", exportDir.toString());
+  }
+
+  @Test
+  public void testHeadersMatchCSV() {
+    assertEquals("DATE,PATIENT,ENCOUNTER,CATEGORY,CODE,DESCRIPTION,VALUE,UNITS,TYPE",
+        CSVTable.OBSERVATIONS.header());
+    assertEquals("Id,START,STOP,PATIENT,ORGANIZATION,PROVIDER,PAYER,ENCOUNTERCLASS,CODE,"
+        + "DESCRIPTION,BASE_ENCOUNTER_COST,TOTAL_CLAIM_COST,PAYER_COVERAGE,REASONCODE,"
+        + "REASONDESCRIPTION", CSVTable.ENCOUNTERS.header());
+    assertEquals("Id,BIRTHDATE,DEATHDATE,SSN,DRIVERS,PASSPORT,"
+        + "PREFIX,FIRST,MIDDLE,LAST,SUFFIX,MAIDEN,MARITAL,RACE,ETHNICITY,GENDER,BIRTHPLACE,"
+        + "ADDRESS,CITY,STATE,COUNTY,FIPS,ZIP,LAT,LON,"
+        + "HEALTHCARE_EXPENSES,HEALTHCARE_COVERAGE,INCOME", CSVTable.PATIENTS.header());
+  }
+
+  @Test
+  public void testEncodeHybrid() {
+    // a run of 10 equal values is run length encoded
+    int[] run = new int[10];
+    Arrays.fill(run, 1);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ColumnWriter.encodeHybrid(run, run.length, 1, out);
+    assertArrayEquals(new byte[] { 20, 1 }, out.toByteArray());
+
+    // short runs are bit-packed in a group of 8, least significant bit first
+    out.reset();
+    ColumnWriter.encodeHybrid(new int[] { 1, 0, 1 }, 3, 1, out);
+    assertArrayEquals(new byte[] { 3, 5 }, out.toByteArray());
+
+    out.reset();
+    ColumnWriter.encodeHybrid(new int[] { 0, 1, 2, 3, 4, 5, 6, 7 }, 8, 3, out);
+    assertArrayEquals(new byte[] { 3, (byte) 0x88, (byte) 0xC6, (byte) 0xFA },
+        out.toByteArray());
+  }
+
+  @Test
+  public void testExport() throws Exception {
+    CSVExporter.getInstance().init();
+    ParquetExporter.getInstance().init();
+
+    int numberOfPeople = 5;
+    ExporterRuntimeOptions exportOpts = new ExporterRuntimeOptions();
+    GeneratorOptions generatorOpts = new GeneratorOptions();
+    generatorOpts.population = numberOfPeople;
+    Generator generator = new Generator(generatorOpts, exportOpts);
+    generator.options.overflow = false;
+    for (int i = 0; i < numberOfPeople; i++) {
+      generator.generatePerson(i);
+    }
+    Exporter.runPostCompletionExports(generator, exportOpts);
+
+    File parquetFolder = exportDir.toPath().resolve("parquet").toFile();
+    byte[] magic = "PAR1".getBytes(StandardCharsets.US_ASCII);
+    for (CSVTable table : CSVTable.values()) {
+      File file = new File(parquetFolder, table.getName() + ".parquet");
+      assertTrue(file.getName() + " is missing", file.exists());
+      byte[] data = Files.readAllBytes(file.toPath());
+      assertArrayEquals(magic, Arrays.copyOfRange(data, 0, 4));
+      assertArrayEquals(magic, Arrays.copyOfRange(data, data.length - 4, data.length));
+      int footerLength = ByteBuffer.wrap(data, data.length - 8, 4)
+          .order(ByteOrder.LITTLE_ENDIAN).getInt();
+      assertTrue(footerLength > 0 && footerLength < data.length - 12);
+      // the column names are in the schema in the footer
+      String footer = new String(data, data.length - 8 - footerLength, footerLength,
+          StandardCharsets.UTF_8);
+      for (CSVTable.Column column : table.getColumns()) {
+        assertTrue(column.name + " is missing from " + file.getName(),
+            footer.contains(column.name));
+      }
+    }
+    assertFalse(new File(parquetFolder, "parts").exists());
+
+    // no CSV files are written when only the Parquet export is enabled
+    File csvFolder = exportDir.toPath().resolve("csv").toFile();
+    String[] csvFiles = csvFolder.list((dir, name) -> name.endsWith(".csv"));
+    assertTrue(csvFiles == null || csvFiles.length == 0);
+  }
+}
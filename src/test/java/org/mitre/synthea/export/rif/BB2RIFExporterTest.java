@@ -1,5 +1,6 @@
 package org.mitre.synthea.export.rif;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -30,6 +31,7 @@ import org.mitre.synthea.helpers.Config;
 import org.mitre.synthea.helpers.DefaultRandomNumberGenerator;
 import org.mitre.synthea.helpers.RandomNumberGenerator;
 import org.mitre.synthea.helpers.SimpleCSV;
+import org.mitre.synthea.world.agents.Person;
 import org.mitre.synthea.world.concepts.Claim;
 import org.mitre.synthea.world.concepts.HealthRecord.Code;
 
@@ -95,6 +97,28 @@ public class BB2RIFExporterTest {
     BB2RIFExporter.getInstance().prepareOutputFiles();
   }
 
+  @Test
+  public void testExportDoesNotChangeSimulationStream() throws Exception {
+    Config.set("generate.random.algorithm", "splittable");
+    Config.set("exporter.bfd.export", "false");
+    try {
+      Generator.GeneratorOptions generatorOpts = new Generator.GeneratorOptions();
+      generatorOpts.minAge = 75;
+      generatorOpts.maxAge = 90;
+      generatorOpts.ageSpecified = true;
+      generatorOpts.overflow = false;
+      Generator generator = new Generator(generatorOpts, new Exporter.ExporterRuntimeOptions());
+      Person exported = generator.generatePerson(0, 1234L);
+      Person unexported = generator.generatePerson(0, 1234L);
+      assertTrue(BB2RIFExporter.getInstance().export(exported, generator.stop, 10));
+      assertEquals(unexported.randLong(), exported.randLong());
+      assertEquals(unexported.randGaussian(), exported.randGaussian(), 0.0);
+    } finally {
+      Config.set("generate.random.algorithm", "legacy");
+      Config.set("exporter.bfd.export", "true");
+    }
+  }
+
   @Test
   public void testBB2Export() throws Exception {
     BB2RIFExporter.getInstance().dmeCodeMapper = new MockMapper();
@@ -0,0 +1,82 @@
+package org.mitre.synthea.export.rif.tools;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mitre.synthea.export.OutputCodec;
+
+public class LineScannerTest {
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Test
+  public void testScanLines() throws Exception {
+    File file = tempFolder.newFile("beneficiary.csv");
+    Files.write(file.toPath(),
+        "BENE_ID|RFRNC_YR|NAME\r\n-1|2020|Smith\n\n-2|2021|\n-3".getBytes(StandardCharsets.UTF_8));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (LineScanner scanner = new LineScanner(file.toPath(), '|')) {
+      assertTrue(scanner.next());
+      assertArrayEquals(new String[] {"BENE_ID", "RFRNC_YR", "NAME"}, scanner.columns());
+      assertTrue(scanner.next());
+      assertEquals("-1", scanner.column(0));
+      assertEquals("Smith", scanner.column(2));
+      scanner.copyLine(out);
+      // blank lines are skipped
+      assertTrue(scanner.next());
+      assertEquals("2021", scanner.column(1));
+      assertEquals("", scanner.column(2));
+      assertTrue(scanner.next());
+      assertEquals("-3", scanner.column(0));
+      assertNull(scanner.column(1));
+      scanner.copyLine(out);
+      assertFalse(scanner.next());
+    }
+    String nl = System.lineSeparator();
+    assertEquals("-1|2020|Smith" + nl + "-3" + nl, out.toString(StandardCharsets.UTF_8.name()));
+  }
+
+  @Test
+  public void testScanCompressedLines() throws Exception {
+    for (OutputCodec codec : new OutputCodec[] {OutputCodec.GZIP, OutputCodec.LZ4}) {
+      File file = tempFolder.newFile("beneficiary.csv" + codec.getExtension());
+      // more lines than fit in one window of decompressed data
+      int count = 200_000;
+      try (OutputStream out = codec.wrap(Files.newOutputStream(file.toPath()))) {
+        out.write("BENE_ID|RFRNC_YR\n".getBytes(StandardCharsets.UTF_8));
+        for (int i = 0; i < count; i++) {
+          out.write(("-" + i + "|2020\n").getBytes(StandardCharsets.UTF_8));
+        }
+      }
+      try (LineScanner scanner = new LineScanner(file.toPath(), '|')) {
+        assertTrue(scanner.next());
+        assertArrayEquals(new String[] {"BENE_ID", "RFRNC_YR"}, scanner.columns());
+        for (int i = 0; i < count; i++) {
+          assertTrue(scanner.next());
+          assertEquals("-" + i, scanner.column(0));
+          assertEquals("2020", scanner.column(1));
+        }
+        assertFalse(scanner.next());
+      }
+    }
+  }
+
+  @Test
+  public void testEmptyFile() throws Exception {
+    File file = tempFolder.newFile("empty.csv");
+    try (LineScanner scanner = new LineScanner(file.toPath(), '|')) {
+      assertFalse(scanner.next());
+    }
+  }
+}
@@ -0,0 +1,126 @@
+package org.mitre.synthea.helpers;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AliasSamplerTest {
+
+  @Test
+  public void testDistribution() {
+    testDistribution(false);
+    testDistribution(true);
+  }
+
+  private void testDistribution(boolean useAlias) {
+    AliasSampler<String> sampler = AliasSampler.<String>builder()
+        .add(0.1, "a")
+        .add(0.0, "never")
+        .add(0.3, "b")
+        .add(0.6, "c")
+        .build(useAlias);
+    Assert.assertEquals(3, sampler.size());
+    Assert.assertEquals(useAlias, sampler.usesAliasTable());
+
+    RandomNumberGenerator random = new DefaultRandomNumberGenerator(0);
+    int trials = 200_000;
+    int a = 0;
+    int b = 0;
+    int c = 0;
+    for (int i = 0; i < trials; i++) {
+      switch (sampler.next(random)) {
+        case "a":
+          a++;
+          break;
+        case "b":
+          b++;
+          break;
+        case "c":
+          c++;
+          break;
+        default:
+          Assert.fail("Selected an item with zero weight.");
+      }
+    }
+    Assert.assertEquals(0.1, (double) a / trials, 0.01);
+    Assert.assertEquals(0.3, (double) b / trials, 0.01);
+    Assert.assertEquals(0.6, (double) c / trials, 0.01);
+  }
+
+  @Test
+  public void testReproducible() {
+    AliasSampler<Integer> sampler = AliasSampler.<Integer>builder()
+        .add(5, 1).add(1, 2).add(3, 3).add(2, 4).build();
+    RandomNumberGenerator first = new DefaultRandomNumberGenerator(42);
+    RandomNumberGenerator second = new DefaultRandomNumberGenerator(42);
+    for (int i = 0; i < 1000; i++) {
+      Assert.assertEquals(sampler.next(first), sampler.next(second));
+    }
+    Assert.assertEquals(first.getCount(), second.getCount());
+    Assert.assertEquals(1000, first.getCount());
+  }
+
+  @Test
+  public void testLegacySequence() {
+    // drawn with the cumulative TreeMap walk that RandomCollection used before the sampler
+    String[] expected = {"a", "e", "e", "a", "a", "a", "b", "c", "a", "c",
+        "e", "a", "d", "b", "a", "c", "e", "a", "a", "c"};
+    AliasSampler<String> sampler = AliasSampler.<String>builder()
+        .add(5, "a").add(1, "b").add(3, "c").add(0.5, "d").add(2, "e").build();
+    RandomCollection<String> collection = new RandomCollection<String>();
+    collection.add(5, "a");
+    collection.add(1, "b");
+    collection.add(3, "c");
+    collection.add(0.5, "d");
+    collection.add(2, "e");
+    Assert.assertFalse(sampler.usesAliasTable());
+    RandomNumberGenerator first = new DefaultRandomNumberGenerator(12345L,
+        DefaultRandomNumberGenerator.Algorithm.LEGACY);
+    RandomNumberGenerator second = new DefaultRandomNumberGenerator(12345L,
+        DefaultRandomNumberGenerator.Algorithm.LEGACY);
+    for (int i = 0; i < expected.length; i++) {
+      Assert.assertEquals(expected[i], sampler.next(first));
+      Assert.assertEquals(expected[i], collection.next(second));
+    }
+  }
+
+  @Test
+  public void testTinyWeightReplacesPrevious() {
+    // the running total does not change, so the map the weights used to be kept in replaced
+    // "a" with "b" under the same key
+    AliasSampler<String> sampler = AliasSampler.<String>builder()
+        .add(1.0, "a").add(1e-20, "b").add(1.0, "c").build(false);
+    Assert.assertEquals(2, sampler.size());
+    Assert.assertEquals("b", sampler.next(0.0));
+    Assert.assertEquals("c", sampler.next(0.5));
+  }
+
+  @Test
+  public void testConfiguredMethod() {
+    String algorithm = Config.get("generate.random.algorithm", "legacy");
+    try {
+      Config.set("generate.random.algorithm", "legacy");
+      Assert.assertFalse(AliasSampler.<String>builder().add(1, "a").build().usesAliasTable());
+      Config.set("generate.random.algorithm", "splittable");
+      Assert.assertTrue(AliasSampler.<String>builder().add(1, "a").build().usesAliasTable());
+    } finally {
+      Config.set("generate.random.algorithm", algorithm);
+    }
+  }
+
+  @Test
+  public void testBoundaries() {
+    AliasSampler<String> sampler = AliasSampler.<String>builder()
+        .add(1.0, "only")
+        .build();
+    Assert.assertEquals("only", sampler.next(0.0));
+    Assert.assertEquals("only", sampler.next(Math.nextDown(1.0)));
+    sampler = AliasSampler.<String>builder().add(1.0, "only").build(true);
+    Assert.assertEquals("only", sampler.next(0.0));
+    Assert.assertEquals("only", sampler.next(Math.nextDown(1.0)));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testEmpty() {
+    AliasSampler.<String>builder().build().next(0.5);
+  }
+}
@@ -0,0 +1,91 @@
+package org.mitre.synthea.helpers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+import org.mitre.synthea.helpers.DefaultRandomNumberGenerator.Algorithm;
+
+public class DefaultRandomNumberGeneratorTest {
+
+  @Test
+  public void testLegacyMatchesRandom() {
+    for (long seed : new long[] {0L, 1L, -1L, 12345L, System.currentTimeMillis()}) {
+      Random expected = new Random(seed);
+      DefaultRandomNumberGenerator actual =
+          new DefaultRandomNumberGenerator(seed, Algorithm.LEGACY);
+      for (int i = 0; i < 1000; i++) {
+        assertEquals(expected.nextDouble(), actual.rand(), 0.0);
+        assertEquals(expected.nextBoolean(), actual.randBoolean());
+        assertEquals(expected.nextGaussian(), actual.randGaussian(), 0.0);
+        assertEquals(expected.nextInt(), actual.randInt());
+        assertEquals(expected.nextInt(64), actual.randInt(64));
+        assertEquals(expected.nextInt(1000), actual.randInt(1000));
+        assertEquals(expected.nextLong(), actual.randLong());
+      }
+      assertEquals(7000, actual.getCount());
+    }
+  }
+
+  @Test
+  public void testSplittableMatchesSplittableRandom() {
+    for (long seed : new long[] {0L, 1L, -1L, 12345L, System.currentTimeMillis()}) {
+      SplittableRandom expected = new SplittableRandom(seed);
+      DefaultRandomNumberGenerator actual =
+          new DefaultRandomNumberGenerator(seed, Algorithm.SPLITTABLE);
+      for (int i = 0; i < 1000; i++) {
+        assertEquals(expected.nextDouble(), actual.rand(), 0.0);
+        assertEquals(expected.nextBoolean(), actual.randBoolean());
+        assertEquals(expected.nextInt(), actual.randInt());
+        assertEquals(expected.nextInt(64), actual.randInt(64));
+        assertEquals(expected.nextInt(1000), actual.randInt(1000));
+        assertEquals(expected.nextLong(), actual.randLong());
+      }
+    }
+  }
+
+  @Test
+  public void testSplitStreamsAreIndependent() {
+    DefaultRandomNumberGenerator parent =
+        new DefaultRandomNumberGenerator(42L, Algorithm.SPLITTABLE);
+    DefaultRandomNumberGenerator reference =
+        new DefaultRandomNumberGenerator(42L, Algorithm.SPLITTABLE);
+    long expectedExport = reference.split("export").randLong();
+
+    // drawing from a stream does not change the parent
+    DefaultRandomNumberGenerator export = parent.split("export");
+    assertEquals(expectedExport, export.randLong());
+    assertEquals(reference.randLong(), parent.randLong());
+
+    // and drawing from the parent does not change the stream
+    assertEquals(expectedExport, parent.split("export").randLong());
+    assertNotEquals(expectedExport, parent.split("clinicians").randLong());
+  }
+
+  @Test
+  public void testSerializationContinuesTheStream() throws Exception {
+    for (Algorithm algorithm : Algorithm.values()) {
+      DefaultRandomNumberGenerator random = new DefaultRandomNumberGenerator(7L, algorithm);
+      // leave a gaussian value pending
+      random.randGaussian();
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+        oos.writeObject(random);
+      }
+      try (ObjectInputStream ois = new ObjectInputStream(
+          new ByteArrayInputStream(bytes.toByteArray()))) {
+        DefaultRandomNumberGenerator copy = (DefaultRandomNumberGenerator) ois.readObject();
+        assertEquals(random.randGaussian(), copy.randGaussian(), 0.0);
+        assertEquals(random.randLong(), copy.randLong());
+        assertEquals(random.getCount(), copy.getCount());
+      }
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package org.mitre.synthea.helpers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class InstrumentationTest {
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @After
+  public void tearDown() {
+    Instrumentation.stop();
+    Config.set("generate.instrumentation.enabled", "false");
+  }
+
+  @Test
+  public void testDisabledMeasuresNothing() {
+    Config.set("generate.instrumentation.enabled", "false");
+    Instrumentation.start();
+    assertFalse(Instrumentation.enabled);
+
+    Instrumentation.Phase phase = Instrumentation.phase("test.disabled").begin();
+    phase.end();
+    Instrumentation.counter("test.disabled", () -> 1L);
+    Map<String, Object> snapshot = Instrumentation.snapshot();
+    assertTrue(((Map<?, ?>) snapshot.get("counters")).isEmpty());
+    for (Object entry : (List<?>) snapshot.get("phases")) {
+      assertFalse("test.disabled".equals(((Map<?, ?>) entry).get("name")));
+    }
+  }
+
+  @Test
+  public void testPhasesCountersAndSnapshotFile() throws Exception {
+    Path file = tempFolder.getRoot().toPath().resolve("instrumentation.json");
+    Config.set("generate.instrumentation.enabled", "true");
+    Config.set("generate.instrumentation.file", file.toString());
+    Config.set("generate.instrumentation.interval_seconds", "0");
+    Instrumentation.start();
+    assertTrue(Instrumentation.enabled);
+
+    Instrumentation.Phase outer = Instrumentation.begin("test.outer");
+    for (int i = 0; i < 3; i++) {
+      Instrumentation.begin("test.inner").end();
+    }
+    // an inner phase that is never ended is abandoned when the outer one ends
+    Instrumentation.begin("test.abandoned");
+    outer.end();
+
+    Instrumentation.counter("test.people", () -> 42L);
+    Instrumentation.gauge("test.queue", () -> 7L);
+
+    Map<String, Object> snapshot = Instrumentation.snapshot();
+    Map<?, ?> counter = (Map<?, ?>) ((Map<?, ?>) snapshot.get("counters")).get("test.people");
+    assertEquals(42L, counter.get("value"));
+    assertEquals(7L, ((Map<?, ?>) snapshot.get("gauges")).get("test.queue"));
+    boolean foundInner = false;
+    for (Object entry : (List<?>) snapshot.get("phases")) {
+      Map<?, ?> phase = (Map<?, ?>) entry;
+      assertFalse("test.abandoned".equals(phase.get("name")));
+      if ("test.inner".equals(phase.get("name"))) {
+        assertEquals(3L, phase.get("count"));
+        foundInner = true;
+      }
+    }
+    assertTrue(foundInner);
+
+    Instrumentation.stop();
+    assertFalse(Instrumentation.enabled);
+    String json = new String(Files.readAllBytes(file));
+    assertTrue(json.contains("test.people"));
+    assertTrue(json.contains("test.inner"));
+  }
+}
@@ -0,0 +1,110 @@
+package org.mitre.synthea.helpers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class TaskGraphTest {
+
+  @Test
+  public void testIndependentTasksRunConcurrently() throws Exception {
+    // each task waits for the other, so this only finishes if they run at the same time
+    CountDownLatch latch = new CountDownLatch(2);
+    Runnable task = () -> {
+      latch.countDown();
+      try {
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+    };
+    new TaskGraph(2).add("a", task).add("b", task).run();
+    assertEquals(0, latch.getCount());
+  }
+
+  @Test
+  public void testDependenciesRunFirst() {
+    List<String> order = new CopyOnWriteArrayList<>();
+    new TaskGraph(4)
+        .add("a", () -> order.add("a"))
+        .add("b", () -> order.add("b"), "a")
+        .add("c", () -> order.add("c"), "a", "b")
+        .run();
+    assertEquals(3, order.size());
+    assertEquals("a", order.get(0));
+    assertEquals("b", order.get(1));
+    assertEquals("c", order.get(2));
+  }
+
+  @Test
+  public void testDisabledTasks() {
+    List<String> order = new CopyOnWriteArrayList<>();
+    TaskGraph tasks = new TaskGraph(4)
+        .add("a", true, () -> order.add("a"))
+        .add("b", false, () -> order.add("b"), "a")
+        .add("c", true, () -> order.add("c"), "a", "b");
+    tasks.run();
+    // disabled tasks do nothing, but still order the ones that depend on them
+    assertEquals(2, order.size());
+    assertEquals("a", order.get(0));
+    assertEquals("c", order.get(1));
+    assertTrue(tasks.timings().matches("a \\d+ ms, c \\d+ ms"));
+  }
+
+  @Test
+  public void testWrapper() {
+    List<String> order = new CopyOnWriteArrayList<>();
+    TaskGraph tasks = new TaskGraph(1, (name, task) -> () -> {
+      order.add("begin " + name);
+      task.run();
+      order.add("end " + name);
+    });
+    tasks.add("a", () -> order.add("a")).add("b", false, () -> order.add("b"), "a").run();
+    // disabled tasks are not wrapped
+    assertEquals(3, order.size());
+    assertEquals("begin a", order.get(0));
+    assertEquals("a", order.get(1));
+    assertEquals("end a", order.get(2));
+  }
+
+  @Test(expected = ExceptionInInitializerError.class)
+  public void testFailuresAreRethrown() {
+    new TaskGraph(2)
+        .add("ok", () -> { })
+        .add("broken", () -> {
+          throw new ExceptionInInitializerError("deliberate");
+        })
+        .run();
+  }
+
+  @Test
+  public void testFailureSkipsDependents() {
+    List<String> order = new CopyOnWriteArrayList<>();
+    try {
+      new TaskGraph(2)
+          .add("broken", () -> {
+            throw new IllegalStateException("deliberate");
+          })
+          .add("dependent", () -> order.add("dependent"), "broken")
+          .add("independent", () -> order.add("independent"))
+          .run();
+      fail("the failure should be rethrown");
+    } catch (IllegalStateException e) {
+      assertEquals("deliberate", e.getMessage());
+    }
+    assertEquals(1, order.size());
+    assertEquals("independent", order.get(0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownDependency() {
+    new TaskGraph(1).add("a", () -> { }, "missing");
+  }
+}
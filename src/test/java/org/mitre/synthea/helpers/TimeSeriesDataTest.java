@@ -1,5 +1,60 @@
 package org.mitre.synthea.helpers;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import com.google.gson.Gson;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
 public class TimeSeriesDataTest {
 
+  @Test
+  public void testAddValues() {
+    TimeSeriesData data = new TimeSeriesData(0.5);
+    for (int i = 0; i < 25; i++) {
+      data.addValue(i * 2.0);
+    }
+    assertEquals(25, data.size());
+    assertEquals(48.0, data.getValue(24), 0.0);
+    assertEquals(25, data.getValues().size());
+    assertEquals(Double.valueOf(10.0), data.getValues().get(5));
+    assertEquals(0.5, data.getPeriod(), 0.0);
+  }
+
+  @Test
+  public void testArrayIsNotCopied() {
+    double[] values = {1.0, 2.0, 3.0};
+    TimeSeriesData data = new TimeSeriesData(values, 1.0);
+    values[1] = 5.0;
+    assertEquals(5.0, data.getValue(1), 0.0);
+    assertEquals(Arrays.asList(1.0, 5.0, 3.0), data.getValues());
+
+    // adding to a full series copies the values
+    data.addValue(4.0);
+    values[0] = 0.0;
+    assertEquals(1.0, data.getValue(0), 0.0);
+    assertArrayEquals(new double[] {1.0, 5.0, 3.0, 4.0}, data.toArray(), 0.0);
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testValueOutOfBounds() {
+    TimeSeriesData data = new TimeSeriesData(10, 1.0);
+    data.addValue(1.0);
+    data.getValue(1);
+  }
+
+  @Test
+  public void testJson() {
+    TimeSeriesData data = new TimeSeriesData(Arrays.asList(1.5, 2.5), 0.1);
+    Gson gson = new Gson();
+    String json = gson.toJson(data);
+    assertEquals("{\"values\":[1.5,2.5],\"period\":0.1}", json);
+
+    TimeSeriesData read = gson.fromJson(json, TimeSeriesData.class);
+    assertEquals(data.getValues(), read.getValues());
+    assertEquals(0.1, read.getPeriod(), 0.0);
+  }
 }
@@ -2,7 +2,15 @@ package org.mitre.synthea.modules;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.junit.Test;
+import org.mitre.synthea.TestHelper;
+import org.mitre.synthea.world.agents.Person;
 
 public class ImmunizationsTest {
 
@@ -18,4 +26,27 @@ public class ImmunizationsTest {
     int doses = Immunizations.getMaximumDoses(null);
     assertEquals(1, doses);
   }
+
+  @Test
+  public void testImmunizationDue() {
+    long birthday = TestHelper.timestamp(2000, 1, 1, 0, 0, 0);
+    Person person = new Person(0L);
+    person.attributes.put(Person.BIRTHDATE, birthday);
+    Map<String, List<Long>> given = new HashMap<String, List<Long>>();
+
+    // hepb is due at 0, 1 and 6 months
+    assertEquals(1, Immunizations.immunizationDue("hepb", person, birthday, given));
+    given.get("hepb").add(birthday);
+    assertEquals(-1, Immunizations.immunizationDue("hepb", person, birthday, given));
+    long oneMonth = TestHelper.timestamp(2000, 2, 1, 0, 0, 0);
+    assertEquals(2, Immunizations.immunizationDue("hepb", person, oneMonth, given));
+
+    // a history recorded as any list of times is still counted
+    given.put("hepb", new ArrayList<Long>(Arrays.asList(birthday, oneMonth)));
+    long sixMonths = TestHelper.timestamp(2000, 7, 1, 0, 0, 0);
+    assertEquals(3, Immunizations.immunizationDue("hepb", person, sixMonths, given));
+    given.get("hepb").add(sixMonths);
+    assertEquals(Arrays.asList(birthday, oneMonth, sixMonths), given.get("hepb"));
+    assertEquals(-1, Immunizations.immunizationDue("hepb", person, sixMonths, given));
+  }
 }
@@ -0,0 +1,124 @@
+package org.mitre.synthea.world.agents;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Test;
+
+public class AttributeMapTest {
+
+  /** A name that no other test has registered. */
+  private static String unique() {
+    return "attribute-map-test-" + UUID.randomUUID();
+  }
+
+  @Test
+  public void testSlotsAndNamesAreTheSameAttribute() {
+    AttributeMap map = new AttributeMap();
+    AttributeMap.Slot slot = AttributeMap.slot(unique());
+    assertSame(slot, AttributeMap.slot(slot.getKey()));
+
+    map.put(slot, 1);
+    assertEquals(1, map.get(slot.getKey()));
+    map.put(slot.getKey(), 2);
+    assertEquals(2, map.get(slot));
+    assertEquals(1, map.size());
+
+    map.remove(slot.getKey());
+    assertFalse(map.containsKey(slot));
+    assertTrue(map.isEmpty());
+  }
+
+  @Test
+  public void testAttributeRegisteredAfterItWasSet() {
+    AttributeMap map = new AttributeMap();
+    String key = unique();
+    map.put(key, "value");
+    assertEquals(1, map.size());
+
+    AttributeMap.Slot slot = AttributeMap.slot(key);
+    assertEquals("value", map.get(slot));
+    assertEquals("value", map.get(key));
+    assertEquals(1, map.size());
+
+    // a map created after the slot was registered stores it in the slot straight away
+    AttributeMap other = new AttributeMap();
+    other.put(key, "other");
+    assertEquals("other", other.get(slot));
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void testNullValuesAreRejected() {
+    new AttributeMap().put(unique(), null);
+  }
+
+  @Test
+  public void testIterationAndRemoval() {
+    AttributeMap map = new AttributeMap();
+    Map<String, Object> expected = new HashMap<String, Object>();
+    for (int i = 0; i < 10; i++) {
+      String key = unique();
+      if (i % 2 == 0) {
+        AttributeMap.slot(key);
+      }
+      map.put(key, i);
+      expected.put(key, i);
+    }
+    assertEquals(expected, map);
+    assertEquals(expected, new HashMap<String, Object>(map));
+
+    // iteration tolerates removal, and registered attributes come first in order of name
+    List<String> registered = new ArrayList<String>();
+    Iterator<Map.Entry<String, Object>> iter = map.entrySet().iterator();
+    while (iter.hasNext()) {
+      Map.Entry<String, Object> entry = iter.next();
+      if ((int) entry.getValue() % 2 == 0) {
+        registered.add(entry.getKey());
+        iter.remove();
+      }
+    }
+    assertEquals(5, registered.size());
+    for (int i = 1; i < registered.size(); i++) {
+      assertTrue(registered.get(i - 1).compareTo(registered.get(i)) < 0);
+    }
+    assertEquals(5, map.size());
+    for (Object value : map.values()) {
+      assertEquals(1, (int) value % 2);
+    }
+  }
+
+  @Test
+  public void testSerialization() throws Exception {
+    AttributeMap map = new AttributeMap();
+    AttributeMap.Slot slot = AttributeMap.slot(unique());
+    String dynamic = unique();
+    map.put(slot, 12L);
+    map.put(dynamic, "text");
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+      oos.writeObject(map);
+    }
+    try (ObjectInputStream ois = new ObjectInputStream(
+        new ByteArrayInputStream(bytes.toByteArray()))) {
+      AttributeMap copy = (AttributeMap) ois.readObject();
+      assertEquals(map, copy);
+      assertEquals(12L, copy.get(slot));
+      assertNull(copy.get(unique()));
+    }
+  }
+}
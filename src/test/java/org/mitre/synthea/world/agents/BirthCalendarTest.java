@@ -0,0 +1,79 @@
+package org.mitre.synthea.world.agents;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.time.ZoneOffset;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class BirthCalendarTest {
+
+  private static long millis(LocalDate date) {
+    return date.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+  }
+
+  private static void assertSameAge(LocalDate birth, LocalDate date) {
+    Person person = new Person(0L);
+    person.attributes.put(Person.BIRTHDATE, millis(birth));
+    // any time of day gives the same age
+    long time = millis(date) + 13 * 60 * 60 * 1000L;
+    assertEquals(birth + " to " + date, Period.between(birth, date), person.age(time));
+  }
+
+  @Test
+  public void testCivilDates() {
+    for (LocalDate date = LocalDate.of(1599, 12, 1); date.getYear() < 2401;
+        date = date.plusDays(1)) {
+      long civil = BirthCalendar.civilFromDays(date.toEpochDay());
+      assertEquals(date.getYear(), civil >> 9);
+      assertEquals(date.getMonthValue(), (civil >> 5) & 0xF);
+      assertEquals(date.getDayOfMonth(), civil & 0x1F);
+      assertEquals(date.toEpochDay(), BirthCalendar.daysFromCivil(date.getYear(),
+          date.getMonthValue(), date.getDayOfMonth()));
+    }
+  }
+
+  @Test
+  public void testLeapDaysAndMonthEnds() {
+    LocalDate[] births = {
+        LocalDate.of(2000, 2, 29), LocalDate.of(1996, 2, 29), LocalDate.of(1999, 1, 31),
+        LocalDate.of(1999, 3, 31), LocalDate.of(1999, 12, 31), LocalDate.of(1969, 12, 31),
+        LocalDate.of(1900, 2, 28) };
+    for (LocalDate birth : births) {
+      // every day from a year before the birth (negative ages) to a few years after
+      for (LocalDate date = birth.minusYears(1); date.isBefore(birth.plusYears(5));
+          date = date.plusDays(1)) {
+        assertSameAge(birth, date);
+      }
+    }
+  }
+
+  @Test
+  public void testRandomDates() {
+    Random random = new Random(37L);
+    long start = LocalDate.of(1850, 1, 1).toEpochDay();
+    long end = LocalDate.of(2150, 1, 1).toEpochDay();
+    for (int i = 0; i < 20000; i++) {
+      LocalDate birth = LocalDate.ofEpochDay(start + (long) (random.nextDouble() * (end - start)));
+      LocalDate date = LocalDate.ofEpochDay(start + (long) (random.nextDouble() * (end - start)));
+      assertSameAge(birth, date);
+    }
+  }
+
+  @Test
+  public void testBirthdateChange() {
+    Person person = new Person(0L);
+    long now = millis(LocalDate.of(2020, 6, 15));
+    person.attributes.put(Person.BIRTHDATE, millis(LocalDate.of(2000, 6, 15)));
+    assertEquals(20, person.ageInYears(now));
+    person.attributes.put(Person.BIRTHDATE, millis(LocalDate.of(2010, 6, 16)));
+    assertEquals(9, person.ageInYears(now));
+    assertEquals(119, person.ageInMonths(now));
+    person.attributes.remove(Person.BIRTHDATE);
+    assertEquals(0, person.ageInMonths(now));
+    assertEquals(Period.ZERO, person.age(now));
+  }
+}
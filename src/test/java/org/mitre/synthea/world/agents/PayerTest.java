@@ -26,6 +26,7 @@ import org.mitre.synthea.modules.HealthInsuranceModule;
 import org.mitre.synthea.world.agents.behaviors.planeligibility.PlanEligibilityFinder;
 import org.mitre.synthea.world.agents.behaviors.planeligibility.QualifyingAttributesEligibility;
 import org.mitre.synthea.world.agents.behaviors.planfinder.IPlanFinder;
+import org.mitre.synthea.world.concepts.Cents;
 import org.mitre.synthea.world.concepts.Claim;
 import org.mitre.synthea.world.concepts.Costs;
 import org.mitre.synthea.world.concepts.HealthRecord;
@@ -391,7 +392,7 @@ public class PayerTest {
     assertNotEquals("Medicaid", person.coverage.getPlanAtTime(time).getPayer().getName());
     // The MA yearly spenddown amount is $6264. They need $(income - 6264) in healthcare expenses.
     person.coverage.getPlanRecordAtTime(time)
-        .incrementOutOfPocketExpenses(BigDecimal.valueOf(income - 6264));
+        .incrementOutOfPocketExpenses((income - 6264) * Cents.PER_DOLLAR);
     // Now process their insurance and they should switch to Medicaid.
     Calendar c = Calendar.getInstance();
     c.setTimeInMillis(time);
@@ -613,16 +614,16 @@ public class PayerTest {
     BigDecimal expectedTotalCost = fakeEncounter.getCost();
     person.record.encounterEnd(0L, EncounterType.WELLNESS);
     // Check that the deductibles are accurate.
-    assertTrue(plan.getDeductible()
-        .compareTo(fakeEncounter.claim.totals.deductiblePaidByPatient) == 0.0);
+    assertEquals(plan.getDeductibleInCents(),
+        fakeEncounter.claim.totals.deductiblePaidByPatient);
     // check that totals match
-    assertEquals(expectedTotalCost, fakeEncounter.claim.totals.cost);
-    BigDecimal resultCost = fakeEncounter.claim.totals.paidByPayer
-        .add(fakeEncounter.claim.totals.patientOutOfPocket)
-        .add(fakeEncounter.claim.totals.coinsurancePaidByPayer)
-        .add(fakeEncounter.claim.totals.copayPaidByPatient)
-        .add(fakeEncounter.claim.totals.deductiblePaidByPatient);
-    assertEquals(expectedTotalCost, resultCost);
+    assertEquals(fakeEncounter.getCostInCents(), fakeEncounter.claim.totals.cost);
+    long resultCost = fakeEncounter.claim.totals.paidByPayer
+        + fakeEncounter.claim.totals.patientOutOfPocket
+        + fakeEncounter.claim.totals.coinsurancePaidByPayer
+        + fakeEncounter.claim.totals.copayPaidByPatient
+        + fakeEncounter.claim.totals.deductiblePaidByPatient;
+    assertEquals(fakeEncounter.getCostInCents(), resultCost);
     // The total cost should equal the Cost to the Payer summed with the Payer's copay amount.
     assertEquals(expectedTotalCost, testPrivatePayer1.getAmountCovered()
         .add(fakeEncounter.claim.getTotalPatientCost()));
@@ -745,21 +746,22 @@ public class PayerTest {
     assertTrue(testPrivatePayer1Plan.coversService(encounter));
     healthRecord.encounterEnd(time, EncounterType.INPATIENT);
     // Person's coverage should equal the cost of the encounter
-    BigDecimal coverage = encounter.claim.totals.coinsurancePaidByPayer.add(
-        encounter.claim.totals.paidByPayer);
-    assertEquals(person.coverage.getTotalCoverage(), coverage);
-    BigDecimal resultCost = encounter.claim.totals.paidByPayer
-        .add(encounter.claim.totals.patientOutOfPocket)
-        .add(encounter.claim.totals.coinsurancePaidByPayer)
-        .add(encounter.claim.totals.copayPaidByPatient)
-        .add(encounter.claim.totals.deductiblePaidByPatient);
-    assertTrue("Test Failed: Encounter cost was " + encounter.getCost() + " and the result was "
-        + resultCost + ". Expected equality.", encounter.getCost().compareTo(resultCost) == 0);
+    long coverage = encounter.claim.totals.coinsurancePaidByPayer
+        + encounter.claim.totals.paidByPayer;
+    assertEquals(person.coverage.getTotalCoverage(), Cents.toBigDecimal(coverage));
+    long resultCost = encounter.claim.totals.paidByPayer
+        + encounter.claim.totals.patientOutOfPocket
+        + encounter.claim.totals.coinsurancePaidByPayer
+        + encounter.claim.totals.copayPaidByPatient
+        + encounter.claim.totals.deductiblePaidByPatient;
+    assertEquals("Test Failed: Encounter cost was " + encounter.getCost() + " and the result was "
+        + Cents.toString(resultCost) + ". Expected equality.",
+        encounter.getCostInCents(), resultCost);
     // Person's expenses should equal the copay.
-    BigDecimal expenses = encounter.claim.totals.patientOutOfPocket
-        .add(encounter.claim.totals.deductiblePaidByPatient)
-        .add(encounter.claim.totals.copayPaidByPatient);
-    assertEquals(person.coverage.getTotalOutOfPocketExpenses(), expenses);
+    long expenses = encounter.claim.totals.patientOutOfPocket
+        + encounter.claim.totals.deductiblePaidByPatient
+        + encounter.claim.totals.copayPaidByPatient;
+    assertEquals(person.coverage.getTotalOutOfPocketExpenses(), Cents.toBigDecimal(expenses));
     assertEquals(encounter.claim.totals.copayPaidByPatient, expenses);
   }
 
@@ -2,8 +2,6 @@ package org.mitre.synthea.world.agents.behaviors.payeradjustment;
 
 import static org.junit.Assert.assertTrue;
 
-import java.math.BigDecimal;
-
 import org.junit.Test;
 import org.mitre.synthea.world.agents.PayerManager;
 import org.mitre.synthea.world.agents.Person;
@@ -29,8 +27,8 @@ public class PayerAdjustmentTest {
     claim.assignCosts();
 
     IPayerAdjustment adjustment = new PayerAdjustmentNone();
-    BigDecimal result = adjustment.adjustClaim(claim.mainEntry, person);
-    assertTrue("Adjustment should be zero.", result.equals(Claim.ZERO_CENTS));
+    long result = adjustment.adjustClaim(claim.mainEntry, person);
+    assertTrue("Adjustment should be zero.", result == 0L);
   }
 
   @Test
@@ -45,16 +43,16 @@ public class PayerAdjustmentTest {
     claim.assignCosts();
 
     IPayerAdjustment adjustment = new PayerAdjustmentFixed(0.5);
-    BigDecimal result = adjustment.adjustClaim(claim.mainEntry, person);
-    assertTrue("Adjustment should be non-zero", result.compareTo(claim.mainEntry.cost) < 0);
+    long result = adjustment.adjustClaim(claim.mainEntry, person);
+    assertTrue("Adjustment should be non-zero", result < claim.mainEntry.cost);
 
     adjustment = new PayerAdjustmentFixed(1.0);
     result = adjustment.adjustClaim(claim.mainEntry, person);
-    assertTrue("Adjustment should be total", result.equals(claim.mainEntry.cost));
+    assertTrue("Adjustment should be total", result == claim.mainEntry.cost);
 
     adjustment = new PayerAdjustmentFixed(0.0);
     result = adjustment.adjustClaim(claim.mainEntry, person);
-    assertTrue("Adjustment should be zero", result.equals(Claim.ZERO_CENTS));
+    assertTrue("Adjustment should be zero", result == 0L);
   }
 
   @Test
@@ -73,12 +71,12 @@ public class PayerAdjustmentTest {
     Mockito.when(shadow.randBoolean()).thenReturn(true);
 
     IPayerAdjustment adjustment = new PayerAdjustmentRandom(0.5);
-    BigDecimal result = adjustment.adjustClaim(claim.mainEntry, shadow);
-    assertTrue("Adjustment should be non-zero", result.compareTo(claim.mainEntry.cost) < 0);
+    long result = adjustment.adjustClaim(claim.mainEntry, shadow);
+    assertTrue("Adjustment should be non-zero", result < claim.mainEntry.cost);
 
     Mockito.when(shadow.randBoolean()).thenReturn(false);
     result = adjustment.adjustClaim(claim.mainEntry, shadow);
-    assertTrue("Adjustment should be zero", result.equals(Claim.ZERO_CENTS));
+    assertTrue("Adjustment should be zero", result == 0L);
   }
 
   @Test
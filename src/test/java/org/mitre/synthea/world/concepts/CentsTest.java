@@ -0,0 +1,72 @@
+package org.mitre.synthea.world.concepts;
+
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class CentsTest {
+
+  @Test
+  public void testTruncateMatchesBigDecimal() {
+    Random random = new Random(12345L);
+    double[] fixed = { 0.0, 0.01, 0.1, 0.29, 1.005, 2.675, 19.99, 100.0, 123456.789, -4.35 };
+    for (double value : fixed) {
+      assertTruncate(value);
+    }
+    for (int i = 0; i < 100_000; i++) {
+      assertTruncate(random.nextDouble() * 10_000.0);
+      assertTruncate(random.nextInt(1_000_000) / 100.0);
+      assertTruncate(-random.nextDouble() * 500.0);
+    }
+  }
+
+  private static void assertTruncate(double value) {
+    long expected = BigDecimal.valueOf(value).setScale(2, RoundingMode.DOWN)
+        .unscaledValue().longValueExact();
+    assertEquals("truncate(" + value + ")", expected, Cents.truncate(value));
+  }
+
+  @Test
+  public void testMultiplyMatchesBigDecimal() {
+    Random random = new Random(67890L);
+    for (int i = 0; i < 100_000; i++) {
+      long cents = random.nextInt(10_000_000);
+      BigDecimal rate = BigDecimal.valueOf(random.nextInt(1000), 3);
+      long expected = rate.multiply(Cents.toBigDecimal(cents))
+          .setScale(2, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+      assertEquals(expected, Cents.multiply(cents, Cents.Rate.of(rate)));
+    }
+    // Exact halves round to the even cent.
+    assertEquals(2L, Cents.multiply(5L, Cents.Rate.of(new BigDecimal("0.5"))));
+    assertEquals(4L, Cents.multiply(7L, Cents.Rate.of(new BigDecimal("0.5"))));
+    assertEquals(-2L, Cents.multiply(-5L, Cents.Rate.of(new BigDecimal("0.5"))));
+  }
+
+  @Test
+  public void testDivideMatchesBigDecimal() {
+    Random random = new Random(13579L);
+    for (int i = 0; i < 100_000; i++) {
+      long cents = random.nextInt(2_000_000) - 1_000_000;
+      long divisor = random.nextInt(36) + 1;
+      long expected = Cents.toBigDecimal(cents)
+          .divide(BigDecimal.valueOf(divisor), RoundingMode.HALF_EVEN)
+          .unscaledValue().longValueExact();
+      assertEquals(cents + " / " + divisor, expected, Cents.divide(cents, divisor));
+    }
+  }
+
+  @Test
+  public void testToString() {
+    assertEquals("0.00", Cents.toString(0L));
+    assertEquals("0.05", Cents.toString(5L));
+    assertEquals("12.30", Cents.toString(1230L));
+    assertEquals("-12.05", Cents.toString(-1205L));
+    for (long cents = -1000L; cents <= 1000L; cents++) {
+      assertEquals(Cents.toBigDecimal(cents).toString(), Cents.toString(cents));
+    }
+  }
+}